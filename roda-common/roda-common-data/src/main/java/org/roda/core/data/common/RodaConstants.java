@@ -52,6 +52,9 @@ public final class RodaConstants {
   public static final String TRANSFERRED_RESOURCES_SUCCESSFULLY_INGESTED_FOLDER = "SUCCESSFULLY_INGESTED";
   public static final String TRANSFERRED_RESOURCES_UNSUCCESSFULLY_INGESTED_FOLDER = "UNSUCCESSFULLY_INGESTED";
   public static final String CORE_TRANSFERRED_RESOURCES_INGEST_MOVE_WHEN_AUTOACCEPT = "core.ingest.processed.move_when_autoaccept";
+  public static final String CORE_INGEST_SIP2AIP_MOVE_TRANSFERRED_RESOURCE = "core.ingest.sip2aip.move_transferred_resource";
+  public static final String CORE_INGEST_PIPELINED = "core.ingest.pipelined.enabled";
+  public static final String CORE_INGEST_PIPELINED_QUEUE_SIZE = "core.ingest.pipelined.queue_size";
 
   /*
    * Misc
@@ -156,6 +159,7 @@ public final class RodaConstants {
   public static final String RODA_OBJECT_RISK = "risk";
   public static final String RODA_OBJECT_INCIDENCE = "incidence";
   public static final String RODA_OBJECT_TRANSFERRED_RESOURCE = "transferred_resource";
+  public static final String RODA_OBJECT_TRANSFERRED_RESOURCE_UPLOAD = "transferred_resource_upload";
   public static final String RODA_OBJECT_USER = "user";
   public static final String RODA_OBJECT_GROUP = "group";
   public static final String RODA_OBJECT_DESCRIPTIVE_METADATA = "descriptive_metadata";
@@ -208,6 +212,8 @@ public final class RodaConstants {
   public static final String CORE_JOBREPORT_FOLDER = "jobreport";
   public static final String CORE_JOB_FOLDER = "job";
   public static final String CORE_TRANSFERREDRESOURCE_FOLDER = "transferredresource";
+  public static final String CORE_TRANSFERREDRESOURCE_UPLOADS_FOLDER = "transferred-resource-uploads";
+  public static final String CORE_INGEST_STAGING_FOLDER = "ingest-staging";
   public static final String CORE_MEMBERS_FOLDER = "members";
   public static final String CORE_ACTIONLOG_FOLDER = "actionlog";
   public static final String CORE_PRESERVATIONEVENT_FOLDER = "preservationevent";
@@ -237,6 +243,7 @@ public final class RodaConstants {
   public static final String CORE_DIP_FOLDER = "dip";
   public static final String CORE_DIP_FILE_FOLDER = "dipfile";
   public static final String CORE_REPRESENTATION_INFORMATION_FOLDER = "representation-information";
+  public static final String CORE_FIXITY_AUDITOR_FOLDER = "fixity-audit";
 
   public static final String CORE_I18N_CLIENT_FOLDER = "client";
   public static final String CORE_I18_GWT_XML_FILE = "I18N.gwt.xml";
@@ -276,6 +283,7 @@ public final class RodaConstants {
   public static final String API_ACKNOWLEDGE = "acknowledge";
   public static final String API_STOP = "stop";
   public static final String API_REPORTS = "reports";
+  public static final String API_DUPLICATES = "duplicates";
   // "http query string" related strings
   public static final String API_QUERY_START = "?";
   public static final String API_QUERY_ASSIGN_SYMBOL = "=";
@@ -296,7 +304,11 @@ public final class RodaConstants {
   public static final String API_QUERY_VALUE_LANG_PT_PT = "pt_PT";
   public static final String API_QUERY_VALUE_LANG_EN_US = "en_US";
   public static final String API_QUERY_KEY_START = "start";
+  public static final String API_QUERY_KEY_OFFSET = "offset";
+  public static final String API_QUERY_KEY_SHA256 = "sha256";
+  public static final String API_QUERY_KEY_MD5 = "md5";
   public static final String API_QUERY_KEY_LIMIT = "limit";
+  public static final String API_QUERY_KEY_CURSOR = "cursor";
   public static final String API_QUERY_IS_ORIGINAL = "isOriginal";
   public static final String API_QUERY_KEY_RETURN_CLASS = "returnClass";
   public static final String API_QUERY_KEY_ONLY_ACTIVE = "onlyActive";
@@ -316,6 +328,7 @@ public final class RodaConstants {
   public static final String API_PATH_PARAM_METADATA_ID = "metadata_id";
   public static final String API_PATH_PARAM_TRANSFERRED_RESOURCE_ID = "transferred_resource_id";
   public static final String API_PATH_PARAM_TRANSFERRED_RESOURCE_UUID = "transferred_resource_uuid";
+  public static final String API_PATH_PARAM_TRANSFERRED_RESOURCE_UPLOAD_ID = "upload_id";
   public static final String API_PATH_PARAM_SIP_ID = "sip_id";
   public static final String API_PATH_PARAM_NOTIFICATION_ID = "notification_id";
   public static final String API_PATH_PARAM_AGENT_ID = "agent_id";
@@ -350,6 +363,7 @@ public final class RodaConstants {
   public static final String API_QUERY_PARAM_PASSWORD = "password";
   public static final String API_QUERY_PARAM_SIZE_LIMIT = "size";
   public static final String API_QUERY_PARAM_DETAILS = "details";
+  public static final String API_QUERY_PARAM_DIGEST = "digest";
   public static final String API_QUERY_PARAM_ONLY_DETAILS = "onlyDetails";
   public static final String API_QUERY_PARAM_COMMIT = "commit";
   public static final String API_PARAM_UPLOAD = "upl";
@@ -360,6 +374,7 @@ public final class RodaConstants {
   public static final String API_FORM_PARAM_FILENAME = "filename";
   // http headers used
   public static final String API_HTTP_HEADER_ACCEPT = "Accept";
+  public static final String API_HTTP_HEADER_NEXT_CURSOR = "X-Next-Cursor";
   // job related params
   public static final String API_PATH_PARAM_JOB_ID = "jobId";
   public static final String API_PATH_PARAM_JOB_JUST_FAILED = "jobJustFailed";
@@ -397,6 +412,8 @@ public final class RodaConstants {
   public static final String CONTROLLER_TRANSFERRED_RESOURCE_PARAM = RODA_OBJECT_TRANSFERRED_RESOURCE;
   public static final String CONTROLLER_TRANSFERRED_RESOURCE_ID_PARAM = "transferredResourceId";
   public static final String CONTROLLER_TRANSFERRED_RESOURCE_NAME_PARAM = "transferredResourceName";
+  public static final String CONTROLLER_UPLOAD_ID_PARAM = "uploadId";
+  public static final String CONTROLLER_OFFSET_PARAM = "offset";
   public static final String CONTROLLER_FILE_PARAM = RODA_OBJECT_FILE;
   public static final String CONTROLLER_FILE_ID_PARAM = "fileId";
   public static final String CONTROLLER_FILE_UUID_PARAM = "fileUUID";
@@ -437,6 +454,7 @@ public final class RodaConstants {
   public static final String CONTROLLER_FILTER_PARAM = "filter";
   public static final String CONTROLLER_SORTER_PARAM = "sorter";
   public static final String CONTROLLER_SUBLIST_PARAM = "sublist";
+  public static final String CONTROLLER_CURSOR_PARAM = "cursor";
   public static final String CONTROLLER_CLASS_PARAM = "class";
   public static final String CONTROLLER_JUST_ACTIVE_PARAM = "justActive";
   public static final String CONTROLLER_SELECTED_ITEMS_PARAM = "selectedItems";
@@ -526,6 +544,7 @@ public final class RodaConstants {
   public static final String INDEX_JOB = "Job";
   public static final String INDEX_JOB_REPORT = "JobReport";
   public static final String INDEX_FILE = "File";
+  public static final String INDEX_FILE_FULLTEXT = "FileFulltext";
   public static final String INDEX_RISK = "Risk";
   public static final String INDEX_AGENT = "Agent";
   public static final String INDEX_NOTIFICATION = "Notification";
@@ -631,6 +650,19 @@ public final class RodaConstants {
   public static final String AIP_NUMBER_OF_DOCUMENTATION_FILES = "numberOfDocumentationFiles";
   public static final String AIP_NUMBER_OF_SCHEMA_FILES = "numberOfSchemaFiles";
 
+  // data files of the AIP representations and of the AIP subtree (the AIP and
+  // all its descendants), format counts are stored in <prefix><format>_l fields
+  // and the formats fields may still list formats whose files were all deleted
+  public static final String AIP_NUMBER_OF_DATA_FILES = "numberOfDataFiles";
+  public static final String AIP_SIZE_IN_BYTES = "sizeInBytes";
+  public static final String AIP_FORMATS = "formats";
+  public static final String AIP_FORMAT_COUNT_PREFIX = "formatCount_";
+  public static final String AIP_SUBTREE_NUMBER_OF_AIPS = "subtreeNumberOfAIPs";
+  public static final String AIP_SUBTREE_NUMBER_OF_DATA_FILES = "subtreeNumberOfDataFiles";
+  public static final String AIP_SUBTREE_SIZE_IN_BYTES = "subtreeSizeInBytes";
+  public static final String AIP_SUBTREE_FORMATS = "subtreeFormats";
+  public static final String AIP_SUBTREE_FORMAT_COUNT_PREFIX = "subtreeFormatCount_";
+
   public static final String AIP_TYPE = "type";
   public static final String AIP_LEVEL = "level";
   public static final String AIP_TITLE = "title";
@@ -669,6 +701,8 @@ public final class RodaConstants {
   public static final String REPRESENTATION_NUMBER_OF_DATA_FOLDERS = "numberOfDataFolders";
   public static final String REPRESENTATION_NUMBER_OF_DOCUMENTATION_FILES = "numberOfDocumentationFiles";
   public static final String REPRESENTATION_NUMBER_OF_SCHEMA_FILES = "numberOfSchemaFiles";
+  public static final String REPRESENTATION_FORMATS = "formats";
+  public static final String REPRESENTATION_FORMAT_COUNT_PREFIX = "formatCount_";
   public static final String REPRESENTATION_ANCESTORS = "ancestors";
 
   public static final String REPRESENTATION_CREATED_ON = "createdOn";
@@ -814,6 +848,8 @@ public final class RodaConstants {
   public static final String PLUGIN_PARAMS_BOOLEAN_VALUE = "parameter.boolean_value";
   public static final String PLUGIN_PARAMS_CLEAR_INDEXES = "parameter.clear_indexes";
   public static final String PLUGIN_PARAMS_OPTIMIZE_INDEXES = "parameter.optimize_indexes";
+  public static final String PLUGIN_PARAMS_ONLY_INCONSISTENT = "parameter.only_inconsistent";
+  public static final String PLUGIN_PARAMS_DEEP_COMPARISON = "parameter.deep_comparison";
   public static final String PLUGIN_PARAMS_OBJECT_CLASS = "parameter.object_class";
   public static final String PLUGIN_PARAMS_CLASS_CANONICAL_NAME = "parameter.class_canonical_name";
   public static final String PLUGIN_PARAMS_SIP_TO_AIP_CLASS = "parameter.sip_to_aip_class";
@@ -839,6 +875,7 @@ public final class RodaConstants {
   public static final String PLUGIN_PARAMS_NOTIFICATION_WHEN_FAILED = "parameter.notification_when_failed";
   public static final String PLUGIN_PARAMS_CREATES_PLUGIN_EVENT = "createsPluginEvent";
   public static final String PLUGIN_PARAMS_CREATE_SUBMISSION = "parameter.create_submission";
+  public static final String PLUGIN_PARAMS_MOVE_TRANSFERRED_RESOURCE = "parameter.move_transferred_resource";
   public static final String PLUGIN_PARAMS_USERNAME = "parameter.username";
   public static final String PLUGIN_PARAMS_IGNORE_OTHER_FILES = "parameter.ignore_other_files";
   public static final String PLUGIN_PARAMS_VERAPDF_VALIDATION = "parameter.ignore_verapdf_validation";
@@ -960,10 +997,20 @@ public final class RodaConstants {
   public static final String FILE_CREATING_APPLICATION_VERSION = "creatingApplicationVersion";
   public static final String FILE_DATE_CREATED_BY_APPLICATION = "dateCreatedByApplication";
   public static final String FILE_HASH = "hash";
+  // fixity digests as <algorithm>:<lowercase digest>, to find identical files
+  public static final String FILE_DIGEST = "digest";
   public static final String FILE_FULLTEXT = "fulltext";
   public static final String FILE_ANCESTORS = "ancestors";
   public static final String FILE_FORMAT_DESIGNATION = "formatDesignation";
 
+  /* File fulltext (chunks) */
+  public static final String FILE_FULLTEXT_FILE_UUID = "fileUUID";
+  public static final String FILE_FULLTEXT_AIP_ID = "aipId";
+  public static final String FILE_FULLTEXT_REPRESENTATION_UUID = "representationUUID";
+  public static final String FILE_FULLTEXT_CHUNK_INDEX = "chunkIndex";
+  public static final String FILE_FULLTEXT_SOURCE_VERSION = "sourceVersion";
+  public static final String FILE_FULLTEXT_CONTENT = "content";
+
   /* Risks */
   public static final String RISK_ID = "id";
   public static final String RISK_NAME = "name";
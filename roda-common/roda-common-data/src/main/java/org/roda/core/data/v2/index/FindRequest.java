@@ -36,6 +36,11 @@ public class FindRequest extends CountRequest {
   public String filename;
   /** The index fields to return and use to construct the indexed object. */
   public List<String> fieldsToReturn;
+  /**
+   * Cursor to continue from (paging without offset, the sublist start is
+   * ignored). Use "*" to get the first page.
+   */
+  public String cursor = null;
 
   /**
    * Constructor.
@@ -53,6 +53,7 @@ public class IndexResult<T extends Serializable> implements Serializable {
   private List<T> results;
   private List<FacetFieldResult> facetResults;
   private Date date;
+  private String nextCursor = null;
 
   public IndexResult() {
     super();
@@ -148,10 +149,22 @@ public class IndexResult<T extends Serializable> implements Serializable {
     this.date = date;
   }
 
+  /**
+   * @return the cursor to use to get the next page of results, or
+   *         <code>null</code> if this result was not obtained using a cursor.
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
   @Override
   public String toString() {
     return "IndexResult [offset=" + offset + ", limit=" + limit + ", totalCount=" + totalCount + ", results=" + results
-      + ", facetResults=" + facetResults + ", date=" + date + "]";
+      + ", facetResults=" + facetResults + ", date=" + date + ", nextCursor=" + nextCursor + "]";
   }
 
 }
@@ -16,6 +16,7 @@ public class SimpleFacetParameter extends FacetParameter {
   public static final int DEFAULT_LIMIT = 100;
 
   private int limit = DEFAULT_LIMIT;
+  private int offset = 0;
 
   public SimpleFacetParameter() {
     super();
@@ -62,8 +63,20 @@ public class SimpleFacetParameter extends FacetParameter {
     this.limit = limit;
   }
 
+  /**
+   * @return the number of values skipped before the first one returned, to
+   *         page through the values of a facet.
+   */
+  public int getOffset() {
+    return offset;
+  }
+
+  public void setOffset(int offset) {
+    this.offset = offset;
+  }
+
   @Override
   public String toString() {
-    return "SimpleFacetParameter [ super=" + super.toString() + ", limit=" + this.limit + "]";
+    return "SimpleFacetParameter [ super=" + super.toString() + ", limit=" + this.limit + ", offset=" + this.offset + "]";
   }
 }
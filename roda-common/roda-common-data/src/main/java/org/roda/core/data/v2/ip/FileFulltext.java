@@ -0,0 +1,163 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.data.v2.ip;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.v2.index.IsIndexed;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A chunk of the fulltext extracted from a {@link File}. Fulltext is kept apart
+ * from the file index so it is only sent to the index when it changes and so
+ * large texts can be split in several chunks.
+ */
+@JsonInclude(JsonInclude.Include.ALWAYS)
+public class FileFulltext implements IsIndexed, HasId {
+  private static final long serialVersionUID = 4716213960781316437L;
+
+  private String id = null;
+  private String fileUUID = null;
+  private String aipId = null;
+  private String representationUUID = null;
+  private int chunkIndex = 0;
+  private String sourceVersion = null;
+  private String content = null;
+
+  private Map<String, Object> fields;
+
+  public FileFulltext() {
+    super();
+  }
+
+  public FileFulltext(String fileUUID, String aipId, String representationUUID, int chunkIndex, String sourceVersion,
+    String content) {
+    super();
+    this.id = getChunkId(fileUUID, chunkIndex);
+    this.fileUUID = fileUUID;
+    this.aipId = aipId;
+    this.representationUUID = representationUUID;
+    this.chunkIndex = chunkIndex;
+    this.sourceVersion = sourceVersion;
+    this.content = content;
+  }
+
+  public static String getChunkId(String fileUUID, int chunkIndex) {
+    return fileUUID + "-" + chunkIndex;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getFileUUID() {
+    return fileUUID;
+  }
+
+  public void setFileUUID(String fileUUID) {
+    this.fileUUID = fileUUID;
+  }
+
+  public String getAipId() {
+    return aipId;
+  }
+
+  public void setAipId(String aipId) {
+    this.aipId = aipId;
+  }
+
+  public String getRepresentationUUID() {
+    return representationUUID;
+  }
+
+  public void setRepresentationUUID(String representationUUID) {
+    this.representationUUID = representationUUID;
+  }
+
+  public int getChunkIndex() {
+    return chunkIndex;
+  }
+
+  public void setChunkIndex(int chunkIndex) {
+    this.chunkIndex = chunkIndex;
+  }
+
+  /**
+   * @return the size and last modification of the extracted fulltext the chunk
+   *         was taken from, used to find if the fulltext changed since it was
+   *         indexed without reading it.
+   */
+  public String getSourceVersion() {
+    return sourceVersion;
+  }
+
+  public void setSourceVersion(String sourceVersion) {
+    this.sourceVersion = sourceVersion;
+  }
+
+  /**
+   * @return the chunk content, only available when creating the chunk as it is
+   *         not stored in the index.
+   */
+  public String getContent() {
+    return content;
+  }
+
+  public void setContent(String content) {
+    this.content = content;
+  }
+
+  @Override
+  public String toString() {
+    return "FileFulltext [id=" + id + ", fileUUID=" + fileUUID + ", aipId=" + aipId + ", representationUUID="
+      + representationUUID + ", chunkIndex=" + chunkIndex + ", sourceVersion=" + sourceVersion + "]";
+  }
+
+  @Override
+  public List<String> toCsvHeaders() {
+    return Arrays.asList("id", "fileUUID", "aipId", "representationUUID", "chunkIndex", "sourceVersion");
+  }
+
+  @Override
+  public List<Object> toCsvValues() {
+    return Arrays.asList(id, fileUUID, aipId, representationUUID, chunkIndex, sourceVersion);
+  }
+
+  @JsonIgnore
+  @Override
+  public String getUUID() {
+    return getId();
+  }
+
+  @Override
+  public List<String> liteFields() {
+    return Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.FILE_FULLTEXT_FILE_UUID);
+  }
+
+  @Override
+  public Map<String, Object> getFields() {
+    return fields;
+  }
+
+  @Override
+  public void setFields(Map<String, Object> fields) {
+    this.fields = fields;
+  }
+
+}
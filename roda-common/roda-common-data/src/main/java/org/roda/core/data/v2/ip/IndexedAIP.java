@@ -62,6 +62,14 @@ public class IndexedAIP implements IsIndexed, HasId, HasPermissions, HasState {
   private Boolean hasRepresentations;
   private Boolean ghost;
 
+  private Long numberOfDataFiles;
+  private Long sizeInBytes;
+  private Map<String, Long> formatCounts = new HashMap<>();
+  private Long subtreeNumberOfAIPs;
+  private Long subtreeNumberOfDataFiles;
+  private Long subtreeSizeInBytes;
+  private Map<String, Long> subtreeFormatCounts = new HashMap<>();
+
   private List<String> ingestSIPIds;
   private String ingestJobId;
   private List<String> ingestUpdateJobIds = new ArrayList<>();
@@ -150,6 +158,75 @@ public class IndexedAIP implements IsIndexed, HasId, HasPermissions, HasState {
     this.numberOfSchemaFiles = numberOfSchemaFiles;
   }
 
+  /**
+   * @return the number of data files in the representations of this AIP.
+   */
+  public Long getNumberOfDataFiles() {
+    return numberOfDataFiles;
+  }
+
+  public void setNumberOfDataFiles(Long numberOfDataFiles) {
+    this.numberOfDataFiles = numberOfDataFiles;
+  }
+
+  public Long getSizeInBytes() {
+    return sizeInBytes;
+  }
+
+  public void setSizeInBytes(Long sizeInBytes) {
+    this.sizeInBytes = sizeInBytes;
+  }
+
+  /**
+   * @return the number of data files per format (PRONOM identifier or, if
+   *         missing, mimetype) in the representations of this AIP.
+   */
+  public Map<String, Long> getFormatCounts() {
+    return formatCounts;
+  }
+
+  public void setFormatCounts(Map<String, Long> formatCounts) {
+    this.formatCounts = formatCounts;
+  }
+
+  /**
+   * @return the number of descendants of this AIP.
+   */
+  public Long getSubtreeNumberOfAIPs() {
+    return subtreeNumberOfAIPs;
+  }
+
+  public void setSubtreeNumberOfAIPs(Long subtreeNumberOfAIPs) {
+    this.subtreeNumberOfAIPs = subtreeNumberOfAIPs;
+  }
+
+  /**
+   * @return the number of data files of this AIP and all its descendants.
+   */
+  public Long getSubtreeNumberOfDataFiles() {
+    return subtreeNumberOfDataFiles;
+  }
+
+  public void setSubtreeNumberOfDataFiles(Long subtreeNumberOfDataFiles) {
+    this.subtreeNumberOfDataFiles = subtreeNumberOfDataFiles;
+  }
+
+  public Long getSubtreeSizeInBytes() {
+    return subtreeSizeInBytes;
+  }
+
+  public void setSubtreeSizeInBytes(Long subtreeSizeInBytes) {
+    this.subtreeSizeInBytes = subtreeSizeInBytes;
+  }
+
+  public Map<String, Long> getSubtreeFormatCounts() {
+    return subtreeFormatCounts;
+  }
+
+  public void setSubtreeFormatCounts(Map<String, Long> subtreeFormatCounts) {
+    this.subtreeFormatCounts = subtreeFormatCounts;
+  }
+
   public AIPState getState() {
     return state;
   }
@@ -476,10 +553,12 @@ public class IndexedAIP implements IsIndexed, HasId, HasPermissions, HasState {
       + description + '\'' + ", parentID='" + parentID + '\'' + ", ancestors=" + ancestors + ", permissions="
       + permissions + ", numberOfSubmissionFiles=" + numberOfSubmissionFiles + ", numberOfDocumentationFiles="
       + numberOfDocumentationFiles + ", numberOfSchemaFiles=" + numberOfSchemaFiles + ", hasRepresentations="
-      + hasRepresentations + ", ghost=" + ghost + ", ingestSIPId='" + ingestSIPIds + '\'' + ", ingestJobId="
-      + ingestJobId + ", ingestUpdateJobIds='" + ingestUpdateJobIds + '\'' + ", allIngestJobIds='" + allIngestJobIds
-      + '\'' + ", createdOn='" + createdOn + "', createdBy='" + createdBy + "', updatedOn='" + updatedOn
-      + "', updatedBy='" + updatedBy + "'}";
+      + hasRepresentations + ", ghost=" + ghost + ", numberOfDataFiles=" + numberOfDataFiles + ", sizeInBytes="
+      + sizeInBytes + ", subtreeNumberOfAIPs=" + subtreeNumberOfAIPs + ", subtreeNumberOfDataFiles="
+      + subtreeNumberOfDataFiles + ", subtreeSizeInBytes=" + subtreeSizeInBytes + ", ingestSIPId='" + ingestSIPIds
+      + '\'' + ", ingestJobId=" + ingestJobId + ", ingestUpdateJobIds='" + ingestUpdateJobIds + '\''
+      + ", allIngestJobIds='" + allIngestJobIds + '\'' + ", createdOn='" + createdOn + "', createdBy='" + createdBy
+      + "', updatedOn='" + updatedOn + "', updatedBy='" + updatedBy + "'}";
   }
 
   @Override
@@ -487,14 +566,17 @@ public class IndexedAIP implements IsIndexed, HasId, HasPermissions, HasState {
     return Arrays.asList("id", "state", "type", "level", "title", "dateInitial", "dateFinal", "description", "parentID",
       "ancestors", "permissions", "numberOfSubmissionFiles", "numberOfDocumentationFiles", "numberOfSchemaFiles",
       "hasRepresentations", "ghost", "ingestSIPId", "ingestJobId", "ingestUpdateJobIds", "allIngestJobIds", "createdOn",
-      "createdBy", "updatedOn", "updatedBy");
+      "createdBy", "updatedOn", "updatedBy", "numberOfDataFiles", "sizeInBytes", "formatCounts", "subtreeNumberOfAIPs",
+      "subtreeNumberOfDataFiles", "subtreeSizeInBytes", "subtreeFormatCounts");
   }
 
   @Override
   public List<Object> toCsvValues() {
     return Arrays.asList(id, state, type, level, title, dateInitial, dateFinal, description, parentID, ancestors,
       permissions, numberOfSubmissionFiles, numberOfDocumentationFiles, numberOfSchemaFiles, hasRepresentations, ghost,
-      ingestSIPIds, ingestJobId, ingestUpdateJobIds, allIngestJobIds, createdOn, createdBy, updatedOn, updatedBy);
+      ingestSIPIds, ingestJobId, ingestUpdateJobIds, allIngestJobIds, createdOn, createdBy, updatedOn, updatedBy,
+      numberOfDataFiles, sizeInBytes, formatCounts, subtreeNumberOfAIPs, subtreeNumberOfDataFiles, subtreeSizeInBytes,
+      subtreeFormatCounts);
   }
 
   @JsonIgnore
@@ -8,6 +8,7 @@
 package org.roda.core.data.v2.ip;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +31,7 @@ public class IndexedRepresentation extends Representation
   private long sizeInBytes;
   private long numberOfDataFiles;
   private long numberOfDataFolders;
+  private Map<String, Long> formatCounts = new HashMap<>();
 
   private long numberOfDocumentationFiles;
   private long numberOfSchemaFiles;
@@ -97,6 +99,18 @@ public class IndexedRepresentation extends Representation
     this.numberOfDataFolders = numberOfDataFolders;
   }
 
+  /**
+   * @return the number of data files per format (PRONOM identifier or, if
+   *         missing, mimetype).
+   */
+  public Map<String, Long> getFormatCounts() {
+    return formatCounts;
+  }
+
+  public void setFormatCounts(Map<String, Long> formatCounts) {
+    this.formatCounts = formatCounts;
+  }
+
   public long getNumberOfDocumentationFiles() {
     return numberOfDocumentationFiles;
   }
@@ -0,0 +1,137 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.data.v2.ip;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.roda.core.data.common.RodaConstants;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A file being uploaded in chunks into the transfer area.
+ */
+@javax.xml.bind.annotation.XmlRootElement(name = RodaConstants.RODA_OBJECT_TRANSFERRED_RESOURCE_UPLOAD)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransferredResourceUpload implements Serializable {
+  private static final long serialVersionUID = -2367460916245407853L;
+
+  private String id;
+  private String parentUUID;
+  private String name;
+  private String username;
+  private Date creationDate;
+  private Date completionDate;
+  private long offset = 0;
+  private Map<String, String> checksums = new HashMap<>();
+  private String transferredResourceUUID;
+
+  public TransferredResourceUpload() {
+    super();
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  /**
+   * @return the UUID of the folder where the file is created, or
+   *         <code>null</code> for the root of the transfer area.
+   */
+  public String getParentUUID() {
+    return parentUUID;
+  }
+
+  public void setParentUUID(String parentUUID) {
+    this.parentUUID = parentUUID;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @return the user that created the upload, the only one, besides
+   *         administrators, that can use it.
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public Date getCreationDate() {
+    return creationDate;
+  }
+
+  public void setCreationDate(Date creationDate) {
+    this.creationDate = creationDate;
+  }
+
+  public Date getCompletionDate() {
+    return completionDate;
+  }
+
+  public void setCompletionDate(Date completionDate) {
+    this.completionDate = completionDate;
+  }
+
+  /**
+   * @return the number of bytes already written, where the next chunk must
+   *         start.
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  public void setOffset(long offset) {
+    this.offset = offset;
+  }
+
+  /**
+   * @return the checksums of the file, by algorithm, once it is complete.
+   */
+  public Map<String, String> getChecksums() {
+    return checksums;
+  }
+
+  public void setChecksums(Map<String, String> checksums) {
+    this.checksums = checksums;
+  }
+
+  /**
+   * @return the UUID of the transferred resource created once the upload is
+   *         complete.
+   */
+  public String getTransferredResourceUUID() {
+    return transferredResourceUUID;
+  }
+
+  public void setTransferredResourceUUID(String transferredResourceUUID) {
+    this.transferredResourceUUID = transferredResourceUUID;
+  }
+
+  @Override
+  public String toString() {
+    return "TransferredResourceUpload [id=" + id + ", parentUUID=" + parentUUID + ", name=" + name + ", offset="
+      + offset + ", transferredResourceUUID=" + transferredResourceUUID + "]";
+  }
+}
@@ -0,0 +1,245 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.monitor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.ip.TransferredResource;
+import org.roda.core.data.v2.ip.TransferredResourceUpload;
+import org.roda.core.index.IndexService;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.util.FileUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class TransferredResourceUploadsTest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TransferredResourceUploadsTest.class);
+
+  private static final String OWNER = "owner";
+  private static final String OTHER_USER = "other";
+  private static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  private static Path basePath;
+  private static IndexService index;
+  private static Path sips;
+  private static Path uploadsPath;
+  private static TransferredResourcesScanner scanner;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(TransferredResourceUploadsTest.class, true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = false;
+    boolean deployFolderMonitor = true;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+
+    index = RodaCoreFactory.getIndexService();
+    sips = RodaCoreFactory.getDataPath().resolve(RodaCoreFactory.getRodaConfiguration()
+      .getString("transferredResources.folder", RodaConstants.CORE_TRANSFERREDRESOURCE_FOLDER));
+    uploadsPath = basePath.resolve("uploads");
+    scanner = new TransferredResourcesScanner(sips, index, RodaCoreFactory.getNodeType());
+
+    LOGGER.info("Running transferred resource uploads tests under storage {}", basePath);
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  @AfterMethod
+  public static void cleanup()
+    throws GenericException, RequestNotValidException, IOException, AuthorizationDeniedException {
+    FSUtils.deletePathQuietly(sips);
+    Files.createDirectory(sips);
+    FSUtils.deletePathQuietly(uploadsPath);
+    index.delete(TransferredResource.class, Filter.ALL);
+    index.commit(TransferredResource.class);
+  }
+
+  private static TransferredResourceUploads createUploads() {
+    return new TransferredResourceUploads(scanner, uploadsPath, Collections.emptyList(), MAX_AGE_MILLIS);
+  }
+
+  private static InputStream stream(byte[] content, int from, int to) {
+    return new ByteArrayInputStream(Arrays.copyOfRange(content, from, to));
+  }
+
+  private static String checksum(byte[] content, String algorithm) throws Exception {
+    return FileUtility.byteArrayToHexString(MessageDigest.getInstance(algorithm).digest(content));
+  }
+
+  @Test
+  public void testResumeAtOffsetAndComplete() throws Exception {
+    byte[] content = "the content of an upload sent in chunks".getBytes(StandardCharsets.UTF_8);
+    TransferredResourceUploads uploads = createUploads();
+    TransferredResourceUpload upload = uploads.createUpload(OWNER, null, "file.txt");
+    String id = upload.getId();
+
+    Assert.assertEquals(uploads.appendToUpload(OWNER, id, 0, stream(content, 0, 10)).getOffset(), 10);
+
+    try {
+      uploads.appendToUpload(OWNER, id, 0, stream(content, 0, 10));
+      Assert.fail("Appending at an offset other than the current one should fail");
+    } catch (RequestNotValidException e) {
+      // expected
+    }
+    Assert.assertEquals(uploads.retrieveUpload(OWNER, id).getOffset(), 10);
+
+    // a chunk interrupted after some bytes were sent
+    InputStream interrupted = new ByteArrayInputStream(Arrays.copyOfRange(content, 10, 20)) {
+      @Override
+      public synchronized int read(byte[] b, int off, int len) {
+        if (available() == 0) {
+          throw new IllegalStateException("connection reset");
+        }
+        return super.read(b, off, len);
+      }
+    };
+    try {
+      uploads.appendToUpload(OWNER, id, 10, interrupted);
+      Assert.fail("An interrupted chunk should fail");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    Assert.assertEquals(uploads.retrieveUpload(OWNER, id).getOffset(), 20);
+
+    // after a restart, the checksums of what was written are computed again
+    uploads = createUploads();
+    Assert.assertEquals(uploads.retrieveUpload(OWNER, id).getOffset(), 20);
+    uploads.appendToUpload(OWNER, id, 20, stream(content, 20, content.length));
+
+    Map<String, String> wrongChecksums = new HashMap<>();
+    wrongChecksums.put(RodaConstants.SHA256, checksum(new byte[0], RodaConstants.SHA256));
+    try {
+      uploads.completeUpload(OWNER, id, wrongChecksums);
+      Assert.fail("Completing with a wrong checksum should fail");
+    } catch (RequestNotValidException e) {
+      // expected
+    }
+
+    Map<String, String> expectedChecksums = new HashMap<>();
+    expectedChecksums.put(RodaConstants.SHA256, checksum(content, RodaConstants.SHA256));
+    expectedChecksums.put(RodaConstants.MD5, checksum(content, RodaConstants.MD5));
+    TransferredResourceUpload completed = uploads.completeUpload(OWNER, id, expectedChecksums);
+    Assert.assertEquals(completed.getOffset(), content.length);
+
+    Path file = sips.resolve("file.txt");
+    Assert.assertEquals(Files.readAllBytes(file), content);
+    Assert.assertNotNull(index.retrieve(TransferredResource.class, completed.getTransferredResourceUUID(),
+      Collections.emptyList()));
+
+    Map<String, String> checksums = uploads.retrieveChecksums(file);
+    for (String algorithm : Arrays.asList(RodaConstants.SHA256, RodaConstants.MD5)) {
+      Assert.assertTrue(checksums.get(algorithm).equalsIgnoreCase(expectedChecksums.get(algorithm)));
+    }
+
+    try {
+      uploads.retrieveUpload(OWNER, id);
+      Assert.fail("A completed upload should no longer exist");
+    } catch (NotFoundException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testUploadsAreOnlyAccessibleToTheirOwner() throws Exception {
+    TransferredResourceUploads uploads = createUploads();
+    String id = uploads.createUpload(OWNER, null, "file.txt").getId();
+
+    try {
+      uploads.appendToUpload(OTHER_USER, id, 0, new ByteArrayInputStream(new byte[] {1}));
+      Assert.fail("Another user should not append to the upload");
+    } catch (AuthorizationDeniedException e) {
+      // expected
+    }
+
+    try {
+      uploads.deleteUpload(OTHER_USER, id);
+      Assert.fail("Another user should not delete the upload");
+    } catch (AuthorizationDeniedException e) {
+      // expected
+    }
+
+    Assert.assertEquals(uploads.retrieveUpload(RodaConstants.ADMIN, id).getOffset(), 0);
+    uploads.deleteUpload(OWNER, id);
+    Assert.assertFalse(FSUtils.exists(uploadsPath.resolve(id + ".part")));
+  }
+
+  @Test
+  public void testCleanUpRemovesAbandonedUploadsAndOldChecksums() throws Exception {
+    byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+    TransferredResourceUploads uploads = createUploads();
+    String abandoned = uploads.createUpload(OWNER, null, "abandoned.txt").getId();
+    uploads.appendToUpload(OWNER, abandoned, 0, stream(content, 0, content.length));
+    String active = uploads.createUpload(OWNER, null, "active.txt").getId();
+    String completed = uploads.createUpload(OWNER, null, "completed.txt").getId();
+    uploads.completeUpload(OWNER, completed, Collections.emptyMap());
+
+    FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 2 * MAX_AGE_MILLIS);
+    Files.setLastModifiedTime(uploadsPath.resolve(abandoned + ".part"), old);
+    Files.setLastModifiedTime(uploadsPath.resolve(abandoned + ".json"), old);
+    Path checksumsPath = uploadsPath.resolve("checksums");
+    try (Stream<Path> files = Files.list(checksumsPath)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.setLastModifiedTime(file, old);
+      }
+    }
+
+    uploads.cleanUp();
+
+    Assert.assertFalse(FSUtils.exists(uploadsPath.resolve(abandoned + ".part")));
+    Assert.assertFalse(FSUtils.exists(uploadsPath.resolve(abandoned + ".json")));
+    Assert.assertTrue(FSUtils.exists(uploadsPath.resolve(active + ".part")));
+    Assert.assertTrue(FSUtils.exists(uploadsPath.resolve(active + ".json")));
+    try (Stream<Path> files = Files.list(checksumsPath)) {
+      Assert.assertEquals(files.count(), 0);
+    }
+
+    try {
+      uploads.retrieveUpload(OWNER, abandoned);
+      Assert.fail("An abandoned upload should no longer exist");
+    } catch (NotFoundException e) {
+      // expected
+    }
+    Assert.assertEquals(uploads.retrieveUpload(OWNER, active).getOffset(), 0);
+  }
+}
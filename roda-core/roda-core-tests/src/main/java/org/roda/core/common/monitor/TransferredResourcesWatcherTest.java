@@ -0,0 +1,159 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.monitor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.ip.TransferredResource;
+import org.roda.core.index.IndexService;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.util.IdUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class TransferredResourcesWatcherTest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TransferredResourcesWatcherTest.class);
+
+  private static final long DELAY_MILLIS = 200;
+  private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  private static final List<String> FIELDS = Arrays.asList(RodaConstants.INDEX_UUID,
+    RodaConstants.TRANSFERRED_RESOURCE_SIZE);
+
+  private static Path basePath;
+  private static IndexService index;
+  private static Path sips;
+  private static TransferredResourcesScanner scanner;
+  private static TransferredResourcesWatcher watcher;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(TransferredResourcesWatcherTest.class, true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = false;
+    boolean deployFolderMonitor = true;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+
+    index = RodaCoreFactory.getIndexService();
+    sips = RodaCoreFactory.getDataPath().resolve(RodaCoreFactory.getRodaConfiguration()
+      .getString("transferredResources.folder", RodaConstants.CORE_TRANSFERREDRESOURCE_FOLDER));
+    scanner = new TransferredResourcesScanner(sips, index, RodaCoreFactory.getNodeType());
+
+    LOGGER.info("Running transferred resources watcher tests under storage {}", basePath);
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  @AfterMethod
+  public static void cleanup()
+    throws GenericException, RequestNotValidException, IOException, AuthorizationDeniedException {
+    if (watcher != null) {
+      watcher.stop();
+      watcher = null;
+    }
+    FSUtils.deletePathQuietly(sips);
+    Files.createDirectory(sips);
+    index.delete(TransferredResource.class, Filter.ALL);
+    index.commit(TransferredResource.class);
+  }
+
+  private static void write(String relativePath, int size) throws IOException {
+    Path path = sips.resolve(relativePath);
+    Files.createDirectories(path.getParent());
+    Files.write(path, new byte[size]);
+  }
+
+  /**
+   * @return the indexed size of the resource, or <code>null</code> if it is not
+   *         indexed.
+   */
+  private static Long indexedSize(String relativePath) throws GenericException {
+    try {
+      return index.retrieve(TransferredResource.class, IdUtils.getTransferredResourceUUID(relativePath), FIELDS)
+        .getSize();
+    } catch (NotFoundException e) {
+      return null;
+    }
+  }
+
+  private static void assertIndexedSize(String relativePath, Long expectedSize)
+    throws GenericException, InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    Long size = indexedSize(relativePath);
+    while (!(expectedSize == null ? size == null : expectedSize.equals(size))
+      && System.currentTimeMillis() < deadline) {
+      Thread.sleep(DELAY_MILLIS);
+      size = indexedSize(relativePath);
+    }
+    Assert.assertEquals(size, expectedSize, "Indexed size of " + relativePath);
+  }
+
+  @Test
+  public void testIndexesCreatedModifiedAndDeletedResources() throws Exception {
+    write("a.txt", 10);
+    watcher = new TransferredResourcesWatcher(scanner, index, DELAY_MILLIS, 1440, 10);
+    watcher.start();
+
+    // found by the scan when the watcher starts
+    assertIndexedSize("a.txt", 10L);
+
+    // a new folder is indexed with all its contents
+    write("f/b.txt", 20);
+    write("f/g/c.txt", 30);
+    assertIndexedSize("f/g/c.txt", 30L);
+    assertIndexedSize("f/b.txt", 20L);
+    assertIndexedSize("f/g", 30L);
+    assertIndexedSize("f", 50L);
+
+    // changed files update the sizes of all their ancestors
+    write("f/b.txt", 5);
+    write("f/g/d.txt", 7);
+    assertIndexedSize("f/b.txt", 5L);
+    assertIndexedSize("f/g/d.txt", 7L);
+    assertIndexedSize("f/g", 37L);
+    assertIndexedSize("f", 42L);
+
+    // a deleted folder is removed with all its descendants
+    FSUtils.deletePath(sips.resolve("f").resolve("g"));
+    assertIndexedSize("f/g", null);
+    assertIndexedSize("f/g/c.txt", null);
+    assertIndexedSize("f/g/d.txt", null);
+    assertIndexedSize("f", 5L);
+
+    Files.delete(sips.resolve("a.txt"));
+    assertIndexedSize("a.txt", null);
+    assertIndexedSize("f/b.txt", 5L);
+  }
+}
@@ -23,6 +23,7 @@ import org.roda.core.CorporaConstants;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.TestsHelper;
 import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.PreservationEventType;
 import org.roda.core.data.exceptions.AlreadyExistsException;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
@@ -31,11 +32,13 @@ import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.index.filter.EmptyKeyFilterParameter;
 import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.index.select.SelectedItemsFilter;
 import org.roda.core.data.v2.index.select.SelectedItemsList;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.ip.IndexedFile;
+import org.roda.core.data.v2.ip.metadata.IndexedPreservationEvent;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.PluginType;
 import org.roda.core.index.utils.IterableIndexResult;
@@ -127,6 +130,12 @@ public class FilterTest {
 
     index.commitAIPs();
     assertEquals(0, index.count(IndexedAIP.class, Filter.ALL).intValue());
+
+    // each deleted AIP, sublevels included, has its own deletion event
+    index.commit(IndexedPreservationEvent.class);
+    Filter deletionEvents = new Filter(new SimpleFilterParameter(RodaConstants.PRESERVATION_EVENT_TYPE,
+      PreservationEventType.DELETION.toString()));
+    assertEquals(10001, index.count(IndexedPreservationEvent.class, deletionEvents).intValue());
   }
 
   @Test
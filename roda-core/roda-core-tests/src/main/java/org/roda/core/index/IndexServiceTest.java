@@ -8,6 +8,7 @@
 package org.roda.core.index;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
@@ -25,6 +26,7 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +34,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.xmlbeans.XmlException;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.hamcrest.collection.IsCollectionWithSize;
@@ -48,14 +51,21 @@ import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.index.IndexResult;
+import org.roda.core.data.v2.index.facet.FacetFieldResult;
+import org.roda.core.data.v2.index.facet.FacetValue;
+import org.roda.core.data.v2.index.facet.Facets;
+import org.roda.core.data.v2.index.filter.BasicSearchFilterParameter;
 import org.roda.core.data.v2.index.filter.EmptyKeyFilterParameter;
 import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.index.sort.Sorter;
 import org.roda.core.data.v2.index.sublist.Sublist;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.FileFulltext;
 import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.IndexedRepresentation;
 import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.Permissions.PermissionType;
@@ -68,8 +78,10 @@ import org.roda.core.data.v2.notifications.NotificationState;
 import org.roda.core.data.v2.notifications.Notification;
 import org.roda.core.data.v2.ri.RepresentationInformation;
 import org.roda.core.data.v2.ri.RepresentationInformationSupport;
+import org.roda.core.data.v2.risks.IncidenceStatus;
 import org.roda.core.data.v2.risks.IndexedRisk;
 import org.roda.core.data.v2.risks.Risk;
+import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.data.v2.risks.SeverityLevel;
 import org.roda.core.data.v2.user.Group;
 import org.roda.core.data.v2.user.RODAMember;
@@ -79,8 +91,10 @@ import org.roda.core.index.schema.SolrCollectionRegistry;
 import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.model.ModelService;
+import org.roda.core.plugins.plugins.characterization.PremisSkeletonPluginUtils;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StringContentPayload;
 import org.roda.core.storage.fs.FSUtils;
 import org.roda.core.storage.fs.FileStorageService;
 import org.roda.core.util.IdUtils;
@@ -587,6 +601,310 @@ public class IndexServiceTest {
 
   }
 
+  @Test
+  public void testFileFulltextSearch() throws RODAException {
+    final String aipId = IdUtils.createUUID();
+    model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID),
+      RodaConstants.ADMIN);
+
+    model.createOrUpdateOtherMetadata(aipId, CorporaConstants.REPRESENTATION_1_ID,
+      CorporaConstants.REPRESENTATION_1_FILE_1_PATH, CorporaConstants.REPRESENTATION_1_FILE_1_ID,
+      RodaConstants.TIKA_FILE_SUFFIX_FULLTEXT, RodaConstants.OTHER_METADATA_TYPE_APACHE_TIKA,
+      new StringContentPayload("a rather unusual zanzibar word"), true);
+    index.commitAIPs();
+
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, aipId),
+      new BasicSearchFilterParameter(RodaConstants.INDEX_SEARCH, "zanzibar"));
+    IndexResult<IndexedFile> files = index.find(IndexedFile.class, filter, null, new Sublist(0, 10),
+      Collections.emptyList());
+    assertEquals(1, files.getTotalCount());
+    assertEquals(CorporaConstants.REPRESENTATION_1_FILE_1_ID, files.getResults().get(0).getId());
+
+    // re-indexing the AIP keeps the fulltext searchable
+    index.reindexAIP(model.retrieveAIP(aipId));
+    index.commitAIPs();
+    assertEquals(1L, index.count(IndexedFile.class, filter).longValue());
+
+    // a fulltext of the same size but different content is sent again
+    model.createOrUpdateOtherMetadata(aipId, CorporaConstants.REPRESENTATION_1_ID,
+      CorporaConstants.REPRESENTATION_1_FILE_1_PATH, CorporaConstants.REPRESENTATION_1_FILE_1_ID,
+      RodaConstants.TIKA_FILE_SUFFIX_FULLTEXT, RodaConstants.OTHER_METADATA_TYPE_APACHE_TIKA,
+      new StringContentPayload("a rather unusual zimbabwe word"), false);
+    index.reindexAIP(model.retrieveAIP(aipId));
+    index.commitAIPs();
+    assertEquals(0L, index.count(IndexedFile.class, filter).longValue());
+    assertEquals(1L, index.count(IndexedFile.class, new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID,
+      aipId), new BasicSearchFilterParameter(RodaConstants.INDEX_SEARCH, "zimbabwe"))).longValue());
+
+    model.deleteAIP(aipId);
+    index.commitAIPs();
+    assertEquals(0L, index.count(FileFulltext.class, Filter.ALL).longValue());
+  }
+
+  @Test
+  public void testFindDuplicateFileDigests() throws RODAException, IOException, XmlException {
+    List<String> aipIds = Arrays.asList(IdUtils.createUUID(), IdUtils.createUUID());
+    for (String aipId : aipIds) {
+      model.createAIP(aipId, corporaService,
+        DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID),
+        RodaConstants.ADMIN);
+      PremisSkeletonPluginUtils.createPremisSkeletonOnRepresentation(model, aipId, CorporaConstants.REPRESENTATION_1_ID,
+        Arrays.asList(RodaConstants.SHA256));
+      index.reindexAIP(model.retrieveAIP(aipId));
+    }
+    index.commitAIPs();
+
+    // every file of the representation is in both AIPs
+    Filter aipsFilter = new Filter(new OneOfManyFilterParameter(RodaConstants.FILE_AIP_ID, aipIds));
+    FacetFieldResult digests = index.findDuplicateFileDigests(aipsFilter, -1, null, false);
+    assertFalse(digests.getValues().isEmpty());
+
+    // paging through the digests gets the same ones, in the same order
+    List<String> pagedDigests = new ArrayList<>();
+    for (int offset = 0; offset <= digests.getValues().size(); offset++) {
+      index.findDuplicateFileDigests(aipsFilter, offset, 1, null, false).getValues()
+        .forEach(value -> pagedDigests.add(value.getValue()));
+    }
+    assertEquals(digests.getValues().stream().map(FacetValue::getValue).collect(Collectors.toList()), pagedDigests);
+
+    for (FacetValue digest : digests.getValues()) {
+      assertTrue(digest.getCount() >= 2);
+      for (String aipId : aipIds) {
+        Filter filesFilter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, aipId),
+          new SimpleFilterParameter(RodaConstants.FILE_DIGEST, digest.getValue()));
+        assertTrue(index.count(IndexedFile.class, filesFilter) > 0);
+      }
+    }
+
+    model.deleteAIP(aipIds.get(1));
+    index.commitAIPs();
+    Filter remainingFilter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, aipIds.get(0)),
+      new SimpleFilterParameter(RodaConstants.FILE_ISDIRECTORY, Boolean.FALSE.toString()));
+    assertTrue(index.findDuplicateFileDigests(remainingFilter, -1, null, false).getValues().size() < digests
+      .getValues().size());
+
+    model.deleteAIP(aipIds.get(0));
+  }
+
+  @Test
+  public void testAIPSubtreeStatistics() throws RODAException {
+    model.createAIP(CorporaConstants.SOURCE_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID),
+      RodaConstants.ADMIN);
+    model.createAIP(CorporaConstants.OTHER_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.OTHER_AIP_ID),
+      RodaConstants.ADMIN);
+    index.commitAIPs();
+
+    Filter dataFiles = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, CorporaConstants.SOURCE_AIP_ID),
+      new SimpleFilterParameter(RodaConstants.FILE_ISDIRECTORY, Boolean.FALSE.toString()));
+    IndexedAIP parent = index.retrieve(IndexedAIP.class, CorporaConstants.SOURCE_AIP_ID, new ArrayList<>());
+    IndexedAIP child = index.retrieve(IndexedAIP.class, CorporaConstants.OTHER_AIP_ID, new ArrayList<>());
+    assertEquals(index.count(IndexedFile.class, dataFiles), parent.getNumberOfDataFiles());
+    assertEquals(Long.valueOf(1), parent.getSubtreeNumberOfAIPs());
+    assertEquals(Long.valueOf(0), child.getSubtreeNumberOfAIPs());
+    assertEquals(Long.valueOf(parent.getNumberOfDataFiles() + child.getNumberOfDataFiles()),
+      parent.getSubtreeNumberOfDataFiles());
+    assertEquals(Long.valueOf(parent.getSizeInBytes() + child.getSizeInBytes()), parent.getSubtreeSizeInBytes());
+
+    // rebuilding the statistics gives the same result
+    index.refreshAIPSubtreeStatistics();
+    IndexedAIP refreshed = index.retrieve(IndexedAIP.class, CorporaConstants.SOURCE_AIP_ID, new ArrayList<>());
+    assertEquals(parent.getSubtreeNumberOfAIPs(), refreshed.getSubtreeNumberOfAIPs());
+    assertEquals(parent.getSubtreeNumberOfDataFiles(), refreshed.getSubtreeNumberOfDataFiles());
+    assertEquals(parent.getSubtreeSizeInBytes(), refreshed.getSubtreeSizeInBytes());
+
+    model.deleteAIP(CorporaConstants.OTHER_AIP_ID);
+    index.commitAIPs();
+    parent = index.retrieve(IndexedAIP.class, CorporaConstants.SOURCE_AIP_ID, new ArrayList<>());
+    assertEquals(Long.valueOf(0), parent.getSubtreeNumberOfAIPs());
+    assertEquals(parent.getNumberOfDataFiles(), parent.getSubtreeNumberOfDataFiles());
+    assertEquals(parent.getSizeInBytes(), parent.getSubtreeSizeInBytes());
+
+    model.deleteAIP(CorporaConstants.SOURCE_AIP_ID);
+  }
+
+  @Test
+  public void testUpdateAllIfExists() throws RODAException {
+    final String missingAipId = IdUtils.createUUID();
+    model.createAIP(CorporaConstants.SOURCE_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID),
+      RodaConstants.ADMIN);
+    model.createAIP(CorporaConstants.OTHER_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.OTHER_AIP_ID),
+      RodaConstants.ADMIN);
+    index.commitAIPs();
+
+    IndexedAIP parent = index.retrieve(IndexedAIP.class, CorporaConstants.SOURCE_AIP_ID, new ArrayList<>());
+    IndexedAIP child = index.retrieve(IndexedAIP.class, CorporaConstants.OTHER_AIP_ID, new ArrayList<>());
+
+    // the missing document, in the middle of the batch, is neither created nor
+    // stops the others from being updated
+    Map<String, Map<String, Object>> increment = Collections.singletonMap(RodaConstants.AIP_SUBTREE_NUMBER_OF_AIPS,
+      Collections.singletonMap("inc", 10L));
+    Map<String, Map<String, Map<String, Object>>> modifiers = new LinkedHashMap<>();
+    modifiers.put(CorporaConstants.SOURCE_AIP_ID, increment);
+    modifiers.put(missingAipId, increment);
+    modifiers.put(CorporaConstants.OTHER_AIP_ID, increment);
+    assertTrue(SolrUtils.updateAllIfExists(index.getSolrClient(), IndexedAIP.class, modifiers, this).isEmpty());
+    index.commitAIPs();
+
+    assertEquals(Long.valueOf(parent.getSubtreeNumberOfAIPs() + 10),
+      index.retrieve(IndexedAIP.class, CorporaConstants.SOURCE_AIP_ID, new ArrayList<>()).getSubtreeNumberOfAIPs());
+    assertEquals(Long.valueOf(child.getSubtreeNumberOfAIPs() + 10),
+      index.retrieve(IndexedAIP.class, CorporaConstants.OTHER_AIP_ID, new ArrayList<>()).getSubtreeNumberOfAIPs());
+    assertEquals(0L, index.count(IndexedAIP.class,
+      new Filter(new SimpleFilterParameter(RodaConstants.INDEX_UUID, missingAipId))).longValue());
+
+    model.deleteAIP(CorporaConstants.OTHER_AIP_ID);
+    model.deleteAIP(CorporaConstants.SOURCE_AIP_ID);
+  }
+
+  @Test
+  public void testDeleteAIPs() throws RODAException {
+    final String aipId = IdUtils.createUUID();
+    final String missingAipId = IdUtils.createUUID();
+    model.createAIP(CorporaConstants.SOURCE_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID),
+      RodaConstants.ADMIN);
+    model.createAIP(CorporaConstants.OTHER_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.OTHER_AIP_ID),
+      RodaConstants.ADMIN);
+    model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID_3),
+      RodaConstants.ADMIN);
+    index.commitAIPs();
+
+    List<String> deleted = model.deleteAIPs(Arrays.asList(CorporaConstants.OTHER_AIP_ID, aipId, missingAipId));
+    index.commitAIPs();
+    assertEquals(Arrays.asList(CorporaConstants.OTHER_AIP_ID, aipId), deleted);
+
+    Filter deletedFilter = new Filter(
+      new OneOfManyFilterParameter(RodaConstants.INDEX_UUID, Arrays.asList(CorporaConstants.OTHER_AIP_ID, aipId)));
+    assertEquals(0L, index.count(IndexedAIP.class, deletedFilter).longValue());
+    Filter deletedFiles = new Filter(
+      new OneOfManyFilterParameter(RodaConstants.FILE_AIP_ID, Arrays.asList(CorporaConstants.OTHER_AIP_ID, aipId)));
+    assertEquals(0L, index.count(IndexedFile.class, deletedFiles).longValue());
+
+    // the deleted child is no longer counted in the statistics of its parent
+    IndexedAIP parent = index.retrieve(IndexedAIP.class, CorporaConstants.SOURCE_AIP_ID, new ArrayList<>());
+    assertEquals(Long.valueOf(0), parent.getSubtreeNumberOfAIPs());
+    assertEquals(parent.getNumberOfDataFiles(), parent.getSubtreeNumberOfDataFiles());
+    assertEquals(parent.getSizeInBytes(), parent.getSubtreeSizeInBytes());
+
+    model.deleteAIP(CorporaConstants.SOURCE_AIP_ID);
+  }
+
+  @Test
+  public void testUpdateAIPsPermissions() throws RODAException {
+    model.createAIP(CorporaConstants.SOURCE_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID),
+      RodaConstants.ADMIN);
+    model.createAIP(CorporaConstants.OTHER_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.OTHER_AIP_ID),
+      RodaConstants.ADMIN);
+    index.commitAIPs();
+
+    final String username = "permissions-test-user";
+    Permissions permissions = new Permissions();
+    permissions.setUserPermissions(username, Collections.singleton(PermissionType.READ));
+    List<String> aipIds = Arrays.asList(CorporaConstants.SOURCE_AIP_ID, CorporaConstants.OTHER_AIP_ID);
+    assertEquals(aipIds, model.updateAIPsPermissions(aipIds, permissions, RodaConstants.ADMIN));
+    index.commitAIPs();
+
+    assertEquals(permissions, model.retrieveAIP(CorporaConstants.OTHER_AIP_ID).getPermissions());
+    SimpleFilterParameter readable = new SimpleFilterParameter(
+      RodaConstants.INDEX_PERMISSION_USERS_PREFIX + PermissionType.READ, username);
+    assertEquals(2L, index.count(IndexedAIP.class, new Filter(readable)).longValue());
+    Filter files = new Filter(new OneOfManyFilterParameter(RodaConstants.FILE_AIP_ID, aipIds));
+    assertTrue(index.count(IndexedFile.class, files) > 0);
+    assertEquals(index.count(IndexedFile.class, files),
+      index.count(IndexedFile.class, new Filter(new OneOfManyFilterParameter(RodaConstants.FILE_AIP_ID, aipIds),
+        readable)));
+
+    model.deleteAIP(CorporaConstants.OTHER_AIP_ID);
+    model.deleteAIP(CorporaConstants.SOURCE_AIP_ID);
+  }
+
+  @Test
+  public void testMoveAIPs() throws RODAException {
+    final String aipId = IdUtils.createUUID();
+    model.createAIP(CorporaConstants.SOURCE_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID),
+      RodaConstants.ADMIN);
+    model.createAIP(CorporaConstants.OTHER_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.OTHER_AIP_ID),
+      RodaConstants.ADMIN);
+    model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID_3),
+      RodaConstants.ADMIN);
+    index.commitAIPs();
+
+    List<AIP> moved = model.moveAIPs(Arrays.asList(CorporaConstants.SOURCE_AIP_ID), aipId, RodaConstants.ADMIN);
+    index.commitAIPs();
+    assertEquals(1, moved.size());
+    assertEquals(aipId, model.retrieveAIP(CorporaConstants.SOURCE_AIP_ID).getParentId());
+
+    IndexedAIP parent = index.retrieve(IndexedAIP.class, CorporaConstants.SOURCE_AIP_ID, new ArrayList<>());
+    IndexedAIP child = index.retrieve(IndexedAIP.class, CorporaConstants.OTHER_AIP_ID, new ArrayList<>());
+    assertEquals(Arrays.asList(aipId), parent.getAncestors());
+    assertEquals(Arrays.asList(CorporaConstants.SOURCE_AIP_ID, aipId), child.getAncestors());
+
+    // the files of the whole subtree get the new ancestors
+    Filter files = new Filter(new OneOfManyFilterParameter(RodaConstants.FILE_AIP_ID,
+      Arrays.asList(CorporaConstants.SOURCE_AIP_ID, CorporaConstants.OTHER_AIP_ID)));
+    assertTrue(index.count(IndexedFile.class, files) > 0);
+    assertEquals(index.count(IndexedFile.class, files),
+      index.count(IndexedFile.class, new Filter(new OneOfManyFilterParameter(RodaConstants.FILE_AIP_ID,
+        Arrays.asList(CorporaConstants.SOURCE_AIP_ID, CorporaConstants.OTHER_AIP_ID)),
+        new SimpleFilterParameter(RodaConstants.FILE_ANCESTORS, aipId))));
+
+    IndexedAIP root = index.retrieve(IndexedAIP.class, aipId, new ArrayList<>());
+    assertEquals(Long.valueOf(2), root.getSubtreeNumberOfAIPs());
+
+    model.deleteAIP(CorporaConstants.OTHER_AIP_ID);
+    model.deleteAIP(CorporaConstants.SOURCE_AIP_ID);
+    model.deleteAIP(aipId);
+  }
+
+  @Test
+  public void testRepairAIPIndexDrift() throws RODAException {
+    model.createAIP(CorporaConstants.SOURCE_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID),
+      RodaConstants.ADMIN);
+    model.createAIP(CorporaConstants.OTHER_AIP_ID, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.OTHER_AIP_ID),
+      RodaConstants.ADMIN);
+    index.commitAIPs();
+
+    assertEquals(Collections.emptyList(), index.repairAIPIndexDrift(true));
+
+    // a missing file document is only found by the deep comparison
+    Filter dataFiles = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, CorporaConstants.SOURCE_AIP_ID),
+      new SimpleFilterParameter(RodaConstants.FILE_ISDIRECTORY, Boolean.FALSE.toString()));
+    IndexedFile file = index.find(IndexedFile.class, dataFiles, null, new Sublist(0, 1), new ArrayList<>())
+      .getResults().get(0);
+    index.delete(IndexedFile.class, Arrays.asList(file.getUUID()));
+    index.delete(IndexedAIP.class, Arrays.asList(CorporaConstants.OTHER_AIP_ID));
+    index.commitAIPs();
+
+    AIP aip = model.retrieveAIP(CorporaConstants.SOURCE_AIP_ID);
+    assertTrue(index.isAIPIndexConsistent(aip, false));
+    assertFalse(index.isAIPIndexConsistent(aip, true));
+
+    List<String> repaired = index.repairAIPIndexDrift(true);
+    assertEquals(2, repaired.size());
+    assertTrue(repaired.contains(CorporaConstants.SOURCE_AIP_ID));
+    assertTrue(repaired.contains(CorporaConstants.OTHER_AIP_ID));
+    assertNotNull(index.retrieve(IndexedFile.class, file.getUUID(), new ArrayList<>()));
+    assertNotNull(index.retrieve(IndexedAIP.class, CorporaConstants.OTHER_AIP_ID, new ArrayList<>()));
+    assertEquals(Collections.emptyList(), index.repairAIPIndexDrift(true));
+
+    model.deleteAIP(CorporaConstants.OTHER_AIP_ID);
+    model.deleteAIP(CorporaConstants.SOURCE_AIP_ID);
+  }
+
   @Test
   public void testIdWithComma() throws RODAException {
     // generate AIP ID
@@ -680,6 +998,48 @@ public class IndexServiceTest {
     }
   }
 
+  @Test
+  public void testRiskIncidencesBatch() throws RODAException {
+    Risk risk = new Risk();
+    risk.setName("Risk name");
+    risk.setIdentifiedOn(new Date());
+    risk.setIdentifiedBy("Risk identifier");
+    risk.setPreMitigationSeverityLevel(SeverityLevel.HIGH);
+    model.createRisk(risk, false);
+    index.commit(IndexedRisk.class);
+
+    List<RiskIncidence> incidences = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      RiskIncidence incidence = new RiskIncidence();
+      incidence.setRiskId(risk.getId());
+      incidence.setAipId(CorporaConstants.SOURCE_AIP_ID);
+      incidence.setObjectClass(AIP.class.getSimpleName());
+      incidence.setStatus(IncidenceStatus.UNMITIGATED);
+      incidences.add(incidence);
+    }
+    assertEquals(3, model.createRiskIncidences(incidences, true).size());
+
+    Filter riskIncidences = new Filter(new SimpleFilterParameter(RodaConstants.RISK_INCIDENCE_RISK_ID, risk.getId()));
+    Filter unmitigatedRiskIncidences = new Filter(
+      new SimpleFilterParameter(RodaConstants.RISK_INCIDENCE_RISK_ID, risk.getId()),
+      new SimpleFilterParameter(RodaConstants.RISK_INCIDENCE_STATUS, IncidenceStatus.UNMITIGATED.toString()));
+    assertEquals(Long.valueOf(3), index.count(RiskIncidence.class, riskIncidences));
+    assertEquals(Long.valueOf(3), index.count(RiskIncidence.class, unmitigatedRiskIncidences));
+
+    incidences.get(0).setStatus(IncidenceStatus.MITIGATED);
+    assertEquals(2, model.updateRiskIncidences(incidences.subList(0, 2), true).size());
+
+    assertEquals(Long.valueOf(3), index.count(RiskIncidence.class, riskIncidences));
+    assertEquals(Long.valueOf(2), index.count(RiskIncidence.class, unmitigatedRiskIncidences));
+    assertEquals(IncidenceStatus.MITIGATED,
+      index.retrieve(RiskIncidence.class, incidences.get(0).getId(), new ArrayList<>()).getStatus());
+
+    for (RiskIncidence incidence : incidences) {
+      model.deleteRiskIncidence(incidence.getId(), false);
+    }
+    model.deleteRisk(risk.getId(), false);
+  }
+
   @Test
   public void testRepresentationInformationIndex() throws RODAException {
     RepresentationInformation ri = new RepresentationInformation();
@@ -801,4 +1161,46 @@ public class IndexServiceTest {
     set.addAll(results);
     Assert.assertEquals(results.size(), set.size());
   }
+
+  @Test
+  public void testFindWithCursor() throws RODAException, SolrServerException, IOException {
+    int count = 250;
+    for (int i = 0; i < count; i++) {
+      AIP aip = new AIP();
+      aip.setId("cursor_" + i);
+      aip.setState(AIPState.ACTIVE);
+      aip.setDescriptiveMetadata(new ArrayList<>());
+      aip.setRepresentations(new ArrayList<>());
+      aip.setPermissions(new Permissions());
+
+      index.getSolrClient().add(SolrCollectionRegistry.getIndexName(IndexedAIP.class),
+        SolrCollectionRegistry.toSolrDocument(IndexedAIP.class, aip));
+    }
+    index.commit(IndexedAIP.class);
+
+    long total = index.count(IndexedAIP.class, Filter.ALL);
+    List<String> results = new ArrayList<>();
+    int pages = 0;
+    String cursor = null;
+    while (true) {
+      IndexResult<IndexedAIP> page = index.findWithCursor(IndexedAIP.class, Filter.ALL, Sorter.NONE, 100, cursor,
+        Facets.NONE, null, false, Collections.emptyList());
+      pages++;
+      results.addAll(page.getResults().stream().map(IndexedAIP::getId).collect(Collectors.toList()));
+      Assert.assertNotNull(page.getNextCursor());
+
+      // the cursor does not change when the last page was reached
+      if (page.getNextCursor().equals(cursor)) {
+        break;
+      }
+      cursor = page.getNextCursor();
+    }
+
+    Assert.assertEquals(results.size(), total);
+    Assert.assertEquals(new HashSet<>(results).size(), results.size());
+    for (int i = 0; i < count; i++) {
+      Assert.assertTrue(results.contains("cursor_" + i), "Could not find expected id: cursor_" + i);
+    }
+    Assert.assertTrue(pages > total / 100);
+  }
 }
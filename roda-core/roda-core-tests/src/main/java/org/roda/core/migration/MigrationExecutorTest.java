@@ -0,0 +1,159 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.migration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.migration.model.RiskToVersion2;
+import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StringContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class MigrationExecutorTest {
+  private static final int RISKS_COUNT = 200;
+  private static final String MIGRATION_ID = "risk-2";
+
+  private Path basePath;
+  private Path progressFolder;
+  private StorageService sequentialStorage;
+  private StorageService parallelStorage;
+
+  @BeforeMethod
+  public void setUp() throws IOException, RODAException {
+    basePath = TestsHelper.createBaseTempDir(getClass(), true);
+    progressFolder = basePath.resolve("migration");
+    sequentialStorage = createRepository(basePath.resolve("sequential"));
+    parallelStorage = createRepository(basePath.resolve("parallel"));
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    FSUtils.deletePathQuietly(basePath);
+  }
+
+  @Test
+  public void testParallelMigrationMatchesSequentialMigration() throws RODAException, IOException {
+    new RiskToVersion2().migrate(sequentialStorage);
+    long migrated = new MigrationExecutor(progressFolder, 4).migrate(parallelStorage, new RiskToVersion2(),
+      MIGRATION_ID);
+
+    Assert.assertEquals(migrated, RISKS_COUNT);
+    for (int i = 0; i < RISKS_COUNT; i++) {
+      String sequential = getRisk(sequentialStorage, i);
+      Assert.assertTrue(sequential.contains("postMitigationProbability"));
+      Assert.assertEquals(getRisk(parallelStorage, i), sequential);
+    }
+
+    // the progress is only kept while the migration is not complete
+    Assert.assertFalse(Files.exists(progressFolder.resolve(MIGRATION_ID + ".progress")));
+  }
+
+  @Test
+  public void testInterruptedMigrationResumes() throws RODAException, IOException {
+    // as if the migration stopped after migrating the first half of the risks
+    List<String> alreadyMigrated = new ArrayList<>();
+    for (int i = 0; i < RISKS_COUNT / 2; i++) {
+      alreadyMigrated.add(getRiskId(i) + RodaConstants.RISK_FILE_EXTENSION);
+    }
+    Files.createDirectories(progressFolder);
+    Files.write(progressFolder.resolve(MIGRATION_ID + ".progress"), alreadyMigrated, StandardCharsets.UTF_8);
+
+    long migrated = new MigrationExecutor(progressFolder, 4).migrate(parallelStorage, new RiskToVersion2(),
+      MIGRATION_ID);
+
+    Assert.assertEquals(migrated, RISKS_COUNT - RISKS_COUNT / 2);
+    for (int i = 0; i < RISKS_COUNT; i++) {
+      boolean shouldBeMigrated = i >= RISKS_COUNT / 2;
+      Assert.assertEquals(getRisk(parallelStorage, i).contains("postMitigationProbability"), shouldBeMigrated);
+    }
+  }
+
+  @Test
+  public void testToleratedFailuresAreSkipped() throws RODAException, IOException {
+    corruptRisk(parallelStorage, 3);
+    corruptRisk(parallelStorage, 7);
+
+    long migrated = new MigrationExecutor(progressFolder, 4, 2).migrate(parallelStorage, new RiskToVersion2(),
+      MIGRATION_ID);
+
+    Assert.assertEquals(migrated, RISKS_COUNT - 2);
+    Assert.assertFalse(Files.exists(progressFolder.resolve(MIGRATION_ID + ".progress")));
+    List<String> failed = Files.readAllLines(progressFolder.resolve(MIGRATION_ID + ".failed"), StandardCharsets.UTF_8);
+    Assert.assertEquals(new HashSet<>(failed), new HashSet<>(Arrays
+      .asList(getRiskId(3) + RodaConstants.RISK_FILE_EXTENSION, getRiskId(7) + RodaConstants.RISK_FILE_EXTENSION)));
+  }
+
+  @Test
+  public void testTooManyFailuresStopMigration() throws RODAException, IOException {
+    corruptRisk(parallelStorage, 3);
+    corruptRisk(parallelStorage, 7);
+
+    try {
+      new MigrationExecutor(progressFolder, 4, 1).migrate(parallelStorage, new RiskToVersion2(), MIGRATION_ID);
+      Assert.fail("A migration with more failures than the tolerated ones should not be complete");
+    } catch (GenericException e) {
+      // expected
+    }
+
+    // only the failed risks are migrated again
+    List<String> progress = Files.readAllLines(progressFolder.resolve(MIGRATION_ID + ".progress"),
+      StandardCharsets.UTF_8);
+    Assert.assertEquals(progress.size(), RISKS_COUNT - 2);
+    Assert.assertFalse(progress.contains(getRiskId(3) + RodaConstants.RISK_FILE_EXTENSION));
+  }
+
+  private static void corruptRisk(StorageService storage, int i) throws RODAException {
+    storage.updateBinaryContent(getRiskPath(i), new StringContentPayload("not a risk"), false, false);
+  }
+
+  private static StorageService createRepository(Path path) throws RODAException {
+    StorageService storage = new FileStorageService(path, false, null, false);
+    storage.createContainer(ModelUtils.getRiskContainerPath());
+    for (int i = 0; i < RISKS_COUNT; i++) {
+      String json = "{\"id\":\"" + getRiskId(i) + "\",\"name\":\"Risk " + i + "\",\"posMitigationProbability\":" + i
+        + ",\"posMitigationImpact\":" + (i % 5) + ",\"posMitigationNotes\":\"notes " + i + "\"}";
+      storage.createBinary(getRiskPath(i), new StringContentPayload(json), false);
+    }
+    return storage;
+  }
+
+  private static String getRisk(StorageService storage, int i) throws RODAException, IOException {
+    try (InputStream content = storage.getBinary(getRiskPath(i)).getContent().createInputStream()) {
+      return IOUtils.toString(content, StandardCharsets.UTF_8);
+    }
+  }
+
+  private static StoragePath getRiskPath(int i) throws RODAException {
+    return ModelUtils.getRiskStoragePath(getRiskId(i));
+  }
+
+  private static String getRiskId(int i) {
+    return "risk-" + i;
+  }
+}
@@ -9,10 +9,13 @@ package org.roda.core.plugins;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.solr.client.solrj.SolrServerException;
@@ -21,6 +24,7 @@ import org.roda.core.RodaCoreFactory;
 import org.roda.core.TestsHelper;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.utils.JsonUtils;
 import org.roda.core.data.v2.index.filter.Filter;
 import org.roda.core.data.v2.index.select.SelectedItemsList;
 import org.roda.core.data.v2.ip.AIP;
@@ -32,6 +36,7 @@ import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.index.IndexService;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.plugins.base.AIPCorruptionRiskAssessmentPlugin;
+import org.roda.core.plugins.plugins.base.FixityAuditor;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fs.FSUtils;
@@ -106,4 +111,45 @@ public class AIPCorruptionRiskAssessmentTest {
     Assert.assertEquals(jobReports.get(0).getPluginState(), PluginState.FAILURE);
   }
 
+  @Test
+  public void testFixityAuditor() throws RODAException, IOException {
+    String aipId = IdUtils.createUUID();
+    model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_CORRUPTED),
+      RodaConstants.ADMIN);
+
+    Path stateDirectory = basePath.resolve("fixity-audit");
+    FixityAuditor auditor = new FixityAuditor(model, index, stateDirectory, 30, 1024 * 1024, 0);
+    int verified = auditor.audit(model.retrieveAIP(aipId));
+    index.commit(RiskIncidence.class);
+    long incidences = index.count(RiskIncidence.class, Filter.ALL);
+
+    // 2 errors: 1 checksum checking error, 1 file without premis
+    Assert.assertTrue(verified > 0);
+    Assert.assertEquals(incidences, 2);
+
+    // files were verified during the current period
+    Assert.assertEquals(auditor.audit(model.retrieveAIP(aipId)), 0);
+
+    // the AIP is only due again at the end of the period, brought forward by
+    // the jitter
+    auditor.auditAll();
+    long period = TimeUnit.DAYS.toMillis(30);
+    long due = readSchedule(stateDirectory).getDueOn().get(aipId);
+    Assert.assertTrue(due > System.currentTimeMillis() + period * 0.8);
+    Assert.assertTrue(due <= System.currentTimeMillis() + period);
+    Assert.assertTrue(FSUtils.exists(stateDirectory.resolve("aips").resolve(aipId + ".json")));
+
+    // the state of deleted AIPs is removed
+    model.deleteAIP(aipId);
+    auditor.auditAll();
+    Assert.assertFalse(readSchedule(stateDirectory).getDueOn().containsKey(aipId));
+    Assert.assertFalse(FSUtils.exists(stateDirectory.resolve("aips").resolve(aipId + ".json")));
+  }
+
+  private static FixityAuditor.AuditSchedule readSchedule(Path stateDirectory) throws RODAException, IOException {
+    String json = new String(Files.readAllBytes(stateDirectory.resolve("schedule.json")), StandardCharsets.UTF_8);
+    return JsonUtils.getObjectFromJson(json, FixityAuditor.AuditSchedule.class);
+  }
+
 }
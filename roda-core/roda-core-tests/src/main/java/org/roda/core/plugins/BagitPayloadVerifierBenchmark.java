@@ -0,0 +1,136 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.v2.validation.ValidationException;
+import org.roda.core.plugins.plugins.ingest.BagitPayloadVerifier;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.util.FileUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.AssertJUnit;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Times the verification of a synthetic bag with one worker and with one
+ * worker per processor. The bag has, by default, 100000 small files and 3
+ * files of 2GB, which can be changed with the system properties
+ * roda.benchmark.bagit.small_files, roda.benchmark.bagit.large_files and
+ * roda.benchmark.bagit.large_file_size (in bytes).
+ */
+@Test(groups = {RodaConstants.TEST_GROUP_DEV})
+public class BagitPayloadVerifierBenchmark {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BagitPayloadVerifierBenchmark.class);
+
+  private static final String ALGORITHM = "SHA-256";
+  private static final int SMALL_FILE_SIZE = 4 * 1024;
+  private static final int FILES_PER_FOLDER = 1000;
+
+  private static Path basePath;
+  private static Path bagPath;
+  private static long smallFiles;
+  private static long largeFiles;
+
+  @BeforeClass
+  public static void setUp() throws IOException, NoSuchAlgorithmException {
+    basePath = TestsHelper.createBaseTempDir(BagitPayloadVerifierBenchmark.class, true);
+    bagPath = basePath.resolve("bag");
+
+    smallFiles = Long.getLong("roda.benchmark.bagit.small_files", 100000);
+    largeFiles = Long.getLong("roda.benchmark.bagit.large_files", 3);
+    long largeFileSize = Long.getLong("roda.benchmark.bagit.large_file_size", 2L * 1024 * 1024 * 1024);
+
+    long start = System.currentTimeMillis();
+    createBag(bagPath, smallFiles, largeFiles, largeFileSize);
+    LOGGER.info("Created bag with {} small files and {} files of {} bytes in {} ms", smallFiles, largeFiles,
+      largeFileSize, System.currentTimeMillis() - start);
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    FSUtils.deletePathQuietly(basePath);
+  }
+
+  @Test
+  public void benchmarkVerification() throws ValidationException, GenericException {
+    long sequential = verify(1);
+    long parallel = verify(Runtime.getRuntime().availableProcessors());
+    LOGGER.info("Verified bag in {} ms with 1 worker and in {} ms with {} workers", sequential, parallel,
+      Runtime.getRuntime().availableProcessors());
+  }
+
+  private long verify(int threads) throws ValidationException, GenericException {
+    AtomicLong verified = new AtomicLong(0);
+    long start = System.currentTimeMillis();
+    new BagitPayloadVerifier(bagPath, threads).verify(Collections.emptyList(),
+      (file, checksums) -> verified.incrementAndGet());
+    long duration = System.currentTimeMillis() - start;
+
+    AssertJUnit.assertEquals(smallFiles + largeFiles, verified.get());
+    return duration;
+  }
+
+  private static void createBag(Path bagPath, long smallFiles, long largeFiles, long largeFileSize)
+    throws IOException, NoSuchAlgorithmException {
+    Path payloadPath = bagPath.resolve(BagitPayloadVerifier.PAYLOAD_FOLDER);
+    Files.createDirectories(payloadPath);
+    Files.write(bagPath.resolve(BagitPayloadVerifier.BAGIT_FILE),
+      Arrays.asList("BagIt-Version: 0.97", "Tag-File-Character-Encoding: UTF-8"), StandardCharsets.UTF_8);
+
+    Random random = new Random(0);
+    byte[] buffer = new byte[SMALL_FILE_SIZE];
+    try (Writer manifest = Files.newBufferedWriter(bagPath.resolve("manifest-sha256.txt"), StandardCharsets.UTF_8)) {
+      for (long i = 0; i < smallFiles; i++) {
+        random.nextBytes(buffer);
+        String folder = Long.toString(i / FILES_PER_FOLDER);
+        Path file = payloadPath.resolve(folder).resolve(i + ".bin");
+        Files.createDirectories(file.getParent());
+        Files.write(file, buffer);
+        writeManifestLine(manifest, MessageDigest.getInstance(ALGORITHM).digest(buffer), folder + "/" + i + ".bin");
+      }
+
+      byte[] largeBuffer = new byte[1024 * 1024];
+      for (long i = 0; i < largeFiles; i++) {
+        MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+        random.nextBytes(largeBuffer);
+        try (OutputStream out = Files.newOutputStream(payloadPath.resolve("large-" + i + ".bin"))) {
+          for (long written = 0; written < largeFileSize; written += largeBuffer.length) {
+            int length = (int) Math.min(largeBuffer.length, largeFileSize - written);
+            out.write(largeBuffer, 0, length);
+            digest.update(largeBuffer, 0, length);
+          }
+        }
+        writeManifestLine(manifest, digest.digest(), "large-" + i + ".bin");
+      }
+    }
+  }
+
+  private static void writeManifestLine(Writer manifest, byte[] digest, String relativePath) throws IOException {
+    manifest.write(FileUtility.byteArrayToHexString(digest).toLowerCase(Locale.ENGLISH) + "  "
+      + BagitPayloadVerifier.PAYLOAD_FOLDER + "/" + relativePath + "\n");
+  }
+}
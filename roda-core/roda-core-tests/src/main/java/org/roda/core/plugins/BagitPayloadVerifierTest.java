@@ -0,0 +1,132 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.v2.validation.ValidationException;
+import org.roda.core.plugins.plugins.ingest.BagitPayloadVerifier;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.util.FileUtility;
+import org.testng.AssertJUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class BagitPayloadVerifierTest {
+  private static final String ALGORITHM = "SHA-256";
+  private static final int FOLDERS = 2;
+  private static final int FILES_PER_FOLDER = 10;
+  private static final int THREADS = 4;
+
+  private Path basePath;
+  private Path bagPath;
+
+  @BeforeMethod
+  public void setUp() throws IOException, NoSuchAlgorithmException {
+    basePath = TestsHelper.createBaseTempDir(getClass(), false);
+    bagPath = basePath.resolve("bag");
+
+    Path payloadPath = bagPath.resolve(BagitPayloadVerifier.PAYLOAD_FOLDER);
+    Files.createDirectories(payloadPath);
+    Files.write(bagPath.resolve(BagitPayloadVerifier.BAGIT_FILE),
+      Arrays.asList("BagIt-Version: 0.97", "Tag-File-Character-Encoding: UTF-8"), StandardCharsets.UTF_8);
+
+    try (Writer manifest = Files.newBufferedWriter(bagPath.resolve("manifest-sha256.txt"), StandardCharsets.UTF_8)) {
+      for (int i = 0; i < FOLDERS; i++) {
+        Files.createDirectories(payloadPath.resolve(Integer.toString(i)));
+        for (int j = 0; j < FILES_PER_FOLDER; j++) {
+          String relativePath = i + "/" + j + ".txt";
+          byte[] content = ("file " + relativePath).getBytes(StandardCharsets.UTF_8);
+          Files.write(payloadPath.resolve(relativePath), content);
+          manifest.write(hex(content) + "  " + BagitPayloadVerifier.PAYLOAD_FOLDER + "/" + relativePath + "\n");
+        }
+      }
+    }
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    FSUtils.deletePathQuietly(basePath);
+  }
+
+  private static String hex(byte[] content) throws NoSuchAlgorithmException {
+    return FileUtility.byteArrayToHexString(MessageDigest.getInstance(ALGORITHM).digest(content))
+      .toLowerCase(Locale.ENGLISH);
+  }
+
+  @Test
+  public void testValidBag() throws ValidationException, GenericException, NoSuchAlgorithmException {
+    Map<Path, Map<String, String>> verified = new ConcurrentHashMap<>();
+    new BagitPayloadVerifier(bagPath, THREADS).verify(Collections.singletonList("MD5"), verified::put);
+
+    AssertJUnit.assertEquals(FOLDERS * FILES_PER_FOLDER, verified.size());
+    Path file = bagPath.resolve(BagitPayloadVerifier.PAYLOAD_FOLDER).resolve("1").resolve("3.txt");
+    Map<String, String> checksums = verified.get(file);
+    AssertJUnit.assertNotNull(checksums);
+    AssertJUnit.assertEquals(hex("file 1/3.txt".getBytes(StandardCharsets.UTF_8)),
+      checksums.get(ALGORITHM).toLowerCase(Locale.ENGLISH));
+    AssertJUnit.assertTrue(checksums.containsKey("MD5"));
+  }
+
+  @Test
+  public void testCorruptedFileIsNotValid() throws IOException, GenericException {
+    Path corrupted = bagPath.resolve(BagitPayloadVerifier.PAYLOAD_FOLDER).resolve("0").resolve("0.txt");
+    Files.write(corrupted, "corrupted".getBytes(StandardCharsets.UTF_8));
+
+    try {
+      new BagitPayloadVerifier(bagPath, THREADS).verify(Collections.emptyList(), (file, checksums) -> {
+        // do nothing
+      });
+      AssertJUnit.fail("A bag with a corrupted file should not be valid");
+    } catch (ValidationException e) {
+      AssertJUnit.assertEquals(1, e.getReport().getIssues().size());
+      AssertJUnit.assertTrue(e.getReport().getIssues().get(0).getMessage().contains("0/0.txt"));
+    }
+  }
+
+  @Test
+  public void testCorruptedTagFileIsNotValid() throws IOException, NoSuchAlgorithmException, GenericException {
+    byte[] manifest = Files.readAllBytes(bagPath.resolve("manifest-sha256.txt"));
+    byte[] otherContent = "other content".getBytes(StandardCharsets.UTF_8);
+    try (Writer tagManifest = Files.newBufferedWriter(bagPath.resolve("tagmanifest-sha256.txt"),
+      StandardCharsets.UTF_8)) {
+      tagManifest.write(hex(manifest) + "  manifest-sha256.txt\n");
+      tagManifest.write(hex(otherContent) + "  " + BagitPayloadVerifier.BAGIT_FILE + "\n");
+    }
+
+    AtomicLong verified = new AtomicLong(0);
+    try {
+      new BagitPayloadVerifier(bagPath, THREADS).verify(Collections.emptyList(),
+        (file, checksums) -> verified.incrementAndGet());
+      AssertJUnit.fail("A bag with a corrupted tag file should not be valid");
+    } catch (ValidationException e) {
+      AssertJUnit.assertEquals(1, e.getReport().getIssues().size());
+      AssertJUnit.assertTrue(e.getReport().getIssues().get(0).getMessage().contains(BagitPayloadVerifier.BAGIT_FILE));
+    }
+
+    // tag files are checked before any payload file is read
+    AssertJUnit.assertEquals(0, verified.get());
+  }
+}
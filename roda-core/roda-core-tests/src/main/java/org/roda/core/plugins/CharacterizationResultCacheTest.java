@@ -0,0 +1,71 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.plugins.plugins.characterization.CharacterizationResultCache;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.AssertJUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class CharacterizationResultCacheTest {
+  private static final long MAX_UNUSED_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  private Path basePath;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(getClass(), false);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    FSUtils.deletePathQuietly(basePath);
+  }
+
+  private void setLastUse(String key, long millis) throws Exception {
+    try (Stream<Path> files = Files.walk(basePath)) {
+      Path result = files.filter(p -> p.getFileName().toString().startsWith(key)).findFirst().get();
+      Files.setLastModifiedTime(result, FileTime.fromMillis(millis));
+    }
+  }
+
+  @Test
+  public void testEvictsOnlyResultsUnusedForTooLong() throws Exception {
+    CharacterizationResultCache cache = new CharacterizationResultCache(basePath, MAX_UNUSED_MILLIS);
+    String unused = CharacterizationResultCache.getKey("digest1", "tool", "1.0", "signature 1");
+    String used = CharacterizationResultCache.getKey("digest2", "tool", "1.0", "signature 1");
+    String recent = CharacterizationResultCache.getKey("digest3", "tool", "1.0", "signature 1");
+    cache.put(unused, "{\"result\":1}");
+    cache.put(used, "{\"result\":2}");
+    cache.put(recent, "{\"result\":3}");
+
+    long old = System.currentTimeMillis() - 2 * MAX_UNUSED_MILLIS;
+    setLastUse(unused, old);
+    setLastUse(used, old);
+
+    // reading a result counts as using it
+    AssertJUnit.assertEquals(Optional.of("{\"result\":2}"), cache.get(used));
+
+    AssertJUnit.assertEquals(1, cache.evictUnused());
+    AssertJUnit.assertFalse(cache.get(unused).isPresent());
+    AssertJUnit.assertTrue(cache.get(used).isPresent());
+    AssertJUnit.assertTrue(cache.get(recent).isPresent());
+  }
+}
@@ -0,0 +1,207 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.plugins.plugins.antivirus.ClamdAntiVirus;
+import org.roda.core.plugins.plugins.antivirus.VirusCheckResult;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.AssertJUnit;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class ClamdAntiVirusTest {
+  private static final String VIRUS_MARKER = "FAKE-VIRUS";
+
+  private Path basePath;
+  private ServerSocket serverSocket;
+  private ExecutorService fakeClamd;
+  private final AtomicInteger connections = new AtomicInteger();
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(getClass(), true);
+
+    serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    fakeClamd = Executors.newCachedThreadPool();
+    fakeClamd.submit(() -> {
+      while (!serverSocket.isClosed()) {
+        Socket socket = serverSocket.accept();
+        connections.incrementAndGet();
+        fakeClamd.submit(() -> handleConnection(socket));
+      }
+      return null;
+    });
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    serverSocket.close();
+    fakeClamd.shutdownNow();
+    FSUtils.deletePath(basePath);
+  }
+
+  /**
+   * Answers the subset of the clamd protocol used by {@link ClamdAntiVirus},
+   * finding a virus on streams that contain {@link #VIRUS_MARKER}.
+   */
+  private Void handleConnection(Socket socket) throws IOException {
+    try (Socket s = socket) {
+      DataInputStream in = new DataInputStream(s.getInputStream());
+      OutputStream out = s.getOutputStream();
+      boolean session = false;
+      int request = 0;
+      String command;
+      while ((command = readCommand(in)) != null) {
+        if ("zIDSESSION".equals(command)) {
+          session = true;
+        } else if ("zINSTREAM".equals(command)) {
+          ByteArrayOutputStream content = new ByteArrayOutputStream();
+          int length;
+          while ((length = in.readInt()) > 0) {
+            byte[] chunk = new byte[length];
+            in.readFully(chunk);
+            content.write(chunk);
+          }
+          String verdict = content.toString(StandardCharsets.UTF_8.name()).contains(VIRUS_MARKER)
+            ? "Fake-Signature FOUND"
+            : "OK";
+          request++;
+          writeReply(out, (session ? request + ": " : "") + "stream: " + verdict);
+        } else if ("zVERSION".equals(command)) {
+          writeReply(out, "ClamAV fake");
+        } else if (command.startsWith("zMULTISCAN ")) {
+          multiscan(out, Paths.get(command.substring("zMULTISCAN ".length())));
+        } else {
+          break;
+        }
+
+        if (!session) {
+          break;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Like clamd, names only the files that are not clean or, if there are none,
+   * replies OK for the whole folder.
+   */
+  private static void multiscan(OutputStream out, Path folder) throws IOException {
+    List<Path> infected;
+    try (Stream<Path> files = Files.walk(folder)) {
+      infected = files.filter(Files::isRegularFile).filter(file -> {
+        try {
+          return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).contains(VIRUS_MARKER);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }).collect(Collectors.toList());
+    }
+
+    if (infected.isEmpty()) {
+      writeReply(out, folder + ": OK");
+    }
+    for (Path file : infected) {
+      writeReply(out, file + ": Fake-Signature FOUND");
+    }
+  }
+
+  private static String readCommand(InputStream in) throws IOException {
+    ByteArrayOutputStream command = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) > 0) {
+      command.write(b);
+    }
+    return b < 0 ? null : command.toString(StandardCharsets.US_ASCII.name());
+  }
+
+  private static void writeReply(OutputStream out, String reply) throws IOException {
+    out.write((reply + "\0").getBytes(StandardCharsets.UTF_8));
+    out.flush();
+  }
+
+  @Test
+  public void testInstream() throws IOException {
+    Path folder = Files.createDirectories(basePath.resolve("aip").resolve("data"));
+    for (int i = 0; i < 20; i++) {
+      Files.write(folder.resolve("file" + i + ".txt"), ("clean content " + i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    ClamdAntiVirus antiVirus = new ClamdAntiVirus(InetAddress.getLoopbackAddress().getHostAddress(),
+      serverSocket.getLocalPort(), 4, 10000, false);
+    AssertJUnit.assertEquals("ClamAV fake", antiVirus.getVersion());
+
+    VirusCheckResult result = antiVirus.checkForVirus(basePath.resolve("aip"));
+    AssertJUnit.assertTrue(result.getReport(), result.isClean());
+    AssertJUnit.assertEquals(20, result.getFileVerdicts().size());
+
+    Path infected = folder.resolve("infected.bin");
+    Files.write(infected, ("some bytes " + VIRUS_MARKER + " more bytes").getBytes(StandardCharsets.UTF_8));
+    result = antiVirus.checkForVirus(basePath.resolve("aip"));
+    AssertJUnit.assertFalse(result.isClean());
+    AssertJUnit.assertEquals(21, result.getFileVerdicts().size());
+    AssertJUnit.assertEquals("Fake-Signature FOUND",
+      result.getFileVerdicts().get(basePath.resolve("aip").relativize(infected).toString()));
+    AssertJUnit.assertTrue(result.getReport().contains("Fake-Signature FOUND"));
+
+    // sessions are reused, so 41 scans need at most one connection per thread
+    // plus the one used to get the version
+    AssertJUnit.assertTrue(connections.get() <= 5);
+  }
+
+  @Test
+  public void testMultiscan() throws IOException {
+    Path folder = Files.createDirectories(basePath.resolve("multiscan").resolve("data"));
+    for (int i = 0; i < 5; i++) {
+      Files.write(folder.resolve("file" + i + ".txt"), ("clean content " + i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    ClamdAntiVirus antiVirus = new ClamdAntiVirus(InetAddress.getLoopbackAddress().getHostAddress(),
+      serverSocket.getLocalPort(), 4, 10000, true);
+
+    // a clean folder gets a single verdict, not one for each file
+    VirusCheckResult result = antiVirus.checkForVirus(basePath.resolve("multiscan"));
+    AssertJUnit.assertTrue(result.getReport(), result.isClean());
+    AssertJUnit.assertTrue(result.getFileVerdicts().isEmpty());
+    AssertJUnit.assertTrue(result.getReport(), result.getReport().contains("MULTISCAN"));
+
+    Path infected = folder.resolve("infected.bin");
+    Files.write(infected, ("some bytes " + VIRUS_MARKER + " more bytes").getBytes(StandardCharsets.UTF_8));
+    result = antiVirus.checkForVirus(basePath.resolve("multiscan"));
+    AssertJUnit.assertFalse(result.isClean());
+    AssertJUnit.assertEquals(1, result.getFileVerdicts().size());
+    AssertJUnit.assertEquals("Fake-Signature FOUND",
+      result.getFileVerdicts().get(basePath.resolve("multiscan").relativize(infected).toString()));
+  }
+
+}
@@ -145,6 +145,12 @@ public class EARKSIPPluginsTest {
     return createIngestCorpora(corporaPath, index, CorporaConstants.EARK_SIP, null);
   }
 
+  public static TransferredResource createIngestCorpora(Path corporaPath, IndexService index, String renameSipFileTo)
+    throws IOException, NotFoundException, GenericException, RequestNotValidException, IsStillUpdatingException,
+    AlreadyExistsException, AuthorizationDeniedException {
+    return createIngestCorpora(corporaPath, index, CorporaConstants.EARK_SIP, renameSipFileTo);
+  }
+
   public static TransferredResource createIngestUpdateCorpora(Path corporaPath, IndexService index,
     String renameSipFileTo) throws IOException, NotFoundException, GenericException, RequestNotValidException,
     IsStillUpdatingException, AlreadyExistsException, AuthorizationDeniedException {
@@ -0,0 +1,151 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.ExportType;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.index.select.SelectedItemsList;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.data.v2.ip.Representation;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.index.IndexService;
+import org.roda.core.model.ModelService;
+import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.plugins.plugins.base.ExportAIPPlugin;
+import org.roda.core.storage.DirectResourceAccess;
+import org.roda.core.storage.StringContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.util.IdUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class ExportAIPPluginTest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExportAIPPluginTest.class);
+
+  private static final String COMPRESSED_FILE = "image.jpg";
+  private static final String TEXT_FILE = "text.txt";
+
+  private Path basePath;
+  private ModelService model;
+  private IndexService index;
+
+  private AIP aip;
+  private Representation representation;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(getClass(), true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = true;
+    boolean deployFolderMonitor = true;
+    boolean deployOrchestrator = true;
+    boolean deployPluginManager = true;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+    model = RodaCoreFactory.getModelService();
+    index = RodaCoreFactory.getIndexService();
+
+    aip = model.createAIP(null, "", new Permissions(), RodaConstants.ADMIN);
+    representation = model.createRepresentation(aip.getId(), IdUtils.createUUID(), true, "", true,
+      RodaConstants.ADMIN);
+    model.createFile(aip.getId(), representation.getId(), Collections.emptyList(), COMPRESSED_FILE,
+      new StringContentPayload("not really a JPEG"));
+    model.createFile(aip.getId(), representation.getId(), Collections.emptyList(), TEXT_FILE,
+      new StringContentPayload("some text that is deflated"));
+
+    LOGGER.info("Running '{}' tests under storage {}", getClass().getName(), basePath);
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  @Test
+  public void testExportZipStoresCompressedFormats() throws RODAException, IOException {
+    Path outputPath = basePath.resolve("zip-export");
+    export(outputPath, ExportType.ZIP, false);
+
+    try (ZipFile zip = new ZipFile(outputPath.resolve(aip.getId() + ".zip").toFile())) {
+      String dataPath = RodaConstants.STORAGE_DIRECTORY_REPRESENTATIONS + "/" + representation.getId() + "/"
+        + RodaConstants.STORAGE_DIRECTORY_DATA + "/";
+
+      ZipEntry compressed = zip.getEntry(dataPath + COMPRESSED_FILE);
+      Assert.assertNotNull(compressed);
+      Assert.assertEquals(compressed.getMethod(), ZipEntry.STORED);
+      Assert.assertEquals(read(zip, compressed), "not really a JPEG");
+
+      ZipEntry text = zip.getEntry(dataPath + TEXT_FILE);
+      Assert.assertNotNull(text);
+      Assert.assertEquals(text.getMethod(), ZipEntry.DEFLATED);
+      Assert.assertEquals(read(zip, text), "some text that is deflated");
+    }
+  }
+
+  @Test
+  public void testExportFolderLinksFiles() throws RODAException, IOException {
+    Path outputPath = basePath.resolve("folder-export");
+    export(outputPath, ExportType.FOLDER, true);
+
+    Path exported = outputPath.resolve(aip.getId()).resolve(RodaConstants.STORAGE_DIRECTORY_REPRESENTATIONS)
+      .resolve(representation.getId()).resolve(RodaConstants.STORAGE_DIRECTORY_DATA).resolve(TEXT_FILE);
+    Assert.assertTrue(Files.exists(exported));
+    Assert.assertEquals(new String(Files.readAllBytes(exported), StandardCharsets.UTF_8),
+      "some text that is deflated");
+
+    // the export is in the same file system as the storage, so the file is a
+    // link to the one in the storage and not a copy
+    try (DirectResourceAccess stored = RodaCoreFactory.getStorageService().getDirectAccess(
+      ModelUtils.getFileStoragePath(aip.getId(), representation.getId(), Collections.emptyList(), TEXT_FILE))) {
+      Assert.assertTrue(Files.isSameFile(exported, stored.getPath()));
+    }
+  }
+
+  private void export(Path outputPath, ExportType exportType, boolean linkFiles) throws RODAException {
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put(ExportAIPPlugin.PLUGIN_PARAM_EXPORT_FOLDER_PARAMETER, outputPath.toString());
+    parameters.put(ExportAIPPlugin.PLUGIN_PARAM_EXPORT_TYPE, exportType.toString());
+    parameters.put(ExportAIPPlugin.PLUGIN_PARAM_EXPORT_REMOVE_IF_ALREADY_EXISTS, "true");
+    parameters.put(ExportAIPPlugin.PLUGIN_PARAM_EXPORT_LINK_FILES, Boolean.toString(linkFiles));
+
+    Job job = TestsHelper.executeJob(ExportAIPPlugin.class, parameters, PluginType.AIP_TO_AIP,
+      SelectedItemsList.create(AIP.class, aip.getId()));
+    TestsHelper.getJobReports(index, job, true);
+  }
+
+  private static String read(ZipFile zip, ZipEntry entry) throws IOException {
+    try (InputStream content = zip.getInputStream(entry)) {
+      return IOUtils.toString(content, StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -9,18 +9,24 @@ package org.roda.core.plugins;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.xmlbeans.XmlException;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
@@ -46,29 +52,42 @@ import org.roda.core.data.v2.index.filter.Filter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.index.select.SelectedItemsAll;
 import org.roda.core.data.v2.index.select.SelectedItemsList;
+import org.roda.core.data.v2.index.select.SelectedItemsNone;
 import org.roda.core.data.v2.index.sublist.Sublist;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
 import org.roda.core.data.v2.ip.File;
 import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.ip.IndexedFile;
+import org.roda.core.data.v2.ip.IndexedRepresentation;
 import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.TransferredResource;
 import org.roda.core.data.v2.ip.metadata.IndexedPreservationEvent;
 import org.roda.core.data.v2.ip.metadata.PreservationMetadata;
 import org.roda.core.data.v2.ip.metadata.PreservationMetadata.PreservationMetadataType;
 import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.PluginState;
 import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.data.v2.jobs.Report;
 import org.roda.core.index.IndexService;
 import org.roda.core.model.ModelService;
+import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.plugins.orchestrate.JobsHelper;
+import org.roda.core.plugins.plugins.BatchCommandConvertPluginForTests;
+import org.roda.core.plugins.plugins.ConvertPluginThatTracksConversions;
 import org.roda.core.plugins.plugins.PluginHelper;
 import org.roda.core.plugins.plugins.antivirus.AntivirusPlugin;
+import org.roda.core.plugins.plugins.base.InventoryReportPlugin;
 import org.roda.core.plugins.plugins.characterization.PremisSkeletonPlugin;
 import org.roda.core.plugins.plugins.characterization.SiegfriedPlugin;
 import org.roda.core.plugins.plugins.ingest.AutoAcceptSIPPlugin;
 import org.roda.core.plugins.plugins.ingest.TransferredResourceToAIPPlugin;
+import org.roda.core.plugins.plugins.reindex.ReindexAIPPlugin;
+import org.roda.core.plugins.plugins.reindex.RepairAIPIndexDriftPlugin;
 import org.roda.core.storage.Binary;
+import org.roda.core.storage.StringContentPayload;
 import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.util.FileUtility;
 import org.roda.core.util.IdUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -334,6 +353,39 @@ public class InternalPluginsTest {
     AssertJUnit.assertEquals(CORPORA_TEST1_TXT, originalName);
   }
 
+  @Test
+  public void testPremisSkeletonLinksFilesWithPremisAddedToRepresentation()
+    throws RODAException, IOException, XmlException {
+    AIP aip = ingestCorpora();
+    String representationId = aip.getRepresentations().get(0).getId();
+
+    TestsHelper.executeJob(PremisSkeletonPlugin.class, PluginType.AIP_TO_AIP,
+      SelectedItemsList.create(AIP.class, aip.getId()));
+
+    // e.g. a file added by an update SIP, with its PREMIS created from the
+    // checksums computed while extracting it
+    String newFileId = "added.txt";
+    File newFile = model.createFile(aip.getId(), representationId, new ArrayList<>(), newFileId,
+      new StringContentPayload("added content"), false);
+    model.createPreservationMetadata(PreservationMetadataType.FILE, aip.getId(), representationId,
+      newFile.getPath(), newFile.getId(),
+      PremisV3Utils.createBaseFile(newFile, model, RodaCoreFactory.getFixityAlgorithms()), false);
+
+    TestsHelper.executeJob(PremisSkeletonPlugin.class, PluginType.AIP_TO_AIP,
+      SelectedItemsList.create(AIP.class, aip.getId()));
+
+    Binary rpo_bin = model.retrievePreservationRepresentation(aip.getId(), representationId);
+    Representation rpo = PremisV3Utils.binaryToRepresentation(rpo_bin.getContent(), true);
+
+    // relates to all the files, the added one only once
+    AssertJUnit.assertEquals(CORPORA_FILES_COUNT + 1, rpo.getRelationshipArray().length);
+    long newFileLinks = Arrays.stream(rpo.getRelationshipArray())
+      .filter(r -> IdUtils.getPreservationFileId(newFileId)
+        .equals(r.getRelatedObjectIdentifierArray(0).getRelatedObjectIdentifierValue()))
+      .count();
+    AssertJUnit.assertEquals(1, newFileLinks);
+  }
+
   @Test
   public void testSiegfried() throws RODAException, IOException, XmlException {
     AIP aip = ingestCorpora();
@@ -637,6 +689,223 @@ public class InternalPluginsTest {
     AssertJUnit.assertEquals(16, events.getTotalCount());
   }
 
+  @Test
+  public void testConvertCommitsFilesInOrderAndReleasesThem() throws RODAException, IOException {
+    AIP aip = ingestCorpora();
+
+    List<String> fileIds = new ArrayList<>();
+    try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(),
+      aip.getRepresentations().get(0).getId(), true)) {
+      for (OptionalWithCause<File> oFile : allFiles) {
+        if (oFile.isPresent() && !oFile.get().isDirectory()) {
+          fileIds.add(oFile.get().getId());
+        }
+      }
+    }
+
+    int threads = 2;
+    String threadsProperty = "core.tools.convert.allplugins.threads";
+    RodaCoreFactory.getRodaConfiguration().setProperty(threadsProperty, threads);
+    ConvertPluginThatTracksConversions.reset();
+    Job job;
+    try {
+      Map<String, String> parameters = new HashMap<>();
+      parameters.put(RodaConstants.PLUGIN_PARAMS_OUTPUT_FORMAT, "txt");
+      parameters.put(RodaConstants.PLUGIN_PARAMS_REPRESENTATION_OR_DIP, "false");
+      job = TestsHelper.executeJob(ConvertPluginThatTracksConversions.class, parameters, PluginType.AIP_TO_AIP,
+        SelectedItemsList.create(AIP.class, aip.getId()));
+    } finally {
+      RodaCoreFactory.getRodaConfiguration().clearProperty(threadsProperty);
+    }
+    AssertJUnit.assertEquals(fileIds.size(), ConvertPluginThatTracksConversions.getConversions());
+
+    // later files are converted first, but committed in the order listed
+    List<String> committedFileIds = new ArrayList<>();
+    for (Report report : TestsHelper.getJobReports(index, job, true)) {
+      for (Report reportItem : model.retrieveJobReport(job.getId(), report.getId()).getReports()) {
+        reportItem.getReports().stream().filter(r -> File.class.getName().equals(r.getSourceObjectClass()))
+          .forEach(r -> committedFileIds.add(r.getSourceObjectId()));
+      }
+    }
+    AssertJUnit.assertEquals(fileIds, committedFileIds);
+
+    // only twice as many files as threads are converted ahead of the commits
+    MatcherAssert.assertThat(ConvertPluginThatTracksConversions.getMaxPendingConversions(),
+      Matchers.lessThanOrEqualTo(2 * threads));
+
+    Path workingDirectory = RodaCoreFactory.getWorkingDirectory().resolve(job.getId());
+    if (FSUtils.exists(workingDirectory)) {
+      try (Stream<Path> files = Files.list(workingDirectory)) {
+        AssertJUnit.assertFalse(files.anyMatch(
+          p -> p.getFileName().toString().startsWith(ConvertPluginThatTracksConversions.CONVERTED_FILE_PREFIX)));
+      }
+    }
+  }
+
+  @Test
+  public void testConvertInBatches() throws RODAException, IOException {
+    AIP aip = ingestCorpora();
+    String originalRepresentationId = aip.getRepresentations().get(0).getId();
+
+    int batchSize = 5;
+    String batchSizeProperty = "core.tools.convert.command.batchSize";
+    RodaCoreFactory.getRodaConfiguration().setProperty(batchSizeProperty, batchSize);
+    BatchCommandConvertPluginForTests.setUp(basePath);
+    Job job;
+    try {
+      Map<String, String> parameters = new HashMap<>();
+      parameters.put(RodaConstants.PLUGIN_PARAMS_OUTPUT_FORMAT, "txt");
+      parameters.put(RodaConstants.PLUGIN_PARAMS_REPRESENTATION_OR_DIP, "false");
+      job = TestsHelper.executeJob(BatchCommandConvertPluginForTests.class, parameters, PluginType.AIP_TO_AIP,
+        SelectedItemsList.create(AIP.class, aip.getId()));
+    } finally {
+      RodaCoreFactory.getRodaConfiguration().clearProperty(batchSizeProperty);
+    }
+    TestsHelper.getJobReports(index, job, true);
+
+    // all files are converted by batch commands, several files at a time
+    List<Integer> batchSizes = BatchCommandConvertPluginForTests.getBatchSizes();
+    AssertJUnit.assertEquals(CORPORA_FILES_COUNT, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    MatcherAssert.assertThat(Collections.max(batchSizes), Matchers.is(batchSize));
+    AssertJUnit.assertEquals(0, BatchCommandConvertPluginForTests.getSingleConversions());
+
+    aip = model.retrieveAIP(aip.getId());
+    AssertJUnit.assertEquals(2, aip.getRepresentations().size());
+    String convertedRepresentationId = aip.getRepresentations().stream().map(r -> r.getId())
+      .filter(id -> !id.equals(originalRepresentationId)).findFirst().get();
+    int convertedFiles = 0;
+    try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(),
+      convertedRepresentationId, true)) {
+      for (OptionalWithCause<File> oFile : allFiles) {
+        if (oFile.isPresent() && !oFile.get().isDirectory()) {
+          convertedFiles++;
+        }
+      }
+    }
+    AssertJUnit.assertEquals(CORPORA_FILES_COUNT, convertedFiles);
+
+    // the list files are deleted after each command
+    Path workingDirectory = RodaCoreFactory.getWorkingDirectory().resolve(job.getId());
+    if (FSUtils.exists(workingDirectory)) {
+      try (Stream<Path> files = Files.list(workingDirectory)) {
+        AssertJUnit.assertFalse(files.anyMatch(p -> p.getFileName().toString().startsWith("batch")));
+      }
+    }
+  }
+
+  @Test
+  public void testInventoryReport() throws RODAException, IOException, NoSuchAlgorithmException {
+    AIP aip = ingestCorpora();
+
+    List<String> expectedLines = new ArrayList<>();
+    try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(),
+      aip.getRepresentations().get(0).getId(), true)) {
+      for (OptionalWithCause<File> oFile : allFiles) {
+        File file = oFile.get();
+        String checksum = "";
+        if (!file.isDirectory()) {
+          Binary binary = model.getStorage().getBinary(ModelUtils.getFileStoragePath(file));
+          try (InputStream inputStream = binary.getContent().createInputStream()) {
+            checksum = FileUtility.checksum(inputStream, RodaConstants.SHA256);
+          }
+        }
+        List<String> line = Arrays.asList(aip.getId(), file.getId(), String.valueOf(file.isDirectory()), checksum);
+        expectedLines.add(StringUtils.join(line, ","));
+      }
+    }
+    AssertJUnit.assertEquals(CORPORA_FILES_COUNT + CORPORA_FOLDERS_COUNT, expectedLines.size());
+    Collections.sort(expectedLines);
+
+    String fields = StringUtils.join(Arrays.asList(InventoryReportPlugin.CSV_FIELD_AIP_ID,
+      InventoryReportPlugin.CSV_FIELD_FILE_ID, InventoryReportPlugin.CSV_FIELD_ISDIRECTORY,
+      InventoryReportPlugin.CSV_FIELD_CHECKSUM_SHA256), ",");
+    Path output = basePath.resolve("inventory_report.csv");
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put(InventoryReportPlugin.CSV_FILE_FIELDS, fields);
+    parameters.put(InventoryReportPlugin.CSV_FILE_OUTPUT, output.toString());
+    parameters.put(InventoryReportPlugin.CSV_FILE_HEADERS, Boolean.TRUE.toString());
+    parameters.put(InventoryReportPlugin.CSV_FILE_OUTPUT_DATA, Boolean.TRUE.toString());
+    parameters.put(InventoryReportPlugin.CSV_FILE_OUTPUT_DESCRIPTIVE, Boolean.FALSE.toString());
+    parameters.put(InventoryReportPlugin.CSV_FILE_OTHER_METADATA_TYPES, "");
+
+    int threads = 2;
+    String threadsProperty = "core.plugins.internal.inventory_report.threads";
+    RodaCoreFactory.getRodaConfiguration().setProperty(threadsProperty, threads);
+    int originalBlockSize = JobsHelper.getBlockSize();
+    JobsHelper.setBlockSize(1);
+    try {
+      // each AIP is a block of its own, and the report is written anew by
+      // every job
+      for (int i = 0; i < 2; i++) {
+        TestsHelper.executeJob(InventoryReportPlugin.class, parameters, PluginType.MISC,
+          SelectedItemsList.create(AIP.class, aip.getParentId(), aip.getId()));
+
+        List<String> lines = Files.readAllLines(output);
+        AssertJUnit.assertEquals(fields, lines.get(0));
+        List<String> dataLines = new ArrayList<>(lines.subList(1, lines.size()));
+        Collections.sort(dataLines);
+        AssertJUnit.assertEquals(expectedLines, dataLines);
+      }
+    } finally {
+      JobsHelper.setBlockSize(originalBlockSize);
+      RodaCoreFactory.getRodaConfiguration().clearProperty(threadsProperty);
+    }
+
+    // all blocks of all jobs share the same pool
+    long poolThreads = Thread.getAllStackTraces().keySet().stream()
+      .filter(t -> t.getName().startsWith("inventory-report-")).count();
+    MatcherAssert.assertThat(poolThreads, Matchers.lessThanOrEqualTo((long) threads));
+  }
+
+  @Test
+  public void testRepairAIPIndexDrift() throws RODAException {
+    AIP aip = ingestCorpora();
+
+    Filter dataFiles = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, aip.getId()),
+      new SimpleFilterParameter(RodaConstants.FILE_ISDIRECTORY, Boolean.FALSE.toString()));
+    IndexedFile file = index.find(IndexedFile.class, dataFiles, null, new Sublist(0, 1), new ArrayList<>())
+      .getResults().get(0);
+    String representationUUID = IdUtils.getRepresentationId(aip.getId(), aip.getRepresentations().get(0).getId());
+
+    // a missing representation is found by comparing the AIP metadata
+    index.delete(IndexedRepresentation.class, Arrays.asList(representationUUID));
+    index.commit(IndexedRepresentation.class);
+    TestsHelper.executeJob(RepairAIPIndexDriftPlugin.class, PluginType.MISC, SelectedItemsNone.create());
+    index.commit(IndexedRepresentation.class);
+    AssertJUnit.assertNotNull(index.retrieve(IndexedRepresentation.class, representationUUID, new ArrayList<>()));
+
+    // but only a deep comparison, which lists the data files, finds a missing
+    // file
+    index.delete(IndexedFile.class, Arrays.asList(file.getUUID()));
+    index.commit(IndexedFile.class);
+    TestsHelper.executeJob(RepairAIPIndexDriftPlugin.class, PluginType.MISC, SelectedItemsNone.create());
+    index.commit(IndexedFile.class);
+    AssertJUnit.assertEquals(0L, index.count(IndexedFile.class,
+      new Filter(new SimpleFilterParameter(RodaConstants.INDEX_UUID, file.getUUID()))).longValue());
+
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put(RodaConstants.PLUGIN_PARAMS_DEEP_COMPARISON, Boolean.TRUE.toString());
+    TestsHelper.executeJob(RepairAIPIndexDriftPlugin.class, parameters, PluginType.MISC, SelectedItemsNone.create());
+    index.commit(IndexedFile.class);
+    AssertJUnit.assertNotNull(index.retrieve(IndexedFile.class, file.getUUID(), new ArrayList<>()));
+  }
+
+  @Test
+  public void testReindexOnlyInconsistentAIPs() throws RODAException {
+    AIP aip = ingestCorpora();
+
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put(RodaConstants.PLUGIN_PARAMS_ONLY_INCONSISTENT, Boolean.TRUE.toString());
+    Job job = TestsHelper.executeJob(ReindexAIPPlugin.class, parameters, PluginType.MISC,
+      SelectedItemsList.create(AIP.class, aip.getId()));
+
+    // a consistent AIP is skipped, but still has its report
+    AssertJUnit.assertEquals(1, job.getJobStats().getSourceObjectsProcessedWithSuccess());
+    List<Report> reports = TestsHelper.getJobReports(index, job, false);
+    AssertJUnit.assertEquals(1, reports.size());
+    AssertJUnit.assertEquals(PluginState.SUCCESS, reports.get(0).getPluginState());
+  }
+
   @Test
   public void testAutoAccept() throws RODAException {
     AIP aip = ingestCorpora();
@@ -7,6 +7,7 @@
  */
 package org.roda.core.plugins;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Path;
@@ -15,11 +16,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.TestsHelper;
 import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.common.monitor.TransferredResourcesScanner;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.PreservationEventType;
 import org.roda.core.data.exceptions.AlreadyExistsException;
@@ -47,6 +50,7 @@ import org.roda.core.data.v2.jobs.Report;
 import org.roda.core.index.IndexService;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.plugins.ingest.MinimalIngestPlugin;
+import org.roda.core.plugins.plugins.ingest.TransferredResourceToAIPPlugin;
 import org.roda.core.storage.fs.FSUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -66,6 +70,8 @@ public class MinimalIngestPluginTest {
 
   private static final int CORPORA_FILES_COUNT = 4;
   private static final int CORPORA_FOLDERS_COUNT = 2;
+  private static final String FOLDER_CORPORA_FILE = "file.txt";
+  private static final String FOLDER_CORPORA_SUBFOLDER = "subfolder";
   private Path basePath;
 
   private ModelService model;
@@ -140,6 +146,183 @@ public class MinimalIngestPluginTest {
     assessJobStats(job, true);
   }
 
+  @Test
+  public void testWithEARKSIPPipelined() throws IOException, RODAException {
+    RodaCoreFactory.getRodaConfiguration()
+      .setProperty(RodaConstants.CORE_TRANSFERRED_RESOURCES_INGEST_MOVE_WHEN_AUTOACCEPT, true);
+    RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_INGEST_PIPELINED, true);
+
+    try {
+      AIP aip = EARKSIPPluginsTest.ingestCorpora(MinimalIngestPlugin.class, model, index, corporaPath);
+      assessAIP(aip);
+
+      Job job = model.retrieveJob(aip.getIngestJobId());
+      assessJobStats(job, true);
+    } finally {
+      RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_INGEST_PIPELINED, false);
+    }
+  }
+
+  @Test
+  public void testWithSeveralEARKSIPsPipelinedAndMoveWhenAutoAccept() throws IOException, RODAException {
+    RodaCoreFactory.getRodaConfiguration()
+      .setProperty(RodaConstants.CORE_TRANSFERRED_RESOURCES_INGEST_MOVE_WHEN_AUTOACCEPT, true);
+    RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_INGEST_PIPELINED, true);
+
+    try {
+      int sipsCount = 3;
+      List<String> transferredResourceIds = new ArrayList<>();
+      for (int i = 0; i < sipsCount; i++) {
+        TransferredResource transferredResource = EARKSIPPluginsTest.createIngestCorpora(corporaPath, index,
+          "pipelined_sip_" + i + ".zip");
+        transferredResourceIds.add(transferredResource.getUUID());
+      }
+
+      Job job = TestsHelper.executeJob(MinimalIngestPlugin.class, new HashMap<>(), PluginType.SIP_TO_AIP,
+        SelectedItemsList.create(TransferredResource.class, transferredResourceIds));
+
+      Assert.assertEquals(job.getJobStats().getSourceObjectsCount(), sipsCount);
+      Assert.assertEquals(job.getJobStats().getSourceObjectsProcessedWithSuccess(), sipsCount);
+      Assert.assertEquals(job.getJobStats().getSourceObjectsProcessedWithFailure(), 0);
+      Assert.assertEquals(job.getJobStats().getSourceObjectsBeingProcessed(), 0);
+
+      // every SIP was moved to the successfully ingested folder and each AIP
+      // has all the ingest events, including the ingest end one
+      String successFolder = RodaCoreFactory.getRodaConfiguration()
+        .getString("core.ingest.processed.successfully_ingested", "SUCCESSFULLY_INGESTED");
+      List<Report> jobReports = TestsHelper.getJobReports(index, job, true);
+      Assert.assertEquals(jobReports.size(), sipsCount);
+      for (Report report : jobReports) {
+        Assert.assertFalse(transferredResourceIds.contains(report.getSourceObjectId()));
+        TransferredResource transferredResourceAfterMove = index.retrieve(TransferredResource.class,
+          report.getSourceObjectId(), Collections.emptyList());
+        Assert.assertTrue(transferredResourceAfterMove.getFullPath().contains(successFolder));
+        assessAIP(model.retrieveAIP(report.getOutcomeObjectId()));
+      }
+    } finally {
+      RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_INGEST_PIPELINED, false);
+    }
+  }
+
+  @Test
+  public void testWithEARKSIPAndMoveTransferredResource() throws IOException, RODAException {
+    RodaCoreFactory.getRodaConfiguration()
+      .setProperty(RodaConstants.CORE_TRANSFERRED_RESOURCES_INGEST_MOVE_WHEN_AUTOACCEPT, true);
+    RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_INGEST_SIP2AIP_MOVE_TRANSFERRED_RESOURCE,
+      true);
+
+    try {
+      TransferredResource transferredResource = EARKSIPPluginsTest.createIngestCorpora(corporaPath, index,
+        "move_mode_sip.zip");
+      Job job = TestsHelper.executeJob(MinimalIngestPlugin.class, new HashMap<>(), PluginType.SIP_TO_AIP,
+        SelectedItemsList.create(TransferredResource.class, transferredResource.getUUID()));
+      assessJobStats(job, true);
+
+      // zipped SIPs are not moved into their AIPs, so they still go to the
+      // processed folder
+      List<Report> jobReports = TestsHelper.getJobReports(index, job, true);
+      Assert.assertEquals(jobReports.size(), 1);
+      String successFolder = RodaCoreFactory.getRodaConfiguration()
+        .getString("core.ingest.processed.successfully_ingested", "SUCCESSFULLY_INGESTED");
+      TransferredResource transferredResourceAfterMove = index.retrieve(TransferredResource.class,
+        jobReports.get(0).getSourceObjectId(), Collections.emptyList());
+      Assert.assertTrue(transferredResourceAfterMove.getFullPath().contains(successFolder));
+    } finally {
+      RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_INGEST_SIP2AIP_MOVE_TRANSFERRED_RESOURCE,
+        false);
+    }
+  }
+
+  @Test
+  public void testWithFolderAndMoveTransferredResource() throws IOException, RODAException {
+    RodaCoreFactory.getRodaConfiguration()
+      .setProperty(RodaConstants.CORE_TRANSFERRED_RESOURCES_INGEST_MOVE_WHEN_AUTOACCEPT, true);
+    RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_INGEST_SIP2AIP_MOVE_TRANSFERRED_RESOURCE,
+      true);
+
+    try {
+      TransferredResource transferredResource = createFolderCorpora("move_mode_folder");
+      Job job = TestsHelper.executeJob(MinimalIngestPlugin.class, getFolderIngestParameters(), PluginType.SIP_TO_AIP,
+        SelectedItemsList.create(TransferredResource.class, transferredResource.getUUID()));
+      assessJobStats(job, true);
+
+      List<Report> jobReports = TestsHelper.getJobReports(index, job, true);
+      Assert.assertEquals(jobReports.size(), 1);
+      assessFolderAIP(model.retrieveAIP(jobReports.get(0).getOutcomeObjectId()));
+
+      // the folder is now only in the AIP
+      Assert.assertFalse(FSUtils.exists(Paths.get(transferredResource.getFullPath())));
+      index.commit(TransferredResource.class);
+      Assert.assertEquals(index.count(TransferredResource.class, new Filter(
+        new SimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_ANCESTORS, transferredResource.getRelativePath())))
+        .longValue(), 0L);
+      try {
+        index.retrieve(TransferredResource.class, transferredResource.getUUID(), Collections.emptyList());
+        Assert.fail("The moved folder should not be in the transfer area index");
+      } catch (NotFoundException e) {
+        // expected
+      }
+    } finally {
+      RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_INGEST_SIP2AIP_MOVE_TRANSFERRED_RESOURCE,
+        false);
+    }
+  }
+
+  @Test
+  public void testWithFolderAndMoveTransferredResourceNotIngested() throws IOException, RODAException {
+    RodaCoreFactory.getRodaConfiguration()
+      .setProperty(RodaConstants.CORE_TRANSFERRED_RESOURCES_INGEST_MOVE_WHEN_AUTOACCEPT, false);
+    RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_INGEST_SIP2AIP_MOVE_TRANSFERRED_RESOURCE,
+      true);
+
+    try {
+      TransferredResource transferredResource = createFolderCorpora("move_mode_failed_folder");
+
+      // the producer authorization check fails for a user that does not exist
+      Job job = TestsHelper.executeJob(MinimalIngestPlugin.class, getFolderIngestParameters(), PluginType.SIP_TO_AIP,
+        SelectedItemsList.create(TransferredResource.class, transferredResource.getUUID()), "unknown_producer");
+      assessJobStats(job, false);
+
+      // the files are back in the transfer area and the AIP is gone
+      Path transferredResourcePath = Paths.get(transferredResource.getFullPath());
+      Assert.assertTrue(FSUtils.exists(transferredResourcePath.resolve(FOLDER_CORPORA_FILE)));
+      Assert.assertTrue(FSUtils.exists(transferredResourcePath.resolve(FOLDER_CORPORA_SUBFOLDER)
+        .resolve(FOLDER_CORPORA_FILE)));
+      index.commit(TransferredResource.class);
+      Assert.assertNotNull(
+        index.retrieve(TransferredResource.class, transferredResource.getUUID(), Collections.emptyList()));
+      index.commitAIPs();
+      Assert.assertEquals(index.count(IndexedAIP.class,
+        new Filter(new SimpleFilterParameter(RodaConstants.INGEST_JOB_ID, job.getId()))).longValue(), 0L);
+    } finally {
+      RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_INGEST_SIP2AIP_MOVE_TRANSFERRED_RESOURCE,
+        false);
+    }
+  }
+
+  @Test
+  public void testWithFolderAndCopyTransferredResource() throws IOException, RODAException {
+    RodaCoreFactory.getRodaConfiguration()
+      .setProperty(RodaConstants.CORE_TRANSFERRED_RESOURCES_INGEST_MOVE_WHEN_AUTOACCEPT, false);
+    RodaCoreFactory.getRodaConfiguration().setProperty(RodaConstants.CORE_INGEST_SIP2AIP_MOVE_TRANSFERRED_RESOURCE,
+      false);
+
+    TransferredResource transferredResource = createFolderCorpora("copy_mode_folder");
+    Job job = TestsHelper.executeJob(MinimalIngestPlugin.class, getFolderIngestParameters(), PluginType.SIP_TO_AIP,
+      SelectedItemsList.create(TransferredResource.class, transferredResource.getUUID()));
+    assessJobStats(job, true);
+
+    List<Report> jobReports = TestsHelper.getJobReports(index, job, true);
+    Assert.assertEquals(jobReports.size(), 1);
+    assessFolderAIP(model.retrieveAIP(jobReports.get(0).getOutcomeObjectId()));
+
+    // the folder is still in the transfer area
+    Path transferredResourcePath = Paths.get(transferredResource.getFullPath());
+    Assert.assertTrue(FSUtils.exists(transferredResourcePath.resolve(FOLDER_CORPORA_FILE)));
+    Assert.assertNotNull(
+      index.retrieve(TransferredResource.class, transferredResource.getUUID(), Collections.emptyList()));
+  }
+
   @Test
   public void testWithEARKSIPUpdateWithNoAssociatedAIP()
     throws NotFoundException, GenericException, RequestNotValidException, IsStillUpdatingException,
@@ -174,6 +357,30 @@ public class MinimalIngestPluginTest {
     Assert.assertTrue(transferredResourceAfterMove.getFullPath().contains(unsuccessFolder));
   }
 
+  private TransferredResource createFolderCorpora(String name) throws RODAException {
+    TransferredResourcesScanner f = RodaCoreFactory.getTransferredResourcesScanner();
+    String folderUUID = f.createFolder(null, name).getUUID();
+    String subfolderUUID = f.createFolder(folderUUID, FOLDER_CORPORA_SUBFOLDER).getUUID();
+    f.createFile(folderUUID, FOLDER_CORPORA_FILE, new ByteArrayInputStream("content".getBytes()));
+    f.createFile(subfolderUUID, FOLDER_CORPORA_FILE, new ByteArrayInputStream("other content".getBytes()));
+    index.commit(TransferredResource.class);
+    return index.retrieve(TransferredResource.class, folderUUID, new ArrayList<>());
+  }
+
+  private Map<String, String> getFolderIngestParameters() {
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put(RodaConstants.PLUGIN_PARAMS_SIP_TO_AIP_CLASS, TransferredResourceToAIPPlugin.class.getName());
+    return parameters;
+  }
+
+  private void assessFolderAIP(AIP aip) throws RODAException {
+    Assert.assertEquals(aip.getRepresentations().size(), 1);
+    String representationId = aip.getRepresentations().get(0).getId();
+    Assert.assertNotNull(model.retrieveFile(aip.getId(), representationId, new ArrayList<>(), FOLDER_CORPORA_FILE));
+    Assert.assertNotNull(model.retrieveFile(aip.getId(), representationId,
+      Collections.singletonList(FOLDER_CORPORA_SUBFOLDER), FOLDER_CORPORA_FILE));
+  }
+
   private void assessAIP(AIP aip)
     throws GenericException, RequestNotValidException, NotFoundException, AuthorizationDeniedException {
 
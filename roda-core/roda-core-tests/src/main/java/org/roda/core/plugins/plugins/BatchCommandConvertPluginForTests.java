@@ -0,0 +1,117 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.roda.core.data.v2.IsRODAObject;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.plugins.common.CommandConvertPlugin;
+import org.roda.core.util.CommandException;
+
+/**
+ * Plugin whose tool is a shell script that copies each file of a list file,
+ * keeping the size of each batch and the number of files converted on their
+ * own.
+ */
+public class BatchCommandConvertPluginForTests<T extends IsRODAObject> extends CommandConvertPlugin<T> {
+  private static final Queue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger singleConversions = new AtomicInteger(0);
+  private static Path script;
+
+  /**
+   * Writes the script that copies the files of a list into the folder.
+   */
+  public static void setUp(Path folder) throws IOException {
+    batchSizes.clear();
+    singleConversions.set(0);
+    script = folder.resolve("batch-copy.sh");
+    List<String> lines = Arrays.asList("while IFS='\t' read -r input output; do", "  cp \"$input\" \"$output\"",
+      "done < \"$1\"", "echo copied");
+    Files.write(script, lines, StandardCharsets.UTF_8);
+  }
+
+  public static List<Integer> getBatchSizes() {
+    return Arrays.asList(batchSizes.toArray(new Integer[0]));
+  }
+
+  public static int getSingleConversions() {
+    return singleConversions.get();
+  }
+
+  @Override
+  protected String getBatchCommandLine() {
+    return "sh " + script + " {list_file}";
+  }
+
+  @Override
+  public Map<Path, String> executeBatchPlugin(Map<Path, Path> files, String fileFormat)
+    throws UnsupportedOperationException, IOException, CommandException {
+    batchSizes.add(files.size());
+    return super.executeBatchPlugin(files, fileFormat);
+  }
+
+  @Override
+  public String executePlugin(Path inputPath, Path outputPath, String fileFormat)
+    throws UnsupportedOperationException, IOException, CommandException {
+    singleConversions.incrementAndGet();
+    Files.copy(inputPath, outputPath, StandardCopyOption.REPLACE_EXISTING);
+    return "Copied " + inputPath.getFileName();
+  }
+
+  @Override
+  public String getName() {
+    return getClass().getName();
+  }
+
+  @Override
+  public String getDescription() {
+    return getClass().getName();
+  }
+
+  @Override
+  public String getVersionImpl() {
+    return "1.0";
+  }
+
+  @Override
+  public Plugin<T> cloneMe() {
+    return new BatchCommandConvertPluginForTests<>();
+  }
+
+  @Override
+  public List<String> getApplicableTo() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public List<String> getConvertableTo() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public Map<String, List<String>> getPronomToExtension() {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public Map<String, List<String>> getMimetypeToExtension() {
+    return Collections.emptyMap();
+  }
+}
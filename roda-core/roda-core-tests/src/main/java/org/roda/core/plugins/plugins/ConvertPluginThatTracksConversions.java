@@ -0,0 +1,108 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.roda.core.data.v2.IsRODAObject;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.plugins.common.AbstractConvertPlugin;
+import org.roda.core.util.CommandException;
+
+/**
+ * Plugin that converts every file by copying it, taking less time for each
+ * file converted so that later files finish before earlier ones, and keeps the
+ * highest number of converted files waiting to be committed.
+ */
+public class ConvertPluginThatTracksConversions<T extends IsRODAObject> extends AbstractConvertPlugin<T> {
+  public static final String CONVERTED_FILE_PREFIX = "converted";
+
+  private static final AtomicInteger conversions = new AtomicInteger(0);
+  private static final AtomicInteger maxPendingConversions = new AtomicInteger(0);
+
+  public static void reset() {
+    conversions.set(0);
+    maxPendingConversions.set(0);
+  }
+
+  public static int getConversions() {
+    return conversions.get();
+  }
+
+  public static int getMaxPendingConversions() {
+    return maxPendingConversions.get();
+  }
+
+  @Override
+  public String getName() {
+    return getClass().getName();
+  }
+
+  @Override
+  public String getDescription() {
+    return getClass().getName();
+  }
+
+  @Override
+  public String getVersionImpl() {
+    return "1.0";
+  }
+
+  @Override
+  public Plugin<T> cloneMe() {
+    return new ConvertPluginThatTracksConversions<>();
+  }
+
+  @Override
+  public List<String> getApplicableTo() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public List<String> getConvertableTo() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public Map<String, List<String>> getPronomToExtension() {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public Map<String, List<String>> getMimetypeToExtension() {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public String executePlugin(Path inputPath, Path outputPath, String fileFormat)
+    throws UnsupportedOperationException, IOException, CommandException {
+    int conversion = conversions.getAndIncrement();
+    try {
+      Thread.sleep(Math.max(0, 200 - 20 * conversion));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    // each conversion waiting to be committed holds a converted file
+    try (Stream<Path> files = Files.list(outputPath.getParent())) {
+      int pending = (int) files.filter(p -> p.getFileName().toString().startsWith(CONVERTED_FILE_PREFIX)).count();
+      maxPendingConversions.accumulateAndGet(pending, Math::max);
+    }
+
+    Files.copy(inputPath, outputPath, StandardCopyOption.REPLACE_EXISTING);
+    return "Copied " + inputPath.getFileName();
+  }
+}
@@ -92,7 +92,9 @@ import org.roda.core.common.RodaUtils;
 import org.roda.core.common.UserUtility;
 import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.common.monitor.TransferUpdateStatus;
+import org.roda.core.common.monitor.TransferredResourceUploads;
 import org.roda.core.common.monitor.TransferredResourcesScanner;
+import org.roda.core.common.monitor.TransferredResourcesWatcher;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.NodeType;
 import org.roda.core.data.common.RodaConstants.OrchestratorType;
@@ -140,6 +142,7 @@ import org.roda.core.plugins.PluginManager;
 import org.roda.core.plugins.PluginManagerException;
 import org.roda.core.plugins.PluginOrchestrator;
 import org.roda.core.plugins.orchestrate.AkkaEmbeddedPluginOrchestrator;
+import org.roda.core.plugins.plugins.base.FixityAuditor;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.Resource;
 import org.roda.core.storage.StorageService;
@@ -215,6 +218,11 @@ public class RodaCoreFactory {
 
   // TransferredResources related objects
   private static TransferredResourcesScanner transferredResourcesScanner;
+  private static TransferredResourceUploads transferredResourceUploads;
+
+  // Fixity auditor, verifying files in background
+  private static FixityAuditor fixityAuditor = null;
+  private static TransferredResourcesWatcher transferredResourcesWatcher = null;
 
   // Configuration related objects
   private static CompositeConfiguration rodaConfiguration = null;
@@ -1343,6 +1351,8 @@ public class RodaCoreFactory {
 
     if (nodeType == NodeType.MASTER) {
       processPreservationEventTypeProperties();
+      instantiateFixityAuditor();
+      instantiateTransferredResourcesWatcher();
     } else if (nodeType == NodeType.TEST && !INSTANTIATE_LDAP && INSTANTIATE_SOLR) {
       try {
         getIndexService().create(RODAMember.class, new User(RodaConstants.ADMIN));
@@ -1353,6 +1363,22 @@ public class RodaCoreFactory {
     }
   }
 
+  private static void instantiateFixityAuditor() {
+    if (getRodaConfiguration().getBoolean("core.fixity.auditor.enabled", false)) {
+      fixityAuditor = new FixityAuditor(getModelService(), getIndexService(),
+        getDataPath().resolve(RodaConstants.CORE_FIXITY_AUDITOR_FOLDER));
+      fixityAuditor.start();
+    }
+  }
+
+  private static void instantiateTransferredResourcesWatcher() {
+    if (transferredResourcesScanner != null
+      && getRodaConfiguration().getBoolean("core.transferred_resources.watcher.enabled", false)) {
+      transferredResourcesWatcher = new TransferredResourcesWatcher(transferredResourcesScanner, getIndexService());
+      transferredResourcesWatcher.start();
+    }
+  }
+
   private static void instantiateOrchestrator() {
     OrchestratorType orchestratorType = getOrchestratorType();
     if (orchestratorType == OrchestratorType.AKKA) {
@@ -1409,6 +1435,12 @@ public class RodaCoreFactory {
       if (INSTANTIATE_PLUGIN_ORCHESTRATOR) {
         pluginOrchestrator.shutdown();
       }
+      if (fixityAuditor != null) {
+        fixityAuditor.stop();
+      }
+      if (transferredResourcesWatcher != null) {
+        transferredResourcesWatcher.stop();
+      }
       if (nodeType == NodeType.TEST) {
         // final cleanup
         FSUtils.deletePathQuietly(workingDirectoryPath);
@@ -1587,6 +1619,10 @@ public class RodaCoreFactory {
 
       transferredResourcesScanner = new TransferredResourcesScanner(transferredResourcesFolderPath, getIndexService(),
         nodeType);
+      transferredResourceUploads = new TransferredResourceUploads(transferredResourcesScanner,
+        dataPath.resolve(RodaConstants.CORE_TRANSFERREDRESOURCE_UPLOADS_FOLDER), getFixityAlgorithms(),
+        TimeUnit.HOURS.toMillis(getRodaConfigurationAsInt(168, "core", "transferred_resources", "uploads",
+          "max_age_in_hours")));
     } catch (final Exception e) {
       LOGGER.error("Error starting Transferred Resources Scanner: " + e.getMessage(), e);
       instantiatedWithoutErrors = false;
@@ -1638,6 +1674,10 @@ public class RodaCoreFactory {
     return transferredResourcesScanner;
   }
 
+  public static TransferredResourceUploads getTransferredResourceUploads() {
+    return transferredResourceUploads;
+  }
+
   public static NodeType getNodeType() {
     return nodeType;
   }
@@ -1898,6 +1938,7 @@ public class RodaCoreFactory {
     RODA_SCHEMAS_CACHE.invalidateAll();
     I18N_CACHE.invalidateAll();
     SHARED_PROPERTIES_CACHE.invalidateAll();
+    RodaUtils.clearStylesheetCaches();
     processPreservationEventTypeProperties();
 
     LOGGER.info("Reloaded roda configurations after file change!");
@@ -11,13 +11,19 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.common.tools.ZipEntryInfo;
 import org.roda.core.common.tools.ZipTools;
@@ -60,32 +66,8 @@ public class DownloadUtils {
         @Override
         public void consumeOutputStream(OutputStream out) throws IOException {
 
-          try (BufferedOutputStream bos = new BufferedOutputStream(out);
-            ZipOutputStream zos = new ZipOutputStream(bos);
-            CloseableIterable<Resource> resources = storage.listResourcesUnderDirectory(storagePath, true);) {
-            int basePathSize = storagePath.asList().size();
-
-            for (Resource r : resources) {
-              List<String> pathAsList = r.getStoragePath().asList();
-              List<String> relativePathAsList = pathAsList.subList(basePathSize, pathAsList.size());
-              String entryPath = relativePathAsList.stream().collect(Collectors.joining(ZIP_PATH_DELIMITER));
-
-              if (r.isDirectory()) {
-                // adding a directory
-                entryPath += ZIP_PATH_DELIMITER;
-                zos.putNextEntry(new ZipEntry(entryPath));
-                zos.closeEntry();
-              } else {
-                // adding a file
-                ZipEntry entry = new ZipEntry(entryPath);
-                zos.putNextEntry(entry);
-                Binary binary = storage.getBinary(r.getStoragePath());
-                try (InputStream inputStream = binary.getContent().createInputStream()) {
-                  IOUtils.copy(inputStream, zos);
-                }
-                zos.closeEntry();
-              }
-            }
+          try {
+            zip(storage, storagePath, new BufferedOutputStream(out), Collections.emptyList());
           } catch (GenericException | RequestNotValidException | NotFoundException | AuthorizationDeniedException e) {
             throw new IOException(e);
           }
@@ -120,6 +102,57 @@ public class DownloadUtils {
     return stream;
   }
 
+  /**
+   * Zips a directory of the storage, closing the output stream in the end.
+   * Files with one of the stored extensions (e.g. of formats that are already
+   * compressed) are stored as they are, which requires reading them twice,
+   * first to compute their CRC, but it is still much faster than deflating them.
+   * ZIP64 extensions are written if needed, for big files or more than 65535
+   * entries.
+   */
+  public static void zip(StorageService storage, StoragePath storagePath, OutputStream out,
+    Collection<String> storedExtensions)
+    throws IOException, GenericException, RequestNotValidException, NotFoundException, AuthorizationDeniedException {
+    try (ZipOutputStream zos = new ZipOutputStream(out);
+      CloseableIterable<Resource> resources = storage.listResourcesUnderDirectory(storagePath, true)) {
+      int basePathSize = storagePath.asList().size();
+
+      for (Resource r : resources) {
+        List<String> pathAsList = r.getStoragePath().asList();
+        List<String> relativePathAsList = pathAsList.subList(basePathSize, pathAsList.size());
+        String entryPath = relativePathAsList.stream().collect(Collectors.joining(ZIP_PATH_DELIMITER));
+
+        if (r.isDirectory()) {
+          // adding a directory
+          entryPath += ZIP_PATH_DELIMITER;
+          zos.putNextEntry(new ZipEntry(entryPath));
+        } else {
+          // adding a file
+          Binary binary = storage.getBinary(r.getStoragePath());
+          ZipEntry entry = new ZipEntry(entryPath);
+          if (storedExtensions.contains(FilenameUtils.getExtension(entryPath).toLowerCase())) {
+            CRC32 crc = new CRC32();
+            long size;
+            try (CheckedInputStream inputStream = new CheckedInputStream(binary.getContent().createInputStream(),
+              crc)) {
+              size = IOUtils.copyLarge(inputStream, NullOutputStream.NULL_OUTPUT_STREAM);
+            }
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc.getValue());
+          }
+
+          zos.putNextEntry(entry);
+          try (InputStream inputStream = binary.getContent().createInputStream()) {
+            IOUtils.copyLarge(inputStream, zos);
+          }
+        }
+        zos.closeEntry();
+      }
+    }
+  }
+
   public static StreamResponse createZipStreamResponse(List<ZipEntryInfo> zipEntries, String zipName) {
 
     final ConsumesOutputStream stream = new ConsumesOutputStream() {
@@ -9,6 +9,7 @@ package org.roda.core.common;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,20 +48,28 @@ public class MetadataFileUtils {
   }
 
   public static ContentPayload getMetadataPayload(TransferredResource transferredResource) {
+    return getMetadataPayload(Collections.singletonMap("title", transferredResource.getName()));
+  }
+
+  /**
+   * @return a key-value metadata file with a field for each entry.
+   */
+  public static ContentPayload getMetadataPayload(Map<String, String> fields) {
     try {
       Element root = new Element("metadata");
       org.jdom2.Document doc = new org.jdom2.Document();
-      Element child = new Element("field");
-      child.setAttribute("name", "title");
-      child.addContent(transferredResource.getName());
-      root.addContent(child);
+      for (Map.Entry<String, String> field : fields.entrySet()) {
+        Element child = new Element("field");
+        child.setAttribute("name", field.getKey());
+        child.addContent(field.getValue());
+        root.addContent(child);
+      }
       doc.setRootElement(root);
       XMLOutputter outter = new XMLOutputter();
       outter.setFormat(Format.getPrettyFormat());
-      outter.outputString(doc);
       return new StringContentPayload(outter.outputString(doc));
     } catch (IllegalDataException e) {
-      LOGGER.debug("Error generating TransferredResource metadata file {}", e.getMessage());
+      LOGGER.debug("Error generating metadata file {}", e.getMessage());
       return new StringContentPayload("");
     }
   }
@@ -13,8 +13,10 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -380,6 +382,18 @@ public final class PremisV3Utils {
   public static ContentPayload createBaseFile(File originalFile, ModelService model,
     Collection<String> fixityAlgorithms) throws GenericException, RequestNotValidException, NotFoundException,
     AuthorizationDeniedException, ValidationException, XmlException {
+    return createBaseFile(originalFile, model, fixityAlgorithms, Collections.emptyMap());
+  }
+
+  /**
+   * @param knownChecksums
+   *          checksums of the file, by algorithm, that were already computed
+   *          (e.g. while it was uploaded), so only the missing ones are
+   *          calculated.
+   */
+  public static ContentPayload createBaseFile(File originalFile, ModelService model,
+    Collection<String> fixityAlgorithms, Map<String, String> knownChecksums) throws GenericException,
+    RequestNotValidException, NotFoundException, AuthorizationDeniedException, ValidationException, XmlException {
     ObjectDocument document = ObjectDocument.Factory.newInstance();
     gov.loc.premis.v3.File file = gov.loc.premis.v3.File.Factory.newInstance();
     file.addNewPreservationLevel()
@@ -408,7 +422,19 @@ public final class PremisV3Utils {
     } else {
       // if binary does not contain digest, create a new one
       try {
-        List<Fixity> fixities = calculateFixities(binary, fixityAlgorithms, FIXITY_ORIGINATOR);
+        List<Fixity> fixities = new ArrayList<>();
+        List<String> missingAlgorithms = new ArrayList<>();
+        for (String algorithm : fixityAlgorithms) {
+          if (knownChecksums.containsKey(algorithm)) {
+            fixities.add(new Fixity(algorithm, knownChecksums.get(algorithm), FIXITY_ORIGINATOR));
+          } else {
+            missingAlgorithms.add(algorithm);
+          }
+        }
+
+        if (!missingAlgorithms.isEmpty()) {
+          fixities.addAll(calculateFixities(binary, missingAlgorithms, FIXITY_ORIGINATOR));
+        }
 
         for (Fixity fixity : fixities) {
           FixityComplexType premisFixity = occt.addNewFixity();
@@ -609,6 +635,15 @@ public final class PremisV3Utils {
     return agent;
   }
 
+  /**
+   * @return the value indexed in {@link RodaConstants#FILE_DIGEST} for a
+   *         fixity, which is the same for identical files whatever the case
+   *         of the digest.
+   */
+  public static String getDigestIndexValue(String algorithm, String digest) {
+    return algorithm.toUpperCase(Locale.ENGLISH) + ":" + digest.toLowerCase(Locale.ENGLISH);
+  }
+
   public static SolrInputDocument getSolrDocument(Binary premisBinary) throws GenericException {
     SolrInputDocument doc = new SolrInputDocument();
 
@@ -624,6 +659,7 @@ public final class PremisV3Utils {
         doc.setField(RodaConstants.FILE_SIZE, occt.getSize());
         if (occt.getFixityArray() != null && occt.getFixityArray().length > 0) {
           List<String> hashes = new ArrayList<>();
+          List<String> digests = new ArrayList<>();
           for (FixityComplexType fct : occt.getFixityArray()) {
             StringBuilder fixityPrint = new StringBuilder();
             fixityPrint.append(fct.getMessageDigest());
@@ -635,8 +671,10 @@ public final class PremisV3Utils {
             }
             fixityPrint.append(")");
             hashes.add(fixityPrint.toString());
+            digests.add(getDigestIndexValue(fct.getMessageDigestAlgorithm().getStringValue(), fct.getMessageDigest()));
           }
           doc.addField(RodaConstants.FILE_HASH, hashes);
+          doc.addField(RodaConstants.FILE_DIGEST, digests);
         }
         if (occt.getFormatArray() != null && occt.getFormatArray().length > 0) {
           FormatComplexType fct = occt.getFormatArray(0);
@@ -16,21 +16,26 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.transform.OutputKeys;
@@ -42,8 +47,8 @@ import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.data.common.RodaConstants;
@@ -74,11 +79,17 @@ public class RodaUtils {
 
   private static final Processor PROCESSOR = new Processor(false);
 
-  private static final LoadingCache<Triple<String, String, String>, XsltExecutable> CACHE = CacheBuilder.newBuilder()
-    .expireAfterWrite(1, TimeUnit.MINUTES).build(new CacheLoader<Triple<String, String, String>, XsltExecutable>() {
+  /**
+   * Interval, in milliseconds, between checks for changes on the file a cached
+   * stylesheet was compiled from (same as the configuration reload strategy).
+   */
+  private static final long STYLESHEET_CHANGE_CHECK_INTERVAL = 5000;
+
+  private static final LoadingCache<Triple<String, String, String>, CachedStylesheet> CACHE = CacheBuilder
+    .newBuilder().build(new CacheLoader<Triple<String, String, String>, CachedStylesheet>() {
 
       @Override
-      public XsltExecutable load(Triple<String, String, String> key) throws Exception {
+      public CachedStylesheet load(Triple<String, String, String> key) throws Exception {
         String basePath = key.getLeft();
         String metadataType = key.getMiddle();
         String metadataVersion = key.getRight();
@@ -87,10 +98,10 @@ public class RodaUtils {
 
     });
 
-  private static final LoadingCache<String, XsltExecutable> EVENT_CACHE = CacheBuilder.newBuilder()
-    .expireAfterWrite(1, TimeUnit.MINUTES).build(new CacheLoader<String, XsltExecutable>() {
+  private static final LoadingCache<String, CachedStylesheet> EVENT_CACHE = CacheBuilder.newBuilder()
+    .build(new CacheLoader<String, CachedStylesheet>() {
       @Override
-      public XsltExecutable load(String path) throws Exception {
+      public CachedStylesheet load(String path) throws Exception {
         return createEventTransformer(path);
       }
     });
@@ -215,9 +226,8 @@ public class RodaUtils {
       InputSource source = new InputSource(descMetadataReader);
       Source text = new SAXSource(xmlReader, source);
 
-      XsltExecutable xsltExecutable = CACHE.get(Triple.of(basePath, metadataType, metadataVersion));
-
-      XsltTransformer transformer = xsltExecutable.load();
+      XsltTransformer transformer = getStylesheet(CACHE, Triple.of(basePath, metadataType, metadataVersion))
+        .getTransformer(parameters.keySet());
       CharArrayWriter transformerResult = new CharArrayWriter();
 
       transformer.setSource(text);
@@ -249,9 +259,9 @@ public class RodaUtils {
       InputSource source = new InputSource(descMetadataReader);
       Source text = new SAXSource(xmlReader, source);
 
-      XsltExecutable xsltExecutable = EVENT_CACHE.get(path);
-
-      XsltTransformer transformer = xsltExecutable.load();
+      Set<String> parameterNames = new HashSet<>(translations.keySet());
+      parameterNames.add("onlyDetails");
+      XsltTransformer transformer = getStylesheet(EVENT_CACHE, path).getTransformer(parameterNames);
       CharArrayWriter transformerResult = new CharArrayWriter();
 
       transformer.setSource(text);
@@ -274,60 +284,157 @@ public class RodaUtils {
     }
   }
 
-  protected static XsltExecutable createMetadataTransformer(String basePath, String metadataType,
+  protected static CachedStylesheet createMetadataTransformer(String basePath, String metadataType,
     String metadataVersion) throws SaxonApiException, GenericException {
-    InputStream transformerStream = null;
-
-    try {
-      // get xslt from metadata type and version if defined
-      if (metadataType != null) {
-        String lowerCaseMetadataType = metadataType.toLowerCase();
-        if (metadataVersion != null) {
-          String lowerCaseMetadataTypeWithVersion = lowerCaseMetadataType + RodaConstants.METADATA_VERSION_SEPARATOR
-            + metadataVersion;
-          transformerStream = RodaCoreFactory
-            .getConfigurationFileAsStream(basePath + lowerCaseMetadataTypeWithVersion + ".xslt");
-        }
-        if (transformerStream == null) {
-          transformerStream = RodaCoreFactory.getConfigurationFileAsStream(basePath + lowerCaseMetadataType + ".xslt");
-        }
+    List<String> candidates = new ArrayList<>();
+
+    // get xslt from metadata type and version if defined
+    if (metadataType != null) {
+      String lowerCaseMetadataType = metadataType.toLowerCase();
+      if (metadataVersion != null) {
+        String lowerCaseMetadataTypeWithVersion = lowerCaseMetadataType + RodaConstants.METADATA_VERSION_SEPARATOR
+          + metadataVersion;
+        candidates.add(basePath + lowerCaseMetadataTypeWithVersion + ".xslt");
       }
+      candidates.add(basePath + lowerCaseMetadataType + ".xslt");
+    }
 
-      // fallback
-      if (transformerStream == null) {
-        // TODO change plain to default
-        transformerStream = RodaCoreFactory.getConfigurationFileAsStream(basePath + "plain.xslt");
-      }
+    // fallback
+    // TODO change plain to default
+    candidates.add(basePath + "plain.xslt");
 
-      if (transformerStream == null) {
-        throw new GenericException("Could not find stylesheet nor fallback at basePath=" + basePath + ", metadataType="
-          + metadataType + ", metadataVersion=" + metadataVersion);
-      }
+    if (getStylesheetConfigurationFile(candidates) == null) {
+      throw new GenericException("Could not find stylesheet nor fallback at basePath=" + basePath + ", metadataType="
+        + metadataType + ", metadataVersion=" + metadataVersion);
+    }
 
-      XsltCompiler compiler = PROCESSOR.newXsltCompiler();
-      compiler.setURIResolver(new RodaURIFileResolver());
-      // compiler.setSchemaAware(false);
-      return compiler.compile(new StreamSource(transformerStream));
+    return compileStylesheet(candidates);
+  }
 
-    } finally {
-      IOUtils.closeQuietly(transformerStream);
+  protected static CachedStylesheet createEventTransformer(String path) throws SaxonApiException, GenericException {
+    List<String> candidates = Collections.singletonList(path);
+    if (getStylesheetConfigurationFile(candidates) == null) {
+      throw new GenericException("Could not find stylesheet nor fallback at path=" + path);
     }
+
+    return compileStylesheet(candidates);
   }
 
-  protected static XsltExecutable createEventTransformer(String path) throws SaxonApiException, GenericException {
-    try (InputStream transformerStream = RodaCoreFactory.getConfigurationFileAsStream(path)) {
+  private static CachedStylesheet compileStylesheet(List<String> candidates)
+    throws SaxonApiException, GenericException {
+    String signature = getStylesheetSignature(candidates);
+    String configurationFile = getStylesheetConfigurationFile(candidates);
+
+    try (InputStream transformerStream = RodaCoreFactory.getConfigurationFileAsStream(configurationFile)) {
       if (transformerStream == null) {
-        throw new GenericException("Could not find stylesheet nor fallback at path=" + path);
+        throw new GenericException("Could not read stylesheet " + configurationFile);
       }
 
       XsltCompiler compiler = PROCESSOR.newXsltCompiler();
       compiler.setURIResolver(new RodaURIFileResolver());
-      return compiler.compile(new StreamSource(transformerStream));
+      // compiler.setSchemaAware(false);
+      XsltExecutable executable = compiler.compile(new StreamSource(transformerStream));
+      LOGGER.debug("Compiled stylesheet {}", configurationFile);
+      return new CachedStylesheet(executable, candidates, signature);
     } catch (IOException e) {
       throw new GenericException(e);
     }
   }
 
+  /**
+   * @return the first of the candidate configuration files that exists or
+   *         <code>null</code> if none exists.
+   */
+  private static String getStylesheetConfigurationFile(List<String> candidates) {
+    for (String candidate : candidates) {
+      if (RodaCoreFactory.getConfigurationFile(candidate) != null) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Identifies the file that a stylesheet would be compiled from and its
+   * version (last modification date, when it is a file), so that changes to it
+   * or the appearance of a more specific stylesheet can be detected.
+   */
+  private static String getStylesheetSignature(List<String> candidates) {
+    for (String candidate : candidates) {
+      URL url = RodaCoreFactory.getConfigurationFile(candidate);
+      if (url != null) {
+        if ("file".equals(url.getProtocol())) {
+          try {
+            return url + "@" + Files.getLastModifiedTime(Paths.get(url.toURI())).toMillis();
+          } catch (IOException | URISyntaxException e) {
+            LOGGER.trace("Could not get last modification date of stylesheet {}", url, e);
+          }
+        }
+        return url.toString();
+      }
+    }
+    return "";
+  }
+
+  private static <K> CachedStylesheet getStylesheet(LoadingCache<K, CachedStylesheet> cache, K key)
+    throws ExecutionException {
+    CachedStylesheet stylesheet = cache.get(key);
+    if (stylesheet.hasChanged()) {
+      LOGGER.info("Stylesheet {} changed, reloading it", key);
+      cache.invalidate(key);
+      stylesheet = cache.get(key);
+    }
+    return stylesheet;
+  }
+
+  /**
+   * Discards all compiled stylesheets, e.g. after a configuration change.
+   */
+  public static void clearStylesheetCaches() {
+    CACHE.invalidateAll();
+    EVENT_CACHE.invalidateAll();
+  }
+
+  /**
+   * A compiled stylesheet, kept until the file it was compiled from changes,
+   * with a transformer per thread (transformers are not thread-safe but can be
+   * reused sequentially). A pooled transformer is only reused with the same set
+   * of parameter names, so no parameter from a previous transformation leaks
+   * into the next one.
+   */
+  protected static final class CachedStylesheet {
+    private final XsltExecutable executable;
+    private final List<String> candidates;
+    private final String signature;
+    private volatile long lastCheck;
+    private final ThreadLocal<Pair<Set<String>, XsltTransformer>> transformers = new ThreadLocal<>();
+
+    private CachedStylesheet(XsltExecutable executable, List<String> candidates, String signature) {
+      this.executable = executable;
+      this.candidates = candidates;
+      this.signature = signature;
+      this.lastCheck = System.currentTimeMillis();
+    }
+
+    private boolean hasChanged() {
+      long now = System.currentTimeMillis();
+      if (now - lastCheck < STYLESHEET_CHANGE_CHECK_INTERVAL) {
+        return false;
+      }
+      lastCheck = now;
+      return !signature.equals(getStylesheetSignature(candidates));
+    }
+
+    private XsltTransformer getTransformer(Set<String> parameterNames) {
+      Pair<Set<String>, XsltTransformer> pooled = transformers.get();
+      if (pooled == null || !pooled.getLeft().equals(parameterNames)) {
+        pooled = Pair.of(new HashSet<>(parameterNames), executable.load());
+        transformers.set(pooled);
+      }
+      return pooled.getRight();
+    }
+  }
+
   /**
    * @deprecated 20160907 hsilva: not seeing any method using it, so it will be
    *             removed soon
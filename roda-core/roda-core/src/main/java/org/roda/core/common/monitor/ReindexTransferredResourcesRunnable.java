@@ -9,16 +9,13 @@ package org.roda.core.common.monitor;
 
 import java.io.IOException;
 import java.nio.file.FileVisitOption;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
 import java.nio.file.Files;
-import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
 
 import org.roda.core.RodaCoreFactory;
@@ -36,6 +33,7 @@ import org.slf4j.LoggerFactory;
 
 public class ReindexTransferredResourcesRunnable implements Runnable {
   private static final Logger LOGGER = LoggerFactory.getLogger(ReindexTransferredResourcesRunnable.class);
+  private static final int BATCH_SIZE = 1000;
 
   private Path basePath;
   private Optional<String> folderRelativePath;
@@ -64,63 +62,15 @@ public class ReindexTransferredResourcesRunnable implements Runnable {
       }
 
       LOGGER.info("Start indexing transferred resources {}", path);
-      Files.walkFileTree(path, opts, Integer.MAX_VALUE, new FileVisitor<Path>() {
-
-        ArrayDeque<BasicFileAttributes> actualDirectoryAttributesStack = new ArrayDeque<>();
-        ArrayDeque<Long> fileSizeStack = new ArrayDeque<>();
-
-        @Override
-        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-          actualDirectoryAttributesStack.push(attrs);
-          fileSizeStack.push(0L);
-          return FileVisitResult.CONTINUE;
-        }
-
-        @Override
-        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-          try {
-            long size = Files.size(file);
-            long actualSize = fileSizeStack.pop();
-            fileSizeStack.push(actualSize + size);
-            TransferredResource resource = TransferredResourcesScanner.createTransferredResource(file, attrs, size,
-              basePath, lastScanDate);
-            index.create(TransferredResource.class, resource);
-          } catch (NoSuchFileException | AuthorizationDeniedException e) {
-            // can be a broken symlink (do nothing)
-            // can be unauthorized action (do nothing)
-          }
-
-          return FileVisitResult.CONTINUE;
-        }
-
-        @Override
-        public FileVisitResult visitFileFailed(Path file, IOException exc) {
-          return FileVisitResult.CONTINUE;
-        }
-
-        @Override
-        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-          if (!dir.equals(basePath)) {
-            BasicFileAttributes actualDirectoryAttributes = actualDirectoryAttributesStack.pop();
-            long fileSize = fileSizeStack.pop();
-            TransferredResource resource = TransferredResourcesScanner.createTransferredResource(dir,
-              actualDirectoryAttributes, fileSize, basePath, lastScanDate);
-
-            if (!fileSizeStack.isEmpty()) {
-              long actualSize = fileSizeStack.pop();
-              fileSizeStack.push(actualSize + fileSize);
-            }
-
-            try {
-              index.create(TransferredResource.class, resource);
-            } catch (AuthorizationDeniedException e) {
-              // do nothing & carry on
-            }
+      List<TransferredResource> batch = new ArrayList<>();
+      Files.walkFileTree(path, opts, Integer.MAX_VALUE,
+        new TransferredResourcesVisitor(basePath, lastScanDate, resource -> {
+          batch.add(resource);
+          if (batch.size() >= BATCH_SIZE) {
+            indexBatch(batch);
           }
-
-          return FileVisitResult.CONTINUE;
-        }
-      });
+        }));
+      indexBatch(batch);
 
       index.commit(TransferredResource.class);
 
@@ -139,9 +89,19 @@ public class ReindexTransferredResourcesRunnable implements Runnable {
       index.commit(TransferredResource.class);
       LOGGER.info("End indexing Transferred Resources. Time elapsed: {} seconds",
         (System.currentTimeMillis() - start) / 1000);
-      RodaCoreFactory.setTransferredResourcesScannerUpdateStatus(folderRelativePath, false);
     } catch (IOException | GenericException | RuntimeException | AuthorizationDeniedException e) {
       LOGGER.error("Error reindexing Transferred Resources", e);
+    } finally {
+      RodaCoreFactory.setTransferredResourcesScannerUpdateStatus(folderRelativePath, false);
+    }
+  }
+
+  private void indexBatch(List<TransferredResource> batch) {
+    try {
+      index.createAll(TransferredResource.class, batch);
+    } catch (AuthorizationDeniedException e) {
+      // do nothing & carry on
     }
+    batch.clear();
   }
 }
\ No newline at end of file
@@ -0,0 +1,462 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.monitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.common.UserUtility;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AlreadyExistsException;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.ip.TransferredResource;
+import org.roda.core.data.v2.ip.TransferredResourceUpload;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.util.FileUtility;
+import org.roda.core.util.IdUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resumable uploads of files into the transfer area, sent in chunks.
+ *
+ * Each upload is written to a partial file outside the transfer area, so it is
+ * not listed until complete, and its checksums are updated as each chunk is
+ * written. The bytes of an interrupted chunk that were written are kept, so the
+ * client resumes the upload from its offset instead of starting over. Once
+ * complete, the file is moved into the transfer area and its checksums are
+ * kept, so ingest does not need to read the file again to compute them.
+ *
+ * Only the user that created an upload, or an administrator, can use it.
+ * Uploads that are not written to for longer than the maximum age are removed,
+ * as are the checksums of files completed before that.
+ */
+public class TransferredResourceUploads {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TransferredResourceUploads.class);
+
+  private static final String STATE_EXTENSION = ".json";
+  private static final String PARTIAL_EXTENSION = ".part";
+  private static final String CHECKSUMS_FOLDER = "checksums";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final Pattern VALID_ID = Pattern.compile("[a-zA-Z0-9-]+");
+  private static final long CLEAN_UP_INTERVAL_MILLIS = 60 * 60 * 1000L;
+
+  private final TransferredResourcesScanner scanner;
+  private final Path uploadsPath;
+  private final Set<String> algorithms;
+  private final long maxAgeMillis;
+  private final Map<String, UploadState> states = new ConcurrentHashMap<>();
+  private final AtomicLong nextCleanUp = new AtomicLong(0);
+
+  /**
+   * @param algorithms
+   *          the fixity algorithms used by ingest, computed along with SHA-256
+   *          and MD5.
+   * @param maxAgeMillis
+   *          how long an upload is kept since it was last written to, and the
+   *          checksums of an uploaded file since it was completed.
+   */
+  public TransferredResourceUploads(TransferredResourcesScanner scanner, Path uploadsPath,
+    Collection<String> algorithms, long maxAgeMillis) {
+    this.scanner = scanner;
+    this.uploadsPath = uploadsPath;
+    this.algorithms = new LinkedHashSet<>();
+    this.algorithms.add(RodaConstants.SHA256);
+    this.algorithms.add(RodaConstants.MD5);
+    this.algorithms.addAll(algorithms);
+    this.maxAgeMillis = maxAgeMillis;
+  }
+
+  public TransferredResourceUpload createUpload(String username, String parentUUID, String name)
+    throws GenericException, NotFoundException, RequestNotValidException, AlreadyExistsException,
+    AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(RodaCoreFactory.getNodeType());
+    cleanUpIfDue();
+
+    if (StringUtils.isBlank(name) || name.contains("/") || name.contains("\\") || ".".equals(name)
+      || "..".equals(name)) {
+      throw new RequestNotValidException("Invalid file name: " + name);
+    }
+
+    Path file = scanner.retrieveParentPath(parentUUID).resolve(name);
+    if (FSUtils.exists(file)) {
+      throw new AlreadyExistsException(file.toString());
+    }
+
+    TransferredResourceUpload upload = new TransferredResourceUpload();
+    upload.setId(IdUtils.createUUID());
+    upload.setParentUUID(parentUUID);
+    upload.setName(name);
+    upload.setUsername(username);
+    upload.setCreationDate(new Date());
+
+    try {
+      Files.createDirectories(uploadsPath);
+      Files.createFile(getPartialPath(upload.getId()));
+      JsonUtils.writeObjectToFile(upload, getStatePath(upload.getId()));
+    } catch (IOException e) {
+      throw new GenericException("Error creating upload of " + name, e);
+    }
+
+    return upload;
+  }
+
+  public TransferredResourceUpload retrieveUpload(String username, String id)
+    throws NotFoundException, GenericException, AuthorizationDeniedException {
+    UploadState state = getState(username, id);
+    synchronized (state) {
+      checkNotRemoved(id, state);
+      TransferredResourceUpload upload = readUpload(id);
+      upload.setOffset(state.offset);
+      return upload;
+    }
+  }
+
+  /**
+   * Appends a chunk to an upload.
+   *
+   * @param offset
+   *          where the chunk starts, which must be the current offset of the
+   *          upload.
+   * @throws RequestNotValidException
+   *           if the offset is not the current offset of the upload.
+   */
+  public TransferredResourceUpload appendToUpload(String username, String id, long offset, InputStream content)
+    throws NotFoundException, GenericException, RequestNotValidException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(RodaCoreFactory.getNodeType());
+
+    UploadState state = getState(username, id);
+    synchronized (state) {
+      checkNotRemoved(id, state);
+      if (offset != state.offset) {
+        throw new RequestNotValidException(
+          "Upload " + id + " is at offset " + state.offset + ", cannot append at offset " + offset);
+      }
+
+      byte[] buffer = new byte[BUFFER_SIZE];
+      try (FileChannel channel = FileChannel.open(getPartialPath(id), StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND)) {
+        try {
+          int read;
+          while ((read = content.read(buffer)) != -1) {
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+            while (byteBuffer.hasRemaining()) {
+              channel.write(byteBuffer);
+            }
+
+            for (MessageDigest digest : state.digests.values()) {
+              digest.update(buffer, 0, read);
+            }
+            state.offset += read;
+          }
+        } finally {
+          // keeps what was written with the checksums updated, so that an
+          // interrupted chunk is resumed from there
+          if (channel.size() != state.offset) {
+            channel.truncate(state.offset);
+          }
+          channel.force(false);
+        }
+      } catch (IOException e) {
+        throw new GenericException("Error appending to upload " + id + ", it is now at offset " + state.offset, e);
+      }
+
+      TransferredResourceUpload upload = readUpload(id);
+      upload.setOffset(state.offset);
+      return upload;
+    }
+  }
+
+  /**
+   * Moves the uploaded file into the transfer area.
+   *
+   * @param expectedChecksums
+   *          checksums, by algorithm, that the uploaded file must have.
+   * @throws RequestNotValidException
+   *           if a checksum does not match, in which case the upload is kept.
+   */
+  public TransferredResourceUpload completeUpload(String username, String id, Map<String, String> expectedChecksums)
+    throws NotFoundException, GenericException, RequestNotValidException, AlreadyExistsException,
+    AuthorizationDeniedException {
+    UploadState state = getState(username, id);
+    synchronized (state) {
+      checkNotRemoved(id, state);
+      Map<String, String> checksums = new LinkedHashMap<>();
+      for (Entry<String, MessageDigest> entry : state.digests.entrySet()) {
+        try {
+          // digesting a copy so the upload can still be appended to
+          MessageDigest digest = (MessageDigest) entry.getValue().clone();
+          checksums.put(entry.getKey(), FileUtility.byteArrayToHexString(digest.digest()));
+        } catch (CloneNotSupportedException e) {
+          throw new GenericException("Error computing " + entry.getKey() + " checksum of upload " + id, e);
+        }
+      }
+
+      for (Entry<String, String> expected : expectedChecksums.entrySet()) {
+        String checksum = checksums.get(expected.getKey());
+        if (checksum == null) {
+          throw new RequestNotValidException("Checksum algorithm not supported: " + expected.getKey());
+        } else if (!checksum.equalsIgnoreCase(expected.getValue())) {
+          throw new RequestNotValidException("The " + expected.getKey() + " checksum of upload " + id + " is "
+            + checksum + ", not " + expected.getValue());
+        }
+      }
+
+      TransferredResourceUpload upload = readUpload(id);
+      TransferredResource resource = scanner.createFile(upload.getParentUUID(), upload.getName(), getPartialPath(id));
+      upload.setOffset(state.offset);
+      upload.setChecksums(checksums);
+      upload.setTransferredResourceUUID(resource.getUUID());
+      upload.setCompletionDate(new Date());
+
+      try {
+        Path checksumsPath = getChecksumsPath(resource.getUUID());
+        Files.createDirectories(checksumsPath.getParent());
+        Files.deleteIfExists(checksumsPath);
+        JsonUtils.writeObjectToFile(upload, checksumsPath);
+        Files.deleteIfExists(getStatePath(id));
+      } catch (IOException e) {
+        throw new GenericException("Error completing upload " + id, e);
+      } finally {
+        removeState(id, state);
+      }
+
+      return upload;
+    }
+  }
+
+  public void deleteUpload(String username, String id)
+    throws NotFoundException, GenericException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(RodaCoreFactory.getNodeType());
+
+    UploadState state = getState(username, id);
+    synchronized (state) {
+      checkNotRemoved(id, state);
+      try {
+        Files.deleteIfExists(getPartialPath(id));
+        Files.deleteIfExists(getStatePath(id));
+      } catch (IOException e) {
+        throw new GenericException("Error deleting upload " + id, e);
+      } finally {
+        removeState(id, state);
+      }
+    }
+  }
+
+  /**
+   * @return the checksums, by algorithm, computed while a file of the transfer
+   *         area was uploaded, or an empty map if it was not uploaded in chunks
+   *         or has changed since.
+   */
+  public Map<String, String> retrieveChecksums(Path file) {
+    Path basePath = scanner.getBasePath();
+    if (file.startsWith(basePath)) {
+      Path checksumsPath = getChecksumsPath(IdUtils.getTransferredResourceUUID(basePath.relativize(file)));
+      try {
+        if (FSUtils.exists(checksumsPath)) {
+          TransferredResourceUpload upload = JsonUtils.readObjectFromFile(checksumsPath,
+            TransferredResourceUpload.class);
+          BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+          if (attrs.size() == upload.getOffset()
+            && attrs.lastModifiedTime().toMillis() <= upload.getCompletionDate().getTime()) {
+            return upload.getChecksums();
+          }
+        }
+      } catch (GenericException | IOException e) {
+        LOGGER.debug("Could not retrieve checksums of uploaded file {}", file, e);
+      }
+    }
+
+    return Collections.emptyMap();
+  }
+
+  /**
+   * Removes the uploads that were not written to for longer than the maximum
+   * age, and the checksums of the files uploaded before that, which by then
+   * were ingested or are not going to be.
+   */
+  public void cleanUp() {
+    long limit = System.currentTimeMillis() - maxAgeMillis;
+
+    if (FSUtils.exists(uploadsPath)) {
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(uploadsPath, Files::isRegularFile)) {
+        for (Path file : files) {
+          String id = StringUtils.removeEnd(StringUtils.removeEnd(file.getFileName().toString(), STATE_EXTENSION),
+            PARTIAL_EXTENSION);
+          if (VALID_ID.matcher(id).matches() && getLastModified(file) < limit) {
+            removeUploadIfAbandoned(id, limit);
+          }
+        }
+      } catch (IOException e) {
+        LOGGER.warn("Error removing abandoned uploads", e);
+      }
+    }
+
+    Path checksumsPath = uploadsPath.resolve(CHECKSUMS_FOLDER);
+    if (FSUtils.exists(checksumsPath)) {
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(checksumsPath)) {
+        for (Path file : files) {
+          if (getLastModified(file) < limit) {
+            Files.deleteIfExists(file);
+          }
+        }
+      } catch (IOException e) {
+        LOGGER.warn("Error removing checksums of old uploads", e);
+      }
+    }
+  }
+
+  private void cleanUpIfDue() {
+    long now = System.currentTimeMillis();
+    long next = nextCleanUp.get();
+    if (now >= next && nextCleanUp.compareAndSet(next, now + Math.min(maxAgeMillis, CLEAN_UP_INTERVAL_MILLIS))) {
+      cleanUp();
+    }
+  }
+
+  private void removeUploadIfAbandoned(String id, long limit) throws IOException {
+    UploadState state = states.computeIfAbsent(id, key -> new UploadState());
+    synchronized (state) {
+      // the partial file is the one changed by each chunk
+      Path partialPath = getPartialPath(id);
+      Path lastWritten = FSUtils.exists(partialPath) ? partialPath : getStatePath(id);
+      if (!state.removed && (!FSUtils.exists(lastWritten) || getLastModified(lastWritten) < limit)) {
+        LOGGER.info("Removing upload {}, abandoned since {}", id, new Date(getLastModified(lastWritten)));
+        try {
+          Files.deleteIfExists(partialPath);
+          Files.deleteIfExists(getStatePath(id));
+        } finally {
+          removeState(id, state);
+        }
+      }
+    }
+  }
+
+  private static long getLastModified(Path file) throws IOException {
+    return FSUtils.exists(file) ? Files.getLastModifiedTime(file).toMillis() : 0;
+  }
+
+  private TransferredResourceUpload readUpload(String id) throws NotFoundException, GenericException {
+    if (!VALID_ID.matcher(id).matches() || !FSUtils.exists(getStatePath(id))) {
+      throw new NotFoundException("Upload not found: " + id);
+    }
+    return JsonUtils.readObjectFromFile(getStatePath(id), TransferredResourceUpload.class);
+  }
+
+  /**
+   * @return the state of an upload of the user, which must be used
+   *         synchronized on it.
+   */
+  private UploadState getState(String username, String id)
+    throws NotFoundException, GenericException, AuthorizationDeniedException {
+    TransferredResourceUpload upload = readUpload(id);
+    if (!UserUtility.isAdministrator(username) && !username.equals(upload.getUsername())) {
+      throw new AuthorizationDeniedException("The user '" + username + "' cannot access upload " + id);
+    }
+
+    // each upload is locked on its own, so reading the partial file of one
+    // does not hold the others
+    UploadState state = states.computeIfAbsent(id, key -> new UploadState());
+    synchronized (state) {
+      if (!state.loaded && !state.removed) {
+        loadState(id, state);
+      }
+    }
+    return state;
+  }
+
+  private void loadState(String id, UploadState state) throws NotFoundException, GenericException {
+    try {
+      // completed or deleted since it was read
+      readUpload(id);
+    } catch (NotFoundException e) {
+      removeState(id, state);
+      throw e;
+    }
+
+    try {
+      for (String algorithm : algorithms) {
+        state.digests.put(algorithm, MessageDigest.getInstance(algorithm));
+      }
+      state.offset = 0;
+      // e.g. after a restart, the checksums of what was written are computed
+      // again
+      try (InputStream content = Files.newInputStream(getPartialPath(id))) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+          for (MessageDigest digest : state.digests.values()) {
+            digest.update(buffer, 0, read);
+          }
+          state.offset += read;
+        }
+      }
+      state.loaded = true;
+    } catch (IOException | NoSuchAlgorithmException e) {
+      state.digests.clear();
+      throw new GenericException("Error reading upload " + id, e);
+    }
+  }
+
+  private void removeState(String id, UploadState state) {
+    state.removed = true;
+    states.remove(id, state);
+  }
+
+  private static void checkNotRemoved(String id, UploadState state) throws NotFoundException {
+    if (state.removed) {
+      // completed or deleted meanwhile
+      throw new NotFoundException("Upload not found: " + id);
+    }
+  }
+
+  private Path getStatePath(String id) {
+    return uploadsPath.resolve(id + STATE_EXTENSION);
+  }
+
+  private Path getPartialPath(String id) {
+    return uploadsPath.resolve(id + PARTIAL_EXTENSION);
+  }
+
+  private Path getChecksumsPath(String transferredResourceUUID) {
+    return uploadsPath.resolve(CHECKSUMS_FOLDER).resolve(transferredResourceUUID + STATE_EXTENSION);
+  }
+
+  private static class UploadState {
+    private final Map<String, MessageDigest> digests = new LinkedHashMap<>();
+    private long offset = 0;
+    private boolean loaded = false;
+    private boolean removed = false;
+  }
+}
@@ -9,11 +9,13 @@ package org.roda.core.common.monitor;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -101,17 +103,9 @@ public class TransferredResourcesScanner {
 
   public TransferredResource createFile(String parentUUID, String fileName, InputStream inputStream)
     throws GenericException, NotFoundException, AlreadyExistsException, AuthorizationDeniedException {
-    Path parentPath;
-
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
 
-    if (StringUtils.isNotBlank(parentUUID)) {
-      TransferredResource parent = index.retrieve(TransferredResource.class, parentUUID, fieldsToReturn);
-      parentPath = basePath.resolve(parent.getRelativePath());
-    } else {
-      parentPath = basePath;
-    }
-
+    Path parentPath = retrieveParentPath(parentUUID);
     Path file = parentPath.resolve(fileName);
     try {
       try {
@@ -134,6 +128,55 @@ public class TransferredResourcesScanner {
     }
   }
 
+  /**
+   * Creates a file by moving an existing one, e.g. a completed upload, into the
+   * transfer area.
+   */
+  public TransferredResource createFile(String parentUUID, String fileName, Path source)
+    throws GenericException, NotFoundException, AlreadyExistsException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+
+    Path parentPath = retrieveParentPath(parentUUID);
+    Path file = parentPath.resolve(fileName);
+    if (FSUtils.exists(file)) {
+      // an atomic move would replace it
+      throw new AlreadyExistsException(file.toString());
+    }
+
+    try {
+      Files.createDirectories(parentPath);
+      try {
+        Files.move(source, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(source, file);
+      }
+
+      BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+      TransferredResource resource = createTransferredResource(file, attrs, attrs.size(), basePath, new Date());
+      index.create(TransferredResource.class, resource);
+      return resource;
+    } catch (FileAlreadyExistsException e) {
+      LOGGER.error("Cannot create file", e);
+      throw new AlreadyExistsException(file.toString());
+    } catch (IOException e) {
+      LOGGER.error("Cannot create file", e);
+      throw new GenericException("Cannot create file", e);
+    }
+  }
+
+  /**
+   * @return the path of a folder of the transfer area, or of the transfer area
+   *         itself if no folder is given.
+   */
+  public Path retrieveParentPath(String parentUUID) throws GenericException, NotFoundException {
+    if (StringUtils.isNotBlank(parentUUID)) {
+      TransferredResource parent = index.retrieve(TransferredResource.class, parentUUID, fieldsToReturn);
+      return basePath.resolve(parent.getRelativePath());
+    } else {
+      return basePath;
+    }
+  }
+
   public InputStream retrieveFile(String path) throws NotFoundException, RequestNotValidException, GenericException {
     InputStream ret;
     Path p = basePath.resolve(path);
@@ -233,6 +276,22 @@ public class TransferredResourcesScanner {
     index.commit(TransferredResource.class);
   }
 
+  /**
+   * Removes a resource, and all the resources under it, from the index after
+   * it was moved out of the transfer area (e.g. into an AIP).
+   */
+  public void removeTransferredResourceFromIndex(TransferredResource resource)
+    throws GenericException, RequestNotValidException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+
+    if (!resource.isFile()) {
+      Filter filter = new Filter(
+        new SimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_ANCESTORS, resource.getRelativePath()));
+      index.delete(TransferredResource.class, filter);
+    }
+    index.delete(TransferredResource.class, Arrays.asList(resource.getUUID()));
+  }
+
   public void updateTransferredResources(Optional<String> folderRelativePath, boolean waitToFinish)
     throws IsStillUpdatingException, GenericException, AuthorizationDeniedException {
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
@@ -0,0 +1,113 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.monitor;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.function.Consumer;
+
+import org.roda.core.data.v2.ip.TransferredResource;
+
+/**
+ * Walks a folder of the transfer area, creating a transferred resource for each
+ * file and folder under it (including the folder itself, unless it is the base
+ * path), where the size of a folder is the sum of the sizes of all its files.
+ */
+class TransferredResourcesVisitor extends SimpleFileVisitor<Path> {
+  private final Path basePath;
+  private final Date lastScanDate;
+  private final Consumer<TransferredResource> resourceConsumer;
+  private final Consumer<Path> directoryConsumer;
+
+  private final ArrayDeque<BasicFileAttributes> actualDirectoryAttributesStack = new ArrayDeque<>();
+  private final ArrayDeque<Long> fileSizeStack = new ArrayDeque<>();
+  private long size = 0;
+
+  public TransferredResourcesVisitor(Path basePath, Date lastScanDate,
+    Consumer<TransferredResource> resourceConsumer) {
+    this(basePath, lastScanDate, resourceConsumer, dir -> {
+      // do nothing
+    });
+  }
+
+  /**
+   * @param directoryConsumer
+   *          called with each folder before its contents are visited.
+   */
+  public TransferredResourcesVisitor(Path basePath, Date lastScanDate, Consumer<TransferredResource> resourceConsumer,
+    Consumer<Path> directoryConsumer) {
+    this.basePath = basePath;
+    this.lastScanDate = lastScanDate;
+    this.resourceConsumer = resourceConsumer;
+    this.directoryConsumer = directoryConsumer;
+  }
+
+  /**
+   * @return the size of the folder where the walk started, once it is over.
+   */
+  public long getSize() {
+    return size;
+  }
+
+  @Override
+  public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+    directoryConsumer.accept(dir);
+    actualDirectoryAttributesStack.push(attrs);
+    fileSizeStack.push(0L);
+    return FileVisitResult.CONTINUE;
+  }
+
+  @Override
+  public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+    try {
+      long fileSize = Files.size(file);
+      if (fileSizeStack.isEmpty()) {
+        // the walk started on a file
+        size = fileSize;
+      } else {
+        fileSizeStack.push(fileSizeStack.pop() + fileSize);
+      }
+      resourceConsumer
+        .accept(TransferredResourcesScanner.createTransferredResource(file, attrs, fileSize, basePath, lastScanDate));
+    } catch (NoSuchFileException e) {
+      // can be a broken symlink (do nothing)
+    }
+
+    return FileVisitResult.CONTINUE;
+  }
+
+  @Override
+  public FileVisitResult visitFileFailed(Path file, IOException exc) {
+    return FileVisitResult.CONTINUE;
+  }
+
+  @Override
+  public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+    BasicFileAttributes actualDirectoryAttributes = actualDirectoryAttributesStack.pop();
+    long directorySize = fileSizeStack.pop();
+    if (fileSizeStack.isEmpty()) {
+      size = directorySize;
+    } else {
+      fileSizeStack.push(fileSizeStack.pop() + directorySize);
+    }
+
+    if (!dir.equals(basePath)) {
+      resourceConsumer.accept(TransferredResourcesScanner.createTransferredResource(dir, actualDirectoryAttributes,
+        directorySize, basePath, lastScanDate));
+    }
+
+    return FileVisitResult.CONTINUE;
+  }
+}
@@ -0,0 +1,374 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.monitor;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.IsStillUpdatingException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
+import org.roda.core.data.v2.ip.TransferredResource;
+import org.roda.core.index.IndexService;
+import org.roda.core.index.utils.IterableIndexResult;
+import org.roda.core.index.utils.SolrUtils;
+import org.roda.core.util.IdUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Background service that keeps the index of the transferred resources up to
+ * date by watching the transfer area with a {@link WatchService}, so only the
+ * paths that changed are indexed instead of walking the whole area.
+ *
+ * Changes are gathered until no event arrives for a short delay and then
+ * handled together: their resources are sent to the index in batches and the
+ * size of each ancestor folder is updated once per batch. As a fallback, the
+ * whole area is scanned when the watcher starts, when events are lost (the
+ * event queue overflowed) and periodically.
+ *
+ * Folders that could not be watched (e.g. the limit of watches of the
+ * operating system was reached) are watched again, and the whole area
+ * scanned, at most once every few minutes, so that a transfer area with more
+ * folders than watches is not scanned over and over.
+ */
+public class TransferredResourcesWatcher implements Runnable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TransferredResourcesWatcher.class);
+
+  private static final String CONFIGURATION_PREFIX = "core.transferred_resources.watcher.";
+  private static final long DEFAULT_DELAY_MILLIS = 2000L;
+  private static final int DEFAULT_RECONCILE_INTERVAL_IN_MINUTES = 1440;
+  private static final int DEFAULT_UNWATCHED_RECONCILE_INTERVAL_IN_MINUTES = 10;
+  private static final int BATCH_SIZE = 1000;
+  private static final int QUERY_BATCH_SIZE = 500;
+  private static final List<String> FIELDS_TO_RETURN = Arrays.asList(RodaConstants.INDEX_UUID,
+    RodaConstants.TRANSFERRED_RESOURCE_ISFILE, RodaConstants.TRANSFERRED_RESOURCE_SIZE);
+
+  private final TransferredResourcesScanner scanner;
+  private final IndexService index;
+  private final Path basePath;
+  private final long delayMillis;
+  private final long reconcileIntervalMillis;
+  private final long unwatchedReconcileIntervalMillis;
+
+  private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+  private final Set<Path> changedPaths = new LinkedHashSet<>();
+  private WatchService watchService = null;
+  private boolean reconcileNeeded = true;
+  private boolean unwatchedFolders = true;
+  private long lastReconcile = 0;
+  private long nextReconcile = 0;
+  private Thread thread = null;
+
+  public TransferredResourcesWatcher(TransferredResourcesScanner scanner, IndexService index) {
+    this(scanner, index,
+      RodaCoreFactory.getRodaConfiguration().getLong(CONFIGURATION_PREFIX + "delayInMillis", DEFAULT_DELAY_MILLIS),
+      RodaCoreFactory.getRodaConfiguration().getInt(CONFIGURATION_PREFIX + "reconcileIntervalInMinutes",
+        DEFAULT_RECONCILE_INTERVAL_IN_MINUTES),
+      RodaCoreFactory.getRodaConfiguration().getInt(CONFIGURATION_PREFIX + "unwatchedReconcileIntervalInMinutes",
+        DEFAULT_UNWATCHED_RECONCILE_INTERVAL_IN_MINUTES));
+  }
+
+  /**
+   * @param delayMillis
+   *          how long the transfer area must be quiet before the changes
+   *          gathered so far are indexed.
+   * @param reconcileIntervalInMinutes
+   *          the interval between full scans of the transfer area.
+   * @param unwatchedReconcileIntervalInMinutes
+   *          the minimum interval between full scans of the transfer area while
+   *          some of its folders could not be watched.
+   */
+  public TransferredResourcesWatcher(TransferredResourcesScanner scanner, IndexService index, long delayMillis,
+    int reconcileIntervalInMinutes, int unwatchedReconcileIntervalInMinutes) {
+    this.scanner = scanner;
+    this.index = index;
+    this.basePath = scanner.getBasePath();
+    this.delayMillis = delayMillis;
+    this.reconcileIntervalMillis = TimeUnit.MINUTES.toMillis(reconcileIntervalInMinutes);
+    this.unwatchedReconcileIntervalMillis = TimeUnit.MINUTES.toMillis(unwatchedReconcileIntervalInMinutes);
+  }
+
+  public synchronized void start() {
+    if (thread == null) {
+      thread = new Thread(this, "transferred-resources-watcher");
+      thread.setDaemon(true);
+      thread.start();
+      LOGGER.info("Started watching transferred resources under {}", basePath);
+    }
+  }
+
+  public synchronized void stop() {
+    if (thread != null) {
+      thread.interrupt();
+      thread = null;
+    }
+  }
+
+  @Override
+  public void run() {
+    try (WatchService service = basePath.getFileSystem().newWatchService()) {
+      watchService = service;
+      reconcile();
+
+      while (!Thread.currentThread().isInterrupted()) {
+        WatchKey key = watchService.poll(delayMillis, TimeUnit.MILLISECONDS);
+        if (key != null) {
+          gatherChanges(key);
+        }
+
+        if (key == null || changedPaths.size() >= BATCH_SIZE) {
+          indexChanges();
+        }
+
+        long now = System.currentTimeMillis();
+        if (reconcileNeeded || now >= nextReconcile
+          || (unwatchedFolders && now >= lastReconcile + unwatchedReconcileIntervalMillis)) {
+          reconcile();
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("Error watching transferred resources under {}, they will only be indexed when refreshed",
+        basePath, e);
+    } finally {
+      watchedDirectories.clear();
+      watchService = null;
+    }
+  }
+
+  /**
+   * Registers a folder and all its sub-folders in the watch service.
+   */
+  private void watch(Path path) throws IOException {
+    Files.walkFileTree(path, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+      new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          register(dir);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+          return FileVisitResult.CONTINUE;
+        }
+      });
+  }
+
+  private void register(Path dir) {
+    try {
+      WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+      watchedDirectories.put(key, dir);
+    } catch (NoSuchFileException e) {
+      // deleted meanwhile (do nothing)
+    } catch (IOException e) {
+      // e.g. the limit of watches of the operating system was reached
+      if (!unwatchedFolders) {
+        LOGGER.warn("Could not watch {} (and maybe other folders), their changes will only be indexed by scans",
+          dir, e);
+      }
+      unwatchedFolders = true;
+    }
+  }
+
+  private void gatherChanges(WatchKey key) {
+    Path dir = watchedDirectories.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        LOGGER.debug("Transferred resources watch events were lost, scanning the transfer area");
+        reconcileNeeded = true;
+      } else if (dir != null) {
+        changedPaths.add(dir.resolve((Path) event.context()));
+      }
+    }
+
+    if (!key.reset()) {
+      // the folder is no longer accessible, e.g. it was deleted
+      watchedDirectories.remove(key);
+    }
+  }
+
+  private void reconcile() {
+    lastReconcile = System.currentTimeMillis();
+    try {
+      if (unwatchedFolders) {
+        // watch before the scan so no change is missed in between
+        unwatchedFolders = false;
+        watch(basePath);
+      }
+      scanner.updateTransferredResources(Optional.empty(), true);
+      // the scan indexed the whole area, including the changes gathered
+      changedPaths.clear();
+      reconcileNeeded = false;
+      nextReconcile = lastReconcile + reconcileIntervalMillis;
+    } catch (IsStillUpdatingException e) {
+      // a refresh is running, try again later
+    } catch (IOException | GenericException | AuthorizationDeniedException | RuntimeException e) {
+      LOGGER.error("Error scanning transferred resources", e);
+      nextReconcile = lastReconcile + reconcileIntervalMillis;
+    }
+  }
+
+  /**
+   * Indexes the gathered changes: new and modified files, new folders with all
+   * their contents and deleted paths with all their descendants, and then
+   * updates the sizes of their ancestor folders.
+   */
+  private void indexChanges() {
+    if (changedPaths.isEmpty() || RodaCoreFactory.getTransferredResourcesScannerUpdateStatus(Optional.empty())) {
+      // a full scan would delete the resources indexed while it runs
+      return;
+    }
+
+    List<Path> paths = new ArrayList<>(changedPaths);
+    changedPaths.clear();
+    Date scanDate = new Date();
+
+    try {
+      Map<String, TransferredResource> indexed = retrieveIndexed(paths);
+
+      // changes under new or deleted folders are handled with the folder
+      List<Path> subtrees = new ArrayList<>();
+      for (Path path : paths) {
+        TransferredResource previous = indexed.get(getUUID(path));
+        boolean exists = Files.exists(path);
+        if ((exists && previous == null && Files.isDirectory(path))
+          || (!exists && previous != null && !previous.isFile())) {
+          subtrees.add(path);
+        }
+      }
+
+      List<TransferredResource> resources = new ArrayList<>();
+      List<String> deletedUUIDs = new ArrayList<>();
+      List<String> deletedFolders = new ArrayList<>();
+      Map<String, Long> sizeDeltas = new HashMap<>();
+
+      for (Path path : paths) {
+        if (subtrees.stream().anyMatch(subtree -> !subtree.equals(path) && path.startsWith(subtree))) {
+          continue;
+        }
+
+        Path relativePath = basePath.relativize(path);
+        TransferredResource previous = indexed.get(getUUID(path));
+        long previousSize = previous != null ? previous.getSize() : 0;
+        long size;
+
+        if (Files.isDirectory(path)) {
+          if (previous != null) {
+            // its contents changed, they have their own events
+            continue;
+          }
+          size = indexFolder(path, scanDate, resources);
+        } else if (Files.exists(path)) {
+          BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+          size = attrs.size();
+          resources.add(TransferredResourcesScanner.createTransferredResource(path, attrs, size, basePath, scanDate));
+        } else {
+          if (previous == null) {
+            continue;
+          }
+          size = 0;
+          deletedUUIDs.add(previous.getUUID());
+          if (!previous.isFile()) {
+            deletedFolders.add(relativePath.toString());
+          }
+        }
+
+        if (size != previousSize) {
+          for (Path ancestor = relativePath.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+            sizeDeltas.merge(IdUtils.getTransferredResourceUUID(ancestor), size - previousSize, Long::sum);
+          }
+        }
+      }
+
+      index.createAll(TransferredResource.class, resources);
+      if (!deletedUUIDs.isEmpty()) {
+        index.delete(TransferredResource.class, deletedUUIDs);
+      }
+      for (List<String> folders : Lists.partition(deletedFolders, QUERY_BATCH_SIZE)) {
+        index.delete(TransferredResource.class,
+          new Filter(new OneOfManyFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_ANCESTORS, folders)));
+      }
+      sizeDeltas.forEach((uuid, delta) -> SolrUtils.updateIfExists(index.getSolrClient(), TransferredResource.class,
+        uuid, Collections.singletonMap(RodaConstants.TRANSFERRED_RESOURCE_SIZE, Collections.singletonMap("inc", delta)),
+        this));
+
+      // the next changes are computed from what is indexed now
+      index.commit(TransferredResource.class);
+      LOGGER.debug("Indexed {} changed transferred resources", paths.size());
+    } catch (IOException | GenericException | RequestNotValidException
+      | AuthorizationDeniedException e) {
+      LOGGER.warn("Error indexing changed transferred resources, scanning the transfer area", e);
+      reconcileNeeded = true;
+    }
+  }
+
+  private String getUUID(Path path) {
+    return IdUtils.getTransferredResourceUUID(basePath.relativize(path));
+  }
+
+  private Map<String, TransferredResource> retrieveIndexed(List<Path> paths)
+    throws GenericException, RequestNotValidException, IOException {
+    Map<String, TransferredResource> indexed = new HashMap<>();
+    List<String> uuids = paths.stream().map(this::getUUID).collect(Collectors.toList());
+    for (List<String> batch : Lists.partition(uuids, QUERY_BATCH_SIZE)) {
+      try (IterableIndexResult<TransferredResource> resources = index.findAll(TransferredResource.class,
+        new Filter(new OneOfManyFilterParameter(RodaConstants.INDEX_UUID, batch)), false, FIELDS_TO_RETURN)) {
+        resources.forEach(resource -> indexed.put(resource.getUUID(), resource));
+      }
+    }
+    return indexed;
+  }
+
+  /**
+   * Creates the resources of a new folder and its contents, watching its
+   * sub-folders.
+   *
+   * @return the size of the folder.
+   */
+  private long indexFolder(Path folder, Date scanDate, List<TransferredResource> resources) throws IOException {
+    TransferredResourcesVisitor visitor = new TransferredResourcesVisitor(basePath, scanDate, resources::add,
+      this::register);
+    Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, visitor);
+    return visitor.getSize();
+  }
+}
@@ -9,12 +9,21 @@ package org.roda.core.index;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
@@ -22,6 +31,7 @@ import javax.xml.xpath.XPathExpressionException;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.SolrInputDocument;
+import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
@@ -30,16 +40,20 @@ import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.exceptions.ReturnWithExceptions;
 import org.roda.core.data.utils.JsonUtils;
-import org.roda.core.data.v2.IsModelObject;
+import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.common.OptionalWithCause;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
+import org.roda.core.data.v2.index.sort.Sorter;
+import org.roda.core.data.v2.index.sublist.Sublist;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
 import org.roda.core.data.v2.ip.DIP;
 import org.roda.core.data.v2.ip.DIPFile;
 import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.FileFulltext;
 import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.ip.IndexedDIP;
 import org.roda.core.data.v2.ip.IndexedFile;
@@ -48,6 +62,7 @@ import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.TransferredResource;
 import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
+import org.roda.core.data.v2.ip.metadata.FileFormat;
 import org.roda.core.data.v2.ip.metadata.IndexedPreservationAgent;
 import org.roda.core.data.v2.ip.metadata.IndexedPreservationEvent;
 import org.roda.core.data.v2.ip.metadata.OtherMetadata;
@@ -72,11 +87,12 @@ import org.roda.core.index.schema.collections.JobReportCollection;
 import org.roda.core.index.schema.collections.PreservationEventCollection;
 import org.roda.core.index.schema.collections.RepresentationCollection;
 import org.roda.core.index.schema.collections.RiskCollection;
-import org.roda.core.index.utils.IterableIndexResult;
+import org.roda.core.index.utils.AIPStatistics;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.model.ModelObserver;
 import org.roda.core.model.ModelService;
 import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.storage.Binary;
 import org.roda.core.storage.Resource;
 import org.roda.core.storage.StorageService;
 import org.roda.core.util.IdUtils;
@@ -84,6 +100,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
 /**
  * 
  * @author Luis Faria <lfaria@keep.pt>
@@ -92,6 +111,11 @@ import org.xml.sax.SAXException;
 public class IndexModelObserver implements ModelObserver {
   private static final Logger LOGGER = LoggerFactory.getLogger(IndexModelObserver.class);
 
+  private static final int TEN_MB_IN_BYTES = 10485760;
+  private static final int ONE_MB_IN_BYTES = 1048576;
+  // keeps the queries below the default limit of boolean clauses
+  private static final int AIP_IDS_BATCH_SIZE = 500;
+
   private final SolrClient index;
   private final ModelService model;
 
@@ -103,12 +127,34 @@ public class IndexModelObserver implements ModelObserver {
 
   @Override
   public ReturnWithExceptions<Void, ModelObserver> aipCreated(final AIP aip) {
+    return aipCreated(aip, retrieveIfIndexed(IndexedAIP.class, aip.getId()));
+  }
+
+  /**
+   * @param previous
+   *          the AIP document before this indexing, or <code>null</code> if it
+   *          was not indexed, used to update the subtree statistics of the AIP
+   *          and of its ancestors with the difference.
+   */
+  private ReturnWithExceptions<Void, ModelObserver> aipCreated(final AIP aip, final IndexedAIP previous) {
     ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
     try {
       List<String> ancestors = SolrUtils.getAncestors(aip.getParentId(), model);
-      indexAIP(aip, ancestors).addTo(ret);
+      indexAIP(aip, ancestors, getStatisticsFields(previous)).addTo(ret);
       if (ret.isEmpty()) {
-        indexRepresentations(aip, ancestors).addTo(ret);
+        AIPStatistics statistics = indexRepresentations(aip, ancestors).addTo(ret).getReturnedObject();
+        AIPStatistics previousStatistics = getStatistics(previous);
+        AIPStatistics delta = statistics.minus(previousStatistics);
+
+        // own statistics are set, as they are fully known, while subtree ones
+        // can only be incremented
+        Map<String, Map<String, Object>> modifiers = new HashMap<>(statistics.toSetModifiers(
+          RodaConstants.AIP_NUMBER_OF_DATA_FILES, RodaConstants.AIP_SIZE_IN_BYTES, RodaConstants.AIP_FORMATS,
+          RodaConstants.AIP_FORMAT_COUNT_PREFIX, previousStatistics.getFormats()));
+        modifiers.putAll(getSubtreeIncrementModifiers(delta, 0));
+        SolrUtils.updateIfExists(index, IndexedAIP.class, aip.getId(), modifiers, (ModelObserver) this).addTo(ret);
+        updateSubtreeStatistics(ancestors, delta, previous == null ? 1 : 0).addTo(ret);
+
         if (ret.isEmpty()) {
           indexPreservationsEvents(aip.getId(), null).addTo(ret);
         }
@@ -122,21 +168,26 @@ public class IndexModelObserver implements ModelObserver {
   }
 
   private ReturnWithExceptions<Void, ModelObserver> indexAIP(final AIP aip, final List<String> ancestors) {
-    return indexAIP(aip, ancestors, false);
+    return indexAIP(aip, ancestors, getStatisticsFields(retrieveIfIndexed(IndexedAIP.class, aip.getId())));
   }
 
   private ReturnWithExceptions<Void, ModelObserver> indexAIP(final AIP aip, final List<String> ancestors,
-    boolean safemode) {
+    final Map<String, Object> statisticsFields) {
+    return indexAIP(aip, ancestors, statisticsFields, false);
+  }
+
+  private ReturnWithExceptions<Void, ModelObserver> indexAIP(final AIP aip, final List<String> ancestors,
+    final Map<String, Object> statisticsFields, boolean safemode) {
     ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
 
-    SolrUtils.create2(index, (ModelObserver) this, IndexedAIP.class, aip, new AIPCollection.Info(ancestors, safemode))
-      .addTo(ret);
+    SolrUtils.create2(index, (ModelObserver) this, IndexedAIP.class, aip,
+      new AIPCollection.Info(ancestors, statisticsFields, safemode)).addTo(ret);
 
     // if there was an error indexing, try in safe mode
     if (!ret.isEmpty()) {
       if (!safemode) {
         LOGGER.error("Error indexing AIP, trying safe mode", ret.getExceptions().get(0));
-        indexAIP(aip, ancestors, true).addTo(ret);
+        indexAIP(aip, ancestors, statisticsFields, true).addTo(ret);
       } else {
         LOGGER.error("Cannot index created AIP", ret.getExceptions().get(0));
       }
@@ -195,32 +246,51 @@ public class IndexModelObserver implements ModelObserver {
     return ret;
   }
 
-  private ReturnWithExceptions<Void, ModelObserver> indexRepresentations(final AIP aip, final List<String> ancestors) {
-    ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
+  private ReturnWithExceptions<AIPStatistics, ModelObserver> indexRepresentations(final AIP aip,
+    final List<String> ancestors) {
+    ReturnWithExceptions<AIPStatistics, ModelObserver> ret = new ReturnWithExceptions<>(this);
+    AIPStatistics statistics = new AIPStatistics();
     for (Representation representation : aip.getRepresentations()) {
-      indexRepresentation(aip, representation, ancestors).addTo(ret);
+      AIPStatistics representationStatistics = indexRepresentation(aip, representation, ancestors).addTo(ret)
+        .getReturnedObject();
+      if (representationStatistics != null) {
+        statistics.add(representationStatistics);
+      }
     }
 
+    ret.setReturnedObject(statistics);
     return ret;
   }
 
-  private ReturnWithExceptions<Void, ModelObserver> indexRepresentation(final AIP aip,
-    final Representation representation, final List<String> ancestors) {
+  /**
+   * Indexes a representation and updates the AIP (and ancestors) statistics with
+   * the difference to the previously indexed representation.
+   */
+  private ReturnWithExceptions<Void, ModelObserver> reindexRepresentation(final AIP aip,
+    final Representation representation, final List<String> ancestors, final AIPStatistics previous) {
     ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
-    Long sizeInBytes = 0L;
-    Long numberOfDataFiles = 0L;
+    AIPStatistics statistics = indexRepresentation(aip, representation, ancestors).addTo(ret).getReturnedObject();
+    if (statistics != null) {
+      updateAIPStatistics(aip.getId(), ancestors, statistics.minus(previous)).addTo(ret);
+    }
+    return ret;
+  }
+
+  private ReturnWithExceptions<AIPStatistics, ModelObserver> indexRepresentation(final AIP aip,
+    final Representation representation, final List<String> ancestors) {
+    ReturnWithExceptions<AIPStatistics, ModelObserver> ret = new ReturnWithExceptions<>(this);
+    AIPStatistics statistics = new AIPStatistics();
     Long numberOfDataFolders = 0L;
 
     try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(representation.getAipId(),
       representation.getId(), true)) {
       for (OptionalWithCause<File> file : allFiles) {
         if (file.isPresent()) {
-          sizeInBytes += indexFile(aip, file.get(), ancestors, false).addTo(ret).getReturnedObject();
+          AIPStatistics fileStatistics = indexFile(aip, file.get(), ancestors, false).addTo(ret).getReturnedObject();
+          statistics.add(fileStatistics);
 
           if (file.get().isDirectory()) {
             numberOfDataFolders++;
-          } else {
-            numberOfDataFiles++;
           }
         } else {
           LOGGER.error("Cannot index representation file", file.getCause());
@@ -231,9 +301,10 @@ public class IndexModelObserver implements ModelObserver {
       // TODO support safemode
       boolean safemode = false;
 
-      RepresentationCollection.Info info = new RepresentationCollection.Info(aip, ancestors, sizeInBytes,
-        numberOfDataFiles, numberOfDataFolders, safemode);
+      RepresentationCollection.Info info = new RepresentationCollection.Info(aip, ancestors, statistics,
+        numberOfDataFolders, safemode);
       SolrUtils.create2(index, (ModelObserver) this, IndexedRepresentation.class, representation, info).addTo(ret);
+      ret.setReturnedObject(statistics);
     } catch (IOException | RequestNotValidException | GenericException | NotFoundException
       | AuthorizationDeniedException e) {
       LOGGER.error("Cannot index representation", e);
@@ -243,23 +314,33 @@ public class IndexModelObserver implements ModelObserver {
     return ret;
   }
 
-  private ReturnWithExceptions<Long, ModelObserver> indexFile(AIP aip, File file, List<String> ancestors,
+  /**
+   * @return the statistics of the indexed data files.
+   */
+  private ReturnWithExceptions<AIPStatistics, ModelObserver> indexFile(AIP aip, File file, List<String> ancestors,
     boolean recursive) {
-    ReturnWithExceptions<Long, ModelObserver> ret = new ReturnWithExceptions<>(this);
+    ReturnWithExceptions<AIPStatistics, ModelObserver> ret = new ReturnWithExceptions<>(this);
 
-    Long sizeInBytes = 0L;
+    AIPStatistics statistics = new AIPStatistics();
 
     FileCollection.Info info = new FileCollection.Info(aip, ancestors);
     SolrUtils.create2(index, (ModelObserver) this, IndexedFile.class, file, info).addTo(ret);
 
-    sizeInBytes = (Long) info.getAccumulators().get(RodaConstants.FILE_SIZE);
+    if (!file.isDirectory() && info.getAccumulators().containsKey(RodaConstants.FILE_SIZE)) {
+      statistics.addFile((Long) info.getAccumulators().get(RodaConstants.FILE_SIZE),
+        (String) info.getAccumulators().get(FileCollection.FORMAT_ACCUMULATOR));
+    }
 
     if (ret.isEmpty()) {
+      if (!file.isDirectory()) {
+        indexFileFulltext(file, false).addTo(ret);
+      }
+
       if (recursive && file.isDirectory()) {
         try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(file, true)) {
           for (OptionalWithCause<File> subfile : allFiles) {
             if (subfile.isPresent()) {
-              sizeInBytes += indexFile(aip, subfile.get(), ancestors, false).addTo(ret).getReturnedObject();
+              statistics.add(indexFile(aip, subfile.get(), ancestors, false).addTo(ret).getReturnedObject());
             } else {
               LOGGER.error("Cannot index file", subfile.getCause());
               ret.add(subfile.getCause());
@@ -275,15 +356,257 @@ public class IndexModelObserver implements ModelObserver {
       LOGGER.error("Cannot index file: {}", file);
     }
 
-    ret.setReturnedObject(sizeInBytes);
+    ret.setReturnedObject(statistics);
+    return ret;
+  }
+
+  /**
+   * Indexes the fulltext extracted from a file in the fulltext collection,
+   * split in chunks. Unless forced, the fulltext is only sent to the index if its
+   * size or last modification differ from the ones already indexed, so
+   * rebuilding the file document does not imply reading nor re-sending its
+   * (possibly large) text. Only the first bytes of the fulltext, up to
+   * core.index.fulltext_threshold_in_bytes, are indexed.
+   */
+  private ReturnWithExceptions<Void, ModelObserver> indexFileFulltext(File file, boolean force) {
+    ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
+    String fileUUID = IdUtils.getFileId(file);
+
+    try {
+      Binary fulltextBinary = model.retrieveOtherMetadataBinary(file.getAipId(), file.getRepresentationId(),
+        file.getPath(), file.getId(), RodaConstants.TIKA_FILE_SUFFIX_FULLTEXT,
+        RodaConstants.OTHER_METADATA_TYPE_APACHE_TIKA);
+      String sourceVersion = getSourceVersion(fulltextBinary);
+
+      if (!force && sourceVersion != null && isFulltextAlreadyIndexed(fileUUID, sourceVersion)) {
+        return ret;
+      }
+
+      deleteDocumentsFromIndex(FileFulltext.class, RodaConstants.FILE_FULLTEXT_FILE_UUID, fileUUID).addTo(ret);
+
+      int chunkSize = RodaCoreFactory.getRodaConfigurationAsInt(ONE_MB_IN_BYTES, "core.index.fulltext_chunk_size");
+      long maxBytes = RodaCoreFactory.getRodaConfigurationAsInt(TEN_MB_IN_BYTES,
+        "core.index.fulltext_threshold_in_bytes");
+      String representationUUID = IdUtils.getRepresentationId(file.getAipId(), file.getRepresentationId());
+
+      try (InputStream inputStream = fulltextBinary.getContent().createInputStream();
+        Reader reader = new InputStreamReader(ByteStreams.limit(inputStream, maxBytes),
+          Charset.forName(RodaConstants.DEFAULT_ENCODING))) {
+        char[] buffer = new char[chunkSize];
+        StringBuilder pending = new StringBuilder();
+        int chunkIndex = 0;
+        int read;
+
+        while ((read = reader.read(buffer, 0, chunkSize)) != -1) {
+          pending.append(buffer, 0, read);
+          if (pending.length() >= chunkSize) {
+            // cut at the last whitespace so words are not split between chunks
+            int cut = lastWhitespace(pending, chunkSize);
+            String content = pending.substring(0, cut);
+            pending.delete(0, cut);
+            addDocumentToIndex(FileFulltext.class,
+              new FileFulltext(fileUUID, file.getAipId(), representationUUID, chunkIndex++, sourceVersion, content))
+                .addTo(ret);
+          }
+        }
+
+        if (pending.length() > 0 || chunkIndex == 0) {
+          addDocumentToIndex(FileFulltext.class, new FileFulltext(fileUUID, file.getAipId(), representationUUID,
+            chunkIndex, sourceVersion, pending.toString())).addTo(ret);
+        }
+
+        if (inputStream.read() != -1) {
+          LOGGER.warn("Fulltext of file {} exceeds {} bytes, the remaining text was not indexed", fileUUID,
+            maxBytes);
+        }
+      }
+    } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | IOException e) {
+      LOGGER.warn("Error indexing fulltext for file: {}", file, e);
+      ret.add(e);
+    } catch (NotFoundException e) {
+      LOGGER.trace("Fulltext not found for file: {}", file, e);
+    }
+
+    return ret;
+  }
+
+  /**
+   * @return the size and last modification of the fulltext, taken from the file
+   *         system without reading it, or <code>null</code> if the storage does
+   *         not keep it on a file, in which case it is always indexed again.
+   */
+  private static String getSourceVersion(Binary binary) {
+    try {
+      URI uri = binary.getContent().getURI();
+      if ("file".equalsIgnoreCase(uri.getScheme())) {
+        BasicFileAttributes attributes = Files.readAttributes(Paths.get(uri), BasicFileAttributes.class);
+        return attributes.size() + "-" + attributes.lastModifiedTime().toMillis();
+      }
+    } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+      LOGGER.trace("Could not get the size and last modification of {}", binary.getStoragePath(), e);
+    }
+    return null;
+  }
+
+  private boolean isFulltextAlreadyIndexed(String fileUUID, String sourceVersion) {
+    try {
+      FileFulltext firstChunk = SolrUtils.retrieve(index, FileFulltext.class, FileFulltext.getChunkId(fileUUID, 0),
+        Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.FILE_FULLTEXT_SOURCE_VERSION));
+      return sourceVersion.equals(firstChunk.getSourceVersion());
+    } catch (NotFoundException | GenericException e) {
+      return false;
+    }
+  }
+
+  private static int lastWhitespace(StringBuilder text, int limit) {
+    for (int i = Math.min(limit, text.length()) - 1; i > 0; i--) {
+      if (Character.isWhitespace(text.charAt(i))) {
+        return i + 1;
+      }
+    }
+    return Math.min(limit, text.length());
+  }
+
+  private <T extends IsIndexed> T retrieveIfIndexed(Class<T> indexClass, String uuid) {
+    try {
+      return SolrUtils.retrieve(index, indexClass, uuid, Collections.emptyList());
+    } catch (NotFoundException | GenericException e) {
+      LOGGER.trace("Could not retrieve {} from index", uuid, e);
+      return null;
+    }
+  }
+
+  private static AIPStatistics getStatistics(IndexedAIP aip) {
+    if (aip == null) {
+      return new AIPStatistics();
+    }
+    return new AIPStatistics(aip.getNumberOfDataFiles(), aip.getSizeInBytes(), aip.getFormatCounts());
+  }
+
+  private static AIPStatistics getSubtreeStatistics(IndexedAIP aip) {
+    return new AIPStatistics(aip.getSubtreeNumberOfDataFiles(), aip.getSubtreeSizeInBytes(),
+      aip.getSubtreeFormatCounts());
+  }
+
+  private static AIPStatistics getStatistics(IndexedRepresentation representation) {
+    if (representation == null) {
+      return new AIPStatistics();
+    }
+    return new AIPStatistics(representation.getNumberOfDataFiles(), representation.getSizeInBytes(),
+      representation.getFormatCounts());
+  }
+
+  private AIPStatistics getRepresentationStatistics(String representationUUID) {
+    return getStatistics(retrieveIfIndexed(IndexedRepresentation.class, representationUUID));
+  }
+
+  private static AIPStatistics getStatistics(IndexedFile file) {
+    AIPStatistics statistics = new AIPStatistics();
+    if (file != null && !file.isDirectory()) {
+      FileFormat fileFormat = file.getFileFormat();
+      statistics.addFile(file.getSize(), fileFormat == null ? AIPStatistics.getFormat(null, null)
+        : AIPStatistics.getFormat(fileFormat.getPronom(), fileFormat.getMimeType()));
+    }
+    return statistics;
+  }
+
+  /**
+   * @return the statistics fields of an AIP document, which must be kept when
+   *         the document is re-created.
+   */
+  private static Map<String, Object> getStatisticsFields(IndexedAIP aip) {
+    if (aip == null) {
+      return Collections.emptyMap();
+    }
+
+    Map<String, Object> fields = new HashMap<>();
+    fields.putAll(getStatistics(aip).toFields(RodaConstants.AIP_NUMBER_OF_DATA_FILES, RodaConstants.AIP_SIZE_IN_BYTES,
+      RodaConstants.AIP_FORMATS, RodaConstants.AIP_FORMAT_COUNT_PREFIX, Collections.emptyList()));
+    fields.putAll(getSubtreeStatistics(aip).toFields(RodaConstants.AIP_SUBTREE_NUMBER_OF_DATA_FILES,
+      RodaConstants.AIP_SUBTREE_SIZE_IN_BYTES, RodaConstants.AIP_SUBTREE_FORMATS,
+      RodaConstants.AIP_SUBTREE_FORMAT_COUNT_PREFIX, Collections.emptyList()));
+    fields.put(RodaConstants.AIP_SUBTREE_NUMBER_OF_AIPS, aip.getSubtreeNumberOfAIPs());
+    return fields;
+  }
+
+  private static Map<String, Map<String, Object>> getSubtreeIncrementModifiers(AIPStatistics delta,
+    long numberOfAIPsDelta) {
+    Map<String, Map<String, Object>> modifiers = new HashMap<>(delta.toIncrementModifiers(
+      RodaConstants.AIP_SUBTREE_NUMBER_OF_DATA_FILES, RodaConstants.AIP_SUBTREE_SIZE_IN_BYTES,
+      RodaConstants.AIP_SUBTREE_FORMATS, RodaConstants.AIP_SUBTREE_FORMAT_COUNT_PREFIX));
+    if (numberOfAIPsDelta != 0) {
+      modifiers.put(RodaConstants.AIP_SUBTREE_NUMBER_OF_AIPS, Collections.singletonMap("inc", numberOfAIPsDelta));
+    }
+    return modifiers;
+  }
+
+  /**
+   * Adds a difference in the data files of an AIP to its own and subtree
+   * statistics and to the subtree statistics of its ancestors.
+   */
+  private ReturnWithExceptions<Void, ModelObserver> updateAIPStatistics(String aipId, List<String> ancestors,
+    AIPStatistics delta) {
+    ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
+    if (!delta.isEmpty()) {
+      Map<String, Map<String, Object>> modifiers = new HashMap<>(
+        delta.toIncrementModifiers(RodaConstants.AIP_NUMBER_OF_DATA_FILES, RodaConstants.AIP_SIZE_IN_BYTES,
+          RodaConstants.AIP_FORMATS, RodaConstants.AIP_FORMAT_COUNT_PREFIX));
+      modifiers.putAll(getSubtreeIncrementModifiers(delta, 0));
+      SolrUtils.updateIfExists(index, IndexedAIP.class, aipId, modifiers, (ModelObserver) this).addTo(ret);
+      updateSubtreeStatistics(ancestors, delta, 0).addTo(ret);
+    }
     return ret;
   }
 
+  private ReturnWithExceptions<Void, ModelObserver> updateSubtreeStatistics(List<String> aipIds, AIPStatistics delta,
+    long numberOfAIPsDelta) {
+    return updateSubtreeStatistics(new SubtreeStatisticsDelta().add(aipIds, delta, numberOfAIPsDelta));
+  }
+
+  /**
+   * Increments the subtree statistics of all the AIPs of an operation, without
+   * reading them first, in batches. The subtree formats are only added to, so
+   * they are an upper bound until the statistics are refreshed (see
+   * {@link AIPStatistics#toIncrementModifiers(String, String, String, String)}).
+   */
+  private ReturnWithExceptions<Void, ModelObserver> updateSubtreeStatistics(SubtreeStatisticsDelta delta) {
+    return SolrUtils.updateAllIfExists(index, IndexedAIP.class, delta.toIncrementModifiers(), (ModelObserver) this);
+  }
+
+  private ReturnWithExceptions<Void, ModelObserver> updateRepresentationStatistics(String representationUUID,
+    AIPStatistics delta) {
+    return SolrUtils.updateIfExists(index, IndexedRepresentation.class, representationUUID,
+      delta.toIncrementModifiers(RodaConstants.REPRESENTATION_NUMBER_OF_DATA_FILES,
+        RodaConstants.REPRESENTATION_SIZE_IN_BYTES, RodaConstants.REPRESENTATION_FORMATS,
+        RodaConstants.REPRESENTATION_FORMAT_COUNT_PREFIX),
+      (ModelObserver) this);
+  }
+
+  /**
+   * Moves the subtree statistics of a moved AIP from the ancestors it no longer
+   * has to the ones it now has.
+   */
+  private static void moveSubtreeStatistics(IndexedAIP aip, List<String> newAncestors, SubtreeStatisticsDelta delta) {
+    AIPStatistics subtree = getSubtreeStatistics(aip);
+    long numberOfAIPs = aip.getSubtreeNumberOfAIPs() + 1;
+
+    List<String> oldAncestors = aip.getAncestors() != null ? aip.getAncestors() : Collections.emptyList();
+    List<String> removedFrom = new ArrayList<>(oldAncestors);
+    removedFrom.removeAll(newAncestors);
+    List<String> addedTo = new ArrayList<>(newAncestors);
+    addedTo.removeAll(oldAncestors);
+
+    delta.add(removedFrom, subtree.negate(), -numberOfAIPs);
+    delta.add(addedTo, subtree, numberOfAIPs);
+  }
+
   @Override
   public ReturnWithExceptions<Void, ModelObserver> aipUpdated(AIP aip) {
     // TODO Is this the best way to update?
-    ReturnWithExceptions<Void, ModelObserver> ret = aipDeleted(aip.getId(), false);
-    aipCreated(aip).addTo(ret);
+    // fulltext is kept, it is only re-sent if it changed
+    IndexedAIP previous = retrieveIfIndexed(IndexedAIP.class, aip.getId());
+    ReturnWithExceptions<Void, ModelObserver> ret = aipDeleted(aip.getId(), false, true);
+    aipCreated(aip, previous).addTo(ret);
     return ret;
   }
 
@@ -413,93 +736,129 @@ public class IndexModelObserver implements ModelObserver {
 
   @Override
   public ReturnWithExceptions<Void, ModelObserver> aipMoved(AIP aip, String oldParentId, String newParentId) {
+    LOGGER.debug("Reindexing aip {} moved from {} to {}", aip.getId(), oldParentId, newParentId);
+    return aipsMoved(Collections.singletonList(aip), newParentId);
+  }
+
+  /**
+   * Relocates the moved AIPs and their whole subtrees in a single pass. The
+   * descendants are not read from the model: their new ancestors are derived
+   * from the ancestors they have in the index, and the AIP, representation and
+   * file documents of each block of moved AIPs are then updated with batched
+   * atomic updates.
+   */
+  @Override
+  public ReturnWithExceptions<Void, ModelObserver> aipsMoved(List<AIP> aips, String newParentId) {
     ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
+    List<String> topAncestors;
     try {
+      topAncestors = SolrUtils.getAncestors(newParentId, model);
+    } catch (RequestNotValidException | GenericException | AuthorizationDeniedException e) {
+      LOGGER.error("Error indexing AIPs moved to {}", newParentId, e);
+      return ret.add(e);
+    }
+
+    // moved AIPs may be sublevels of others moved at the same time
+    Map<String, List<String>> movedAncestors = new HashMap<>();
+    SubtreeStatisticsDelta subtreeDelta = new SubtreeStatisticsDelta();
+    for (AIP aip : aips) {
       LOGGER.debug("Reindexing moved aip {}", aip.getId());
-      List<String> topAncestors = SolrUtils.getAncestors(newParentId, model);
+      IndexedAIP previous = retrieveIfIndexed(IndexedAIP.class, aip.getId());
 
       Map<String, Object> updatedFields = new HashMap<>();
       updatedFields.put(RodaConstants.AIP_PARENT_ID, newParentId);
       updatedFields.put(RodaConstants.AIP_ANCESTORS, topAncestors);
       SolrUtils.update(index, IndexedAIP.class, aip.getId(), updatedFields, (ModelObserver) this).addTo(ret);
 
-      if (ret.isEmpty()) {
-        updateRepresentationAndFileAncestors(aip, topAncestors).addTo(ret);
-
-        LOGGER.debug("Finding descendants of moved aip {}", aip.getId());
-        Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, aip.getId()),
-          new SimpleFilterParameter(RodaConstants.AIP_GHOST, Boolean.FALSE.toString()));
-        List<String> aipFields = Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_PARENT_ID,
-          RodaConstants.AIP_HAS_REPRESENTATIONS);
-
-        List<IndexedAIP> items = new ArrayList<>();
-        try (IterableIndexResult<IndexedAIP> childrenResults = new IterableIndexResult<>(index, IndexedAIP.class,
-          filter, null, false, aipFields)) {
-          childrenResults.forEach(items::add);
-        }
-
-        for (IndexedAIP item : items) {
-          try {
-            LOGGER.debug("Reindexing aip {} descendant {}", aip.getId(), item.getId());
-            List<String> ancestors = SolrUtils.getAncestors(item.getParentID(), model);
-            SolrUtils.update(index, IndexedAIP.class, aip.getId(),
-              Collections.singletonMap(RodaConstants.AIP_ANCESTORS, ancestors), (ModelObserver) this).addTo(ret);
-
-            // update representation and file ancestors information
-            if (item.getHasRepresentations()) {
-              AIP aipModel = model.retrieveAIP(item.getId());
-              updateRepresentationAndFileAncestors(aipModel, ancestors).addTo(ret);
-            }
-          } catch (NotFoundException e) {
-            LOGGER.error("Error indexing moved AIP {} from {} to {}", aip.getId(), oldParentId, newParentId, e);
-            ret.add(e);
-          }
-        }
+      if (previous != null) {
+        List<String> oldAncestors = previous.getAncestors() != null ? previous.getAncestors()
+          : Collections.emptyList();
+        previous.setAncestors(relocateAncestors(oldAncestors, movedAncestors));
+        moveSubtreeStatistics(previous, topAncestors, subtreeDelta);
       }
-    } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | IOException e) {
-      LOGGER.error("Error indexing moved AIP {} from {} to {}", aip.getId(), oldParentId, newParentId, e);
-      ret.add(e);
+      movedAncestors.put(aip.getId(), topAncestors);
+    }
+    updateSubtreeStatistics(subtreeDelta).addTo(ret);
+
+    List<String> aipIds = new ArrayList<>(movedAncestors.keySet());
+    Map<String, Object> topAncestorsFields = Collections.singletonMap(RodaConstants.AIP_ANCESTORS, topAncestors);
+    for (List<String> ids : Lists.partition(aipIds, AIP_IDS_BATCH_SIZE)) {
+      LOGGER.debug("Reindexing sublevels of {} moved aips", ids.size());
+      SolrUtils.updateAll(index, IndexedAIP.class, new Filter(new OneOfManyFilterParameter(RodaConstants.AIP_ANCESTORS,
+        ids)), Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_ANCESTORS),
+        aip -> movedAncestors.containsKey(aip.getId()) ? null
+          : Collections.singletonMap(RodaConstants.AIP_ANCESTORS,
+            relocateAncestors(aip.getAncestors(), movedAncestors)),
+        (ModelObserver) this).addTo(ret);
+
+      SolrUtils.updateAll(index, IndexedRepresentation.class,
+        new Filter(new OneOfManyFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, ids)), topAncestorsFields,
+        (ModelObserver) this).addTo(ret);
+      SolrUtils.updateAll(index, IndexedRepresentation.class,
+        new Filter(new OneOfManyFilterParameter(RodaConstants.REPRESENTATION_ANCESTORS, ids)),
+        Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.REPRESENTATION_AIP_ID,
+          RodaConstants.REPRESENTATION_ANCESTORS),
+        representation -> movedAncestors.containsKey(representation.getAipId()) ? null
+          : Collections.singletonMap(RodaConstants.REPRESENTATION_ANCESTORS,
+            relocateAncestors(representation.getAncestors(), movedAncestors)),
+        (ModelObserver) this).addTo(ret);
+
+      SolrUtils.updateAll(index, IndexedFile.class, new Filter(new OneOfManyFilterParameter(RodaConstants.FILE_AIP_ID,
+        ids)), topAncestorsFields, (ModelObserver) this).addTo(ret);
+      SolrUtils.updateAll(index, IndexedFile.class,
+        new Filter(new OneOfManyFilterParameter(RodaConstants.FILE_ANCESTORS, ids)),
+        Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.FILE_AIP_ID, RodaConstants.FILE_ANCESTORS),
+        file -> movedAncestors.containsKey(file.getAipId()) ? null
+          : Collections.singletonMap(RodaConstants.FILE_ANCESTORS,
+            relocateAncestors(file.getAncestors(), movedAncestors)),
+        (ModelObserver) this).addTo(ret);
     }
 
     return ret;
   }
 
-  private ReturnWithExceptions<Void, ModelObserver> updateRepresentationAndFileAncestors(AIP aip,
-    List<String> ancestors) {
-    ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
-
-    for (Representation representation : aip.getRepresentations()) {
-      SolrUtils.update(index, IndexedRepresentation.class, IdUtils.getRepresentationId(representation),
-        Collections.singletonMap(RodaConstants.REPRESENTATION_ANCESTORS, ancestors), (ModelObserver) this).addTo(ret);
-
-      if (ret.isEmpty()) {
-        try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(),
-          representation.getId(), true)) {
-          for (OptionalWithCause<File> oFile : allFiles) {
-            if (oFile.isPresent()) {
-              File file = oFile.get();
-              SolrUtils.update(index, IndexedFile.class, IdUtils.getFileId(file),
-                Collections.singletonMap(RodaConstants.FILE_ANCESTORS, ancestors), (ModelObserver) this).addTo(ret);
-            }
-          }
-        } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | IOException
-          | NotFoundException e) {
-          LOGGER.error("Error updating file ancestors", e);
-          ret.add(e);
+  /**
+   * Ancestors are sorted from the parent to the root, so the ones after the
+   * nearest moved AIP are replaced by the new ancestors of that AIP.
+   */
+  private static List<String> relocateAncestors(List<String> ancestors, Map<String, List<String>> movedAncestors) {
+    if (ancestors != null) {
+      for (int i = 0; i < ancestors.size(); i++) {
+        List<String> newAncestors = movedAncestors.get(ancestors.get(i));
+        if (newAncestors != null) {
+          List<String> relocated = new ArrayList<>(ancestors.subList(0, i + 1));
+          relocated.addAll(newAncestors);
+          return relocated;
         }
       }
     }
-
-    return ret;
+    return ancestors;
   }
 
   @Override
   public ReturnWithExceptions<Void, ModelObserver> aipDeleted(String aipId, boolean deleteIncidences) {
+    return aipDeleted(aipId, deleteIncidences, false);
+  }
+
+  /**
+   * @param reindexing
+   *          if the AIP is going to be indexed again, in which case its fulltext
+   *          is kept and the ancestors statistics are left to the re-creation.
+   */
+  private ReturnWithExceptions<Void, ModelObserver> aipDeleted(String aipId, boolean deleteIncidences,
+    boolean reindexing) {
     ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
+    IndexedAIP previous = reindexing ? null : retrieveIfIndexed(IndexedAIP.class, aipId);
 
     deleteDocumentFromIndex(IndexedAIP.class, aipId).addTo(ret);
     deleteDocumentsFromIndex(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, aipId).addTo(ret);
     deleteDocumentsFromIndex(IndexedFile.class, RodaConstants.FILE_AIP_ID, aipId).addTo(ret);
+    if (!reindexing) {
+      deleteDocumentsFromIndex(FileFulltext.class, RodaConstants.FILE_FULLTEXT_AIP_ID, aipId).addTo(ret);
+    }
+    if (previous != null) {
+      updateSubtreeStatistics(previous.getAncestors(), getStatistics(previous).negate(), -1).addTo(ret);
+    }
     deleteDocumentsFromIndex(IndexedPreservationEvent.class, RodaConstants.PRESERVATION_EVENT_AIP_ID, aipId).addTo(ret);
 
     if (deleteIncidences) {
@@ -509,6 +868,49 @@ public class IndexModelObserver implements ModelObserver {
     return ret;
   }
 
+  /**
+   * Removes the documents of several AIPs with a few queries per collection,
+   * instead of several queries for each AIP. The statistics of each AIP are
+   * removed from the subtree statistics of its ancestors that were not deleted
+   * too, with a single batch of updates.
+   */
+  @Override
+  public ReturnWithExceptions<Void, ModelObserver> aipsDeleted(List<String> aipIds, boolean deleteIncidences) {
+    ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
+    Set<String> deleted = new HashSet<>(aipIds);
+    SubtreeStatisticsDelta ancestorsDelta = new SubtreeStatisticsDelta();
+
+    for (List<String> ids : Lists.partition(aipIds, AIP_IDS_BATCH_SIZE)) {
+      try {
+        Filter filter = new Filter(new OneOfManyFilterParameter(RodaConstants.INDEX_UUID, ids));
+        for (IndexedAIP previous : SolrUtils
+          .find(index, IndexedAIP.class, filter, Sorter.NONE, new Sublist(0, ids.size()), Collections.emptyList())
+          .getResults()) {
+          List<String> ancestors = previous.getAncestors() != null ? new ArrayList<>(previous.getAncestors())
+            : new ArrayList<>();
+          ancestors.removeAll(deleted);
+          ancestorsDelta.add(ancestors, getStatistics(previous).negate(), -1);
+        }
+      } catch (GenericException | RequestNotValidException e) {
+        LOGGER.error("Error retrieving deleted AIPs statistics", e);
+        ret.add(e);
+      }
+
+      deleteDocumentsFromIndex(IndexedAIP.class, RodaConstants.INDEX_UUID, ids).addTo(ret);
+      deleteDocumentsFromIndex(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, ids).addTo(ret);
+      deleteDocumentsFromIndex(IndexedFile.class, RodaConstants.FILE_AIP_ID, ids).addTo(ret);
+      deleteDocumentsFromIndex(FileFulltext.class, RodaConstants.FILE_FULLTEXT_AIP_ID, ids).addTo(ret);
+      deleteDocumentsFromIndex(IndexedPreservationEvent.class, RodaConstants.PRESERVATION_EVENT_AIP_ID, ids)
+        .addTo(ret);
+      if (deleteIncidences) {
+        deleteDocumentsFromIndex(RiskIncidence.class, RodaConstants.RISK_INCIDENCE_AIP_ID, ids).addTo(ret);
+      }
+    }
+
+    updateSubtreeStatistics(ancestorsDelta).addTo(ret);
+    return ret;
+  }
+
   @Override
   public ReturnWithExceptions<Void, ModelObserver> descriptiveMetadataCreated(DescriptiveMetadata descriptiveMetadata) {
     ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
@@ -521,7 +923,8 @@ public class IndexModelObserver implements ModelObserver {
       } else {
         Representation representation = model.retrieveRepresentation(descriptiveMetadata.getAipId(),
           descriptiveMetadata.getRepresentationId());
-        indexRepresentation(aip, representation, ancestors).addTo(ret);
+        reindexRepresentation(aip, representation, ancestors,
+          getRepresentationStatistics(IdUtils.getRepresentationId(representation))).addTo(ret);
       }
     } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
       LOGGER.error("Failed to index AIP or representation when creating descriptive metadata", e);
@@ -543,7 +946,8 @@ public class IndexModelObserver implements ModelObserver {
       } else {
         Representation representation = model.retrieveRepresentation(descriptiveMetadata.getAipId(),
           descriptiveMetadata.getRepresentationId());
-        indexRepresentation(aip, representation, ancestors).addTo(ret);
+        reindexRepresentation(aip, representation, ancestors,
+          getRepresentationStatistics(IdUtils.getRepresentationId(representation))).addTo(ret);
       }
     } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
       LOGGER.error("Failed to index AIP or representation when updating descriptive metadata", e);
@@ -573,12 +977,18 @@ public class IndexModelObserver implements ModelObserver {
 
   @Override
   public ReturnWithExceptions<Void, ModelObserver> representationCreated(Representation representation) {
+    return representationCreated(representation,
+      getRepresentationStatistics(IdUtils.getRepresentationId(representation)));
+  }
+
+  private ReturnWithExceptions<Void, ModelObserver> representationCreated(Representation representation,
+    AIPStatistics previous) {
     ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
     try {
       AIP aip = model.retrieveAIP(representation.getAipId());
       List<String> ancestors = SolrUtils.getAncestors(aip.getParentId(), model);
 
-      indexRepresentation(aip, representation, ancestors).addTo(ret);
+      reindexRepresentation(aip, representation, ancestors, previous).addTo(ret);
       if (ret.isEmpty()) {
         indexPreservationsEvents(aip.getId(), representation.getId()).addTo(ret);
 
@@ -597,20 +1007,35 @@ public class IndexModelObserver implements ModelObserver {
 
   @Override
   public ReturnWithExceptions<Void, ModelObserver> representationUpdated(Representation representation) {
+    AIPStatistics previous = getRepresentationStatistics(IdUtils.getRepresentationId(representation));
     ReturnWithExceptions<Void, ModelObserver> ret = representationDeleted(representation.getAipId(),
-      representation.getId(), false);
-    representationCreated(representation).addTo(ret);
+      representation.getId(), false, true);
+    representationCreated(representation, previous).addTo(ret);
     return ret;
   }
 
   @Override
   public ReturnWithExceptions<Void, ModelObserver> representationDeleted(String aipId, String representationId,
     boolean deleteIncidences) {
+    return representationDeleted(aipId, representationId, deleteIncidences, false);
+  }
+
+  private ReturnWithExceptions<Void, ModelObserver> representationDeleted(String aipId, String representationId,
+    boolean deleteIncidences, boolean reindexing) {
     ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
 
     String representationUUID = IdUtils.getRepresentationId(aipId, representationId);
+    IndexedRepresentation previous = reindexing ? null
+      : retrieveIfIndexed(IndexedRepresentation.class, representationUUID);
     deleteDocumentFromIndex(IndexedRepresentation.class, representationUUID).addTo(ret);
     deleteDocumentsFromIndex(IndexedFile.class, RodaConstants.FILE_REPRESENTATION_UUID, representationUUID).addTo(ret);
+    if (!reindexing) {
+      deleteDocumentsFromIndex(FileFulltext.class, RodaConstants.FILE_FULLTEXT_REPRESENTATION_UUID, representationUUID)
+        .addTo(ret);
+    }
+    if (previous != null) {
+      updateAIPStatistics(aipId, previous.getAncestors(), getStatistics(previous).negate()).addTo(ret);
+    }
     deleteDocumentsFromIndex(IndexedPreservationEvent.class, RodaConstants.PRESERVATION_EVENT_REPRESENTATION_UUID,
       representationUUID).addTo(ret);
 
@@ -635,11 +1060,19 @@ public class IndexModelObserver implements ModelObserver {
 
   @Override
   public ReturnWithExceptions<Void, ModelObserver> fileCreated(File file) {
+    return fileCreated(file, getStatistics(retrieveIfIndexed(IndexedFile.class, IdUtils.getFileId(file))));
+  }
+
+  private ReturnWithExceptions<Void, ModelObserver> fileCreated(File file, AIPStatistics previous) {
     ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
     try {
       AIP aip = model.retrieveAIP(file.getAipId());
       List<String> ancestors = SolrUtils.getAncestors(aip.getParentId(), model);
-      indexFile(aip, file, ancestors, true).addTo(ret);
+      AIPStatistics statistics = indexFile(aip, file, ancestors, true).addTo(ret).getReturnedObject();
+      AIPStatistics delta = statistics.minus(previous);
+      updateRepresentationStatistics(IdUtils.getRepresentationId(file.getAipId(), file.getRepresentationId()), delta)
+        .addTo(ret);
+      updateAIPStatistics(aip.getId(), ancestors, delta).addTo(ret);
     } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
       LOGGER.error("Error indexing file: {}", file, e);
       ret.add(e);
@@ -650,19 +1083,34 @@ public class IndexModelObserver implements ModelObserver {
 
   @Override
   public ReturnWithExceptions<Void, ModelObserver> fileUpdated(File file) {
+    AIPStatistics previous = getStatistics(retrieveIfIndexed(IndexedFile.class, IdUtils.getFileId(file)));
     ReturnWithExceptions<Void, ModelObserver> ret = fileDeleted(file.getAipId(), file.getRepresentationId(),
-      file.getPath(), file.getId(), false);
-    fileCreated(file).addTo(ret);
+      file.getPath(), file.getId(), false, true);
+    fileCreated(file, previous).addTo(ret);
     return ret;
   }
 
   @Override
   public ReturnWithExceptions<Void, ModelObserver> fileDeleted(String aipId, String representationId,
     List<String> fileDirectoryPath, String fileId, boolean deleteIncidences) {
+    return fileDeleted(aipId, representationId, fileDirectoryPath, fileId, deleteIncidences, false);
+  }
+
+  private ReturnWithExceptions<Void, ModelObserver> fileDeleted(String aipId, String representationId,
+    List<String> fileDirectoryPath, String fileId, boolean deleteIncidences, boolean reindexing) {
     ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
 
     String uuid = IdUtils.getFileId(aipId, representationId, fileDirectoryPath, fileId);
+    IndexedFile previous = reindexing ? null : retrieveIfIndexed(IndexedFile.class, uuid);
     deleteDocumentFromIndex(IndexedFile.class, uuid).addTo(ret);
+    if (!reindexing) {
+      deleteDocumentsFromIndex(FileFulltext.class, RodaConstants.FILE_FULLTEXT_FILE_UUID, uuid).addTo(ret);
+    }
+    if (previous != null) {
+      AIPStatistics delta = getStatistics(previous).negate();
+      updateRepresentationStatistics(IdUtils.getRepresentationId(aipId, representationId), delta).addTo(ret);
+      updateAIPStatistics(aipId, previous.getAncestors(), delta).addTo(ret);
+    }
 
     if (deleteIncidences) {
       deleteDocumentsFromIndex(RiskIncidence.class, RodaConstants.RISK_INCIDENCE_FILE_ID, fileId).addTo(ret);
@@ -724,6 +1172,27 @@ public class IndexModelObserver implements ModelObserver {
     return ret;
   }
 
+  /**
+   * Indexes several events at once: the repository events are sent to the
+   * index together, the ones of an AIP still need the AIP they belong to.
+   */
+  @Override
+  public ReturnWithExceptions<Void, ModelObserver> preservationEventsCreated(List<PreservationMetadata> events) {
+    ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
+    List<PreservationMetadata> repositoryEvents = new ArrayList<>();
+    for (PreservationMetadata event : events) {
+      if (event.getAipId() == null) {
+        repositoryEvents.add(event);
+      } else {
+        indexPreservationEvent(event).addTo(ret);
+      }
+    }
+
+    SolrUtils.createAll(index, IndexedPreservationEvent.class, repositoryEvents,
+      new PreservationEventCollection.Info(null), (ModelObserver) this).addTo(ret);
+    return ret;
+  }
+
   @Override
   public ReturnWithExceptions<Void, ModelObserver> preservationMetadataUpdated(
     PreservationMetadata preservationMetadata) {
@@ -763,6 +1232,18 @@ public class IndexModelObserver implements ModelObserver {
       }
     }
 
+    if (RodaConstants.OTHER_METADATA_TYPE_APACHE_TIKA.equalsIgnoreCase(otherMetadataBinary.getType())
+      && RodaConstants.TIKA_FILE_SUFFIX_FULLTEXT.equalsIgnoreCase(otherMetadataBinary.getFileSuffix())) {
+      try {
+        File file = model.retrieveFile(otherMetadataBinary.getAipId(), otherMetadataBinary.getRepresentationId(),
+          otherMetadataBinary.getFileDirectoryPath(), otherMetadataBinary.getFileId());
+        indexFileFulltext(file, true).addTo(ret);
+      } catch (RequestNotValidException | GenericException | NotFoundException | AuthorizationDeniedException e) {
+        LOGGER.error("Error indexing file fulltext", e);
+        ret.add(e);
+      }
+    }
+
     return ret;
   }
 
@@ -814,12 +1295,12 @@ public class IndexModelObserver implements ModelObserver {
     return deleteDocumentFromIndex(Job.class, jobId);
   }
 
-  private <T extends IsIndexed, M extends IsModelObject> ReturnWithExceptions<Void, ModelObserver> addDocumentToIndex(
+  private <T extends IsIndexed, M extends IsRODAObject> ReturnWithExceptions<Void, ModelObserver> addDocumentToIndex(
     Class<T> classToAdd, M instance) {
     return addDocumentToIndex(classToAdd, instance, false);
   }
 
-  private <T extends IsIndexed, M extends IsModelObject> ReturnWithExceptions<Void, ModelObserver> addDocumentToIndex(
+  private <T extends IsIndexed, M extends IsRODAObject> ReturnWithExceptions<Void, ModelObserver> addDocumentToIndex(
     Class<T> classToAdd, M instance, boolean commit) {
     return SolrUtils.create(index, classToAdd, instance, this, commit);
   }
@@ -839,6 +1320,12 @@ public class IndexModelObserver implements ModelObserver {
     return SolrUtils.delete(index, classToDelete, new Filter(new SimpleFilterParameter(fieldName, fieldValue)), this);
   }
 
+  private <T extends IsIndexed> ReturnWithExceptions<Void, ModelObserver> deleteDocumentsFromIndex(
+    Class<T> classToDelete, String fieldName, List<String> fieldValues) {
+    return SolrUtils.delete(index, classToDelete, new Filter(new OneOfManyFilterParameter(fieldName, fieldValues)),
+      this);
+  }
+
   private <T extends IsIndexed> ReturnWithExceptions<Void, ModelObserver> deleteDocumentsFromIndex(
     Class<T> classToDelete, String fieldName, String fieldValue, boolean commit) {
     return SolrUtils.delete(index, classToDelete, new Filter(new SimpleFilterParameter(fieldName, fieldValue)), this,
@@ -872,6 +1359,34 @@ public class IndexModelObserver implements ModelObserver {
     return ret;
   }
 
+  /**
+   * Sets the same permissions on the documents of several AIPs, and on the
+   * documents of their representations, files and preservation events, with
+   * batched atomic updates instead of one update per document.
+   */
+  @Override
+  public ReturnWithExceptions<Void, ModelObserver> aipsPermissionsUpdated(List<String> aipIds,
+    Permissions permissions) {
+    ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
+    Map<String, Object> fields = SolrUtils.getPermissionsAsPreCalculatedFields(permissions);
+
+    for (List<String> ids : Lists.partition(aipIds, AIP_IDS_BATCH_SIZE)) {
+      SolrUtils.updateAll(index, IndexedAIP.class, new Filter(new OneOfManyFilterParameter(RodaConstants.INDEX_UUID,
+        ids)), fields, (ModelObserver) this).addTo(ret);
+      SolrUtils.updateAll(index, IndexedRepresentation.class,
+        new Filter(new OneOfManyFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, ids)), fields,
+        (ModelObserver) this).addTo(ret);
+      SolrUtils.updateAll(index, IndexedFile.class,
+        new Filter(new OneOfManyFilterParameter(RodaConstants.FILE_AIP_ID, ids)), fields, (ModelObserver) this)
+        .addTo(ret);
+      SolrUtils.updateAll(index, IndexedPreservationEvent.class,
+        new Filter(new OneOfManyFilterParameter(RodaConstants.PRESERVATION_EVENT_AIP_ID, ids)), fields,
+        (ModelObserver) this).addTo(ret);
+    }
+
+    return ret;
+  }
+
   @Override
   public ReturnWithExceptions<Void, ModelObserver> dipPermissionsUpdated(DIP dip) {
     ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
@@ -992,6 +1507,27 @@ public class IndexModelObserver implements ModelObserver {
     return SolrUtils.create(index, RiskIncidence.class, riskIncidence, this, commit);
   }
 
+  /**
+   * Indexes several incidences at once. The incidence counters of their risks
+   * are not changed here, as on every other incidence change, they are counted
+   * again on demand.
+   */
+  @Override
+  public ReturnWithExceptions<Void, ModelObserver> riskIncidencesCreatedOrUpdated(List<RiskIncidence> riskIncidences,
+    boolean commit) {
+    ReturnWithExceptions<Void, ModelObserver> ret = SolrUtils.createAll(index, RiskIncidence.class, riskIncidences,
+      (ModelObserver) this);
+    if (commit && ret.isEmpty()) {
+      try {
+        SolrUtils.commit(index, RiskIncidence.class);
+      } catch (GenericException e) {
+        LOGGER.error("Error commiting risk incidences", e);
+        ret.add(e);
+      }
+    }
+    return ret;
+  }
+
   @Override
   public ReturnWithExceptions<Void, ModelObserver> riskIncidenceDeleted(String riskIncidenceId, boolean commit) {
     return SolrUtils.delete(index, RiskIncidence.class, Arrays.asList(riskIncidenceId), this, commit);
@@ -1129,4 +1665,30 @@ public class IndexModelObserver implements ModelObserver {
     return deleteDocumentFromIndex(DIPFile.class, IdUtils.getDIPFileId(dipId, path, fileId));
   }
 
+  /**
+   * Differences to add to the subtree statistics of several AIPs, gathered
+   * during an operation so that each AIP gets a single atomic update.
+   */
+  private static class SubtreeStatisticsDelta {
+    private final Map<String, AIPStatistics> statistics = new HashMap<>();
+    private final Map<String, Long> numberOfAIPs = new HashMap<>();
+
+    public SubtreeStatisticsDelta add(List<String> aipIds, AIPStatistics delta, long numberOfAIPsDelta) {
+      if (aipIds != null) {
+        for (String aipId : aipIds) {
+          statistics.computeIfAbsent(aipId, k -> new AIPStatistics()).add(delta);
+          numberOfAIPs.merge(aipId, numberOfAIPsDelta, Long::sum);
+        }
+      }
+      return this;
+    }
+
+    public Map<String, Map<String, Map<String, Object>>> toIncrementModifiers() {
+      Map<String, Map<String, Map<String, Object>>> modifiers = new HashMap<>();
+      statistics.forEach(
+        (aipId, delta) -> modifiers.put(aipId, getSubtreeIncrementModifiers(delta, numberOfAIPs.get(aipId))));
+      return modifiers;
+    }
+  }
+
 }
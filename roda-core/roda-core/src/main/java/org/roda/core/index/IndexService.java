@@ -14,11 +14,19 @@ import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.io.IOUtils;
@@ -44,14 +52,19 @@ import org.roda.core.data.v2.common.OptionalWithCause;
 import org.roda.core.data.v2.index.IndexResult;
 import org.roda.core.data.v2.index.IndexRunnable;
 import org.roda.core.data.v2.index.IsIndexed;
+import org.roda.core.data.v2.index.facet.FacetFieldResult;
+import org.roda.core.data.v2.index.facet.FacetParameter.SORT;
 import org.roda.core.data.v2.index.facet.Facets;
+import org.roda.core.data.v2.index.facet.SimpleFacetParameter;
 import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.index.sort.Sorter;
 import org.roda.core.data.v2.index.sublist.Sublist;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.DIP;
 import org.roda.core.data.v2.ip.DIPFile;
 import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.FileFulltext;
 import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.ip.IndexedDIP;
 import org.roda.core.data.v2.ip.IndexedFile;
@@ -72,6 +85,8 @@ import org.roda.core.data.v2.risks.IndexedRisk;
 import org.roda.core.data.v2.risks.Risk;
 import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.data.v2.user.User;
+import org.roda.core.index.utils.AIPDigest;
+import org.roda.core.index.utils.AIPStatistics;
 import org.roda.core.index.utils.IndexResultIterator;
 import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.core.index.utils.SolrUtils;
@@ -82,6 +97,7 @@ import org.roda.core.storage.Binary;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.Resource;
 import org.roda.core.storage.StorageService;
+import org.roda.core.util.IdUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -176,6 +192,48 @@ public class IndexService {
       fieldsToReturn);
   }
 
+  /**
+   * Finds the fixity digests shared by more than one file with a single facet
+   * query, instead of reading the PREMIS of every file. The digests shared by
+   * more files come first.
+   * 
+   * @param offset
+   *          the number of digests to skip, to page through them.
+   * @param limit
+   *          the maximum number of digests, or -1 for all of them.
+   * @param user
+   *          the user whose permissions restrict the files considered, or
+   *          <code>null</code> to consider all files.
+   */
+  public FacetFieldResult findDuplicateFileDigests(Filter filter, int offset, int limit, User user,
+    boolean justActive) throws GenericException, RequestNotValidException {
+    SimpleFacetParameter digestFacet = new SimpleFacetParameter(RodaConstants.FILE_DIGEST, limit, SORT.COUNT);
+    digestFacet.setMinCount(2);
+    digestFacet.setOffset(offset);
+
+    IndexResult<IndexedFile> result = find(IndexedFile.class, filter, Sorter.NONE, new Sublist(0, 0),
+      new Facets(digestFacet), user, justActive, Arrays.asList(RodaConstants.INDEX_UUID));
+    return result.getFacetResults().stream().filter(facet -> RodaConstants.FILE_DIGEST.equals(facet.getField()))
+      .findFirst().orElse(new FacetFieldResult(RodaConstants.FILE_DIGEST, 0));
+  }
+
+  public FacetFieldResult findDuplicateFileDigests(Filter filter, int limit, User user, boolean justActive)
+    throws GenericException, RequestNotValidException {
+    return findDuplicateFileDigests(filter, 0, limit, user, justActive);
+  }
+
+  /**
+   * Finds a page of results using a continuation cursor instead of an offset,
+   * so deep pages have the same cost as the first one. Use
+   * {@link IndexResult#getNextCursor()} to request the next page.
+   */
+  public <T extends IsIndexed> IndexResult<T> findWithCursor(Class<T> returnClass, Filter filter, Sorter sorter,
+    int pageSize, String cursor, Facets facets, User user, boolean justActive, final List<String> fieldsToReturn)
+    throws GenericException, RequestNotValidException {
+    return SolrUtils.findWithCursor(getSolrClient(), returnClass, filter, sorter, pageSize, cursor, facets, user,
+      justActive, fieldsToReturn);
+  }
+
   public <T extends IsIndexed> IterableIndexResult<T> findAll(final Class<T> returnClass, final Filter filter,
     final List<String> fieldsToReturn) throws GenericException, RequestNotValidException {
     return findAll(returnClass, filter, null, true, fieldsToReturn);
@@ -236,8 +294,8 @@ public class IndexService {
   public void commitAIPs() throws GenericException, AuthorizationDeniedException {
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
 
-    commit(IndexedAIP.class, IndexedRepresentation.class, IndexedFile.class, IndexedPreservationEvent.class,
-      IndexedPreservationAgent.class);
+    commit(IndexedAIP.class, IndexedRepresentation.class, IndexedFile.class, FileFulltext.class,
+      IndexedPreservationEvent.class, IndexedPreservationAgent.class);
   }
 
   public void clearAIPs() throws GenericException, AuthorizationDeniedException {
@@ -245,6 +303,7 @@ public class IndexService {
 
     clearIndex(RodaConstants.INDEX_AIP);
     clearIndex(RodaConstants.INDEX_FILE);
+    clearIndex(RodaConstants.INDEX_FILE_FULLTEXT);
     clearIndex(RodaConstants.INDEX_REPRESENTATION);
     clearIndex(RodaConstants.INDEX_PRESERVATION_EVENTS);
     clearIndex(RodaConstants.INDEX_PRESERVATION_AGENTS);
@@ -256,6 +315,7 @@ public class IndexService {
     try {
       getSolrClient().optimize(RodaConstants.INDEX_AIP);
       getSolrClient().optimize(RodaConstants.INDEX_FILE);
+      getSolrClient().optimize(RodaConstants.INDEX_FILE_FULLTEXT);
       getSolrClient().optimize(RodaConstants.INDEX_REPRESENTATION);
       getSolrClient().optimize(RodaConstants.INDEX_PRESERVATION_EVENTS);
       getSolrClient().optimize(RodaConstants.INDEX_PRESERVATION_AGENTS);
@@ -264,6 +324,243 @@ public class IndexService {
     }
   }
 
+  /**
+   * Recalculates the subtree statistics (number of descendants, data files, size
+   * and formats) of all AIPs from their own statistics. These are maintained
+   * incrementally by the index observer, but must be rebuilt after a full
+   * reindex, as AIPs can then be indexed before their ancestors.
+   */
+  public void refreshAIPSubtreeStatistics()
+    throws GenericException, AuthorizationDeniedException, RequestNotValidException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+    commit(IndexedAIP.class);
+
+    Map<String, AIPStatistics> subtreeStatistics = new HashMap<>();
+    Map<String, Long> numberOfDescendants = new HashMap<>();
+    Map<String, List<String>> previousSubtreeFormats = new HashMap<>();
+
+    List<String> fieldsToReturn = Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_ANCESTORS,
+      RodaConstants.AIP_NUMBER_OF_DATA_FILES, RodaConstants.AIP_SIZE_IN_BYTES, RodaConstants.AIP_FORMATS,
+      RodaConstants.AIP_FORMAT_COUNT_PREFIX + "*", RodaConstants.AIP_SUBTREE_FORMATS,
+      RodaConstants.AIP_SUBTREE_FORMAT_COUNT_PREFIX + "*");
+    try (IterableIndexResult<IndexedAIP> aips = findAll(IndexedAIP.class, Filter.ALL, false, fieldsToReturn)) {
+      for (IndexedAIP aip : aips) {
+        AIPStatistics statistics = new AIPStatistics(aip.getNumberOfDataFiles(), aip.getSizeInBytes(),
+          aip.getFormatCounts());
+        subtreeStatistics.computeIfAbsent(aip.getId(), id -> new AIPStatistics()).add(statistics);
+        previousSubtreeFormats.put(aip.getId(), new ArrayList<>(aip.getSubtreeFormatCounts().keySet()));
+        for (String ancestor : aip.getAncestors()) {
+          subtreeStatistics.computeIfAbsent(ancestor, id -> new AIPStatistics()).add(statistics);
+          numberOfDescendants.merge(ancestor, 1L, Long::sum);
+        }
+      }
+    } catch (IOException e) {
+      throw new GenericException("Error while calculating AIP subtree statistics", e);
+    }
+
+    // only AIPs that are indexed are updated, not to create partial documents
+    for (Entry<String, List<String>> entry : previousSubtreeFormats.entrySet()) {
+      String aipId = entry.getKey();
+      Map<String, Object> fields = subtreeStatistics.get(aipId).toFields(
+        RodaConstants.AIP_SUBTREE_NUMBER_OF_DATA_FILES, RodaConstants.AIP_SUBTREE_SIZE_IN_BYTES,
+        RodaConstants.AIP_SUBTREE_FORMATS, RodaConstants.AIP_SUBTREE_FORMAT_COUNT_PREFIX, entry.getValue());
+      fields.put(RodaConstants.AIP_SUBTREE_NUMBER_OF_AIPS, numberOfDescendants.getOrDefault(aipId, 0L));
+
+      ReturnWithExceptions<Void, IndexService> ret = SolrUtils.update(getSolrClient(), IndexedAIP.class, aipId, fields,
+        this);
+      if (!ret.isEmpty()) {
+        LOGGER.error("Error updating subtree statistics of AIP {}", aipId, ret.getExceptions().get(0));
+      }
+    }
+
+    commit(IndexedAIP.class);
+  }
+
+  /**
+   * Reindexes only the AIPs whose index documents differ from storage (see
+   * {@link #isAIPIndexConsistent(AIP, boolean)}) and removes from the index the
+   * AIPs that no longer exist on storage.
+   *
+   * @param deep
+   *          if the data files listing of each representation must also be
+   *          compared.
+   * @return the identifiers of the AIPs that were reindexed or removed.
+   */
+  public List<String> repairAIPIndexDrift(boolean deep)
+    throws GenericException, RequestNotValidException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+    commit(IndexedAIP.class, IndexedRepresentation.class, IndexedFile.class);
+
+    List<String> repaired = new ArrayList<>();
+    Set<String> storageAIPIds = new HashSet<>();
+    try (CloseableIterable<OptionalWithCause<AIP>> aips = model.listAIPs()) {
+      for (OptionalWithCause<AIP> optionalAIP : aips) {
+        if (!optionalAIP.isPresent()) {
+          LOGGER.error("Could not check AIP index consistency", optionalAIP.getCause());
+          continue;
+        }
+
+        AIP aip = optionalAIP.get();
+        storageAIPIds.add(aip.getId());
+        if (!isAIPIndexConsistent(aip, deep)) {
+          LOGGER.info("Reindexing AIP {} as its index differs from storage", aip.getId());
+          // reindexing does not remove documents of representations or files
+          // that no longer exist
+          delete(IndexedRepresentation.class,
+            new Filter(new SimpleFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, aip.getId())));
+          delete(IndexedFile.class, new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, aip.getId())));
+          addRepairedAIP(aip.getId(), reindexAIP(aip), repaired);
+        }
+      }
+    } catch (NotFoundException | IOException e) {
+      throw new GenericException("Error while checking AIP index consistency", e);
+    }
+
+    List<String> removedAIPIds = new ArrayList<>();
+    try (IterableIndexResult<IndexedAIP> indexedAIPs = findAll(IndexedAIP.class, Filter.ALL, false,
+      Arrays.asList(RodaConstants.INDEX_UUID))) {
+      for (IndexedAIP indexedAIP : indexedAIPs) {
+        if (!storageAIPIds.contains(indexedAIP.getId())) {
+          removedAIPIds.add(indexedAIP.getId());
+        }
+      }
+    } catch (IOException e) {
+      throw new GenericException("Error while checking AIP index consistency", e);
+    }
+
+    for (String aipId : removedAIPIds) {
+      LOGGER.info("Removing AIP {} from index as it no longer exists on storage", aipId);
+      addRepairedAIP(aipId, observer.aipDeleted(aipId, false), repaired);
+    }
+
+    commitAIPs();
+    return repaired;
+  }
+
+  private static void addRepairedAIP(String aipId, ReturnWithExceptions<Void, ModelObserver> ret,
+    List<String> repaired) {
+    if (ret.isEmpty()) {
+      repaired.add(aipId);
+    } else {
+      LOGGER.error("Error repairing index of AIP {}", aipId, ret.getExceptions().get(0));
+    }
+  }
+
+  /**
+   * Compares an AIP on storage with its documents on the index, top-down. The
+   * shallow comparison only uses what <code>aip.json</code> holds: its values
+   * (parent, state, type and update date) and the identifiers of its
+   * representations, so no data file is listed. A deep comparison also lists
+   * the data files of each representation on storage and compares their count
+   * and size and then their listing (path and size) with the index.
+   *
+   * @return <code>true</code> if the index is consistent with storage.
+   */
+  public boolean isAIPIndexConsistent(AIP aip, boolean deep)
+    throws GenericException, RequestNotValidException, AuthorizationDeniedException, NotFoundException {
+    IndexedAIP indexedAIP;
+    try {
+      indexedAIP = retrieve(IndexedAIP.class, aip.getId(),
+        Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_PARENT_ID, RodaConstants.AIP_STATE,
+          RodaConstants.AIP_TYPE, RodaConstants.AIP_UPDATED_ON, RodaConstants.AIP_NUMBER_OF_DATA_FILES,
+          RodaConstants.AIP_SIZE_IN_BYTES));
+    } catch (NotFoundException e) {
+      return false;
+    }
+
+    String storageAIPDigest = AIPDigest.getAIPDigest(aip.getParentId(), aip.getState(), aip.getType(),
+      aip.getUpdatedOn());
+    String indexAIPDigest = AIPDigest.getAIPDigest(indexedAIP.getParentID(), indexedAIP.getState(),
+      indexedAIP.getType(), indexedAIP.getUpdatedOn());
+    if (!storageAIPDigest.equals(indexAIPDigest)) {
+      return false;
+    }
+
+    Set<String> storageRepresentationIds = aip.getRepresentations().stream().map(Representation::getId)
+      .collect(Collectors.toSet());
+    Set<String> indexedRepresentationIds = new HashSet<>();
+    try (IterableIndexResult<IndexedRepresentation> representations = findAll(IndexedRepresentation.class,
+      new Filter(new SimpleFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, aip.getId())), false,
+      Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.REPRESENTATION_ID))) {
+      representations.forEach(representation -> indexedRepresentationIds.add(representation.getId()));
+    } catch (IOException e) {
+      throw new GenericException("Error while listing indexed representations", e);
+    }
+    if (!indexedRepresentationIds.equals(storageRepresentationIds)) {
+      return false;
+    } else if (!deep) {
+      return true;
+    }
+
+    Map<String, String> storageRepresentationDigests = new HashMap<>();
+    long numberOfDataFiles = 0;
+    long sizeInBytes = 0;
+    for (String representationId : storageRepresentationIds) {
+      Map<String, Long> listing = listRepresentationDataFiles(aip.getId(), representationId);
+      storageRepresentationDigests.put(representationId, AIPDigest.digest(listing.entrySet().stream()
+        .map(file -> AIPDigest.getFileEntry(file.getKey(), file.getValue())).collect(Collectors.toList())));
+      numberOfDataFiles += listing.size();
+      sizeInBytes += listing.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    if (indexedAIP.getNumberOfDataFiles() == null || numberOfDataFiles != indexedAIP.getNumberOfDataFiles()
+      || indexedAIP.getSizeInBytes() == null || sizeInBytes != indexedAIP.getSizeInBytes()) {
+      return false;
+    }
+
+    for (Entry<String, String> entry : storageRepresentationDigests.entrySet()) {
+      List<String> indexEntries = listIndexedRepresentationDataFiles(aip.getId(), entry.getKey());
+      if (!entry.getValue().equals(AIPDigest.digest(indexEntries))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @return the size of each data file of a representation on storage, by path.
+   */
+  private Map<String, Long> listRepresentationDataFiles(String aipId, String representationId)
+    throws GenericException, RequestNotValidException, AuthorizationDeniedException {
+    Map<String, Long> listing = new HashMap<>();
+    StoragePath dataPath = ModelUtils.getRepresentationDataStoragePath(aipId, representationId);
+    try (CloseableIterable<Resource> resources = model.getStorage().listResourcesUnderDirectory(dataPath, true)) {
+      for (Resource resource : resources) {
+        if (!resource.isDirectory() && resource instanceof Binary) {
+          StoragePath storagePath = resource.getStoragePath();
+          Long size = ((Binary) resource).getSizeInBytes();
+          listing.put(AIPDigest.getFilePath(ModelUtils.extractFilePathFromRepresentationData(storagePath),
+            storagePath.getName()), size == null ? 0L : size);
+        }
+      }
+    } catch (NotFoundException e) {
+      // representation without data
+    } catch (IOException e) {
+      throw new GenericException("Error while listing representation data files", e);
+    }
+    return listing;
+  }
+
+  private List<String> listIndexedRepresentationDataFiles(String aipId, String representationId)
+    throws GenericException, RequestNotValidException {
+    List<String> entries = new ArrayList<>();
+    Filter filter = new Filter(
+      new SimpleFilterParameter(RodaConstants.FILE_REPRESENTATION_UUID,
+        IdUtils.getRepresentationId(aipId, representationId)),
+      new SimpleFilterParameter(RodaConstants.FILE_ISDIRECTORY, Boolean.FALSE.toString()));
+    try (IterableIndexResult<IndexedFile> files = findAll(IndexedFile.class, filter, false,
+      Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.INDEX_ID, RodaConstants.FILE_PATH,
+        RodaConstants.FILE_SIZE, RodaConstants.FILE_ISDIRECTORY))) {
+      for (IndexedFile file : files) {
+        entries.add(AIPDigest.getFileEntry(AIPDigest.getFilePath(file.getPath(), file.getId()), file.getSize()));
+      }
+    } catch (IOException e) {
+      throw new GenericException("Error while listing indexed representation files", e);
+    }
+    return entries;
+  }
+
   public ReturnWithExceptions<Void, ModelObserver> reindexAIP(AIP aip) {
     ReturnWithExceptions<Void, ModelObserver> ret = RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseReturn(nodeType);
     if (ret.isEmpty()) {
@@ -683,6 +980,13 @@ public class IndexService {
     SolrUtils.create(getSolrClient(), classToCreate, instance, this);
   }
 
+  public <T extends IsIndexed, M extends IsModelObject> void createAll(Class<T> classToCreate, List<M> instances)
+    throws AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+
+    SolrUtils.createAll(getSolrClient(), classToCreate, instances, this);
+  }
+
   public SolrClient getSolrClient() {
     return solrClient;
   }
@@ -19,7 +19,7 @@ import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RequestNotValidException;
-import org.roda.core.data.v2.IsModelObject;
+import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.data.v2.ip.AIPState;
 import org.roda.core.data.v2.ip.HasId;
@@ -30,7 +30,7 @@ import org.roda.core.data.v2.ip.SetsUUID;
 import org.roda.core.index.IndexingAdditionalInfo;
 import org.roda.core.index.utils.SolrUtils;
 
-public abstract class AbstractSolrCollection<I extends IsIndexed, M extends IsModelObject>
+public abstract class AbstractSolrCollection<I extends IsIndexed, M extends IsRODAObject>
   implements SolrCollection<I, M> {
 
   @Override
@@ -20,7 +20,7 @@ import org.apache.solr.client.solrj.response.schema.SchemaResponse.CopyFieldsRes
 import org.apache.solr.client.solrj.response.schema.SchemaResponse.DynamicFieldsResponse;
 import org.apache.solr.client.solrj.response.schema.SchemaResponse.FieldsResponse;
 import org.roda.core.data.exceptions.GenericException;
-import org.roda.core.data.v2.IsModelObject;
+import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,7 +68,7 @@ public class SolrBootstrapUtils {
     }
   }
 
-  private static <T extends IsIndexed, M extends IsModelObject> void bootstrapCollection(SolrClient client,
+  private static <T extends IsIndexed, M extends IsRODAObject> void bootstrapCollection(SolrClient client,
     SolrCollection<T, M> collection) throws GenericException {
 
     // check if fields already exist, only create if they do not
@@ -116,7 +116,7 @@ public class SolrBootstrapUtils {
   public static void bootstrapSchemas(SolrClient client) throws GenericException {
     LOGGER.info("Bootstrapping schemas");
 
-    for (SolrCollection<? extends IsIndexed, ? extends IsModelObject> collection : SolrCollectionRegistry.registry()) {
+    for (SolrCollection<? extends IsIndexed, ? extends IsRODAObject> collection : SolrCollectionRegistry.registry()) {
       bootstrapCollection(client, collection);
     }
   }
@@ -18,7 +18,7 @@ import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RequestNotValidException;
-import org.roda.core.data.v2.IsModelObject;
+import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.data.v2.ip.HasId;
 import org.roda.core.data.v2.ip.HasPermissionFilters;
@@ -28,7 +28,7 @@ import org.roda.core.data.v2.ip.HasStateFilter;
 import org.roda.core.data.v2.ip.SetsUUID;
 import org.roda.core.index.IndexingAdditionalInfo;
 
-public interface SolrCollection<I extends IsIndexed, M extends IsModelObject> {
+public interface SolrCollection<I extends IsIndexed, M extends IsRODAObject> {
 
   static Field getSearchField() {
     return new Field(Field.FIELD_SEARCH, Field.TYPE_SEARCH).setStored(false).setMultiValued(true);
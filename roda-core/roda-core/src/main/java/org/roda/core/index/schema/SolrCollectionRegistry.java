@@ -21,7 +21,6 @@ import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.NotSupportedException;
 import org.roda.core.data.exceptions.RequestNotValidException;
-import org.roda.core.data.v2.IsModelObject;
 import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.index.IndexingAdditionalInfo;
@@ -29,6 +28,7 @@ import org.roda.core.index.schema.collections.AIPCollection;
 import org.roda.core.index.schema.collections.DIPCollection;
 import org.roda.core.index.schema.collections.DIPFileCollection;
 import org.roda.core.index.schema.collections.FileCollection;
+import org.roda.core.index.schema.collections.FileFulltextCollection;
 import org.roda.core.index.schema.collections.JobCollection;
 import org.roda.core.index.schema.collections.JobReportCollection;
 import org.roda.core.index.schema.collections.LogEntryCollection;
@@ -48,8 +48,8 @@ public final class SolrCollectionRegistry {
 
   }
 
-  private static final Map<Class<? extends IsIndexed>, SolrCollection<? extends IsIndexed, ? extends IsModelObject>> REGISTRY = new HashMap<>();
-  private static final Map<Class<? extends IsModelObject>, Class<? extends IsIndexed>> MODEL_TO_INDEX = new HashMap<>();
+  private static final Map<Class<? extends IsIndexed>, SolrCollection<? extends IsIndexed, ? extends IsRODAObject>> REGISTRY = new HashMap<>();
+  private static final Map<Class<? extends IsRODAObject>, Class<? extends IsIndexed>> MODEL_TO_INDEX = new HashMap<>();
 
   static {
     register(new LogEntryCollection());
@@ -57,6 +57,7 @@ public final class SolrCollectionRegistry {
     register(new AIPCollection());
     register(new RepresentationCollection());
     register(new FileCollection());
+    register(new FileFulltextCollection());
 
     register(new DIPCollection());
     register(new DIPFileCollection());
@@ -78,7 +79,7 @@ public final class SolrCollectionRegistry {
     register(new RepresentationInformationCollection());
   }
 
-  public static <T extends IsIndexed, M extends IsModelObject> void register(SolrCollection<T, M> collection) {
+  public static <T extends IsIndexed, M extends IsRODAObject> void register(SolrCollection<T, M> collection) {
     REGISTRY.put(collection.getIndexClass(), collection);
     MODEL_TO_INDEX.put(collection.getModelClass(), collection.getIndexClass());
   }
@@ -92,7 +93,7 @@ public final class SolrCollectionRegistry {
     }
   }
 
-  public static Collection<SolrCollection<? extends IsIndexed, ? extends IsModelObject>> registry() {
+  public static Collection<SolrCollection<? extends IsIndexed, ? extends IsRODAObject>> registry() {
     return Collections.unmodifiableCollection(REGISTRY.values());
   }
 
@@ -101,13 +102,13 @@ public final class SolrCollectionRegistry {
   }
 
   @SuppressWarnings("unchecked")
-  public static <I extends IsIndexed, M extends IsModelObject> SolrCollection<I, M> get(Class<I> indexClass) {
+  public static <I extends IsIndexed, M extends IsRODAObject> SolrCollection<I, M> get(Class<I> indexClass) {
     SolrCollection<I, M> ret = (SolrCollection<I, M>) REGISTRY.get(indexClass);
 
     // if a model class is injected it will still try to find the collection
     // so legacy behavior is maintained
     if (ret == null) {
-      for (SolrCollection<? extends IsIndexed, ? extends IsModelObject> col : REGISTRY.values()) {
+      for (SolrCollection<? extends IsIndexed, ? extends IsRODAObject> col : REGISTRY.values()) {
         if (col.getModelClass().equals(indexClass)) {
           ret = (SolrCollection<I, M>) col;
           break;
@@ -120,7 +121,7 @@ public final class SolrCollectionRegistry {
 
   public static <I extends IsIndexed> I fromSolrDocument(Class<I> indexClass, SolrDocument doc,
     List<String> fieldsToReturn) throws GenericException, NotSupportedException {
-    SolrCollection<I, IsModelObject> solrCollection = get(indexClass);
+    SolrCollection<I, IsRODAObject> solrCollection = get(indexClass);
     if (solrCollection != null) {
       return solrCollection.fromSolrDocument(doc, fieldsToReturn);
     } else {
@@ -134,7 +135,7 @@ public final class SolrCollectionRegistry {
     return fromSolrDocument(indexClass, doc, Collections.emptyList());
   }
 
-  public static <I extends IsIndexed, M extends IsModelObject> SolrInputDocument toSolrDocument(Class<I> indexClass,
+  public static <I extends IsIndexed, M extends IsRODAObject> SolrInputDocument toSolrDocument(Class<I> indexClass,
     M object, IndexingAdditionalInfo utils) throws GenericException, NotSupportedException, RequestNotValidException,
     NotFoundException, AuthorizationDeniedException {
     SolrCollection<I, M> solrCollection = get(indexClass);
@@ -146,14 +147,14 @@ public final class SolrCollectionRegistry {
     }
   }
 
-  public static <I extends IsIndexed, M extends IsModelObject> SolrInputDocument toSolrDocument(Class<I> indexClass,
+  public static <I extends IsIndexed, M extends IsRODAObject> SolrInputDocument toSolrDocument(Class<I> indexClass,
     M object) throws GenericException, NotSupportedException, RequestNotValidException, NotFoundException,
     AuthorizationDeniedException {
     return toSolrDocument(indexClass, object, IndexingAdditionalInfo.empty());
   }
 
   public static <I extends IsIndexed> String getIndexName(Class<I> indexClass) throws NotSupportedException {
-    SolrCollection<I, IsModelObject> solrCollection = get(indexClass);
+    SolrCollection<I, IsRODAObject> solrCollection = get(indexClass);
     if (solrCollection != null) {
       return solrCollection.getIndexName();
     } else {
@@ -164,7 +165,7 @@ public final class SolrCollectionRegistry {
 
   public static <I extends IsIndexed> List<String> getCommitIndexNames(Class<I> indexClass)
     throws NotSupportedException {
-    SolrCollection<I, IsModelObject> solrCollection = get(indexClass);
+    SolrCollection<I, IsRODAObject> solrCollection = get(indexClass);
     if (solrCollection != null) {
       return solrCollection.getCommitIndexNames();
     } else {
@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -31,6 +32,7 @@ import org.roda.core.index.schema.AbstractSolrCollection;
 import org.roda.core.index.schema.CopyField;
 import org.roda.core.index.schema.Field;
 import org.roda.core.index.schema.SolrCollection;
+import org.roda.core.index.utils.AIPStatistics;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.model.ModelService;
 import org.roda.core.storage.Directory;
@@ -82,6 +84,14 @@ public class AIPCollection extends AbstractSolrCollection<IndexedAIP, AIP> {
     fields.add(new Field(RodaConstants.AIP_NUMBER_OF_DOCUMENTATION_FILES, Field.TYPE_LONG));
     fields.add(new Field(RodaConstants.AIP_NUMBER_OF_SCHEMA_FILES, Field.TYPE_LONG));
 
+    fields.add(new Field(RodaConstants.AIP_NUMBER_OF_DATA_FILES, Field.TYPE_LONG).setDefaultValue("0"));
+    fields.add(new Field(RodaConstants.AIP_SIZE_IN_BYTES, Field.TYPE_LONG).setDefaultValue("0"));
+    fields.add(new Field(RodaConstants.AIP_FORMATS, Field.TYPE_STRING).setMultiValued(true));
+    fields.add(new Field(RodaConstants.AIP_SUBTREE_NUMBER_OF_AIPS, Field.TYPE_LONG).setDefaultValue("0"));
+    fields.add(new Field(RodaConstants.AIP_SUBTREE_NUMBER_OF_DATA_FILES, Field.TYPE_LONG).setDefaultValue("0"));
+    fields.add(new Field(RodaConstants.AIP_SUBTREE_SIZE_IN_BYTES, Field.TYPE_LONG).setDefaultValue("0"));
+    fields.add(new Field(RodaConstants.AIP_SUBTREE_FORMATS, Field.TYPE_STRING).setMultiValued(true));
+
     fields.add(new Field(RodaConstants.INGEST_SIP_IDS, Field.TYPE_STRING).setMultiValued(true));
     fields.add(new Field(RodaConstants.INGEST_JOB_ID, Field.TYPE_STRING));
     fields.add(new Field(RodaConstants.INGEST_UPDATE_JOB_IDS, Field.TYPE_STRING).setMultiValued(true));
@@ -179,17 +189,30 @@ public class AIPCollection extends AbstractSolrCollection<IndexedAIP, AIP> {
 
   public static class Info extends IndexingAdditionalInfo {
     private final List<String> ancestors;
+    private final Map<String, Object> statisticsFields;
     private final boolean safemode;
 
     public Info(List<String> ancestors, boolean safemode) {
+      this(ancestors, Collections.emptyMap(), safemode);
+    }
+
+    /**
+     * @param statisticsFields
+     *          the file and subtree statistics fields, which are maintained
+     *          incrementally and so must be kept when re-creating the document.
+     */
+    public Info(List<String> ancestors, Map<String, Object> statisticsFields, boolean safemode) {
       super();
       this.ancestors = ancestors;
+      this.statisticsFields = statisticsFields;
       this.safemode = safemode;
     }
 
     @Override
     public Map<String, Object> getPreCalculatedFields() {
-      return Collections.singletonMap(RodaConstants.AIP_ANCESTORS, ancestors);
+      Map<String, Object> preCalculatedFields = new HashMap<>(statisticsFields);
+      preCalculatedFields.put(RodaConstants.AIP_ANCESTORS, ancestors);
+      return preCalculatedFields;
     }
 
     @Override
@@ -253,6 +276,16 @@ public class AIPCollection extends AbstractSolrCollection<IndexedAIP, AIP> {
     ret.setNumberOfSchemaFiles(numberOfSchemaFiles);
     ret.setHasRepresentations(hasRepresentations);
     ret.setGhost(ghost);
+    ret.setNumberOfDataFiles(SolrUtils.objectToLong(doc.get(RodaConstants.AIP_NUMBER_OF_DATA_FILES), 0L));
+    ret.setSizeInBytes(SolrUtils.objectToLong(doc.get(RodaConstants.AIP_SIZE_IN_BYTES), 0L));
+    ret.setFormatCounts(
+      AIPStatistics.getFormatCounts(doc, RodaConstants.AIP_FORMATS, RodaConstants.AIP_FORMAT_COUNT_PREFIX));
+    ret.setSubtreeNumberOfAIPs(SolrUtils.objectToLong(doc.get(RodaConstants.AIP_SUBTREE_NUMBER_OF_AIPS), 0L));
+    ret.setSubtreeNumberOfDataFiles(
+      SolrUtils.objectToLong(doc.get(RodaConstants.AIP_SUBTREE_NUMBER_OF_DATA_FILES), 0L));
+    ret.setSubtreeSizeInBytes(SolrUtils.objectToLong(doc.get(RodaConstants.AIP_SUBTREE_SIZE_IN_BYTES), 0L));
+    ret.setSubtreeFormatCounts(AIPStatistics.getFormatCounts(doc, RodaConstants.AIP_SUBTREE_FORMATS,
+      RodaConstants.AIP_SUBTREE_FORMAT_COUNT_PREFIX));
     ret.setIngestSIPIds(ingestSIPIds).setIngestJobId(ingestJobId).setIngestUpdateJobIds(ingestUpdateJobIds)
       .setCreatedOn(createdOn).setCreatedBy(createdBy).setUpdatedOn(updatedOn).setUpdatedBy(updatedBy)
       .setAllUpdateJobIds(allIngestJobIds);
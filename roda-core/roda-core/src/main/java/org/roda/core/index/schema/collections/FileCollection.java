@@ -7,16 +7,12 @@
  */
 package org.roda.core.index.schema.collections;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrInputDocument;
 import org.roda.core.RodaCoreFactory;
@@ -36,6 +32,7 @@ import org.roda.core.index.IndexingAdditionalInfo;
 import org.roda.core.index.schema.AbstractSolrCollection;
 import org.roda.core.index.schema.CopyField;
 import org.roda.core.index.schema.Field;
+import org.roda.core.index.utils.AIPStatistics;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.storage.Binary;
@@ -46,7 +43,10 @@ import org.slf4j.LoggerFactory;
 public class FileCollection extends AbstractSolrCollection<IndexedFile, File> {
   private static final Logger LOGGER = LoggerFactory.getLogger(FileCollection.class);
 
-  private static final int TEN_MB_IN_BYTES = 10485760;
+  /**
+   * Accumulator with the file format, see {@link AIPStatistics#getFormat}.
+   */
+  public static final String FORMAT_ACCUMULATOR = "format";
 
   @Override
   public Class<IndexedFile> getIndexClass() {
@@ -65,7 +65,7 @@ public class FileCollection extends AbstractSolrCollection<IndexedFile, File> {
 
   @Override
   public List<String> getCommitIndexNames() {
-    return Arrays.asList(RodaConstants.INDEX_FILE);
+    return Arrays.asList(RodaConstants.INDEX_FILE, RodaConstants.INDEX_FILE_FULLTEXT);
   }
 
   @Override
@@ -95,11 +95,11 @@ public class FileCollection extends AbstractSolrCollection<IndexedFile, File> {
     fields.add(new Field(RodaConstants.FILE_SIZE, Field.TYPE_LONG));
     fields.add(new Field(RodaConstants.FILE_ISDIRECTORY, Field.TYPE_BOOLEAN));
     fields.add(new Field(RodaConstants.FILE_EXTENSION, Field.TYPE_STRING));
-    fields.add(new Field(RodaConstants.FILE_FULLTEXT, Field.TYPE_TEXT).setMultiValued(false).setStored(false));
     fields.add(new Field(RodaConstants.FILE_CREATING_APPLICATION_NAME, Field.TYPE_STRING));
     fields.add(new Field(RodaConstants.FILE_CREATING_APPLICATION_VERSION, Field.TYPE_STRING));
     fields.add(new Field(RodaConstants.FILE_DATE_CREATED_BY_APPLICATION, Field.TYPE_STRING));
     fields.add(new Field(RodaConstants.FILE_HASH, Field.TYPE_STRING).setMultiValued(true));
+    fields.add(new Field(RodaConstants.FILE_DIGEST, Field.TYPE_STRING).setMultiValued(true));
     fields.add(new Field(RodaConstants.FILE_ANCESTORS, Field.TYPE_STRING).setMultiValued(true));
     fields.add(new Field(RodaConstants.FILE_ANCESTORS_PATH, Field.TYPE_STRING).setMultiValued(true));
 
@@ -127,7 +127,6 @@ public class FileCollection extends AbstractSolrCollection<IndexedFile, File> {
     copyFields.add(new CopyField(RodaConstants.FILE_FILEFORMAT, Field.FIELD_SEARCH));
     copyFields.add(new CopyField(RodaConstants.FILE_ORIGINALNAME, Field.FIELD_SEARCH));
     copyFields.add(new CopyField(RodaConstants.FILE_EXTENSION, Field.FIELD_SEARCH));
-    copyFields.add(new CopyField(RodaConstants.FILE_FULLTEXT, Field.FIELD_SEARCH));
     copyFields.add(new CopyField(RodaConstants.FILE_CREATING_APPLICATION_NAME, Field.FIELD_SEARCH));
     copyFields.add(new CopyField(RodaConstants.FILE_CREATING_APPLICATION_VERSION, Field.FIELD_SEARCH));
     copyFields.add(new CopyField(RodaConstants.FILE_DATE_CREATED_BY_APPLICATION, Field.FIELD_SEARCH));
@@ -183,6 +182,8 @@ public class FileCollection extends AbstractSolrCollection<IndexedFile, File> {
     }
 
     Long sizeInBytes = 0L;
+    String pronom = null;
+    String mimetype = null;
 
     // Add information from PREMIS
     Binary premisFile = getFilePremisFile(file);
@@ -191,18 +192,15 @@ public class FileCollection extends AbstractSolrCollection<IndexedFile, File> {
         SolrInputDocument premisSolrDoc = PremisV3Utils.getSolrDocument(premisFile);
         doc.putAll(premisSolrDoc);
         sizeInBytes = SolrUtils.objectToLong(premisSolrDoc.get(RodaConstants.FILE_SIZE).getValue(), 0L);
+        pronom = SolrUtils.objectToString(premisSolrDoc.getFieldValue(RodaConstants.FILE_PRONOM), null);
+        mimetype = SolrUtils.objectToString(premisSolrDoc.getFieldValue(RodaConstants.FILE_FORMAT_MIMETYPE), null);
       } catch (GenericException e) {
         LOGGER.warn("Could not index file PREMIS information", e);
       }
     }
 
     info.getAccumulators().put(RodaConstants.FILE_SIZE, sizeInBytes);
-
-    // Add full text
-    String fulltext = getFileFulltext(file);
-    if (fulltext != null) {
-      doc.addField(RodaConstants.FILE_FULLTEXT, fulltext);
-    }
+    info.getAccumulators().put(FORMAT_ACCUMULATOR, AIPStatistics.getFormat(pronom, mimetype));
 
     return doc;
   }
@@ -247,26 +245,6 @@ public class FileCollection extends AbstractSolrCollection<IndexedFile, File> {
     return premisFile;
   }
 
-  private String getFileFulltext(File file) {
-    String fulltext = "";
-    try {
-      Binary fulltextBinary = RodaCoreFactory.getModelService().retrieveOtherMetadataBinary(file.getAipId(),
-        file.getRepresentationId(), file.getPath(), file.getId(), RodaConstants.TIKA_FILE_SUFFIX_FULLTEXT,
-        RodaConstants.OTHER_METADATA_TYPE_APACHE_TIKA);
-      if (fulltextBinary.getSizeInBytes() < RodaCoreFactory.getRodaConfigurationAsInt(TEN_MB_IN_BYTES,
-        "core.index.fulltext_threshold_in_bytes")) {
-        try (InputStream inputStream = fulltextBinary.getContent().createInputStream()) {
-          fulltext = IOUtils.toString(inputStream, Charset.forName(RodaConstants.DEFAULT_ENCODING));
-        }
-      }
-    } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | IOException e) {
-      LOGGER.warn("Error getting fulltext for file: {}", file, e);
-    } catch (NotFoundException e) {
-      LOGGER.trace("Fulltext not found for file: {}", file, e);
-    }
-    return fulltext;
-  }
-
   @Override
   public IndexedFile fromSolrDocument(SolrDocument doc, List<String> fieldsToReturn) throws GenericException {
 
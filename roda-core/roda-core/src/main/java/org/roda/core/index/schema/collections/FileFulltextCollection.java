@@ -0,0 +1,110 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.schema.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.ip.FileFulltext;
+import org.roda.core.index.IndexingAdditionalInfo;
+import org.roda.core.index.schema.AbstractSolrCollection;
+import org.roda.core.index.schema.CopyField;
+import org.roda.core.index.schema.Field;
+import org.roda.core.index.utils.SolrUtils;
+
+/**
+ * Fulltext extracted from files, split in chunks. It is joined with the
+ * {@link FileCollection} at query time (see {@link SolrUtils#parseFilter}) so
+ * the (possibly large) text is not re-sent every time a file document changes.
+ */
+public class FileFulltextCollection extends AbstractSolrCollection<FileFulltext, FileFulltext> {
+
+  @Override
+  public Class<FileFulltext> getIndexClass() {
+    return FileFulltext.class;
+  }
+
+  @Override
+  public Class<FileFulltext> getModelClass() {
+    return FileFulltext.class;
+  }
+
+  @Override
+  public String getIndexName() {
+    return RodaConstants.INDEX_FILE_FULLTEXT;
+  }
+
+  @Override
+  public List<String> getCommitIndexNames() {
+    return Arrays.asList(RodaConstants.INDEX_FILE_FULLTEXT);
+  }
+
+  @Override
+  public String getUniqueId(FileFulltext modelObject) {
+    return modelObject.getId();
+  }
+
+  @Override
+  public List<Field> getFields() {
+    List<Field> fields = new ArrayList<>(super.getFields());
+
+    fields.add(new Field(RodaConstants.FILE_FULLTEXT_FILE_UUID, Field.TYPE_STRING).setRequired(true));
+    fields.add(new Field(RodaConstants.FILE_FULLTEXT_AIP_ID, Field.TYPE_STRING));
+    fields.add(new Field(RodaConstants.FILE_FULLTEXT_REPRESENTATION_UUID, Field.TYPE_STRING));
+    fields.add(new Field(RodaConstants.FILE_FULLTEXT_CHUNK_INDEX, Field.TYPE_INT));
+    fields.add(new Field(RodaConstants.FILE_FULLTEXT_SOURCE_VERSION, Field.TYPE_STRING));
+    fields.add(
+      new Field(RodaConstants.FILE_FULLTEXT_CONTENT, Field.TYPE_TEXT).setMultiValued(false).setStored(false));
+
+    return fields;
+  }
+
+  @Override
+  public List<CopyField> getCopyFields() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public SolrInputDocument toSolrDocument(FileFulltext fulltext, IndexingAdditionalInfo info)
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    SolrInputDocument doc = super.toSolrDocument(fulltext, info);
+
+    doc.addField(RodaConstants.FILE_FULLTEXT_FILE_UUID, fulltext.getFileUUID());
+    doc.addField(RodaConstants.FILE_FULLTEXT_AIP_ID, fulltext.getAipId());
+    doc.addField(RodaConstants.FILE_FULLTEXT_REPRESENTATION_UUID, fulltext.getRepresentationUUID());
+    doc.addField(RodaConstants.FILE_FULLTEXT_CHUNK_INDEX, fulltext.getChunkIndex());
+    doc.addField(RodaConstants.FILE_FULLTEXT_SOURCE_VERSION, fulltext.getSourceVersion());
+    doc.addField(RodaConstants.FILE_FULLTEXT_CONTENT, fulltext.getContent());
+
+    return doc;
+  }
+
+  @Override
+  public FileFulltext fromSolrDocument(SolrDocument doc, List<String> fieldsToReturn) throws GenericException {
+    final FileFulltext fulltext = super.fromSolrDocument(doc, fieldsToReturn);
+
+    fulltext.setFileUUID(SolrUtils.objectToString(doc.get(RodaConstants.FILE_FULLTEXT_FILE_UUID), null));
+    fulltext.setAipId(SolrUtils.objectToString(doc.get(RodaConstants.FILE_FULLTEXT_AIP_ID), null));
+    fulltext.setRepresentationUUID(
+      SolrUtils.objectToString(doc.get(RodaConstants.FILE_FULLTEXT_REPRESENTATION_UUID), null));
+    fulltext.setChunkIndex(SolrUtils.objectToInteger(doc.get(RodaConstants.FILE_FULLTEXT_CHUNK_INDEX), 0));
+    fulltext.setSourceVersion(SolrUtils.objectToString(doc.get(RodaConstants.FILE_FULLTEXT_SOURCE_VERSION), null));
+
+    return fulltext;
+  }
+
+}
@@ -9,6 +9,7 @@ package org.roda.core.index.schema.collections;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +32,7 @@ import org.roda.core.index.schema.AbstractSolrCollection;
 import org.roda.core.index.schema.CopyField;
 import org.roda.core.index.schema.Field;
 import org.roda.core.index.schema.SolrCollection;
+import org.roda.core.index.utils.AIPStatistics;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.model.ModelService;
 import org.roda.core.storage.Directory;
@@ -74,6 +76,7 @@ public class RepresentationCollection extends AbstractSolrCollection<IndexedRepr
     fields.add(new Field(RodaConstants.REPRESENTATION_SIZE_IN_BYTES, Field.TYPE_LONG));
     fields.add(new Field(RodaConstants.REPRESENTATION_NUMBER_OF_DATA_FILES, Field.TYPE_LONG));
     fields.add(new Field(RodaConstants.REPRESENTATION_NUMBER_OF_DATA_FOLDERS, Field.TYPE_LONG));
+    fields.add(new Field(RodaConstants.REPRESENTATION_FORMATS, Field.TYPE_STRING).setMultiValued(true));
     fields.add(new Field(RodaConstants.REPRESENTATION_NUMBER_OF_DOCUMENTATION_FILES, Field.TYPE_LONG));
     fields.add(new Field(RodaConstants.REPRESENTATION_NUMBER_OF_SCHEMA_FILES, Field.TYPE_LONG));
     fields.add(new Field(RodaConstants.REPRESENTATION_ANCESTORS, Field.TYPE_STRING).setMultiValued(true));
@@ -170,19 +173,17 @@ public class RepresentationCollection extends AbstractSolrCollection<IndexedRepr
 
     private final AIP aip;
     private final List<String> ancestors;
-    private final Long sizeInBytes;
-    private final Long numberOfDataFiles;
+    private final AIPStatistics statistics;
     private final Long numberOfDataFolders;
 
     private final boolean safemode;
 
-    public Info(AIP aip, List<String> ancestors, Long sizeInBytes, Long numberOfDataFiles, Long numberOfDataFolders,
+    public Info(AIP aip, List<String> ancestors, AIPStatistics statistics, Long numberOfDataFolders,
       boolean safemode) {
       super();
       this.aip = aip;
       this.ancestors = ancestors;
-      this.sizeInBytes = sizeInBytes;
-      this.numberOfDataFiles = numberOfDataFiles;
+      this.statistics = statistics;
       this.numberOfDataFolders = numberOfDataFolders;
       this.safemode = safemode;
     }
@@ -191,9 +192,10 @@ public class RepresentationCollection extends AbstractSolrCollection<IndexedRepr
     public Map<String, Object> getPreCalculatedFields() {
       Map<String, Object> preCalculatedFields = new HashMap<>();
 
-      // indexing file size and number
-      preCalculatedFields.put(RodaConstants.REPRESENTATION_SIZE_IN_BYTES, sizeInBytes);
-      preCalculatedFields.put(RodaConstants.REPRESENTATION_NUMBER_OF_DATA_FILES, numberOfDataFiles);
+      // indexing file size, number and formats
+      preCalculatedFields.putAll(statistics.toFields(RodaConstants.REPRESENTATION_NUMBER_OF_DATA_FILES,
+        RodaConstants.REPRESENTATION_SIZE_IN_BYTES, RodaConstants.REPRESENTATION_FORMATS,
+        RodaConstants.REPRESENTATION_FORMAT_COUNT_PREFIX, Collections.emptyList()));
       preCalculatedFields.put(RodaConstants.REPRESENTATION_NUMBER_OF_DATA_FOLDERS, numberOfDataFolders);
 
       // indexing active state and permissions
@@ -229,6 +231,8 @@ public class RepresentationCollection extends AbstractSolrCollection<IndexedRepr
     ret.setNumberOfDataFiles(SolrUtils.objectToLong(doc.get(RodaConstants.REPRESENTATION_NUMBER_OF_DATA_FILES), 0L));
     ret
       .setNumberOfDataFolders(SolrUtils.objectToLong(doc.get(RodaConstants.REPRESENTATION_NUMBER_OF_DATA_FOLDERS), 0L));
+    ret.setFormatCounts(AIPStatistics.getFormatCounts(doc, RodaConstants.REPRESENTATION_FORMATS,
+      RodaConstants.REPRESENTATION_FORMAT_COUNT_PREFIX));
     ret.setNumberOfDocumentationFiles(
       SolrUtils.objectToLong(doc.get(RodaConstants.REPRESENTATION_NUMBER_OF_DOCUMENTATION_FILES), 0L));
     ret
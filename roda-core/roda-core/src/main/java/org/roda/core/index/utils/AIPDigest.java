@@ -0,0 +1,77 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.roda.core.data.v2.ip.AIPState;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Digests used to compare an AIP on storage with its documents on the index.
+ *
+ * Each side of the comparison builds the same entries from its own data and the
+ * digests are compared top-down: first the AIP digest (over the values of
+ * <code>aip.json</code>) and only then, if asked for a deep comparison, one
+ * digest per representation over the listing of its data files.
+ */
+public final class AIPDigest {
+
+  private static final String ENTRY_SEPARATOR = "\n";
+  private static final String PATH_SEPARATOR = "/";
+  private static final String VALUE_SEPARATOR = "|";
+
+  private AIPDigest() {
+    // do nothing
+  }
+
+  public static String getAIPDigest(String parentId, AIPState state, String type, Date updatedOn) {
+    List<String> entries = new ArrayList<>();
+    entries.add("parentId=" + parentId);
+    entries.add("state=" + state);
+    entries.add("type=" + type);
+    entries.add("updatedOn=" + (updatedOn == null ? null : updatedOn.getTime()));
+    return digest(entries);
+  }
+
+  public static String getFilePath(List<String> directoryPath, String fileId) {
+    List<String> path = directoryPath == null ? new ArrayList<>() : new ArrayList<>(directoryPath);
+    path.add(fileId);
+    return String.join(PATH_SEPARATOR, path);
+  }
+
+  /**
+   * @return the entry of a data file on a representation listing.
+   */
+  public static String getFileEntry(String filePath, long sizeInBytes) {
+    return filePath + VALUE_SEPARATOR + sizeInBytes;
+  }
+
+  /**
+   * @return the digest of a set of entries, which does not depend on the order
+   *         they were listed.
+   */
+  public static String digest(Collection<String> entries) {
+    List<String> sortedEntries = new ArrayList<>(entries);
+    Collections.sort(sortedEntries);
+
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (String entry : sortedEntries) {
+      hasher.putString(entry, StandardCharsets.UTF_8).putString(ENTRY_SEPARATOR, StandardCharsets.UTF_8);
+    }
+    return hasher.hash().toString();
+  }
+
+}
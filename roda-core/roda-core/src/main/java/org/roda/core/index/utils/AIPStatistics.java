@@ -0,0 +1,212 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.solr.common.SolrDocument;
+
+/**
+ * Number of files, total size and number of files per format of an AIP (or
+ * representation) or of an AIP subtree.
+ *
+ * These statistics are kept on the index documents and maintained
+ * incrementally by the index observer: each change is converted to a
+ * difference that is added, using atomic updates, to the document itself and to
+ * all its ancestors.
+ */
+public class AIPStatistics {
+  private static final String UNKNOWN_FORMAT = "unknown";
+  private static final String LONG_DYNAMIC_FIELD_SUFFIX = "_l";
+
+  private long numberOfFiles;
+  private long sizeInBytes;
+  private final Map<String, Long> formatCounts;
+
+  public AIPStatistics() {
+    this(0L, 0L, null);
+  }
+
+  public AIPStatistics(long numberOfFiles, long sizeInBytes, Map<String, Long> formatCounts) {
+    this.numberOfFiles = numberOfFiles;
+    this.sizeInBytes = sizeInBytes;
+    this.formatCounts = formatCounts == null ? new HashMap<>() : new HashMap<>(formatCounts);
+  }
+
+  public long getNumberOfFiles() {
+    return numberOfFiles;
+  }
+
+  public long getSizeInBytes() {
+    return sizeInBytes;
+  }
+
+  public Map<String, Long> getFormatCounts() {
+    return Collections.unmodifiableMap(formatCounts);
+  }
+
+  /**
+   * @return the formats with, at least, one file.
+   */
+  public List<String> getFormats() {
+    List<String> formats = new ArrayList<>();
+    for (Entry<String, Long> entry : formatCounts.entrySet()) {
+      if (entry.getValue() > 0) {
+        formats.add(entry.getKey());
+      }
+    }
+    Collections.sort(formats);
+    return formats;
+  }
+
+  public AIPStatistics addFile(long size, String format) {
+    numberOfFiles++;
+    sizeInBytes += size;
+    formatCounts.merge(format, 1L, Long::sum);
+    return this;
+  }
+
+  public AIPStatistics add(AIPStatistics other) {
+    numberOfFiles += other.numberOfFiles;
+    sizeInBytes += other.sizeInBytes;
+    other.formatCounts.forEach((format, count) -> formatCounts.merge(format, count, Long::sum));
+    return this;
+  }
+
+  /**
+   * @return the difference between these statistics and the other ones (formats
+   *         that only exist on the other statistics get a negative count).
+   */
+  public AIPStatistics minus(AIPStatistics other) {
+    AIPStatistics ret = new AIPStatistics(numberOfFiles - other.numberOfFiles, sizeInBytes - other.sizeInBytes,
+      formatCounts);
+    other.formatCounts.forEach((format, count) -> ret.formatCounts.merge(format, -count, Long::sum));
+    return ret;
+  }
+
+  public AIPStatistics negate() {
+    return new AIPStatistics().minus(this);
+  }
+
+  public boolean isEmpty() {
+    return numberOfFiles == 0 && sizeInBytes == 0 && formatCounts.values().stream().allMatch(count -> count == 0);
+  }
+
+  /**
+   * Fields to set these statistics on a document. Formats in
+   * <code>formatsToReset</code> that are not on these statistics get their count
+   * set to zero.
+   */
+  public Map<String, Object> toFields(String numberOfFilesField, String sizeInBytesField, String formatsField,
+    String formatCountPrefix, List<String> formatsToReset) {
+    Map<String, Object> fields = new HashMap<>();
+    fields.put(numberOfFilesField, numberOfFiles);
+    fields.put(sizeInBytesField, sizeInBytes);
+    fields.put(formatsField, getFormats());
+    for (String format : formatsToReset) {
+      fields.put(getFormatCountField(formatCountPrefix, format), 0L);
+    }
+    formatCounts.forEach((format, count) -> fields.put(getFormatCountField(formatCountPrefix, format), count));
+    return fields;
+  }
+
+  /**
+   * Atomic update modifiers that set these statistics on a document.
+   */
+  public Map<String, Map<String, Object>> toSetModifiers(String numberOfFilesField, String sizeInBytesField,
+    String formatsField, String formatCountPrefix, List<String> formatsToReset) {
+    Map<String, Map<String, Object>> modifiers = new HashMap<>();
+    toFields(numberOfFilesField, sizeInBytesField, formatsField, formatCountPrefix, formatsToReset)
+      .forEach((field, value) -> {
+        // solr does not handle setting an empty list with a partial update
+        boolean emptyList = value instanceof List && ((List<?>) value).isEmpty();
+        modifiers.put(field, Collections.singletonMap("set", emptyList ? null : value));
+      });
+    return modifiers;
+  }
+
+  /**
+   * Atomic update modifiers that add these statistics (usually a difference) to
+   * the ones on a document.
+   *
+   * Formats are only ever added to the formats field, as a format whose count
+   * drops to zero cannot be removed without reading the document first. That
+   * field is then an upper bound of the formats with files, while the format
+   * counts stay exact (see {@link #getFormatCounts(SolrDocument, String, String)},
+   * which skips the formats with no files) until the statistics are set again,
+   * e.g. by <code>IndexService.refreshAIPSubtreeStatistics</code>.
+   */
+  public Map<String, Map<String, Object>> toIncrementModifiers(String numberOfFilesField, String sizeInBytesField,
+    String formatsField, String formatCountPrefix) {
+    Map<String, Map<String, Object>> modifiers = new HashMap<>();
+    if (numberOfFiles != 0) {
+      modifiers.put(numberOfFilesField, Collections.singletonMap("inc", numberOfFiles));
+    }
+    if (sizeInBytes != 0) {
+      modifiers.put(sizeInBytesField, Collections.singletonMap("inc", sizeInBytes));
+    }
+
+    List<String> addedFormats = new ArrayList<>();
+    formatCounts.forEach((format, count) -> {
+      if (count != 0) {
+        modifiers.put(getFormatCountField(formatCountPrefix, format), Collections.singletonMap("inc", count));
+      }
+      if (count > 0) {
+        addedFormats.add(format);
+      }
+    });
+
+    if (!addedFormats.isEmpty()) {
+      modifiers.put(formatsField, Collections.singletonMap("add-distinct", addedFormats));
+    }
+
+    return modifiers;
+  }
+
+  /**
+   * @return the format of a file, its PRONOM identifier or, if missing, its
+   *         mimetype.
+   */
+  public static String getFormat(String pronom, String mimetype) {
+    if (StringUtils.isNotBlank(pronom)) {
+      return pronom;
+    } else if (StringUtils.isNotBlank(mimetype)) {
+      return mimetype;
+    } else {
+      return UNKNOWN_FORMAT;
+    }
+  }
+
+  public static String getFormatCountField(String formatCountPrefix, String format) {
+    return formatCountPrefix + format.replaceAll("[^A-Za-z0-9]", "_") + LONG_DYNAMIC_FIELD_SUFFIX;
+  }
+
+  public static Map<String, Long> getFormatCounts(SolrDocument doc, String formatsField, String formatCountPrefix) {
+    Map<String, Long> formatCounts = new HashMap<>();
+    for (String format : SolrUtils.objectToListString(doc.get(formatsField))) {
+      long count = SolrUtils.objectToLong(doc.get(getFormatCountField(formatCountPrefix, format)), 0L);
+      if (count > 0) {
+        formatCounts.put(format, count);
+      }
+    }
+    return formatCounts;
+  }
+
+  @Override
+  public String toString() {
+    return "AIPStatistics [numberOfFiles=" + numberOfFiles + ", sizeInBytes=" + sizeInBytes + ", formatCounts="
+      + formatCounts + "]";
+  }
+
+}
@@ -18,6 +18,7 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.EnumMap;
 import java.util.HashMap;
@@ -26,13 +27,14 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
@@ -49,14 +51,19 @@ import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.response.FacetField;
 import org.apache.solr.client.solrj.response.FacetField.Count;
+import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.SolrInputField;
 import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.FacetParams;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.NamedList;
 import org.apache.solr.handler.loader.XMLLoader;
 import org.roda.core.common.MetadataFileUtils;
 import org.roda.core.common.RodaUtils;
@@ -72,6 +79,7 @@ import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.exceptions.ReturnWithExceptions;
 import org.roda.core.data.utils.JsonUtils;
 import org.roda.core.data.v2.IsModelObject;
+import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.LiteRODAObject;
 import org.roda.core.data.v2.common.Pair;
 import org.roda.core.data.v2.index.IndexResult;
@@ -104,6 +112,7 @@ import org.roda.core.data.v2.ip.DIP;
 import org.roda.core.data.v2.ip.DIPFile;
 import org.roda.core.data.v2.ip.File;
 import org.roda.core.data.v2.ip.HasPermissionFilters;
+import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.Permissions.PermissionType;
 import org.roda.core.data.v2.ip.Representation;
@@ -136,11 +145,21 @@ public class SolrUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(SolrUtils.class);
 
   private static final String DEFAULT_QUERY_PARSER_OPERATOR = "AND";
+  // with a positive value, Solr only accepts the update if the document exists
+  private static final String VERSION_FIELD = "_version_";
+  private static final int UPDATE_BATCH_SIZE = 1000;
+  // reports the documents that fail instead of failing the whole request
+  private static final String TOLERANT_UPDATE_CHAIN = "tolerant";
+  private static final String TOLERANT_UPDATE_ERRORS = "errors";
+  private static final String TOLERANT_UPDATE_ERROR_ID = "id";
   private static final Set<String> NON_REPEATABLE_FIELDS = new HashSet<>(Arrays.asList(RodaConstants.AIP_TITLE,
     RodaConstants.AIP_LEVEL, RodaConstants.AIP_DATE_INITIAL, RodaConstants.AIP_DATE_FINAL));
 
   private static Map<String, List<String>> liteFieldsForEachClass = new HashMap<>();
 
+  /** Factories are thread-safe once configured, so a single one is reused */
+  private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
   public static final String COMMON = "common";
   public static final String CONF = "conf";
   public static final String SCHEMA = "managed-schema";
@@ -238,7 +257,7 @@ public class SolrUtils {
     IndexResult<T> ret;
     SolrQuery query = new SolrQuery();
     query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
-    query.setQuery(parseFilter(filter));
+    query.setQuery(parseFilter(classToRetrieve, filter));
     query.setSorts(parseSorter(sorter));
     query.setStart(sublist.getFirstElementIndex());
     query.setRows(sublist.getMaximumElementCount());
@@ -277,7 +296,7 @@ public class SolrUtils {
     Pair<IndexResult<T>, String> ret;
     SolrQuery query = new SolrQuery();
     query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
-    query.setQuery(parseFilter(filter));
+    query.setQuery(parseFilter(classToRetrieve, filter));
     if (hasPermissionFilters(classToRetrieve)) {
       query.addFilterQuery(getFilterQueries(user, justActive, classToRetrieve));
     }
@@ -301,6 +320,63 @@ public class SolrUtils {
     return ret;
   }
 
+  /**
+   * Find using cursors while honouring the provided sorter (the unique key is
+   * appended as tie-breaker, as required by Solr). Set initial cursor to
+   * {@link CursorMarkParams#CURSOR_MARK_START} (or <code>null</code>) and use
+   * {@link IndexResult#getNextCursor()} to get the following pages. When the
+   * next cursor is equal to the one provided there are no more results.
+   *
+   * @param index
+   * @param classToRetrieve
+   * @param filter
+   * @param sorter
+   * @param pageSize
+   * @param cursorMark
+   * @param facets
+   * @param user
+   * @param justActive
+   * @param fieldsToReturn
+   * @return
+   * @throws GenericException
+   * @throws RequestNotValidException
+   */
+  public static <T extends IsIndexed> IndexResult<T> findWithCursor(SolrClient index, Class<T> classToRetrieve,
+    Filter filter, Sorter sorter, int pageSize, String cursorMark, Facets facets, User user, boolean justActive,
+    List<String> fieldsToReturn) throws GenericException, RequestNotValidException {
+    IndexResult<T> ret;
+    SolrQuery query = new SolrQuery();
+    query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
+    query.setQuery(parseFilter(classToRetrieve, filter));
+    if (hasPermissionFilters(classToRetrieve)) {
+      query.addFilterQuery(getFilterQueries(user, justActive, classToRetrieve));
+    }
+
+    List<SortClause> sorts = parseSorter(sorter);
+    if (sorts.stream().noneMatch(sort -> RodaConstants.INDEX_UUID.equals(sort.getItem()))) {
+      sorts.add(SortClause.asc(RodaConstants.INDEX_UUID));
+    }
+    query.setSorts(sorts);
+    query.set(CursorMarkParams.CURSOR_MARK_PARAM,
+      StringUtils.isBlank(cursorMark) ? CursorMarkParams.CURSOR_MARK_START : cursorMark);
+    query.setRows(pageSize);
+
+    if (!fieldsToReturn.isEmpty()) {
+      query.setFields(fieldsToReturn.toArray(new String[fieldsToReturn.size()]));
+    }
+    parseAndConfigureFacets(facets, query);
+
+    try {
+      QueryResponse response = query(index, classToRetrieve, query);
+      ret = queryResponseToIndexResult(response, classToRetrieve, facets, fieldsToReturn);
+      ret.setNextCursor(response.getNextCursorMark());
+    } catch (NotSupportedException e) {
+      throw new GenericException("Could not query index", e);
+    }
+
+    return ret;
+  }
+
   public static <T extends IsIndexed> List<String> getClassLiteFields(Class<T> classToRetrieve) {
     List<String> ret;
     if (liteFieldsForEachClass.containsKey(classToRetrieve.getName())) {
@@ -323,7 +399,7 @@ public class SolrUtils {
     IndexResult<T> ret;
     SolrQuery query = new SolrQuery();
     query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
-    query.setQuery(parseFilter(filter));
+    query.setQuery(parseFilter(classToRetrieve, filter));
     query.setSorts(parseSorter(sorter));
     query.setStart(sublist.getFirstElementIndex());
     query.setRows(sublist.getMaximumElementCount());
@@ -717,7 +793,7 @@ public class SolrUtils {
     try (Reader transformationResult = RodaUtils.applyMetadataStylesheet(binary, RodaConstants.CORE_CROSSWALKS_INGEST,
       metadataType, metadataVersion, parameters)) {
       XMLLoader loader = new XMLLoader();
-      XMLStreamReader parser = XMLInputFactory.newInstance().createXMLStreamReader(transformationResult);
+      XMLStreamReader parser = XML_INPUT_FACTORY.createXMLStreamReader(transformationResult);
 
       boolean parsing = true;
       doc = null;
@@ -735,7 +811,7 @@ public class SolrUtils {
         }
       }
 
-    } catch (XMLStreamException | FactoryConfigurationError | IOException e) {
+    } catch (XMLStreamException | IOException e) {
       throw new GenericException("Could not process descriptive metadata binary " + binary.getStoragePath(), e);
     }
 
@@ -796,9 +872,38 @@ public class SolrUtils {
     return ret.toString();
   }
 
+  /**
+   * Same as {@link #parseFilter(Filter)} but, when searching files, basic
+   * searches on the generic search field also match the file fulltext (kept in
+   * its own collection, see {@link #appendFulltextJoin}).
+   */
+  public static <T extends IsIndexed> String parseFilter(Class<T> classToRetrieve, Filter filter)
+    throws RequestNotValidException {
+    Filter filterToParse = filter;
+    if (IndexedFile.class.equals(classToRetrieve) && filter != null) {
+      filterToParse = new Filter();
+      for (FilterParameter parameter : filter.getParameters()) {
+        if (parameter instanceof BasicSearchFilterParameter
+          && RodaConstants.INDEX_SEARCH.equals(((BasicSearchFilterParameter) parameter).getName())
+          && StringUtils.isNotBlank(((BasicSearchFilterParameter) parameter).getValue())) {
+          String value = ((BasicSearchFilterParameter) parameter).getValue();
+          filterToParse.add(new OrFiltersParameters(
+            Arrays.asList(parameter, new BasicSearchFilterParameter(RodaConstants.FILE_FULLTEXT, value))));
+        } else {
+          filterToParse.add(parameter);
+        }
+      }
+    }
+    return parseFilter(filterToParse);
+  }
+
   private static void parseFilterParameter(StringBuilder ret, FilterParameter parameter,
     boolean prefixWithANDOperatorIfBuilderNotEmpty) throws RequestNotValidException {
-    if (parameter instanceof SimpleFilterParameter) {
+    if (parameter instanceof BasicSearchFilterParameter
+      && RodaConstants.FILE_FULLTEXT.equals(((BasicSearchFilterParameter) parameter).getName())) {
+      BasicSearchFilterParameter param = (BasicSearchFilterParameter) parameter;
+      appendFulltextJoin(ret, param.getValue(), prefixWithANDOperatorIfBuilderNotEmpty);
+    } else if (parameter instanceof SimpleFilterParameter) {
       SimpleFilterParameter simplePar = (SimpleFilterParameter) parameter;
       appendExactMatch(ret, simplePar.getName(), simplePar.getValue(), true, prefixWithANDOperatorIfBuilderNotEmpty);
     } else if (parameter instanceof OneOfManyFilterParameter) {
@@ -890,6 +995,22 @@ public class SolrUtils {
     }
   }
 
+  /**
+   * File fulltext is indexed, in chunks, in the {@link RodaConstants#INDEX_FILE_FULLTEXT}
+   * collection, so a search on {@link RodaConstants#FILE_FULLTEXT} is done by
+   * joining the matching chunks to their files.
+   */
+  private static void appendFulltextJoin(StringBuilder ret, String value,
+    boolean prefixWithANDOperatorIfBuilderNotEmpty) {
+    StringBuilder fulltextQuery = new StringBuilder();
+    appendBasicSearch(fulltextQuery, RodaConstants.FILE_FULLTEXT_CONTENT, value, "AND", false);
+
+    appendANDOperator(ret, prefixWithANDOperatorIfBuilderNotEmpty);
+    ret.append("(_query_:\"{!join from=").append(RodaConstants.FILE_FULLTEXT_FILE_UUID).append(" to=")
+      .append(RodaConstants.INDEX_UUID).append(" fromIndex=").append(RodaConstants.INDEX_FILE_FULLTEXT).append("}")
+      .append(fulltextQuery.toString().replace("\\", "\\\\").replace("\"", "\\\"")).append("\")");
+  }
+
   private static void appendKeyValue(StringBuilder ret, String key, String value) {
     ret.append(key).append(":").append("(").append(value).append(")");
   }
@@ -1109,6 +1230,10 @@ public class SolrUtils {
     query.add(String.format("f.%s.facet.mincount", facetParameter.getName()),
       String.valueOf(facetParameter.getMinCount()));
     query.add(String.format("f.%s.facet.limit", facetParameter.getName()), String.valueOf(facetParameter.getLimit()));
+    if (facetParameter.getOffset() > 0) {
+      query.add(String.format("f.%s.facet.offset", facetParameter.getName()),
+        String.valueOf(facetParameter.getOffset()));
+    }
 
   }
 
@@ -1238,12 +1363,12 @@ public class SolrUtils {
     return create2(index, source, indexClass, object, IndexingAdditionalInfo.empty());
   }
 
-  public static <T extends IsIndexed, M extends IsModelObject, S extends Object> ReturnWithExceptions<Void, S> create(
+  public static <T extends IsIndexed, M extends IsRODAObject, S extends Object> ReturnWithExceptions<Void, S> create(
     SolrClient index, Class<T> classToCreate, M instance, S source) {
     return create(index, classToCreate, instance, source, false);
   }
 
-  public static <T extends IsIndexed, M extends IsModelObject, S extends Object> ReturnWithExceptions<Void, S> create(
+  public static <T extends IsIndexed, M extends IsRODAObject, S extends Object> ReturnWithExceptions<Void, S> create(
     SolrClient index, Class<T> classToCreate, M instance, S source, boolean commit) {
     ReturnWithExceptions<Void, S> ret = new ReturnWithExceptions<>();
     try {
@@ -1264,6 +1389,44 @@ public class SolrUtils {
     return ret;
   }
 
+  /**
+   * Adds several objects to the index, sending their documents in batches
+   * instead of one request per document.
+   */
+  public static <T extends IsIndexed, M extends IsModelObject, S> ReturnWithExceptions<Void, S> createAll(
+    SolrClient index, Class<T> classToCreate, List<M> instances, S source) {
+    return createAll(index, classToCreate, instances, IndexingAdditionalInfo.empty(), source);
+  }
+
+  public static <T extends IsIndexed, M extends IsModelObject, S> ReturnWithExceptions<Void, S> createAll(
+    SolrClient index, Class<T> classToCreate, List<M> instances, IndexingAdditionalInfo info, S source) {
+    ReturnWithExceptions<Void, S> ret = new ReturnWithExceptions<>(source);
+    List<SolrInputDocument> batch = new ArrayList<>();
+    try {
+      String indexName = SolrCollectionRegistry.getIndexName(classToCreate);
+      for (M instance : instances) {
+        SolrInputDocument doc = SolrCollectionRegistry.toSolrDocument(classToCreate, instance, info);
+        if (doc != null) {
+          batch.add(doc);
+        }
+
+        if (batch.size() >= UPDATE_BATCH_SIZE) {
+          index.add(indexName, batch);
+          batch.clear();
+        }
+      }
+
+      if (!batch.isEmpty()) {
+        index.add(indexName, batch);
+      }
+    } catch (NotSupportedException | GenericException | RequestNotValidException | NotFoundException
+      | AuthorizationDeniedException | SolrServerException | IOException | SolrException e) {
+      LOGGER.error("Error adding documents to index", e);
+      ret.add(e);
+    }
+    return ret;
+  }
+
   public static <T extends IsIndexed, S extends Object> ReturnWithExceptions<Void, S> update(SolrClient index,
     Class<T> classToCreate, String uuid, Map<String, Object> fields, S source) {
     ReturnWithExceptions<Void, S> ret = new ReturnWithExceptions<>();
@@ -1279,6 +1442,171 @@ public class SolrUtils {
     return ret;
   }
 
+  /**
+   * Applies atomic update modifiers (e.g. <code>inc</code>) to a document only
+   * if it exists, an optimistic concurrency constraint makes Solr refuse to
+   * create it otherwise.
+   */
+  public static <T extends IsIndexed, S extends Object> ReturnWithExceptions<Void, S> updateIfExists(SolrClient index,
+    Class<T> classToUpdate, String uuid, Map<String, Map<String, Object>> fieldModifiers, S source) {
+    ReturnWithExceptions<Void, S> ret = new ReturnWithExceptions<>(source);
+    if (fieldModifiers.isEmpty()) {
+      return ret;
+    }
+
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField(RodaConstants.INDEX_UUID, uuid);
+    doc.addField(VERSION_FIELD, 1L);
+    fieldModifiers.forEach(doc::addField);
+    try {
+      index.add(SolrCollectionRegistry.getIndexName(classToUpdate), doc);
+    } catch (SolrException e) {
+      if (e.code() == ErrorCode.CONFLICT.code) {
+        LOGGER.trace("Document {} does not exist, not updating it", uuid);
+      } else {
+        LOGGER.error("Error updating document in index", e);
+        ret.add(e);
+      }
+    } catch (SolrServerException | IOException | NotSupportedException e) {
+      LOGGER.error("Error updating document in index", e);
+      ret.add(e);
+    }
+    return ret;
+  }
+
+  /**
+   * Applies atomic update modifiers to several documents, only to the ones that
+   * exist, sending them in batches instead of one request per document. The
+   * batches go through an update chain that reports the refused documents
+   * instead of failing the whole batch; those are sent again one by one, to tell
+   * the ones that do not exist from actual errors. Documents are also sent one
+   * by one if the index configuration does not have that update chain. Any other
+   * failure of a batch is returned and its documents are not sent again, as
+   * part of the batch may have been applied and modifiers such as
+   * <code>inc</code> must not be applied twice.
+   *
+   * @param fieldModifiers
+   *          the modifiers of each document, by UUID.
+   */
+  public static <T extends IsIndexed, S extends Object> ReturnWithExceptions<Void, S> updateAllIfExists(
+    SolrClient index, Class<T> classToUpdate, Map<String, Map<String, Map<String, Object>>> fieldModifiers,
+    S source) {
+    ReturnWithExceptions<Void, S> ret = new ReturnWithExceptions<>(source);
+    List<String> uuids = new ArrayList<>();
+    fieldModifiers.forEach((uuid, modifiers) -> {
+      if (!modifiers.isEmpty()) {
+        uuids.add(uuid);
+      }
+    });
+
+    if (uuids.size() == 1) {
+      return updateIfExists(index, classToUpdate, uuids.get(0), fieldModifiers.get(uuids.get(0)), source);
+    }
+
+    for (int from = 0; from < uuids.size(); from += UPDATE_BATCH_SIZE) {
+      List<String> batch = uuids.subList(from, Math.min(from + UPDATE_BATCH_SIZE, uuids.size()));
+      List<String> refused = batch;
+      try {
+        UpdateRequest request = new UpdateRequest();
+        request.setParam(UpdateParams.UPDATE_CHAIN, TOLERANT_UPDATE_CHAIN);
+        for (String uuid : batch) {
+          SolrInputDocument doc = new SolrInputDocument();
+          doc.addField(RodaConstants.INDEX_UUID, uuid);
+          doc.addField(VERSION_FIELD, 1L);
+          fieldModifiers.get(uuid).forEach(doc::addField);
+          request.add(doc);
+        }
+        UpdateResponse response = request.process(index, SolrCollectionRegistry.getIndexName(classToUpdate));
+
+        refused = new ArrayList<>();
+        Object errors = response.getResponseHeader().get(TOLERANT_UPDATE_ERRORS);
+        if (errors instanceof List) {
+          for (Object error : (List<?>) errors) {
+            refused.add((String) ((NamedList<?>) error).get(TOLERANT_UPDATE_ERROR_ID));
+          }
+        }
+      } catch (SolrException e) {
+        if (!isUnknownUpdateChain(e)) {
+          LOGGER.error("Error updating documents in index", e);
+          ret.add(e);
+          continue;
+        }
+        // the index configuration predates the update chain, so the request
+        // was refused before any document was updated
+        LOGGER.debug("Could not update documents in a batch, updating them one by one", e);
+      } catch (SolrServerException | IOException | NotSupportedException e) {
+        LOGGER.error("Error updating documents in index", e);
+        ret.add(e);
+        continue;
+      }
+
+      for (String uuid : refused) {
+        updateIfExists(index, classToUpdate, uuid, fieldModifiers.get(uuid), source).addTo(ret);
+      }
+    }
+    return ret;
+  }
+
+  private static boolean isUnknownUpdateChain(SolrException e) {
+    return e.code() == ErrorCode.BAD_REQUEST.code && e.getMessage() != null
+      && e.getMessage().contains("unknown UpdateRequestProcessorChain");
+  }
+
+  /**
+   * Sets the same fields on all the documents that match a filter, sending the
+   * atomic updates in batches instead of one request per document.
+   */
+  public static <T extends IsIndexed, S extends Object> ReturnWithExceptions<Void, S> updateAll(SolrClient index,
+    Class<T> classToUpdate, Filter filter, Map<String, Object> fields, S source) {
+    return updateAll(index, classToUpdate, filter, Collections.singletonList(RodaConstants.INDEX_UUID),
+      document -> fields, source);
+  }
+
+  /**
+   * Sets fields that may differ from document to document on all the documents
+   * that match a filter, sending the atomic updates in batches.
+   * 
+   * @param fieldsToReturn
+   *          the fields needed to compute the fields to set, besides the
+   *          document UUID.
+   * @param fields
+   *          computes the fields to set on each document, or <code>null</code>
+   *          to leave the document as it is.
+   */
+  public static <T extends IsIndexed, S extends Object> ReturnWithExceptions<Void, S> updateAll(SolrClient index,
+    Class<T> classToUpdate, Filter filter, List<String> fieldsToReturn, Function<T, Map<String, Object>> fields,
+    S source) {
+    ReturnWithExceptions<Void, S> ret = new ReturnWithExceptions<>(source);
+    List<SolrInputDocument> batch = new ArrayList<>();
+    try (IterableIndexResult<T> documents = new IterableIndexResult<>(index, classToUpdate, filter, null, false,
+      fieldsToReturn)) {
+      String indexName = SolrCollectionRegistry.getIndexName(classToUpdate);
+      for (T document : documents) {
+        Map<String, Object> documentFields = fields.apply(document);
+        if (documentFields == null) {
+          continue;
+        }
+
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.addField(RodaConstants.INDEX_UUID, document.getUUID());
+        documentFields.forEach((field, value) -> doc.addField(field, set(value)));
+        batch.add(doc);
+        if (batch.size() >= UPDATE_BATCH_SIZE) {
+          index.add(indexName, batch);
+          batch.clear();
+        }
+      }
+
+      if (!batch.isEmpty()) {
+        index.add(indexName, batch);
+      }
+    } catch (SolrServerException | IOException | SolrException | NotSupportedException | NoSuchElementException e) {
+      LOGGER.error("Error updating documents in index", e);
+      ret.add(e);
+    }
+    return ret;
+  }
+
   private static Map<String, Object> set(Object value) {
     Map<String, Object> fieldModifier = new HashMap<>(1);
     // 20160511 this workaround fixes solr wrong behaviour with partial update
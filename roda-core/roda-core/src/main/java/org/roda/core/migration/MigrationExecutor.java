@@ -0,0 +1,215 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.migration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.storage.Resource;
+import org.roda.core.storage.StorageService;
+import org.roda.core.storage.fs.FSUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs a {@link PartitionedMigrationAction} with a bounded pool of workers,
+ * each migrating one resource of the container at a time. The name of each
+ * migrated resource is appended to a progress file, so that a migration that
+ * is interrupted (or that failed for too many resources) only migrates, when
+ * run again, the resources that were not migrated yet. The progress file is
+ * deleted when the migration is complete.
+ * 
+ * A migration with no more failed resources than the tolerated ones is
+ * complete: the failed resources are skipped, as the sequential migrations
+ * did, and their names are written to a file next to the progress file, so
+ * they can be fixed by hand instead of being retried on every run.
+ */
+public class MigrationExecutor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MigrationExecutor.class);
+
+  /**
+   * Any number of failed resources is tolerated.
+   */
+  public static final int UNLIMITED_FAILURES = -1;
+
+  private static final String PROGRESS_SUFFIX = ".progress";
+  private static final String FAILED_SUFFIX = ".failed";
+  private static final long REPORT_INTERVAL_MILLIS = 10000;
+
+  private final Path progressFolder;
+  private final int threads;
+  private final int maxFailures;
+
+  public MigrationExecutor(Path progressFolder, int threads) {
+    this(progressFolder, threads, UNLIMITED_FAILURES);
+  }
+
+  /**
+   * @param maxFailures
+   *          the number of resources that can fail for the migration to be
+   *          complete, or {@link #UNLIMITED_FAILURES}.
+   */
+  public MigrationExecutor(Path progressFolder, int threads, int maxFailures) {
+    this.progressFolder = progressFolder;
+    this.threads = Math.max(1, threads);
+    this.maxFailures = maxFailures;
+  }
+
+  /**
+   * @param migrationId
+   *          identifies the migration (e.g. the model class and the version it
+   *          migrates to) and therefore its progress file.
+   * @return the number of resources migrated by this run.
+   * @throws GenericException
+   *           if more resources than the tolerated ones could not be migrated,
+   *           which are the only ones migrated in the next run.
+   */
+  public long migrate(StorageService storage, PartitionedMigrationAction<?> action, String migrationId)
+    throws RODAException {
+    Path progressFile = progressFolder.resolve(migrationId + PROGRESS_SUFFIX);
+    Set<String> migrated = readProgress(progressFile);
+    if (!migrated.isEmpty()) {
+      LOGGER.info("Resuming migration '{}', {} resources were already migrated", migrationId, migrated.size());
+    }
+
+    AtomicLong done = new AtomicLong(0);
+    Queue<String> failed = new ConcurrentLinkedQueue<>();
+    long start = System.currentTimeMillis();
+    AtomicLong lastReport = new AtomicLong(start);
+
+    // at most a few resources per worker are waiting, however big the
+    // container is
+    Semaphore pending = new Semaphore(threads * 4);
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder().setNameFormat("migration-%d").setDaemon(true).build());
+
+    try (Writer progress = Files.newBufferedWriter(progressFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+      StandardOpenOption.APPEND);
+      CloseableIterable<Resource> resources = storage.listResourcesUnderDirectory(action.getContainerPath(), false)) {
+      for (Resource resource : resources) {
+        String name = resource.getStoragePath().getName();
+        if (migrated.contains(name)) {
+          continue;
+        }
+
+        pending.acquire();
+        executor.execute(() -> {
+          try {
+            action.migrate(storage, resource);
+            recordProgress(progress, name);
+            long count = done.incrementAndGet();
+            reportThroughput(migrationId, count, start, lastReport);
+          } catch (RODAException | IOException | RuntimeException e) {
+            LOGGER.error("Could not migrate {}", resource.getStoragePath(), e);
+            failed.add(name);
+          } finally {
+            pending.release();
+          }
+        });
+      }
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (NotFoundException e) {
+      LOGGER.warn("Nothing to migrate under {}", action.getContainerPath(), e);
+    } catch (IOException e) {
+      throw new GenericException("Could not migrate '" + migrationId + "'", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while migrating '" + migrationId + "'", e);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    long duration = Math.max(1, System.currentTimeMillis() - start);
+    LOGGER.info("Migration '{}' migrated {} resources in {} ms ({} resources per second) with {} workers",
+      migrationId, done.get(), duration, done.get() * 1000 / duration, threads);
+
+    if (!failed.isEmpty()) {
+      if (maxFailures != UNLIMITED_FAILURES && failed.size() > maxFailures) {
+        throw new GenericException(failed.size() + " resources could not be migrated by '" + migrationId
+          + "', more than the " + maxFailures + " tolerated, see the log for details");
+      }
+      Path failedFile = progressFolder.resolve(migrationId + FAILED_SUFFIX);
+      recordFailures(failedFile, failed);
+      LOGGER.warn("Migration '{}' skipped {} resources that could not be migrated, which are listed in {}",
+        migrationId, failed.size(), failedFile);
+    }
+
+    FSUtils.deletePathQuietly(progressFile);
+    return done.get();
+  }
+
+  private static void recordFailures(Path failedFile, Collection<String> failed) throws GenericException {
+    try {
+      Files.write(failedFile, failed, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new GenericException("Could not write the resources that failed to migrate to " + failedFile, e);
+    }
+  }
+
+  private Set<String> readProgress(Path progressFile) throws GenericException {
+    Set<String> migrated = new HashSet<>();
+    try {
+      Files.createDirectories(progressFolder);
+      if (Files.exists(progressFile)) {
+        try (BufferedReader reader = Files.newBufferedReader(progressFile, StandardCharsets.UTF_8)) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+              migrated.add(line);
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new GenericException("Could not read the migration progress file " + progressFile, e);
+    }
+    return migrated;
+  }
+
+  /**
+   * The name is flushed at once, as the migration can be interrupted at any
+   * moment.
+   */
+  private static void recordProgress(Writer progress, String name) throws IOException {
+    synchronized (progress) {
+      progress.write(name + "\n");
+      progress.flush();
+    }
+  }
+
+  private static void reportThroughput(String migrationId, long count, long start, AtomicLong lastReport) {
+    long now = System.currentTimeMillis();
+    long last = lastReport.get();
+    if (now - last >= REPORT_INTERVAL_MILLIS && lastReport.compareAndSet(last, now)) {
+      LOGGER.info("Migration '{}' has migrated {} resources ({} resources per second)", migrationId, count,
+        count * 1000 / Math.max(1, now - start));
+    }
+  }
+}
@@ -51,12 +51,14 @@ public class MigrationManager {
   private static final Logger LOGGER = LoggerFactory.getLogger(MigrationManager.class);
 
   private Path modelInfoFile;
+  private Path progressFolder;
   // map<model class, workflow>
   private Map<String, MigrationWorkflow> modelMigrations = new HashMap<>();
 
   public MigrationManager(Path dataFolder) {
     super();
     this.modelInfoFile = dataFolder.resolve("model.json");
+    this.progressFolder = dataFolder.resolve("migration");
   }
 
   // 20161031 hsilva: this method is not invoked in the constructor as it might
@@ -191,6 +193,10 @@ public class MigrationManager {
 
   public void performModelMigrations() throws GenericException {
     ModelInfo modelInfo = JsonUtils.getObjectFromJson(modelInfoFile, ModelInfo.class);
+    int threads = RodaCoreFactory.getRodaConfigurationAsInt(Runtime.getRuntime().availableProcessors(), "core",
+      "migration", "threads");
+    int maxFailures = RodaCoreFactory.getRodaConfigurationAsInt(MigrationExecutor.UNLIMITED_FAILURES, "core",
+      "migration", "max_failures");
 
     // perform migrations
     for (Entry<String, MigrationWorkflow> classMigrations : modelMigrations.entrySet()) {
@@ -216,8 +222,15 @@ public class MigrationManager {
 
         LOGGER.info("Migrating to version {} using class '{}'", toVersion, migrationClass.getName());
         try {
-          // migrate
-          migrationClass.newInstance().migrate(RodaCoreFactory.getStorageService());
+          // migrate (in parallel & resuming from where a previous run stopped,
+          // if the action can be partitioned)
+          MigrationAction<?> migrationAction = migrationClass.newInstance();
+          if (migrationAction instanceof PartitionedMigrationAction) {
+            new MigrationExecutor(progressFolder, threads, maxFailures).migrate(RodaCoreFactory.getStorageService(),
+              (PartitionedMigrationAction<?>) migrationAction, className + "-" + toVersion);
+          } else {
+            migrationAction.migrate(RodaCoreFactory.getStorageService());
+          }
           LOGGER.info("Migrated with success to version {}", toVersion);
 
           // update class specific version after successful migration
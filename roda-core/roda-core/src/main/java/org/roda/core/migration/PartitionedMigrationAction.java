@@ -0,0 +1,61 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.migration;
+
+import java.io.IOException;
+
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.IsModelObject;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.storage.Resource;
+import org.roda.core.storage.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A migration action that migrates each resource directly under a container
+ * (e.g. each AIP) on its own, so that {@link MigrationExecutor} can migrate
+ * several resources at once and resume an interrupted migration.
+ */
+public interface PartitionedMigrationAction<T extends IsModelObject> extends MigrationAction<T> {
+
+  /**
+   * The container (or directory) whose resources are migrated.
+   */
+  public StoragePath getContainerPath() throws RODAException;
+
+  /**
+   * Migrates one of the resources directly under the container. It can be
+   * invoked for several resources at the same time.
+   */
+  public void migrate(StorageService storage, Resource resource) throws RODAException;
+
+  /**
+   * Migrates the resources one after the other.
+   */
+  @Override
+  public default void migrate(StorageService storage) throws RODAException {
+    Logger logger = LoggerFactory.getLogger(getClass());
+    try (CloseableIterable<Resource> resources = storage.listResourcesUnderDirectory(getContainerPath(), false)) {
+      for (Resource resource : resources) {
+        try {
+          migrate(storage, resource);
+        } catch (RODAException | RuntimeException e) {
+          logger.error("Could not migrate {}", resource.getStoragePath(), e);
+        }
+      }
+    } catch (NotFoundException e) {
+      logger.warn("Nothing to migrate under {}", getContainerPath(), e);
+    } catch (IOException e) {
+      throw new GenericException(e);
+    }
+  }
+}
@@ -12,11 +12,12 @@ import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.ip.StoragePath;
 import org.roda.core.data.v2.risks.Risk;
-import org.roda.core.migration.MigrationAction;
+import org.roda.core.migration.PartitionedMigrationAction;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.storage.Binary;
 import org.roda.core.storage.Resource;
@@ -28,7 +29,7 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
-public class RiskToVersion2 implements MigrationAction<Risk> {
+public class RiskToVersion2 implements PartitionedMigrationAction<Risk> {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RiskToVersion2.class);
 
@@ -43,21 +44,19 @@ public class RiskToVersion2 implements MigrationAction<Risk> {
   }
 
   @Override
-  public void migrate(StorageService storage) throws RODAException {
-    try (CloseableIterable<Resource> risks = storage.listResourcesUnderDirectory(ModelUtils.getRiskContainerPath(),
-      false)) {
-      for (Resource resource : risks) {
-        if (!resource.isDirectory() && resource instanceof Binary) {
-          Binary binary = (Binary) resource;
-          migrate(storage, binary);
-        }
-      }
-    } catch (IOException e) {
-      throw new RODAException(e);
+  public StoragePath getContainerPath() throws RODAException {
+    return ModelUtils.getRiskContainerPath();
+  }
+
+  @Override
+  public void migrate(StorageService storage, Resource resource) throws RODAException {
+    if (!resource.isDirectory() && resource instanceof Binary) {
+      Binary binary = (Binary) resource;
+      migrate(storage, binary);
     }
   }
 
-  private void migrate(StorageService storage, Binary binary) {
+  private void migrate(StorageService storage, Binary binary) throws RODAException {
     try (InputStream inputStream = binary.getContent().createInputStream()) {
       JsonNode json = JsonUtils.parseJson(inputStream);
       if (json instanceof ObjectNode) {
@@ -72,8 +71,8 @@ public class RiskToVersion2 implements MigrationAction<Risk> {
         LOGGER.error("Could not migrate risk {} because the JSON is not an object node", binary.getStoragePath());
       }
 
-    } catch (IOException | RODAException e) {
-      LOGGER.error("Could not migrate risk {}", binary.getStoragePath(), e);
+    } catch (IOException e) {
+      throw new GenericException("Could not migrate risk " + binary.getStoragePath(), e);
     }
   }
 
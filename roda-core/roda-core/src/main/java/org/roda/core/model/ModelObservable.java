@@ -17,6 +17,7 @@ import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.DIP;
 import org.roda.core.data.v2.ip.DIPFile;
 import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
 import org.roda.core.data.v2.ip.metadata.OtherMetadata;
@@ -75,6 +76,10 @@ public abstract class ModelObservable {
     return notifyObserversSafely(observer -> observer.aipMoved(aip, oldParentId, newParentId));
   }
 
+  public ReturnWithExceptionsWrapper notifyAipsMoved(List<AIP> aips, String newParentId) {
+    return notifyObserversSafely(observer -> observer.aipsMoved(aips, newParentId));
+  }
+
   public ReturnWithExceptionsWrapper notifyAipStateUpdated(AIP aip) {
     return notifyObserversSafely(observer -> observer.aipStateUpdated(aip));
   }
@@ -83,6 +88,10 @@ public abstract class ModelObservable {
     return notifyObserversSafely(observer -> observer.aipDeleted(aipId, true));
   }
 
+  public ReturnWithExceptionsWrapper notifyAipsDeleted(List<String> aipIds) {
+    return notifyObserversSafely(observer -> observer.aipsDeleted(aipIds, true));
+  }
+
   public ReturnWithExceptionsWrapper notifyDescriptiveMetadataCreated(DescriptiveMetadata descriptiveMetadata) {
     return notifyObserversSafely(observer -> observer.descriptiveMetadataCreated(descriptiveMetadata));
   }
@@ -156,6 +165,10 @@ public abstract class ModelObservable {
     return notifyObserversSafely(observer -> observer.preservationMetadataCreated(preservationMetadataBinary));
   }
 
+  public ReturnWithExceptionsWrapper notifyPreservationEventsCreated(List<PreservationMetadata> events) {
+    return notifyObserversSafely(observer -> observer.preservationEventsCreated(events));
+  }
+
   public ReturnWithExceptionsWrapper notifyPreservationMetadataUpdated(
     PreservationMetadata preservationMetadataBinary) {
     return notifyObserversSafely(observer -> observer.preservationMetadataUpdated(preservationMetadataBinary));
@@ -189,6 +202,10 @@ public abstract class ModelObservable {
     return notifyObserversSafely(observer -> observer.aipPermissionsUpdated(aip));
   }
 
+  public ReturnWithExceptionsWrapper notifyAipsPermissionsUpdated(List<String> aipIds, Permissions permissions) {
+    return notifyObserversSafely(observer -> observer.aipsPermissionsUpdated(aipIds, permissions));
+  }
+
   public ReturnWithExceptionsWrapper notifyDipPermissionsUpdated(DIP dip) {
     return notifyObserversSafely(observer -> observer.dipPermissionsUpdated(dip));
   }
@@ -209,6 +226,11 @@ public abstract class ModelObservable {
     return notifyObserversSafely(observer -> observer.riskIncidenceCreatedOrUpdated(riskIncidence, commit));
   }
 
+  public ReturnWithExceptionsWrapper notifyRiskIncidencesCreatedOrUpdated(List<RiskIncidence> riskIncidences,
+    boolean commit) {
+    return notifyObserversSafely(observer -> observer.riskIncidencesCreatedOrUpdated(riskIncidences, commit));
+  }
+
   public ReturnWithExceptionsWrapper notifyRiskIncidenceDeleted(String riskIncidenceId, boolean commit) {
     return notifyObserversSafely(observer -> observer.riskIncidenceDeleted(riskIncidenceId, commit));
   }
@@ -14,6 +14,7 @@ import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.DIP;
 import org.roda.core.data.v2.ip.DIPFile;
 import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
 import org.roda.core.data.v2.ip.metadata.OtherMetadata;
@@ -38,8 +39,12 @@ public interface ModelObserver {
 
   public ReturnWithExceptions<Void, ModelObserver> aipMoved(AIP aip, String oldParentId, String newParentId);
 
+  public ReturnWithExceptions<Void, ModelObserver> aipsMoved(List<AIP> aips, String newParentId);
+
   public ReturnWithExceptions<Void, ModelObserver> aipDeleted(String aipId, boolean deleteIncidences);
 
+  public ReturnWithExceptions<Void, ModelObserver> aipsDeleted(List<String> aipIds, boolean deleteIncidences);
+
   public ReturnWithExceptions<Void, ModelObserver> descriptiveMetadataCreated(
     DescriptiveMetadata descriptiveMetadataBinary);
 
@@ -80,6 +85,8 @@ public interface ModelObserver {
   public ReturnWithExceptions<Void, ModelObserver> preservationMetadataCreated(
     PreservationMetadata preservationMetadataBinary);
 
+  public ReturnWithExceptions<Void, ModelObserver> preservationEventsCreated(List<PreservationMetadata> events);
+
   public ReturnWithExceptions<Void, ModelObserver> preservationMetadataUpdated(
     PreservationMetadata preservationMetadataBinary);
 
@@ -98,6 +105,9 @@ public interface ModelObserver {
 
   public ReturnWithExceptions<Void, ModelObserver> aipPermissionsUpdated(AIP aip);
 
+  public ReturnWithExceptions<Void, ModelObserver> aipsPermissionsUpdated(List<String> aipIds,
+    Permissions permissions);
+
   public ReturnWithExceptions<Void, ModelObserver> dipPermissionsUpdated(DIP dip);
 
   public ReturnWithExceptions<Void, ModelObserver> transferredResourceDeleted(String transferredResourceID);
@@ -109,6 +119,9 @@ public interface ModelObserver {
   public ReturnWithExceptions<Void, ModelObserver> riskIncidenceCreatedOrUpdated(RiskIncidence riskIncidence,
     boolean commit);
 
+  public ReturnWithExceptions<Void, ModelObserver> riskIncidencesCreatedOrUpdated(List<RiskIncidence> riskIncidences,
+    boolean commit);
+
   public ReturnWithExceptions<Void, ModelObserver> riskIncidenceDeleted(String riskIncidenceId, boolean commit);
 
   public ReturnWithExceptions<Void, ModelObserver> representationInformationCreatedOrUpdated(
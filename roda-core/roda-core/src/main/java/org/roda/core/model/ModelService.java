@@ -30,6 +30,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.IOUtils;
@@ -119,6 +123,8 @@ import org.roda.core.util.IdUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Class that "relates" Model & Storage
  * 
@@ -131,6 +137,7 @@ public class ModelService extends ModelObservable {
 
   private static final DateTimeFormatter LOG_NAME_DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
   private static final boolean FAIL_IF_NO_DESCRIPTIVE_METADATA_SCHEMA = false;
+  private static final int DEFAULT_PERMISSIONS_UPDATE_THREADS = 8;
   private final StorageService storage;
   private final EventsManager eventsManager;
   private final NodeType nodeType;
@@ -496,6 +503,43 @@ public class ModelService extends ModelObservable {
     return aip;
   }
 
+  /**
+   * Moves several AIPs under the same parent. Only the metadata file of each
+   * moved AIP is rewritten, and the index documents of all of them and of all
+   * their sublevels are then relocated at once.
+   * 
+   * @return the AIPs that were moved, the others were not found or could not be
+   *         written.
+   */
+  public List<AIP> moveAIPs(List<String> aipIds, String parentId, String updatedBy)
+    throws GenericException, RequestNotValidException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+
+    if (aipIds.contains(parentId)) {
+      throw new RequestNotValidException("Cannot set itself as its parent: " + parentId);
+    }
+
+    List<AIP> moved = new ArrayList<>();
+    Date updatedOn = new Date();
+    for (String aipId : aipIds) {
+      try {
+        AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
+        aip.setParentId(parentId);
+        aip.setUpdatedOn(updatedOn);
+        aip.setUpdatedBy(updatedBy);
+        updateAIPMetadata(aip);
+        moved.add(aip);
+      } catch (NotFoundException | GenericException e) {
+        LOGGER.error("Could not move AIP {}", aipId, e);
+      }
+    }
+
+    if (!moved.isEmpty()) {
+      notifyAipsMoved(moved, parentId).failOnError();
+    }
+    return moved;
+  }
+
   public void deleteAIP(String aipId)
     throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
@@ -505,6 +549,34 @@ public class ModelService extends ModelObservable {
     notifyAipDeleted(aipId).failOnError();
   }
 
+  /**
+   * Deletes several AIPs, moving their folders to the trash and then removing
+   * all their index documents at once, which is much faster than deleting them
+   * one by one.
+   * 
+   * @return the ids of the AIPs that were deleted, the others were not found or
+   *         could not be moved to the trash.
+   */
+  public List<String> deleteAIPs(List<String> aipIds)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+
+    List<String> deleted = new ArrayList<>();
+    for (String aipId : aipIds) {
+      try {
+        storage.deleteResource(ModelUtils.getAIPStoragePath(aipId));
+        deleted.add(aipId);
+      } catch (NotFoundException | GenericException e) {
+        LOGGER.error("Could not delete AIP {}", aipId, e);
+      }
+    }
+
+    if (!deleted.isEmpty()) {
+      notifyAipsDeleted(deleted).failOnError();
+    }
+    return deleted;
+  }
+
   private ValidationReport isAIPvalid(ModelService model, Directory directory,
     boolean failIfNoDescriptiveMetadataSchema)
     throws GenericException, RequestNotValidException, NotFoundException, AuthorizationDeniedException {
@@ -1117,6 +1189,20 @@ public class ModelService extends ModelObservable {
     return file;
   }
 
+  /**
+   * Moves a file or folder of another storage into the data of a
+   * representation, which is a rename if both are in the same file system. The
+   * files are not notified.
+   */
+  public void moveFiles(StorageService sourceStorage, StoragePath sourcePath, String aipId, String representationId,
+    List<String> directoryPath, String fileId) throws RequestNotValidException, GenericException,
+    AlreadyExistsException, AuthorizationDeniedException, NotFoundException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+
+    StoragePath filePath = ModelUtils.getFileStoragePath(aipId, representationId, directoryPath, fileId);
+    storage.move(sourceStorage, sourcePath, filePath);
+  }
+
   public File updateFile(String aipId, String representationId, List<String> directoryPath, String fileId,
     ContentPayload contentPayload, boolean createIfNotExists, boolean notify)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
@@ -1226,8 +1312,11 @@ public class ModelService extends ModelObservable {
       outcomeText, outcomeDetail, agentName, notify);
   }
 
-  public void createEvent(String aipId, String representationId, List<String> filePath, String fileId,
-    PreservationEventType eventType, String eventDescription, List<LinkingIdentifier> sources,
+  /**
+   * @return the created event, or null if it could not be created.
+   */
+  public PreservationMetadata createEvent(String aipId, String representationId, List<String> filePath,
+    String fileId, PreservationEventType eventType, String eventDescription, List<LinkingIdentifier> sources,
     List<LinkingIdentifier> targets, PluginState outcomeState, String outcomeText, String outcomeDetail,
     String agentName, boolean notify) {
     try {
@@ -1237,15 +1326,16 @@ public class ModelService extends ModelObservable {
           .append("\n").append(outcomeDetail);
       }
 
-      createEvent(aipId, representationId, filePath, fileId, eventType, eventDescription, sources, targets,
+      return createEvent(aipId, representationId, filePath, fileId, eventType, eventDescription, sources, targets,
         outcomeState, builder.toString(), "", Arrays.asList(IdUtils.getUserAgentId(agentName)), notify);
     } catch (ValidationException | AlreadyExistsException | GenericException | NotFoundException
       | RequestNotValidException | AuthorizationDeniedException e1) {
       LOGGER.error("Could not create an event for: " + eventDescription, e1);
+      return null;
     }
   }
 
-  public void createEvent(String aipId, String representationId, List<String> filePath, String fileId,
+  public PreservationMetadata createEvent(String aipId, String representationId, List<String> filePath, String fileId,
     PreservationEventType eventType, String eventDescription, List<LinkingIdentifier> sources,
     List<LinkingIdentifier> targets, PluginState outcomeState, String outcomeDetail, String outcomeExtension,
     List<String> agentIds, boolean notify) throws GenericException, ValidationException, NotFoundException,
@@ -1258,15 +1348,17 @@ public class ModelService extends ModelObservable {
 
     if (eventType.equals(PreservationEventType.DELETION)) {
       if (aipId != null && representationId == null) {
-        createPreservationMetadata(PreservationMetadataType.EVENT, id, null, null, null, null, premisEvent, notify);
+        return createPreservationMetadata(PreservationMetadataType.EVENT, id, null, null, null, null, premisEvent,
+          notify);
       } else if (representationId != null && fileId == null) {
-        createPreservationMetadata(PreservationMetadataType.EVENT, id, aipId, null, null, null, premisEvent, notify);
-      } else {
-        createPreservationMetadata(PreservationMetadataType.EVENT, id, aipId, representationId, null, null, premisEvent,
+        return createPreservationMetadata(PreservationMetadataType.EVENT, id, aipId, null, null, null, premisEvent,
           notify);
+      } else {
+        return createPreservationMetadata(PreservationMetadataType.EVENT, id, aipId, representationId, null, null,
+          premisEvent, notify);
       }
     } else {
-      createPreservationMetadata(PreservationMetadataType.EVENT, id, aipId, representationId, filePath, fileId,
+      return createPreservationMetadata(PreservationMetadataType.EVENT, id, aipId, representationId, filePath, fileId,
         premisEvent, notify);
     }
   }
@@ -2303,6 +2395,62 @@ public class ModelService extends ModelObservable {
     notifyAipPermissionsUpdated(aip).failOnError();
   }
 
+  /**
+   * Sets the same permissions on several AIPs, writing their metadata files
+   * concurrently and then updating all their index documents at once.
+   * 
+   * @return the ids of the AIPs that were updated, the others were not found or
+   *         could not be written.
+   */
+  public List<String> updateAIPsPermissions(List<String> aipIds, Permissions permissions, String updatedBy)
+    throws GenericException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+
+    int threads = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_PERMISSIONS_UPDATE_THREADS, "core", "permissions",
+      "update", "threads");
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, aipIds.size())),
+      new ThreadFactoryBuilder().setNameFormat("permissions-update-%d").setDaemon(true).build());
+
+    List<String> updated = new ArrayList<>();
+    try {
+      Date updatedOn = new Date();
+      List<Future<?>> writes = new ArrayList<>();
+      for (String aipId : aipIds) {
+        writes.add(executor.submit(() -> {
+          AIP aip = retrieveAIP(aipId);
+          aip.setPermissions(permissions);
+          aip.setUpdatedBy(updatedBy);
+          aip.setUpdatedOn(updatedOn);
+          updateAIPMetadata(aip);
+          return null;
+        }));
+      }
+
+      for (int i = 0; i < aipIds.size(); i++) {
+        try {
+          writes.get(i).get();
+          updated.add(aipIds.get(i));
+        } catch (ExecutionException e) {
+          LOGGER.error("Could not update permissions of AIP {}", aipIds.get(i), e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Interrupted while updating AIP permissions", e);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // the AIPs already written must be indexed even if interrupted
+    if (!updated.isEmpty()) {
+      notifyAipsPermissionsUpdated(updated, permissions).failOnError();
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      throw new GenericException("Interrupted while updating AIP permissions");
+    }
+    return updated;
+  }
+
   public void updateDIPPermissions(DIP dip)
     throws GenericException, NotFoundException, RequestNotValidException, AuthorizationDeniedException {
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
@@ -2450,6 +2598,65 @@ public class ModelService extends ModelObservable {
     return riskIncidence;
   }
 
+  /**
+   * Creates several risk incidences, sending them to the index in batches.
+   * 
+   * @return the incidences that were created, the others could not be written.
+   */
+  public List<RiskIncidence> createRiskIncidences(List<RiskIncidence> riskIncidences, boolean commit)
+    throws GenericException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+
+    List<RiskIncidence> created = new ArrayList<>();
+    Date detectedOn = new Date();
+    for (RiskIncidence riskIncidence : riskIncidences) {
+      try {
+        riskIncidence.setId(IdUtils.createUUID());
+        riskIncidence.setDetectedOn(detectedOn);
+
+        String riskIncidenceAsJson = JsonUtils.getJsonFromObject(riskIncidence);
+        StoragePath riskIncidencePath = ModelUtils.getRiskIncidenceStoragePath(riskIncidence.getId());
+        storage.createBinary(riskIncidencePath, new StringContentPayload(riskIncidenceAsJson), false);
+        created.add(riskIncidence);
+      } catch (GenericException | RequestNotValidException | AuthorizationDeniedException | NotFoundException
+        | AlreadyExistsException e) {
+        LOGGER.error("Error creating risk incidence in storage", e);
+      }
+    }
+
+    if (!created.isEmpty()) {
+      notifyRiskIncidencesCreatedOrUpdated(created, commit).failOnError();
+    }
+    return created;
+  }
+
+  /**
+   * Updates several risk incidences, sending them to the index in batches.
+   * 
+   * @return the incidences that were updated, the others could not be written.
+   */
+  public List<RiskIncidence> updateRiskIncidences(List<RiskIncidence> riskIncidences, boolean commit)
+    throws GenericException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+
+    List<RiskIncidence> updated = new ArrayList<>();
+    for (RiskIncidence riskIncidence : riskIncidences) {
+      try {
+        String riskIncidenceAsJson = JsonUtils.getJsonFromObject(riskIncidence);
+        StoragePath riskIncidencePath = ModelUtils.getRiskIncidenceStoragePath(riskIncidence.getId());
+        storage.updateBinaryContent(riskIncidencePath, new StringContentPayload(riskIncidenceAsJson), false, true);
+        updated.add(riskIncidence);
+      } catch (GenericException | RequestNotValidException | AuthorizationDeniedException | NotFoundException e) {
+        LOGGER.error("Error updating risk incidence in storage", e);
+      }
+    }
+
+    if (!updated.isEmpty()) {
+      notifyRiskIncidencesCreatedOrUpdated(updated, commit).failOnError();
+    }
+    return updated;
+  }
+
   public void deleteRiskIncidence(String riskIncidenceId, boolean commit)
     throws GenericException, NotFoundException, AuthorizationDeniedException, RequestNotValidException {
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
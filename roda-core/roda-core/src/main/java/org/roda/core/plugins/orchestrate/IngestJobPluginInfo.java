@@ -226,6 +226,28 @@ public class IngestJobPluginInfo extends JobPluginInfo {
     }
   }
 
+  /**
+   * Adds the reports and the transferred resource/AIP mappings of another info,
+   * e.g. one of a single SIP ingested on its own, to this one.
+   */
+  public void merge(IngestJobPluginInfo other) {
+    other.allReports.forEach((sourceObjectId, reports) -> {
+      Map<String, Report> innerReports = allReports.computeIfAbsent(sourceObjectId, key -> new HashMap<>());
+      innerReports.putAll(reports);
+      if (other.reportsFromBeingProcessed.containsKey(sourceObjectId)) {
+        reportsFromBeingProcessed.put(sourceObjectId, innerReports);
+      }
+    });
+    other.transferredResourceToAipIds.forEach((sourceObjectId, aipIds) -> {
+      List<String> ids = transferredResourceToAipIds.computeIfAbsent(sourceObjectId, key -> new ArrayList<>());
+      aipIds.stream().filter(id -> !ids.contains(id)).forEach(ids::add);
+    });
+    other.aipIdToTransferredResourceIds.forEach((aipId, sourceObjectIds) -> {
+      List<String> ids = aipIdToTransferredResourceIds.computeIfAbsent(aipId, key -> new ArrayList<>());
+      sourceObjectIds.stream().filter(id -> !ids.contains(id)).forEach(ids::add);
+    });
+  }
+
   public void remove(String transferredResourceId) {
     reportsFromBeingProcessed.remove(transferredResourceId);
     transferredResourceToAipIds.remove(transferredResourceId);
@@ -0,0 +1,345 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.antivirus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.configuration.Configuration;
+import org.roda.core.RodaCoreFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The Clam anti-virus daemon (clamd), reached through TCP.
+ *
+ * Unlike {@link ClamAntiVirus}, the signature database is only loaded once, by
+ * the daemon. By default each file is streamed to clamd with
+ * <code>INSTREAM</code>, concurrently, over a pool of <code>IDSESSION</code>
+ * connections, so clamd does not need access to the files. If clamd runs on
+ * the same host, <code>MULTISCAN</code> can be used instead, and clamd scans
+ * the files itself using its own threads. In that case clamd only names the
+ * files that are not clean, so a clean folder gets a single verdict for the
+ * whole folder instead of one for each file.
+ */
+public class ClamdAntiVirus implements AntiVirus {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClamdAntiVirus.class);
+
+  private static final String CONFIGURATION_PREFIX = "core.plugins.internal.virus_check.clamd.";
+  private static final String DEFAULT_HOST = "localhost";
+  private static final int DEFAULT_PORT = 3310;
+  private static final int DEFAULT_CONNECTIONS = 4;
+  private static final int DEFAULT_TIMEOUT_MILLIS = 60000;
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private static final String VERDICT_OK = "OK";
+  private static final String VERDICT_ERROR_SUFFIX = " ERROR";
+  private static final String STREAM_REPLY_PREFIX = "stream: ";
+  private static final String PATH_REPLY_SEPARATOR = ": ";
+  private static final Pattern SESSION_REPLY_PREFIX = Pattern.compile("^[0-9]+: ");
+
+  private final InetSocketAddress address;
+  private final int timeout;
+  private final int connections;
+  private final boolean multiscan;
+  private final BlockingQueue<ClamdSession> sessions = new LinkedBlockingQueue<>();
+
+  public ClamdAntiVirus() {
+    this(getConfiguration().getString(CONFIGURATION_PREFIX + "host", DEFAULT_HOST),
+      getConfiguration().getInt(CONFIGURATION_PREFIX + "port", DEFAULT_PORT),
+      getConfiguration().getInt(CONFIGURATION_PREFIX + "connections", DEFAULT_CONNECTIONS),
+      getConfiguration().getInt(CONFIGURATION_PREFIX + "timeout", DEFAULT_TIMEOUT_MILLIS),
+      getConfiguration().getBoolean(CONFIGURATION_PREFIX + "multiscan", false));
+  }
+
+  /**
+   * @param connections
+   *          the maximum number of files streamed to clamd at the same time,
+   *          each through its own connection.
+   * @param timeout
+   *          the connection and read timeout, in milliseconds.
+   * @param multiscan
+   *          if clamd scans the files itself, which requires it to run on the
+   *          same host.
+   */
+  public ClamdAntiVirus(String host, int port, int connections, int timeout, boolean multiscan) {
+    this.address = new InetSocketAddress(host, port);
+    this.timeout = timeout;
+    this.connections = connections;
+    this.multiscan = multiscan;
+  }
+
+  private static Configuration getConfiguration() {
+    return RodaCoreFactory.getRodaConfiguration();
+  }
+
+  /**
+   * Performs a virus check on the specified path.
+   *
+   * @param path
+   *          a path to scan.
+   *
+   * @return the results of the virus check as a {@link VirusCheckResult}, with
+   *         the verdict of each file or, with <code>MULTISCAN</code>, of each
+   *         file that is not clean.
+   *
+   * @throws RuntimeException
+   *           if clamd could not be reached or a file could not be read.
+   * @see AntiVirus
+   */
+  @Override
+  public VirusCheckResult checkForVirus(Path path) throws RuntimeException {
+    LOGGER.debug("Executing clamd virus scan in {}", path);
+    VirusCheckResult result = new VirusCheckResult();
+
+    String folderVerdict = null;
+    try {
+      if (multiscan) {
+        folderVerdict = multiscan(path, result);
+      } else {
+        instream(path, result);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error executing clamd virus scan in " + path, e);
+    }
+
+    List<String> notOk = new ArrayList<>();
+    for (Entry<String, String> verdict : result.getFileVerdicts().entrySet()) {
+      if (!VERDICT_OK.equals(verdict.getValue())) {
+        notOk.add(verdict.getKey() + PATH_REPLY_SEPARATOR + verdict.getValue());
+      }
+    }
+
+    int notClean = notOk.size();
+    if (folderVerdict != null && !VERDICT_OK.equals(folderVerdict)) {
+      notOk.add(path.getFileName() + PATH_REPLY_SEPARATOR + folderVerdict);
+    }
+
+    result.setClean(notOk.isEmpty());
+    if (multiscan) {
+      notOk.add(String.format("Scanned folder with MULTISCAN, which only names the files that are not clean, "
+        + "not clean: %d", notClean));
+    } else {
+      notOk.add(String.format("Scanned files: %d, not clean: %d", result.getFileVerdicts().size(), notClean));
+    }
+    result.setReport(String.join("\n", notOk));
+    return result;
+  }
+
+  private void instream(Path path, VirusCheckResult result) throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(path)) {
+      files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(connections, files.size())),
+      new ThreadFactoryBuilder().setNameFormat("clamd-scan-%d").setDaemon(true).build());
+    List<Future<String>> verdicts = new ArrayList<>();
+    for (Path file : files) {
+      verdicts.add(executor.submit(() -> instream(file)));
+    }
+
+    try {
+      for (int i = 0; i < files.size(); i++) {
+        result.addFileVerdict(path.relativize(files.get(i)).toString(), verdicts.get(i).get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for clamd", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Error streaming file to clamd", e.getCause());
+    } finally {
+      verdicts.forEach(verdict -> verdict.cancel(true));
+      executor.shutdownNow();
+    }
+  }
+
+  private String instream(Path file) throws IOException {
+    ClamdSession session = sessions.poll();
+    boolean reused = session != null;
+    if (session == null) {
+      session = new ClamdSession();
+    }
+
+    try {
+      String verdict = session.instream(file);
+      if (verdict.endsWith(VERDICT_ERROR_SUFFIX)) {
+        // clamd closes the connection on errors (e.g. stream size limit)
+        session.close();
+      } else {
+        sessions.add(session);
+      }
+      return verdict;
+    } catch (IOException e) {
+      session.close();
+      if (reused) {
+        // pooled sessions may have been closed by clamd idle timeout
+        LOGGER.debug("Retrying clamd scan of {} with a new connection", file, e);
+        return instream(file);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * @return the verdict given to the whole folder, which clamd only sends when
+   *         no file was named, or <code>null</code> if some file was.
+   */
+  private String multiscan(Path path, VirusCheckResult result) throws IOException {
+    Path folder = path.toAbsolutePath();
+    String folderVerdict = null;
+    boolean replied = false;
+    try (Socket socket = connect()) {
+      writeCommand(new DataOutputStream(socket.getOutputStream()), "MULTISCAN " + folder);
+      InputStream in = socket.getInputStream();
+      String reply;
+      while ((reply = readReply(in)) != null) {
+        int separator = reply.lastIndexOf(PATH_REPLY_SEPARATOR);
+        if (separator < 0) {
+          throw new IOException("Unexpected clamd reply: " + reply);
+        }
+
+        replied = true;
+        String verdict = reply.substring(separator + PATH_REPLY_SEPARATOR.length());
+        Path file = folder.relativize(path.getFileSystem().getPath(reply.substring(0, separator)));
+        if (file.toString().isEmpty()) {
+          folderVerdict = verdict;
+        } else {
+          result.addFileVerdict(file.toString(), verdict);
+        }
+      }
+    }
+
+    if (!replied) {
+      throw new IOException("clamd closed the connection without a verdict for " + folder);
+    }
+    return folderVerdict;
+  }
+
+  @Override
+  public String getVersion() {
+    try (Socket socket = connect()) {
+      writeCommand(new DataOutputStream(socket.getOutputStream()), "VERSION");
+      String version = readReply(socket.getInputStream());
+      return version == null ? "1.0" : version;
+    } catch (IOException e) {
+      LOGGER.debug("Error getting clamd version", e);
+      return "1.0";
+    }
+  }
+
+  private Socket connect() throws IOException {
+    Socket socket = new Socket();
+    try {
+      socket.connect(address, timeout);
+      socket.setSoTimeout(timeout);
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+    return socket;
+  }
+
+  private static void writeCommand(DataOutputStream out, String command) throws IOException {
+    // commands prefixed with "z" are delimited, as are their replies, by NULL
+    out.write(("z" + command + "\0").getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+  }
+
+  /**
+   * @return the next NULL delimited reply, or <code>null</code> if the
+   *         connection was closed.
+   */
+  private static String readReply(InputStream in) throws IOException {
+    ByteArrayOutputStream reply = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) > 0) {
+      reply.write(b);
+    }
+
+    if (b < 0 && reply.size() == 0) {
+      return null;
+    }
+    return reply.toString(StandardCharsets.UTF_8.name()).trim();
+  }
+
+  private class ClamdSession implements Closeable {
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final InputStream in;
+
+    public ClamdSession() throws IOException {
+      socket = connect();
+      out = new DataOutputStream(socket.getOutputStream());
+      in = socket.getInputStream();
+      writeCommand(out, "IDSESSION");
+    }
+
+    public String instream(Path file) throws IOException {
+      writeCommand(out, "INSTREAM");
+      byte[] buffer = new byte[CHUNK_SIZE];
+      try (InputStream fileStream = Files.newInputStream(file)) {
+        int read;
+        while ((read = fileStream.read(buffer)) > 0) {
+          out.writeInt(read);
+          out.write(buffer, 0, read);
+        }
+      }
+      out.writeInt(0);
+      out.flush();
+
+      String reply = readReply(in);
+      if (reply == null) {
+        throw new IOException("clamd closed the connection while scanning " + file);
+      }
+
+      // replies in a session are prefixed with the request number
+      String verdict = SESSION_REPLY_PREFIX.matcher(reply).replaceFirst("");
+      return verdict.startsWith(STREAM_REPLY_PREFIX) ? verdict.substring(STREAM_REPLY_PREFIX.length()) : verdict;
+    }
+
+    @Override
+    public void close() {
+      try {
+        writeCommand(out, "END");
+      } catch (IOException e) {
+        LOGGER.trace("Error ending clamd session", e);
+      }
+
+      try {
+        socket.close();
+      } catch (IOException e) {
+        LOGGER.trace("Error closing clamd connection", e);
+      }
+    }
+  }
+
+}
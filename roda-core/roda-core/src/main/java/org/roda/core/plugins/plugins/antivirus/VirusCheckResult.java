@@ -7,6 +7,10 @@
  */
 package org.roda.core.plugins.plugins.antivirus;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
  * This class contains the result of a virus check.
  * 
@@ -25,6 +29,12 @@ public class VirusCheckResult {
    */
   private String report = null;
 
+  /**
+   * The verdict of the anti-virus tool for each file, by file path, when the
+   * tool reports them.
+   */
+  private Map<String, String> fileVerdicts = new TreeMap<>();
+
   /**
    * Constructs an empty {@link VirusCheckResult}.
    */
@@ -48,7 +58,8 @@ public class VirusCheckResult {
 
   @Override
   public String toString() {
-    return getClass().getSimpleName() + "( clean=" + isClean() + ", report=" + getReport() + " )";
+    return getClass().getSimpleName() + "( clean=" + isClean() + ", report=" + getReport() + ", fileVerdicts="
+      + getFileVerdicts() + " )";
   }
 
   /**
@@ -81,4 +92,21 @@ public class VirusCheckResult {
     this.report = report;
   }
 
+  /**
+   * @return the verdict for each file, by file path
+   */
+  public Map<String, String> getFileVerdicts() {
+    return Collections.unmodifiableMap(fileVerdicts);
+  }
+
+  /**
+   * @param path
+   *          the path of the file
+   * @param verdict
+   *          the verdict of the anti-virus tool for that file
+   */
+  public void addFileVerdict(String path, String verdict) {
+    fileVerdicts.put(path, verdict);
+  }
+
 }
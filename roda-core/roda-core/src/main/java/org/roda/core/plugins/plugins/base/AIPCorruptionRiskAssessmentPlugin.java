@@ -74,10 +74,12 @@ import org.slf4j.LoggerFactory;
 public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
   private static final Logger LOGGER = LoggerFactory.getLogger(AIPCorruptionRiskAssessmentPlugin.class);
 
+  static final String FIXITY_RISK_ID = "urn:fixityplugin:r1";
+
   private static List<String> risks;
   static {
     risks = new ArrayList<>();
-    risks.add("urn:fixityplugin:r1");
+    risks.add(FIXITY_RISK_ID);
   }
 
   @Override
@@ -198,12 +200,12 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
                 } else {
                   aipFailed = true;
                   createIncidence(model, index, file.getAipId(), file.getRepresentationId(), file.getPath(),
-                    file.getId(), risks.get(0));
+                    file.getId(), risks.get(0), getName());
                 }
               } else {
                 aipFailed = true;
                 createIncidence(model, index, file.getAipId(), file.getRepresentationId(), file.getPath(), file.getId(),
-                  risks.get(0));
+                  risks.get(0), getName());
               }
             }
           }
@@ -225,7 +227,7 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
                 validationReport.addIssue(issue);
                 aipFailed = true;
                 createIncidence(model, index, aip.getId(), pm.getRepresentationId(), pm.getFileDirectoryPath(),
-                  pm.getFileId(), risks.get(0));
+                  pm.getFileId(), risks.get(0), getName());
               }
             }
           }
@@ -258,16 +260,17 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
     }
   }
 
-  private void createIncidence(ModelService model, IndexService index, String aipId, String representationId,
-    List<String> filePath, String fileId, String riskId)
-          throws RequestNotValidException, GenericException, AuthorizationDeniedException, AlreadyExistsException, NotFoundException {
+  static void createIncidence(ModelService model, IndexService index, String aipId, String representationId,
+    List<String> filePath, String fileId, String riskId, String detectedBy) throws RequestNotValidException,
+    GenericException, AuthorizationDeniedException, AlreadyExistsException, NotFoundException {
     List<RiskIncidence> results = getUnmitigatedIncidences(index, aipId, representationId, filePath, fileId, riskId);
 
     if (results.isEmpty()) {
-      Risk risk = PluginHelper.createRiskIfNotExists(model, riskId, getClass().getClassLoader());
+      Risk risk = PluginHelper.createRiskIfNotExists(model, riskId,
+        AIPCorruptionRiskAssessmentPlugin.class.getClassLoader());
       RiskIncidence incidence = new RiskIncidence();
       incidence.setDetectedOn(new Date());
-      incidence.setDetectedBy(this.getName());
+      incidence.setDetectedBy(detectedBy);
       incidence.setRiskId(riskId);
       incidence.setAipId(aipId);
       incidence.setRepresentationId(representationId);
@@ -284,7 +287,7 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
     }
   }
 
-  private void updateIncidence(ModelService model, IndexService index, String aipId, String representationId,
+  static void updateIncidence(ModelService model, IndexService index, String aipId, String representationId,
     List<String> filePath, String fileId, String riskId)
     throws GenericException, RequestNotValidException, AuthorizationDeniedException {
     List<RiskIncidence> results = getUnmitigatedIncidences(index, aipId, representationId, filePath, fileId, riskId);
@@ -295,8 +298,9 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
     }
   }
 
-  private List<RiskIncidence> getUnmitigatedIncidences(IndexService index, String aipId, String representationId,
-    List<String> filePath, String fileId, String riskId) throws GenericException, RequestNotValidException {
+  private static List<RiskIncidence> getUnmitigatedIncidences(IndexService index, String aipId,
+    String representationId, List<String> filePath, String fileId, String riskId)
+    throws GenericException, RequestNotValidException {
     Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.RISK_INCIDENCE_AIP_ID, aipId),
       new SimpleFilterParameter(RodaConstants.RISK_INCIDENCE_RISK_ID, riskId),
       new SimpleFilterParameter(RodaConstants.RISK_INCIDENCE_STATUS, IncidenceStatus.UNMITIGATED.toString()));
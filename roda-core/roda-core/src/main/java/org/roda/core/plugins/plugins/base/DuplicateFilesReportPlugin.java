@@ -0,0 +1,202 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.base;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.PreservationEventType;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.LiteOptionalWithCause;
+import org.roda.core.data.v2.Void;
+import org.roda.core.data.v2.index.facet.FacetValue;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
+import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.IndexedFile;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.PluginState;
+import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.index.IndexService;
+import org.roda.core.index.utils.IterableIndexResult;
+import org.roda.core.model.ModelService;
+import org.roda.core.plugins.AbstractPlugin;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.PluginException;
+import org.roda.core.plugins.RODAProcessingLogic;
+import org.roda.core.plugins.orchestrate.JobPluginInfo;
+import org.roda.core.plugins.plugins.PluginHelper;
+import org.roda.core.storage.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DuplicateFilesReportPlugin extends AbstractPlugin<Void> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DuplicateFilesReportPlugin.class);
+  private static final int DIGESTS_PAGE_SIZE = 1000;
+
+  @Override
+  public void init() throws PluginException {
+    // do nothing
+  }
+
+  @Override
+  public void shutdown() {
+    // do nothing
+  }
+
+  @Override
+  public String getName() {
+    return "Duplicate files report";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Reports the files of the repository that are identical, i.e. that have the same fixity digest, grouped by digest. The digests are indexed from the PREMIS of each file, so AIPs indexed before this feature existed need to be reindexed first.";
+  }
+
+  @Override
+  public String getVersionImpl() {
+    return "1.0";
+  }
+
+  @Override
+  public Report execute(IndexService index, ModelService model, StorageService storage,
+    List<LiteOptionalWithCause> objects) throws PluginException {
+    return PluginHelper.processVoids(this, new RODAProcessingLogic<Void>() {
+      @Override
+      public void process(IndexService index, ModelService model, StorageService storage, Report report, Job cachedJob,
+        JobPluginInfo jobPluginInfo, Plugin<Void> plugin) {
+        try {
+          reportDuplicates(index, model, report, cachedJob, jobPluginInfo);
+        } catch (GenericException | RequestNotValidException e) {
+          LOGGER.error("Could not find duplicate files", e);
+          jobPluginInfo.incrementObjectsProcessedWithFailure();
+        }
+      }
+    }, index, model, storage);
+  }
+
+  /**
+   * The shared digests are requested a page at a time, so a repository with
+   * many duplicates does not get all of them in a single facet response. The
+   * number of source objects grows as each page is read.
+   */
+  private void reportDuplicates(IndexService index, ModelService model, Report report, Job job,
+    JobPluginInfo jobPluginInfo) throws GenericException, RequestNotValidException {
+    int offset = 0;
+    List<FacetValue> digests;
+    do {
+      digests = index.findDuplicateFileDigests(Filter.ALL, offset, DIGESTS_PAGE_SIZE, null, false).getValues();
+      offset += digests.size();
+      jobPluginInfo.setSourceObjectsCount(offset);
+
+      for (FacetValue digest : digests) {
+        reportDuplicate(index, model, report, job, jobPluginInfo, digest.getValue());
+      }
+    } while (digests.size() == DIGESTS_PAGE_SIZE);
+  }
+
+  private void reportDuplicate(IndexService index, ModelService model, Report report, Job job,
+    JobPluginInfo jobPluginInfo, String digest) {
+    Report reportItem = PluginHelper.initPluginReportItem(this, digest, File.class);
+    try {
+      List<String> files = findFiles(index, digest);
+      reportItem.setPluginState(PluginState.SUCCESS).setPluginDetails(
+        String.format("%d files with digest %s:%n%s", files.size(), digest, String.join("\n", files)));
+      jobPluginInfo.incrementObjectsProcessedWithSuccess();
+    } catch (GenericException | RequestNotValidException | IOException e) {
+      reportItem.setPluginState(PluginState.FAILURE)
+        .setPluginDetails("Could not list the files with digest " + digest + ": " + e.getMessage());
+      jobPluginInfo.incrementObjectsProcessedWithFailure();
+    }
+    report.addReport(reportItem);
+    PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+  }
+
+  private List<String> findFiles(IndexService index, String digest)
+    throws GenericException, RequestNotValidException, IOException {
+    List<String> files = new ArrayList<>();
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_DIGEST, digest));
+    try (IterableIndexResult<IndexedFile> result = index.findAll(IndexedFile.class, filter, false,
+      Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.FILE_AIP_ID, RodaConstants.FILE_REPRESENTATION_ID,
+        RodaConstants.FILE_PATH, RodaConstants.INDEX_ID))) {
+      for (IndexedFile file : result) {
+        List<String> path = new ArrayList<>();
+        path.add(file.getAipId());
+        path.add(file.getRepresentationId());
+        if (file.getPath() != null) {
+          path.addAll(file.getPath());
+        }
+        path.add(file.getId());
+        files.add(String.join("/", path));
+      }
+    }
+    return files;
+  }
+
+  @Override
+  public Report beforeAllExecute(IndexService index, ModelService model, StorageService storage)
+    throws PluginException {
+    return new Report();
+  }
+
+  @Override
+  public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
+    return new Report();
+  }
+
+  @Override
+  public Plugin<Void> cloneMe() {
+    return new DuplicateFilesReportPlugin();
+  }
+
+  @Override
+  public PluginType getType() {
+    return PluginType.MISC;
+  }
+
+  @Override
+  public boolean areParameterValuesValid() {
+    return true;
+  }
+
+  @Override
+  public PreservationEventType getPreservationEventType() {
+    return PreservationEventType.APPRAISAL;
+  }
+
+  @Override
+  public String getPreservationEventDescription() {
+    return "Finds identical files in the repository";
+  }
+
+  @Override
+  public String getPreservationEventSuccessMessage() {
+    return "The duplicate files were successfully reported";
+  }
+
+  @Override
+  public String getPreservationEventFailureMessage() {
+    return "The duplicate files could not be reported";
+  }
+
+  @Override
+  public List<String> getCategories() {
+    return Arrays.asList(RodaConstants.PLUGIN_CATEGORY_MANAGEMENT);
+  }
+
+  @Override
+  public List<Class<Void>> getObjectClasses() {
+    return Arrays.asList(Void.class);
+  }
+}
@@ -7,6 +7,7 @@
  */
 package org.roda.core.plugins.plugins.base;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
@@ -18,9 +19,13 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
-import org.apache.commons.io.IOUtils;
-import org.roda.core.common.ConsumesOutputStream;
+import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.DownloadUtils;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.ExportType;
@@ -54,23 +59,36 @@ import org.roda.core.plugins.orchestrate.JobPluginInfo;
 import org.roda.core.plugins.orchestrate.SimpleJobPluginInfo;
 import org.roda.core.plugins.plugins.PluginHelper;
 import org.roda.core.storage.DefaultStoragePath;
-import org.roda.core.storage.Directory;
+import org.roda.core.storage.DirectResourceAccess;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fs.FSUtils;
 import org.roda.core.storage.fs.FileStorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 public class ExportAIPPlugin extends AbstractPlugin<AIP> {
   private static final Logger LOGGER = LoggerFactory.getLogger(ExportAIPPlugin.class);
 
   public static final String PLUGIN_PARAM_EXPORT_FOLDER_PARAMETER = "outputFolder";
   public static final String PLUGIN_PARAM_EXPORT_TYPE = "exportType";
   public static final String PLUGIN_PARAM_EXPORT_REMOVE_IF_ALREADY_EXISTS = "removeIfAlreadyExists";
+  public static final String PLUGIN_PARAM_EXPORT_LINK_FILES = "linkFiles";
+
+  /**
+   * Extensions of formats whose content is already compressed, which are
+   * stored in ZIP files without being compressed again
+   */
+  private static final List<String> DEFAULT_STORED_EXTENSIONS = Arrays.asList("jpg", "jpeg", "jp2", "png", "gif",
+    "pdf", "mp3", "mp4", "m4a", "m4v", "mov", "mkv", "webm", "ogg", "ogv", "flac", "avi", "zip", "gz", "tgz", "bz2",
+    "xz", "7z", "rar", "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub", "jar", "war");
+  private static final int ZIP_BUFFER_SIZE = 1024 * 1024;
 
   private String outputFolder;
   private ExportType exportType;
   private boolean removeIfAlreadyExists;
+  private boolean linkFiles;
 
   private static Map<String, PluginParameter> pluginParameters = new HashMap<>();
   static {
@@ -86,6 +104,11 @@ public class ExportAIPPlugin extends AbstractPlugin<AIP> {
       new PluginParameter(PLUGIN_PARAM_EXPORT_REMOVE_IF_ALREADY_EXISTS, "Overwrite files/folders",
         PluginParameterType.BOOLEAN, "true", true, false,
         "Overwrites files and folders if they already exist on the destination folder."));
+
+    pluginParameters.put(PLUGIN_PARAM_EXPORT_LINK_FILES,
+      new PluginParameter(PLUGIN_PARAM_EXPORT_LINK_FILES, "Link files", PluginParameterType.BOOLEAN, "false", true,
+        false,
+        "On folder exports, creates hard links to the files in the repository storage instead of copying them, if the destination folder is in the same file system. Linked files must never be changed."));
   }
 
   @Override
@@ -121,6 +144,7 @@ public class ExportAIPPlugin extends AbstractPlugin<AIP> {
     parameters.add(pluginParameters.get(PLUGIN_PARAM_EXPORT_FOLDER_PARAMETER));
     parameters.add(pluginParameters.get(PLUGIN_PARAM_EXPORT_TYPE));
     parameters.add(pluginParameters.get(PLUGIN_PARAM_EXPORT_REMOVE_IF_ALREADY_EXISTS));
+    parameters.add(pluginParameters.get(PLUGIN_PARAM_EXPORT_LINK_FILES));
     return parameters;
   }
 
@@ -136,6 +160,10 @@ public class ExportAIPPlugin extends AbstractPlugin<AIP> {
         .parseBoolean(getParameterValues().get(PLUGIN_PARAM_EXPORT_REMOVE_IF_ALREADY_EXISTS));
     }
 
+    if (parameters.containsKey(PLUGIN_PARAM_EXPORT_LINK_FILES)) {
+      linkFiles = Boolean.parseBoolean(parameters.get(PLUGIN_PARAM_EXPORT_LINK_FILES));
+    }
+
     if (parameters.containsKey(PLUGIN_PARAM_EXPORT_TYPE)) {
       try {
         exportType = ExportType.valueOf(parameters.get(PLUGIN_PARAM_EXPORT_TYPE));
@@ -169,9 +197,16 @@ public class ExportAIPPlugin extends AbstractPlugin<AIP> {
         }
 
         if (error == null && exportType == ExportType.ZIP) {
-          report = exportMultiZip(aips, outputPath, report, model, index, storage, jobPluginInfo, cachedJob);
+          report = export(aips, aip -> exportZip(aip, outputPath, storage), model, index, report, jobPluginInfo,
+            cachedJob, false);
         } else if (error == null && exportType == ExportType.FOLDER) {
-          report = exportFolders(aips, storage, model, index, report, jobPluginInfo, cachedJob);
+          try {
+            FileStorageService localStorage = new FileStorageService(outputPath, false, null, false);
+            report = export(aips, aip -> exportFolder(aip, outputPath, storage, localStorage), model, index, report,
+              jobPluginInfo, cachedJob, true);
+          } catch (GenericException e) {
+            LOGGER.error(e.getMessage(), e);
+          }
         } else if (error != null) {
           jobPluginInfo.incrementObjectsProcessedWithFailure(aips.size());
           report.setCompletionPercentage(100);
@@ -183,27 +218,35 @@ public class ExportAIPPlugin extends AbstractPlugin<AIP> {
 
   }
 
-  private Report exportFolders(List<AIP> aips, StorageService storage, ModelService model, IndexService index,
-    Report report, JobPluginInfo jobPluginInfo, Job job) {
+  /**
+   * Exports the AIPs concurrently, as each export is mostly waiting for disk,
+   * and reports their outcome in order.
+   * 
+   * @param exporter
+   *          exports one AIP, returning an error message or <code>null</code>
+   *          if it was exported successfully.
+   */
+  private Report export(List<AIP> aips, Function<AIP, String> exporter, ModelService model, IndexService index,
+    Report report, JobPluginInfo jobPluginInfo, Job job, boolean createEvents) {
+    int threads = RodaCoreFactory.getRodaConfigurationAsInt(Runtime.getRuntime().availableProcessors(), "core",
+      "plugins", "internal", "export_aip", "threads");
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, aips.size())),
+      new ThreadFactoryBuilder().setNameFormat("export-aip-%d").setDaemon(true).build());
+
     try {
-      FileStorageService localStorage = new FileStorageService(Paths.get(outputFolder), false, null, false);
+      List<Future<String>> errors = new ArrayList<>();
       for (AIP aip : aips) {
-        LOGGER.debug("Exporting AIP {} to folder", aip.getId());
-        String error = null;
-        StoragePath aipPath = ModelUtils.getAIPStoragePath(aip.getId());
+        errors.add(executor.submit(() -> exporter.apply(aip)));
+      }
+
+      for (int i = 0; i < aips.size(); i++) {
+        AIP aip = aips.get(i);
+        String error;
         try {
-          localStorage.copy(storage, aipPath, DefaultStoragePath.parse(aip.getId()));
-        } catch (AlreadyExistsException e) {
-          if (removeIfAlreadyExists) {
-            try {
-              localStorage.deleteResource(DefaultStoragePath.parse(aip.getId()));
-              localStorage.copy(storage, aipPath, DefaultStoragePath.parse(aip.getId()));
-            } catch (AlreadyExistsException e2) {
-              error = "Error removing/creating folder " + aipPath.toString();
-            }
-          } else {
-            error = "Folder " + aipPath.toString() + " already exists.";
-          }
+          error = errors.get(i).get();
+        } catch (ExecutionException e) {
+          LOGGER.error("Error exporting AIP " + aip.getId(), e.getCause());
+          error = e.getCause().getMessage();
         }
 
         Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
@@ -218,62 +261,81 @@ public class ExportAIPPlugin extends AbstractPlugin<AIP> {
         report.addReport(reportItem);
         PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
 
-        try {
-          boolean notify = true;
-          PluginHelper.createPluginEvent(this, aip.getId(), model, index, reportItem.getPluginState(), "", notify);
-        } catch (ValidationException | RequestNotValidException | NotFoundException | GenericException
-          | AuthorizationDeniedException | AlreadyExistsException e) {
-          LOGGER.error("Error creating event: " + e.getMessage(), e);
+        if (createEvents) {
+          try {
+            boolean notify = true;
+            PluginHelper.createPluginEvent(this, aip.getId(), model, index, reportItem.getPluginState(), "", notify);
+          } catch (ValidationException | RequestNotValidException | NotFoundException | GenericException
+            | AuthorizationDeniedException | AlreadyExistsException e) {
+            LOGGER.error("Error creating event: " + e.getMessage(), e);
+          }
         }
       }
-    } catch (GenericException | RequestNotValidException | AuthorizationDeniedException | NotFoundException e) {
-      LOGGER.error(e.getMessage(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.error("Interrupted while exporting AIPs", e);
+    } finally {
+      executor.shutdownNow();
     }
     return report;
   }
 
-  private Report exportMultiZip(List<AIP> aips, Path outputPath, Report report, ModelService model, IndexService index,
-    StorageService storage, JobPluginInfo jobPluginInfo, Job job) {
-    for (AIP aip : aips) {
-      LOGGER.debug("Exporting AIP {} to ZIP", aip.getId());
-      OutputStream os = null;
-      String error = null;
-      try {
-        Path zip = outputPath.resolve(aip.getId() + ".zip");
-        if (FSUtils.exists(zip) && removeIfAlreadyExists) {
-          Files.delete(zip);
-        } else if (FSUtils.exists(zip) && !removeIfAlreadyExists) {
-          error = "File " + zip.toString() + " already exists";
+  private String exportFolder(AIP aip, Path outputPath, StorageService storage, FileStorageService localStorage) {
+    LOGGER.debug("Exporting AIP {} to folder", aip.getId());
+    StoragePath aipPath = ModelUtils.getAIPStoragePath(aip.getId());
+    try {
+      StoragePath targetPath = DefaultStoragePath.parse(aip.getId());
+      if (localStorage.exists(targetPath)) {
+        if (removeIfAlreadyExists) {
+          localStorage.deleteResource(targetPath);
+        } else {
+          return "Folder " + aipPath.toString() + " already exists.";
         }
-        if (error == null) {
-          os = Files.newOutputStream(zip, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+      }
 
-          Directory directory = storage.getDirectory(ModelUtils.getAIPStoragePath(aip.getId()));
-          ConsumesOutputStream cos = DownloadUtils.download(storage, directory);
-          cos.consumeOutputStream(os);
-        }
-      } catch (Exception e) {
-        LOGGER.error("Error exporting AIP " + aip.getId() + ": " + e.getMessage());
-        error = e.getMessage();
-      } finally {
-        if (os != null) {
-          IOUtils.closeQuietly(os);
+      if (linkFiles) {
+        try (DirectResourceAccess source = storage.getDirectAccess(aipPath)) {
+          FSUtils.linkOrCopy(source.getPath(), outputPath.resolve(aip.getId()));
         }
+      } else {
+        localStorage.copy(storage, aipPath, targetPath);
+      }
+      return null;
+    } catch (AlreadyExistsException e) {
+      return "Error removing/creating folder " + aipPath.toString();
+    } catch (GenericException | RequestNotValidException | AuthorizationDeniedException | NotFoundException
+      | IOException e) {
+      LOGGER.error("Error exporting AIP " + aip.getId() + ": " + e.getMessage(), e);
+      return e.getMessage();
+    }
+  }
+
+  private String exportZip(AIP aip, Path outputPath, StorageService storage) {
+    LOGGER.debug("Exporting AIP {} to ZIP", aip.getId());
+    Path zip = outputPath.resolve(aip.getId() + ".zip");
+    try {
+      if (FSUtils.exists(zip) && removeIfAlreadyExists) {
+        Files.delete(zip);
+      } else if (FSUtils.exists(zip) && !removeIfAlreadyExists) {
+        return "File " + zip.toString() + " already exists";
       }
 
-      Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
-      if (error != null) {
-        reportItem.setPluginState(PluginState.FAILURE)
-          .setPluginDetails("Export AIP did not end successfully: " + error);
-        jobPluginInfo.incrementObjectsProcessedWithFailure();
-      } else {
-        reportItem.setPluginState(PluginState.SUCCESS).setPluginDetails("Export AIP ended successfully");
-        jobPluginInfo.incrementObjectsProcessedWithSuccess();
+      try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(zip, StandardOpenOption.CREATE_NEW),
+        ZIP_BUFFER_SIZE)) {
+        DownloadUtils.zip(storage, ModelUtils.getAIPStoragePath(aip.getId()), os, getStoredExtensions());
       }
-      report.addReport(reportItem);
-      PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+      return null;
+    } catch (Exception e) {
+      LOGGER.error("Error exporting AIP " + aip.getId() + ": " + e.getMessage());
+      FSUtils.deletePathQuietly(zip);
+      return e.getMessage();
     }
-    return report;
+  }
+
+  private static List<String> getStoredExtensions() {
+    List<String> storedExtensions = RodaCoreFactory.getRodaConfigurationAsList("core", "plugins", "internal",
+      "export_aip", "zip", "stored_extensions");
+    return storedExtensions.isEmpty() ? DEFAULT_STORED_EXTENSIONS : storedExtensions;
   }
 
   @Override
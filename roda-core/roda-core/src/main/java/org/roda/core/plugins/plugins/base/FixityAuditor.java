@@ -0,0 +1,552 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.base;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.xmlbeans.XmlException;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.common.PremisV3Utils;
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.common.OptionalWithCause;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.Representation;
+import org.roda.core.data.v2.ip.metadata.Fixity;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.index.IndexService;
+import org.roda.core.index.utils.AIPDigest;
+import org.roda.core.model.ModelService;
+import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.storage.Binary;
+import org.roda.core.storage.Resource;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.util.FileUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Background service that continuously verifies the fixity of the files in the
+ * repository, so that each file is verified once per period.
+ *
+ * Files are read through a token bucket that limits the I/O rate, lowered (or
+ * paused, if the rate is 0) while ingest jobs are running. The time each file
+ * was last verified is kept in a JSON file per AIP, under the auditor
+ * directory, and a risk incidence is created for each file whose checksums no
+ * longer match the ones in its PREMIS file, as done by
+ * {@link AIPCorruptionRiskAssessmentPlugin}.
+ *
+ * The date each AIP is next due is kept in a schedule, so that each pass only
+ * goes through the files of the AIPs that are due. Due dates are spread with a
+ * random jitter, so that AIPs ingested together are not all due together.
+ */
+public class FixityAuditor implements Runnable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FixityAuditor.class);
+
+  private static final String CONFIGURATION_PREFIX = "core.fixity.auditor.";
+  private static final int DEFAULT_PERIOD_IN_DAYS = 30;
+  private static final long DEFAULT_BYTES_PER_SECOND = 20L * 1024 * 1024;
+  private static final long DEFAULT_BYTES_PER_SECOND_DURING_INGEST = 0;
+  private static final long INGEST_CHECK_INTERVAL_MILLIS = 30000L;
+  private static final long MIN_SLEEP_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  private static final long MAX_SLEEP_MILLIS = TimeUnit.DAYS.toMillis(1);
+  private static final String DETECTED_BY = "Fixity auditor";
+  private static final String STATE_EXTENSION = ".json";
+  private static final String AIP_STATES_FOLDER = "aips";
+  private static final String SCHEDULE_FILE = "schedule.json";
+  // due dates are brought forward by up to this fraction of the period
+  private static final double DUE_DATE_JITTER = 0.1;
+  private static final long RETRY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  private final ModelService model;
+  private final IndexService index;
+  private final Path stateDirectory;
+  private final long periodMillis;
+  private final long bytesPerSecond;
+  private final long bytesPerSecondDuringIngest;
+  private final RateLimiter rateLimiter;
+  private final Random random = new Random();
+
+  private Map<String, Long> schedule = null;
+  private boolean ingestRunning = false;
+  private long lastIngestCheck = 0;
+  private long nextDue = Long.MAX_VALUE;
+  private Thread thread = null;
+
+  public FixityAuditor(ModelService model, IndexService index, Path stateDirectory) {
+    this(model, index, stateDirectory,
+      RodaCoreFactory.getRodaConfiguration().getInt(CONFIGURATION_PREFIX + "periodInDays", DEFAULT_PERIOD_IN_DAYS),
+      RodaCoreFactory.getRodaConfiguration().getLong(CONFIGURATION_PREFIX + "bytesPerSecond",
+        DEFAULT_BYTES_PER_SECOND),
+      RodaCoreFactory.getRodaConfiguration().getLong(CONFIGURATION_PREFIX + "bytesPerSecondDuringIngest",
+        DEFAULT_BYTES_PER_SECOND_DURING_INGEST));
+  }
+
+  /**
+   * @param bytesPerSecondDuringIngest
+   *          the rate used while ingest jobs are running, or 0 to pause the
+   *          auditor until they finish.
+   */
+  public FixityAuditor(ModelService model, IndexService index, Path stateDirectory, int periodInDays,
+    long bytesPerSecond, long bytesPerSecondDuringIngest) {
+    this.model = model;
+    this.index = index;
+    this.stateDirectory = stateDirectory;
+    this.periodMillis = TimeUnit.DAYS.toMillis(periodInDays);
+    this.bytesPerSecond = bytesPerSecond;
+    this.bytesPerSecondDuringIngest = bytesPerSecondDuringIngest;
+    this.rateLimiter = RateLimiter.create(Math.max(1, bytesPerSecond));
+  }
+
+  public synchronized void start() {
+    if (thread == null) {
+      thread = new Thread(this, "fixity-auditor");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      thread.start();
+      LOGGER.info("Started fixity auditor, verifying each file every {} days at up to {} bytes/s",
+        TimeUnit.MILLISECONDS.toDays(periodMillis), bytesPerSecond);
+    }
+  }
+
+  public synchronized void stop() {
+    if (thread != null) {
+      thread.interrupt();
+      thread = null;
+    }
+  }
+
+  @Override
+  public void run() {
+    while (!Thread.currentThread().isInterrupted()) {
+      long sleep;
+      try {
+        long start = System.currentTimeMillis();
+        auditAll();
+        if (System.currentTimeMillis() - start > periodMillis) {
+          LOGGER.warn("Fixity auditor took longer than its period to go through the repository, "
+            + "consider increasing its rate");
+        }
+        sleep = nextDue - System.currentTimeMillis();
+      } catch (RODAException | RuntimeException e) {
+        LOGGER.error("Error auditing fixity of the repository", e);
+        sleep = MIN_SLEEP_MILLIS;
+      }
+
+      try {
+        Thread.sleep(Math.min(Math.max(sleep, MIN_SLEEP_MILLIS), MAX_SLEEP_MILLIS));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Verifies the files of the AIPs that are due, in the order they are due. AIPs
+   * not yet scheduled are given a due date spread over the period and the state
+   * of AIPs that no longer exist is removed.
+   */
+  public void auditAll() throws RODAException {
+    Map<String, Long> aipSchedule = getSchedule();
+    try {
+      updateSchedule(aipSchedule);
+
+      long now = System.currentTimeMillis();
+      List<String> dueAIPIds = aipSchedule.entrySet().stream().filter(entry -> entry.getValue() <= now)
+        .sorted(Entry.comparingByValue()).map(Entry::getKey).collect(Collectors.toList());
+      for (String aipId : dueAIPIds) {
+        if (Thread.currentThread().isInterrupted()) {
+          break;
+        }
+
+        try {
+          AIP aip;
+          try {
+            aip = model.retrieveAIP(aipId);
+          } catch (NotFoundException e) {
+            removeState(aipId);
+            continue;
+          }
+
+          // errors while auditing (e.g. a file deleted meanwhile) keep the state
+          // of the AIP, so that its failed files are still known on the retry
+          audit(aip);
+        } catch (RODAException | IOException e) {
+          LOGGER.error("Error auditing fixity of AIP {}", aipId, e);
+          aipSchedule.put(aipId, System.currentTimeMillis() + RETRY_MILLIS);
+        }
+      }
+    } finally {
+      writeSchedule(aipSchedule);
+    }
+
+    nextDue = aipSchedule.values().stream().mapToLong(Long::longValue).min().orElse(Long.MAX_VALUE);
+  }
+
+  /**
+   * Adds the AIPs that are not yet scheduled and removes the ones that no longer
+   * exist, together with their state.
+   */
+  private void updateSchedule(Map<String, Long> aipSchedule) throws RODAException {
+    Set<String> aipIds = new HashSet<>();
+    try (CloseableIterable<Resource> aips = model.getStorage()
+      .listResourcesUnderContainer(ModelUtils.getAIPContainerPath(), false)) {
+      aips.forEach(aip -> aipIds.add(aip.getStoragePath().getName()));
+    } catch (IOException e) {
+      throw new GenericException("Error listing AIPs", e);
+    }
+
+    long now = System.currentTimeMillis();
+    for (String aipId : aipIds) {
+      aipSchedule.computeIfAbsent(aipId, id -> now + (long) (random.nextDouble() * periodMillis));
+    }
+
+    Set<String> removedAIPIds = new HashSet<>(aipSchedule.keySet());
+    removedAIPIds.addAll(listStates());
+    removedAIPIds.removeAll(aipIds);
+    for (String aipId : removedAIPIds) {
+      removeState(aipId);
+    }
+  }
+
+  /**
+   * Verifies the files of the AIP that were not verified during the last
+   * period, or that will not be within the jitter of the next due date, and
+   * schedules the AIP for when its next file is due.
+   *
+   * @return the number of verified files.
+   */
+  public int audit(AIP aip) throws RODAException, IOException {
+    long now = System.currentTimeMillis();
+    long jitterMillis = (long) (periodMillis * DUE_DATE_JITTER);
+    AuditState previous = readState(aip.getId());
+    AuditState state = new AuditState();
+    long aipNextDue = Long.MAX_VALUE;
+    int verified = 0;
+
+    for (Representation representation : aip.getRepresentations()) {
+      try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(),
+        representation.getId(), true)) {
+        for (OptionalWithCause<File> oFile : allFiles) {
+          if (Thread.currentThread().isInterrupted()) {
+            // keep what was already verified
+            writeState(aip.getId(), previous.merge(state));
+            return verified;
+          }
+
+          if (oFile.isPresent() && !oFile.get().isDirectory()) {
+            File file = oFile.get();
+            String entry = representation.getId() + '/' + AIPDigest.getFilePath(file.getPath(), file.getId());
+            Long verifiedOn = previous.getVerifiedOn().get(entry);
+
+            if (verifiedOn != null && verifiedOn + periodMillis > now + jitterMillis) {
+              state.getVerifiedOn().put(entry, verifiedOn);
+              if (previous.getFailed().contains(entry)) {
+                state.getFailed().add(entry);
+              }
+              aipNextDue = Math.min(aipNextDue, verifiedOn + periodMillis);
+            } else {
+              boolean passed = verify(file);
+              if (passed && previous.getFailed().contains(entry)) {
+                AIPCorruptionRiskAssessmentPlugin.updateIncidence(model, index, file.getAipId(),
+                  file.getRepresentationId(), file.getPath(), file.getId(),
+                  AIPCorruptionRiskAssessmentPlugin.FIXITY_RISK_ID);
+              } else if (!passed) {
+                state.getFailed().add(entry);
+                AIPCorruptionRiskAssessmentPlugin.createIncidence(model, index, file.getAipId(),
+                  file.getRepresentationId(), file.getPath(), file.getId(),
+                  AIPCorruptionRiskAssessmentPlugin.FIXITY_RISK_ID, DETECTED_BY);
+              }
+
+              long verifiedNow = System.currentTimeMillis();
+              state.getVerifiedOn().put(entry, verifiedNow);
+              aipNextDue = Math.min(aipNextDue, verifiedNow + periodMillis);
+              verified++;
+            }
+          }
+        }
+      }
+    }
+
+    if (verified > 0 || previous.getVerifiedOn().size() != state.getVerifiedOn().size()) {
+      writeState(aip.getId(), state);
+    }
+
+    if (aipNextDue == Long.MAX_VALUE) {
+      aipNextDue = now + periodMillis;
+    }
+    getSchedule().put(aip.getId(), aipNextDue - (long) (random.nextDouble() * jitterMillis));
+    return verified;
+  }
+
+  /**
+   * @return if the file has a PREMIS file and all its checksums match.
+   */
+  private boolean verify(File file) throws RODAException, IOException {
+    List<Fixity> fixities;
+    try {
+      Binary premisFile = model.retrievePreservationFile(file);
+      fixities = PremisV3Utils.extractFixities(premisFile);
+    } catch (NotFoundException e) {
+      LOGGER.debug("File {} of AIP {} has no PREMIS file", file.getId(), file.getAipId());
+      return false;
+    } catch (XmlException e) {
+      throw new GenericException("Error reading PREMIS file of " + file.getId(), e);
+    }
+
+    Set<String> algorithms = new HashSet<>();
+    fixities.forEach(fixity -> algorithms.add(fixity.getMessageDigestAlgorithm()));
+
+    Binary binary = model.getStorage().getBinary(ModelUtils.getFileStoragePath(file));
+    Map<String, String> checksums;
+    try (InputStream inputStream = new ThrottledInputStream(binary.getContent().createInputStream())) {
+      checksums = FileUtility.checksums(inputStream, algorithms);
+    } catch (NoSuchAlgorithmException e) {
+      LOGGER.debug("Could not check fixity of file {} of AIP {}", file.getId(), file.getAipId(), e);
+      return false;
+    }
+
+    for (Fixity fixity : fixities) {
+      String checksum = checksums.get(fixity.getMessageDigestAlgorithm());
+      if (checksum == null || !fixity.getMessageDigest().trim().equalsIgnoreCase(checksum.trim())) {
+        LOGGER.warn("Fixity of file {} of AIP {} does not match its PREMIS file", file.getId(), file.getAipId());
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adjusts the rate to the running ingest jobs, waiting while they run if the
+   * auditor must pause during ingest.
+   */
+  private void throttle(int bytes) throws IOException {
+    long now = System.currentTimeMillis();
+    if (now - lastIngestCheck > INGEST_CHECK_INTERVAL_MILLIS) {
+      lastIngestCheck = now;
+      boolean running = isIngestRunning();
+      if (running != ingestRunning) {
+        ingestRunning = running;
+        LOGGER.debug("Ingest jobs {}, fixity auditor rate adjusted", running ? "started" : "finished");
+        if (!running || bytesPerSecondDuringIngest > 0) {
+          rateLimiter.setRate(running ? bytesPerSecondDuringIngest : bytesPerSecond);
+        }
+      }
+    }
+
+    while (ingestRunning && bytesPerSecondDuringIngest <= 0) {
+      try {
+        Thread.sleep(INGEST_CHECK_INTERVAL_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for ingest jobs to finish", e);
+      }
+      lastIngestCheck = System.currentTimeMillis();
+      ingestRunning = isIngestRunning();
+    }
+
+    if (bytes > 0) {
+      rateLimiter.acquire(bytes);
+    }
+  }
+
+  private boolean isIngestRunning() {
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.JOB_STATE, Job.JOB_STATE.STARTED.toString()),
+      new SimpleFilterParameter(RodaConstants.JOB_PLUGIN_TYPE, PluginType.INGEST.toString()));
+    try {
+      return index.count(Job.class, filter) > 0;
+    } catch (RODAException e) {
+      LOGGER.debug("Could not check for running ingest jobs", e);
+      return false;
+    }
+  }
+
+  private Path getStatePath(String aipId) {
+    return stateDirectory.resolve(AIP_STATES_FOLDER).resolve(aipId + STATE_EXTENSION);
+  }
+
+  private AuditState readState(String aipId) throws GenericException {
+    try {
+      String json = new String(Files.readAllBytes(getStatePath(aipId)), StandardCharsets.UTF_8);
+      return JsonUtils.getObjectFromJson(json, AuditState.class);
+    } catch (NoSuchFileException e) {
+      return new AuditState();
+    } catch (IOException e) {
+      throw new GenericException("Error reading fixity audit state of AIP " + aipId, e);
+    }
+  }
+
+  private void writeState(String aipId, AuditState state) throws GenericException {
+    try {
+      write(getStatePath(aipId), JsonUtils.getJsonFromObject(state));
+    } catch (IOException e) {
+      throw new GenericException("Error writing fixity audit state of AIP " + aipId, e);
+    }
+  }
+
+  private void removeState(String aipId) throws GenericException {
+    LOGGER.debug("Removing fixity audit state of AIP {} as it no longer exists", aipId);
+    getSchedule().remove(aipId);
+    try {
+      Files.deleteIfExists(getStatePath(aipId));
+    } catch (IOException e) {
+      throw new GenericException("Error removing fixity audit state of AIP " + aipId, e);
+    }
+  }
+
+  /**
+   * @return the identifiers of the AIPs with a state, including the ones of
+   *         states that were being written when the auditor stopped.
+   */
+  private Set<String> listStates() throws GenericException {
+    Set<String> aipIds = new HashSet<>();
+    Path statesDirectory = stateDirectory.resolve(AIP_STATES_FOLDER);
+    if (!FSUtils.exists(statesDirectory)) {
+      return aipIds;
+    }
+
+    try (Stream<Path> states = Files.list(statesDirectory)) {
+      states.map(state -> state.getFileName().toString()).filter(name -> name.endsWith(STATE_EXTENSION))
+        .forEach(name -> aipIds.add(name.substring(0, name.length() - STATE_EXTENSION.length())));
+    } catch (IOException e) {
+      throw new GenericException("Error listing fixity audit states", e);
+    }
+    return aipIds;
+  }
+
+  /**
+   * @return the date each AIP is next due, in milliseconds since the epoch.
+   */
+  private Map<String, Long> getSchedule() throws GenericException {
+    if (schedule == null) {
+      try {
+        String json = new String(Files.readAllBytes(stateDirectory.resolve(SCHEDULE_FILE)), StandardCharsets.UTF_8);
+        schedule = JsonUtils.getObjectFromJson(json, AuditSchedule.class).getDueOn();
+      } catch (NoSuchFileException e) {
+        schedule = new HashMap<>();
+      } catch (IOException e) {
+        throw new GenericException("Error reading fixity audit schedule", e);
+      }
+    }
+    return schedule;
+  }
+
+  private void writeSchedule(Map<String, Long> aipSchedule) throws GenericException {
+    try {
+      AuditSchedule auditSchedule = new AuditSchedule();
+      auditSchedule.setDueOn(aipSchedule);
+      write(stateDirectory.resolve(SCHEDULE_FILE), JsonUtils.getJsonFromObject(auditSchedule));
+    } catch (IOException e) {
+      throw new GenericException("Error writing fixity audit schedule", e);
+    }
+  }
+
+  private static void write(Path path, String json) throws IOException {
+    Files.createDirectories(path.getParent());
+    Path temporaryPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+    Files.write(temporaryPath, json.getBytes(StandardCharsets.UTF_8));
+    Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * When each file of an AIP was last verified, in milliseconds since the epoch,
+   * and which files failed that verification.
+   */
+  public static class AuditState {
+    private Map<String, Long> verifiedOn = new HashMap<>();
+    private Set<String> failed = new HashSet<>();
+
+    public Map<String, Long> getVerifiedOn() {
+      return verifiedOn;
+    }
+
+    public void setVerifiedOn(Map<String, Long> verifiedOn) {
+      this.verifiedOn = verifiedOn;
+    }
+
+    public Set<String> getFailed() {
+      return failed;
+    }
+
+    public void setFailed(Set<String> failed) {
+      this.failed = failed;
+    }
+
+    private AuditState merge(AuditState newer) {
+      verifiedOn.putAll(newer.verifiedOn);
+      newer.verifiedOn.keySet().forEach(failed::remove);
+      failed.addAll(newer.failed);
+      return this;
+    }
+  }
+
+  /**
+   * When each AIP is next due, in milliseconds since the epoch.
+   */
+  public static class AuditSchedule {
+    private Map<String, Long> dueOn = new HashMap<>();
+
+    public Map<String, Long> getDueOn() {
+      return dueOn;
+    }
+
+    public void setDueOn(Map<String, Long> dueOn) {
+      this.dueOn = dueOn;
+    }
+  }
+
+  private class ThrottledInputStream extends FilterInputStream {
+
+    public ThrottledInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      throttle(b < 0 ? 0 : 1);
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      throttle(read);
+      return read;
+    }
+  }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.base;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.csv.CSVPrinter;
+import org.roda.core.RodaCoreFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Computes the lines of an inventory report on a pool of threads, as each line
+ * may need a whole file to be read to compute its checksums, and prints them in
+ * the order they were submitted. At most a few lines per thread are kept
+ * pending, so the report is streamed to its output.
+ *
+ * The pool is shared by all the pipelines, i.e. by all the blocks of AIPs of
+ * all running reports, and is sized by
+ * <code>core.plugins.internal.inventory_report.threads</code>.
+ */
+public class InventoryReportPipeline implements AutoCloseable {
+  private static final int LINES_PER_THREAD = 4;
+  private static final int PRINT_BATCH_SIZE = 100;
+
+  /**
+   * Blocks of the same report append to the same file, so each batch of lines
+   * is printed and flushed as a whole
+   */
+  private static final Object PRINT_LOCK = new Object();
+
+  private static ExecutorService sharedExecutor = null;
+  private static int threads;
+
+  private final CSVPrinter printer;
+  private final ExecutorService executor;
+  private final int window;
+  private final Deque<Future<List<String>>> pending = new ArrayDeque<>();
+  private final List<List<String>> batch = new ArrayList<>();
+
+  /**
+   * @param printer
+   *          the output of the report, which is flushed after each batch of
+   *          lines.
+   */
+  public InventoryReportPipeline(CSVPrinter printer) {
+    this.printer = printer;
+    synchronized (InventoryReportPipeline.class) {
+      if (sharedExecutor == null) {
+        threads = Math.max(1, RodaCoreFactory.getRodaConfigurationAsInt(Runtime.getRuntime().availableProcessors(),
+          "core", "plugins", "internal", "inventory_report", "threads"));
+        sharedExecutor = Executors.newFixedThreadPool(threads,
+          new ThreadFactoryBuilder().setNameFormat("inventory-report-%d").setDaemon(true).build());
+      }
+      this.executor = sharedExecutor;
+      this.window = threads * LINES_PER_THREAD;
+    }
+  }
+
+  public void submit(Callable<List<String>> line) throws IOException {
+    pending.add(executor.submit(line));
+    while (pending.size() > window) {
+      printNext();
+    }
+  }
+
+  /**
+   * Waits for all submitted lines and prints them.
+   */
+  public void flush() throws IOException {
+    while (!pending.isEmpty()) {
+      printNext();
+    }
+    printBatch();
+  }
+
+  private void printNext() throws IOException {
+    Future<List<String>> line = pending.poll();
+    try {
+      batch.add(line.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while computing inventory report line");
+    } catch (ExecutionException e) {
+      throw new IOException("Error computing inventory report line", e.getCause());
+    }
+
+    if (batch.size() >= PRINT_BATCH_SIZE) {
+      printBatch();
+    }
+  }
+
+  private void printBatch() throws IOException {
+    if (!batch.isEmpty()) {
+      synchronized (PRINT_LOCK) {
+        printer.printRecords(batch);
+        printer.flush();
+      }
+      batch.clear();
+    }
+  }
+
+  /**
+   * Cancels the lines that were not printed, leaving the pool to the other
+   * pipelines.
+   */
+  @Override
+  public void close() {
+    for (Future<List<String>> line : pending) {
+      line.cancel(true);
+    }
+    pending.clear();
+  }
+
+}
@@ -7,13 +7,12 @@
  */
 package org.roda.core.plugins.plugins.base;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -46,20 +45,19 @@ import org.roda.core.plugins.orchestrate.JobPluginInfo;
 import org.roda.core.plugins.plugins.PluginHelper;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fs.FSUtils;
-import org.roda.core.util.IdUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class InventoryReportPlugin extends AbstractPlugin<AIP> {
   private static final Logger LOGGER = LoggerFactory.getLogger(InventoryReportPlugin.class);
 
-  public static final String EXPORT_CSV_TEMP_FOLDER = "CSV";
   public static final String CSV_FILE_FIELDS = "parameter.csv.file.fields";
   public static final String CSV_FILE_OUTPUT = "parameter.csv.file.output";
   public static final String CSV_FILE_HEADERS = "parameter.csv.file.headers";
   public static final String CSV_FILE_OUTPUT_DATA = "parameter.csv.file.output.data";
   public static final String CSV_FILE_OUTPUT_DESCRIPTIVE = "parameter.csv.file.output.descriptive";
   public static final String CSV_FILE_OTHER_METADATA_TYPES = "parameter.csv.file.output.other";
+  public static final String CSV_FILE_PREMIS_FIXITIES = "parameter.csv.file.premis_fixities";
 
   public static final String CSV_FIELD_SIP_ID = "sipId";
   public static final String CSV_FIELD_AIP_ID = "aipId";
@@ -87,6 +85,9 @@ public class InventoryReportPlugin extends AbstractPlugin<AIP> {
   public static final String CSV_DEFAULT_OUTPUT = "/tmp/output.csv";
   public static final String CSV_DEFAULT_HEADERS = "true";
   public static final String CSV_DEFAULT_OTHER_METADATA = "ApacheTika,Siegfried";
+  public static final String CSV_DEFAULT_PREMIS_FIXITIES = "true";
+
+  private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.withRecordSeparator("\n");
 
   private List<String> fields = null;
   private Path output;
@@ -94,6 +95,7 @@ public class InventoryReportPlugin extends AbstractPlugin<AIP> {
   private boolean outputDataInformation;
   private boolean outputDescriptiveMetadataInformation;
   private List<String> otherMetadataTypes;
+  private boolean reusePremisFixities = true;
   private static Map<String, PluginParameter> pluginParameters = new HashMap<>();
 
   // TODO -> add plugin parameter type "LIST"...
@@ -118,6 +120,10 @@ public class InventoryReportPlugin extends AbstractPlugin<AIP> {
       new PluginParameter(CSV_FILE_OTHER_METADATA_TYPES, "Include other metadata files", PluginParameterType.STRING,
         CSV_DEFAULT_OTHER_METADATA, true, false,
         "Include in the inventory report information about other metadata files that exist inside AIPs."));
+    pluginParameters.put(CSV_FILE_PREMIS_FIXITIES,
+      new PluginParameter(CSV_FILE_PREMIS_FIXITIES, "Reuse PREMIS fixities", PluginParameterType.BOOLEAN,
+        CSV_DEFAULT_PREMIS_FIXITIES, true, false,
+        "Use the checksums stored in the PREMIS file of each data file, if it is not older than the file, instead of reading the file again."));
   }
 
   @Override
@@ -161,6 +167,7 @@ public class InventoryReportPlugin extends AbstractPlugin<AIP> {
     parameters.add(pluginParameters.get(CSV_FILE_OUTPUT_DATA));
     parameters.add(pluginParameters.get(CSV_FILE_OUTPUT_DESCRIPTIVE));
     parameters.add(pluginParameters.get(CSV_FILE_OTHER_METADATA_TYPES));
+    parameters.add(pluginParameters.get(CSV_FILE_PREMIS_FIXITIES));
     return parameters;
   }
 
@@ -199,53 +206,45 @@ public class InventoryReportPlugin extends AbstractPlugin<AIP> {
         otherMetadataTypes.addAll(Arrays.asList(otherMetadataSTR.split(",")));
       }
     }
+    if (parameters.containsKey(CSV_FILE_PREMIS_FIXITIES)) {
+      reusePremisFixities = Boolean.parseBoolean(parameters.get(CSV_FILE_PREMIS_FIXITIES));
+    }
   }
 
   @Override
   public Report execute(IndexService index, ModelService model, StorageService storage,
     List<LiteOptionalWithCause> liteList) throws PluginException {
-
-    Path jobCSVTempFolder = getJobCSVTempFolder();
-    Path csvTempFile = jobCSVTempFolder.resolve(IdUtils.createUUID() + ".csv");
-
-    CSVFormat csvFileFormat = CSVFormat.DEFAULT.withRecordSeparator("\n");
-    try (BufferedWriter fileWriter = Files.newBufferedWriter(csvTempFile);
-      CSVPrinter csvFilePrinter = new CSVPrinter(fileWriter, csvFileFormat)) {
-      return PluginHelper.processObjects(this, new RODAObjectProcessingLogic<AIP>() {
+    // the header was written before all blocks, each one appends its lines
+    try (CSVPrinter printer = new CSVPrinter(Files.newBufferedWriter(output, StandardCharsets.UTF_8,
+      StandardOpenOption.CREATE, StandardOpenOption.APPEND), CSV_FORMAT);
+      InventoryReportPipeline pipeline = new InventoryReportPipeline(printer)) {
+      Report report = PluginHelper.processObjects(this, new RODAObjectProcessingLogic<AIP>() {
         @Override
-
         public void process(IndexService index, ModelService model, StorageService storage, Report report,
           Job cachedJob, JobPluginInfo jobPluginInfo, Plugin<AIP> plugin, AIP object) {
-          processAIP(model, storage, jobPluginInfo, csvFilePrinter, object);
+          processAIP(model, storage, jobPluginInfo, pipeline, object);
         }
       }, index, model, storage, liteList);
+      pipeline.flush();
+      return report;
     } catch (IOException e) {
       throw new PluginException("Unable to create/write to CSVPrinter", e);
     }
   }
 
   private void processAIP(ModelService model, StorageService storage, JobPluginInfo jobPluginInfo,
-    CSVPrinter csvFilePrinter, AIP aip) {
-    if (csvFilePrinter == null) {
-      LOGGER.warn("CSVPrinter is NULL! Skipping...");
-      return;
-    }
-
+    InventoryReportPipeline pipeline, AIP aip) {
     try {
       if (outputDataInformation && aip.getRepresentations() != null) {
-        List<List<String>> dataInformation = InventoryReportPluginUtils.getDataInformation(fields, aip, model, storage);
-        csvFilePrinter.printRecords(dataInformation);
+        InventoryReportPluginUtils.submitDataInformation(fields, aip, model, storage, reusePremisFixities, pipeline);
       }
       if (outputDescriptiveMetadataInformation && aip.getDescriptiveMetadata() != null) {
-        List<List<String>> dataInformation = InventoryReportPluginUtils.getDescriptiveMetadataInformation(fields, aip,
-          model, storage);
-        csvFilePrinter.printRecords(dataInformation);
+        InventoryReportPluginUtils.submitDescriptiveMetadataInformation(fields, aip, storage, pipeline);
       }
       if (otherMetadataTypes != null && !otherMetadataTypes.isEmpty()) {
         for (String otherMetadataType : otherMetadataTypes) {
-          List<List<String>> otherMetadataInformation = InventoryReportPluginUtils.getOtherMetadataInformation(fields,
-            otherMetadataType, aip, model, storage);
-          csvFilePrinter.printRecords(otherMetadataInformation);
+          InventoryReportPluginUtils.submitOtherMetadataInformation(fields, otherMetadataType, aip, model, storage,
+            pipeline);
         }
       }
       jobPluginInfo.incrementObjectsProcessedWithSuccess();
@@ -258,12 +257,6 @@ public class InventoryReportPlugin extends AbstractPlugin<AIP> {
   @Override
   public Report beforeAllExecute(IndexService index, ModelService model, StorageService storage)
     throws PluginException {
-    try {
-      Path jobCSVTempFolder = getJobCSVTempFolder();
-      Files.createDirectories(jobCSVTempFolder);
-    } catch (IOException e) {
-      LOGGER.error("Error while creating plugin working dir", e);
-    }
     try {
       Path reportsFolder = RodaCoreFactory.getRodaHomePath().resolve(RodaConstants.CORE_REPORT_FOLDER);
       if (FSUtils.exists(reportsFolder)) {
@@ -272,41 +265,19 @@ public class InventoryReportPlugin extends AbstractPlugin<AIP> {
     } catch (IOException e) {
       LOGGER.error("Error while creating report dir", e);
     }
-    return new Report();
-  }
 
-  private Path getJobCSVTempFolder() {
-    Path wd = RodaCoreFactory.getWorkingDirectory();
-    Path csvExportTempFolder = wd.resolve(InventoryReportPlugin.EXPORT_CSV_TEMP_FOLDER);
-    return csvExportTempFolder.resolve(PluginHelper.getJobId(this));
+    try (CSVPrinter printer = new CSVPrinter(Files.newBufferedWriter(output), CSV_FORMAT)) {
+      if (enableHeaders) {
+        printer.printRecord(fields);
+      }
+    } catch (IOException e) {
+      throw new PluginException("Unable to create/write to CSVPrinter", e);
+    }
+    return new Report();
   }
 
   @Override
   public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
-    CSVFormat csvFileFormat = CSVFormat.DEFAULT.withRecordSeparator("\n");
-    Path csvTempFolder = getJobCSVTempFolder();
-
-    if (csvTempFolder != null) {
-      List<Path> partials = new ArrayList<>();
-      try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(csvTempFolder);
-        FileWriter fileWriter = new FileWriter(output.toFile());
-        CSVPrinter csvFilePrinter = new CSVPrinter(fileWriter, csvFileFormat)) {
-        if (enableHeaders) {
-          csvFilePrinter.printRecord(fields);
-        }
-        for (Path path : directoryStream) {
-          partials.add(path);
-        }
-      } catch (IOException e) {
-        LOGGER.error("Error while merging partial CSVs", e);
-      }
-      try {
-        InventoryReportPluginUtils.mergeFiles(partials, output);
-        FSUtils.deletePathQuietly(csvTempFolder);
-      } catch (IOException e) {
-        LOGGER.error("Error while merging partial CSVs", e);
-      }
-    }
     return new Report();
   }
 
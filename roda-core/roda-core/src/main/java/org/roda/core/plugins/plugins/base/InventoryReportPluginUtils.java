@@ -8,11 +8,11 @@
 package org.roda.core.plugins.plugins.base;
 
 import java.io.IOException;
-import java.nio.channels.FileChannel;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +23,7 @@ import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.common.OptionalWithCause;
 import org.roda.core.data.v2.ip.AIP;
@@ -35,6 +36,7 @@ import org.roda.core.data.v2.ip.metadata.OtherMetadata;
 import org.roda.core.model.ModelService;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.storage.Binary;
+import org.roda.core.storage.DirectResourceAccess;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fs.FSUtils;
 import org.roda.core.util.FileUtility;
@@ -48,59 +50,40 @@ public class InventoryReportPluginUtils {
     // do nothing
   }
 
-  public static void mergeFiles(List<Path> files, Path mergedFile) throws IOException {
-    try (FileChannel out = FileChannel.open(mergedFile, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
-      for (Path path : files) {
-        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
-          for (long p = 0, l = in.size(); p < l;) {
-            p += in.transferTo(p, l - p, out);
-          }
-        }
-      }
-    } catch (IOException e) {
-      throw e;
-    }
-  }
-
-  public static List<List<String>> getDataInformation(List<String> fields, AIP aip, ModelService model,
-    StorageService storage) {
-    List<List<String>> dataInformation = new ArrayList<>();
+  public static void submitDataInformation(List<String> fields, AIP aip, ModelService model,
+    StorageService storage, boolean reusePremisFixities, InventoryReportPipeline pipeline) throws IOException {
     for (Representation representation : aip.getRepresentations()) {
       boolean recursive = true;
       try (CloseableIterable<OptionalWithCause<File>> representationFiles = model.listFilesUnder(aip.getId(),
         representation.getId(), recursive)) {
         for (OptionalWithCause<File> subfile : representationFiles) {
           if (subfile.isPresent()) {
-            dataInformation.add(retrieveFileInfo(fields, subfile.get(), aip, model, storage));
+            File file = subfile.get();
+            pipeline.submit(() -> retrieveFileInfo(fields, file, aip, model, storage, reusePremisFixities));
           } else {
             LOGGER.error("Cannot retrieve file information", subfile.getCause());
           }
         }
-      } catch (NotFoundException | GenericException | RequestNotValidException | AuthorizationDeniedException
-        | IOException e) {
-        LOGGER.error("Error retrieving files of representation '{}' of AIP '{}': " + e.getMessage(),
-          representation.getId(), aip.getId());
+      } catch (NotFoundException | GenericException | RequestNotValidException | AuthorizationDeniedException e) {
+        LOGGER.error("Error retrieving files of representation '{}' of AIP '{}'", representation.getId(), aip.getId(),
+          e);
       }
     }
-    return dataInformation;
   }
 
-  public static List<List<String>> getDescriptiveMetadataInformation(List<String> fields, AIP aip, ModelService model,
-    StorageService storage) {
-    List<List<String>> descriptiveMetadataInformation = new ArrayList<>();
+  public static void submitDescriptiveMetadataInformation(List<String> fields, AIP aip, StorageService storage,
+    InventoryReportPipeline pipeline) throws IOException {
     for (DescriptiveMetadata dm : aip.getDescriptiveMetadata()) {
-      descriptiveMetadataInformation.add(retrieveDescriptiveMetadataInfo(fields, aip, dm, storage));
+      pipeline.submit(() -> retrieveDescriptiveMetadataInfo(fields, aip, dm, storage));
     }
 
     if (aip.getRepresentations() != null) {
       for (Representation r : aip.getRepresentations()) {
         for (DescriptiveMetadata dm : r.getDescriptiveMetadata()) {
-          descriptiveMetadataInformation.add(retrieveDescriptiveMetadataInfo(fields, aip, dm, storage));
+          pipeline.submit(() -> retrieveDescriptiveMetadataInfo(fields, aip, dm, storage));
         }
       }
     }
-
-    return descriptiveMetadataInformation;
   }
 
   private static List<String> retrieveDescriptiveMetadataInfo(List<String> fields, AIP aip, DescriptiveMetadata dm,
@@ -125,8 +108,7 @@ public class InventoryReportPluginUtils {
           try {
             StoragePath descriptiveMetadataStoragePath = ModelUtils.getDescriptiveMetadataStoragePath(dm);
             Binary descriptiveMetadataBinary = storage.getBinary(descriptiveMetadataStoragePath);
-            fixities = FileUtility.checksums(descriptiveMetadataBinary.getContent().createInputStream(),
-              InventoryReportPlugin.CHECKSUM_ALGORITHMS);
+            fixities = checksums(descriptiveMetadataBinary, InventoryReportPlugin.CHECKSUM_ALGORITHMS);
           } catch (IOException | GenericException | RequestNotValidException | NotFoundException
             | AuthorizationDeniedException | NoSuchAlgorithmException e) {
             LOGGER.error("Error while calculating fixities for descriptive metadata '" + dm.getId() + "' of AIP '"
@@ -149,10 +131,10 @@ public class InventoryReportPluginUtils {
   }
 
   public static List<String> retrieveFileInfo(List<String> fields, File file, AIP aip, ModelService model,
-    StorageService storage) {
+    StorageService storage, boolean reusePremisFixities) {
 
     List<String> fileInfo = new ArrayList<>();
-    List<Fixity> fixities = null;
+    Map<String, String> fixities = null;
 
     for (String fieldName : fields) {
       if (fieldName.equalsIgnoreCase(InventoryReportPlugin.CSV_FIELD_SIP_ID)) {
@@ -168,21 +150,13 @@ public class InventoryReportPluginUtils {
       } else if (fieldName.equalsIgnoreCase(InventoryReportPlugin.CSV_FIELD_ISDIRECTORY)) {
         fileInfo.add(String.valueOf(file.isDirectory()));
       } else if (InventoryReportPlugin.CHECKSUM_ALGORITHMS.contains(fieldName.toUpperCase())) {
-        if (!file.isDirectory()) {
+        if (file.isDirectory()) {
+          fileInfo.add("");
+        } else {
           if (fixities == null) {
-            try {
-              fixities = PremisV3Utils.extractFixities(model.retrievePreservationFile(file));
-            } catch (GenericException | RequestNotValidException | NotFoundException | AuthorizationDeniedException
-              | XmlException | IOException e) {
-              LOGGER.error("Error extracting fixities from premis file.", e);
-            }
-          }
-
-          if (fixities != null) {
-            fileInfo.add(getFixity(fieldName, fixities, file, storage));
-          } else {
-            fileInfo.add("");
+            fixities = getFileFixities(fields, file, model, storage, reusePremisFixities);
           }
+          fileInfo.add(fixities.getOrDefault(fieldName.toUpperCase(), ""));
         }
       } else if (fieldName.equalsIgnoreCase(InventoryReportPlugin.CSV_FILE_TYPE)) {
         fileInfo.add(InventoryReportPlugin.CSV_LINE_TYPE.DATA.toString());
@@ -194,47 +168,85 @@ public class InventoryReportPluginUtils {
     return fileInfo;
   }
 
-  private static String getFixity(String fixityAlgorithm, List<Fixity> fixities, File file, StorageService storage) {
-    String fixity = "";
-    if (fixities != null && !fixities.isEmpty()) {
-      for (Fixity f : fixities) {
-        if (f.getMessageDigestAlgorithm() != null && f.getMessageDigestAlgorithm().equalsIgnoreCase(fixityAlgorithm)) {
-          fixity = f.getMessageDigest();
-          break;
-        }
+  /**
+   * Gets all the requested checksums of a file, reading it at most once. The
+   * checksums in the PREMIS file are used, if allowed, when it is not older
+   * than the file, as they were then computed from its current content.
+   */
+  private static Map<String, String> getFileFixities(List<String> fields, File file, ModelService model,
+    StorageService storage, boolean reusePremisFixities) {
+    List<String> algorithms = new ArrayList<>();
+    for (String fieldName : fields) {
+      if (InventoryReportPlugin.CHECKSUM_ALGORITHMS.contains(fieldName.toUpperCase())) {
+        algorithms.add(fieldName.toUpperCase());
       }
     }
-    if (StringUtils.isBlank(fixity)) {
-      try {
-        Binary binary = storage.getBinary(ModelUtils.getFileStoragePath(file));
-        fixity = FileUtility.checksum(binary.getContent().createInputStream(), fixityAlgorithm);
-      } catch (NoSuchAlgorithmException | IOException | GenericException | RequestNotValidException | NotFoundException
-        | AuthorizationDeniedException e) {
-        fixity = "";
+
+    Map<String, String> fixities = new HashMap<>();
+    try {
+      StoragePath fileStoragePath = ModelUtils.getFileStoragePath(file);
+      if (reusePremisFixities) {
+        try {
+          Binary premisFile = model.retrievePreservationFile(file);
+          if (isNotOlder(storage, premisFile.getStoragePath(), fileStoragePath)) {
+            for (Fixity fixity : PremisV3Utils.extractFixities(premisFile)) {
+              String algorithm = StringUtils.upperCase(fixity.getMessageDigestAlgorithm());
+              if (algorithms.contains(algorithm) && StringUtils.isNotBlank(fixity.getMessageDigest())) {
+                fixities.put(algorithm, fixity.getMessageDigest().trim());
+              }
+            }
+          }
+        } catch (NotFoundException | XmlException e) {
+          LOGGER.debug("Could not reuse fixities of file {} of AIP {}", file.getId(), file.getAipId(), e);
+        }
       }
+
+      List<String> missingAlgorithms = new ArrayList<>(algorithms);
+      missingAlgorithms.removeAll(fixities.keySet());
+      if (!missingAlgorithms.isEmpty()) {
+        fixities.putAll(checksums(storage.getBinary(fileStoragePath), missingAlgorithms));
+      }
+    } catch (IOException | GenericException | RequestNotValidException | NotFoundException
+      | AuthorizationDeniedException | NoSuchAlgorithmException e) {
+      LOGGER.error("Error while calculating fixities for file '" + file.getId() + "' of AIP '" + file.getAipId()
+        + "': " + e.getMessage(), e);
     }
-    return fixity;
+    return fixities;
   }
 
-  public static List<List<String>> getOtherMetadataInformation(List<String> fields, String otherMetadataType, AIP aip,
-    ModelService model, StorageService storage) {
-    List<List<String>> otherMetadataInformation = new ArrayList<>();
+  private static boolean isNotOlder(StorageService storage, StoragePath storagePath, StoragePath otherStoragePath) {
+    try (DirectResourceAccess resource = storage.getDirectAccess(storagePath);
+      DirectResourceAccess otherResource = storage.getDirectAccess(otherStoragePath)) {
+      return Files.getLastModifiedTime(resource.getPath())
+        .compareTo(Files.getLastModifiedTime(otherResource.getPath())) >= 0;
+    } catch (IOException | RODAException e) {
+      LOGGER.debug("Could not compare modification times of {} and {}", storagePath, otherStoragePath, e);
+      return false;
+    }
+  }
 
+  private static Map<String, String> checksums(Binary binary, List<String> algorithms)
+    throws IOException, NoSuchAlgorithmException {
+    try (InputStream inputStream = binary.getContent().createInputStream()) {
+      return FileUtility.checksums(inputStream, algorithms);
+    }
+  }
+
+  public static void submitOtherMetadataInformation(List<String> fields, String otherMetadataType, AIP aip,
+    ModelService model, StorageService storage, InventoryReportPipeline pipeline) throws IOException {
     try (CloseableIterable<OptionalWithCause<OtherMetadata>> otherMetadatas = model.listOtherMetadata(aip.getId(),
       otherMetadataType, true)) {
       for (OptionalWithCause<OtherMetadata> otherMetadata : otherMetadatas) {
         if (otherMetadata.isPresent()) {
-          otherMetadataInformation.add(retrieveOtherMetadataInfo(fields, otherMetadata.get(), aip, storage));
+          OtherMetadata om = otherMetadata.get();
+          pipeline.submit(() -> retrieveOtherMetadataInfo(fields, om, aip, storage));
         } else {
           LOGGER.error("Cannot retrieve other metadata information", otherMetadata.getCause());
         }
       }
-    } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException
-      | IOException e) {
+    } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
       LOGGER.error("Error retrieving other metadata.", e);
     }
-
-    return otherMetadataInformation;
   }
 
   private static List<String> retrieveOtherMetadataInfo(List<String> fields, OtherMetadata otherMetadata, AIP aip,
@@ -261,8 +273,7 @@ public class InventoryReportPluginUtils {
             Binary otherMetadataBinary = storage.getBinary(ModelUtils.getOtherMetadataStoragePath(
               otherMetadata.getAipId(), otherMetadata.getRepresentationId(), otherMetadata.getFileDirectoryPath(),
               otherMetadata.getFileId(), otherMetadata.getFileSuffix(), otherMetadata.getType()));
-            fixities = FileUtility.checksums(otherMetadataBinary.getContent().createInputStream(),
-              InventoryReportPlugin.CHECKSUM_ALGORITHMS);
+            fixities = checksums(otherMetadataBinary, InventoryReportPlugin.CHECKSUM_ALGORITHMS);
           } catch (IOException | GenericException | RequestNotValidException | NotFoundException
             | AuthorizationDeniedException | NoSuchAlgorithmException e) {
             LOGGER.error(
@@ -0,0 +1,119 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.characterization;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.roda.core.data.exceptions.GenericException;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Characterization results of data files, kept on a directory and keyed by the
+ * file content digest and by the name and version of the tool and of its
+ * signatures, so that unchanged content is not characterized again while any
+ * tool or signature update invalidates the results.
+ * 
+ * Results are never updated, so the last modified time of each one is moved
+ * forward when it is used, and results left unused for longer than the
+ * maximum age (e.g. of content no longer in the repository or of previous
+ * signatures) are removed by {@link #evictUnused()}, which bounds the growth
+ * of the directory.
+ */
+public class CharacterizationResultCache {
+  private static final String KEY_SEPARATOR = "\n";
+  private static final String RESULT_EXTENSION = ".json";
+
+  private final Path cacheDirectory;
+  private final long maxUnusedMillis;
+
+  public CharacterizationResultCache(Path cacheDirectory, long maxUnusedMillis) {
+    this.cacheDirectory = cacheDirectory;
+    this.maxUnusedMillis = maxUnusedMillis;
+  }
+
+  public static String getKey(String contentDigest, String toolName, String toolVersion, String signatureVersion) {
+    String key = String.join(KEY_SEPARATOR, contentDigest, toolName, toolVersion, signatureVersion);
+    return Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
+  }
+
+  public Optional<String> get(String key) throws GenericException {
+    Path resultPath = getResultPath(key);
+    try {
+      String result = new String(Files.readAllBytes(resultPath), StandardCharsets.UTF_8);
+      markUsed(resultPath);
+      return Optional.of(result);
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (IOException e) {
+      throw new GenericException("Error reading characterization result " + key, e);
+    }
+  }
+
+  public void put(String key, String result) throws GenericException {
+    Path resultPath = getResultPath(key);
+    try {
+      Files.createDirectories(resultPath.getParent());
+      // written to a temporary file first, so concurrent readers never see a
+      // partial result
+      Path temporaryPath = Files.createTempFile(resultPath.getParent(), key, RESULT_EXTENSION);
+      Files.write(temporaryPath, result.getBytes(StandardCharsets.UTF_8));
+      Files.move(temporaryPath, resultPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new GenericException("Error writing characterization result " + key, e);
+    }
+  }
+
+  private static void markUsed(Path resultPath) throws IOException {
+    try {
+      Files.setLastModifiedTime(resultPath, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (NoSuchFileException e) {
+      // evicted in the meantime, it will be added again when missing
+    }
+  }
+
+  /**
+   * Removes the results not used for longer than the maximum age.
+   * 
+   * @return the number of removed results.
+   */
+  public long evictUnused() throws GenericException {
+    if (!Files.isDirectory(cacheDirectory)) {
+      return 0;
+    }
+
+    long oldest = System.currentTimeMillis() - maxUnusedMillis;
+    long evicted = 0;
+    try (Stream<Path> results = Files.walk(cacheDirectory, 2)) {
+      for (Path result : (Iterable<Path>) results::iterator) {
+        if (result.getFileName().toString().endsWith(RESULT_EXTENSION) && Files.isRegularFile(result)
+          && Files.getLastModifiedTime(result).toMillis() < oldest && Files.deleteIfExists(result)) {
+          evicted++;
+        }
+      }
+    } catch (IOException | UncheckedIOException e) {
+      throw new GenericException("Error removing unused characterization results from " + cacheDirectory, e);
+    }
+    return evicted;
+  }
+
+  private Path getResultPath(String key) {
+    // first characters of the key are used to avoid too many files per folder
+    return cacheDirectory.resolve(key.substring(0, 2)).resolve(key + RESULT_EXTENSION);
+  }
+
+}
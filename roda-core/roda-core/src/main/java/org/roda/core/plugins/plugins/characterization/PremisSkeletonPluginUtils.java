@@ -9,6 +9,9 @@ package org.roda.core.plugins.plugins.characterization;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.xmlbeans.XmlException;
 import org.roda.core.common.PremisV3Utils;
@@ -31,6 +34,9 @@ import org.roda.core.util.IdUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.loc.premis.v3.RelatedObjectIdentifierComplexType;
+import gov.loc.premis.v3.RelationshipComplexType;
+
 public class PremisSkeletonPluginUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(PremisSkeletonPluginUtils.class);
 
@@ -49,6 +55,7 @@ public class PremisSkeletonPluginUtils {
     } else {
       representation = PremisV3Utils.createBaseRepresentation(aipId, representationId);
     }
+    Set<String> linkedFiles = getLinkedFiles(representation);
 
     try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aipId, representationId, true)) {
       for (OptionalWithCause<File> oFile : allFiles) {
@@ -57,6 +64,12 @@ public class PremisSkeletonPluginUtils {
           if (!file.isDirectory()) {
             if (!model.preservationFileExists(aipId, representationId, file.getPath(), file.getId())) {
               PremisSkeletonPluginUtils.createPremisSkeletonOnFile(model, file, fixityAlgorithms, representation);
+            } else if (!linkedFiles.contains(IdUtils.getPreservationFileId(file.getId()))) {
+              // e.g. created at ingest with the checksums computed on upload,
+              // also when added to an existing representation by an update
+              PremisV3Utils.linkFileToRepresentation(IdUtils.getPreservationFileId(file.getId()),
+                RodaConstants.PREMIS_RELATIONSHIP_TYPE_STRUCTURAL, RodaConstants.PREMIS_RELATIONSHIP_SUBTYPE_HASPART,
+                representation);
             }
           }
         } else {
@@ -77,6 +90,16 @@ public class PremisSkeletonPluginUtils {
     }
   }
 
+  private static Set<String> getLinkedFiles(gov.loc.premis.v3.Representation representation) {
+    Set<String> linkedFiles = new HashSet<>();
+    for (RelationshipComplexType relationship : representation.getRelationshipArray()) {
+      for (RelatedObjectIdentifierComplexType relatedObject : relationship.getRelatedObjectIdentifierArray()) {
+        linkedFiles.add(relatedObject.getRelatedObjectIdentifierValue());
+      }
+    }
+    return linkedFiles;
+  }
+
   public static void createPremisSkeletonOnFile(ModelService model, File file, Collection<String> fixityAlgorithms)
     throws RequestNotValidException, GenericException, AuthorizationDeniedException, NotFoundException,
     ValidationException, XmlException, IOException {
@@ -94,6 +117,27 @@ public class PremisSkeletonPluginUtils {
     PremisSkeletonPluginUtils.createPremisSkeletonOnFile(model, file, fixityAlgorithms, representation);
   }
 
+  /**
+   * Creates the PREMIS of a file with checksums computed while it was written
+   * (e.g. on upload), if they cover all the fixity algorithms, so that the file
+   * does not need to be read again. The representation PREMIS links to it when
+   * the skeleton is created.
+   * 
+   * @return true if the PREMIS was created.
+   */
+  public static boolean createPremisSkeletonOnFileWithKnownChecksums(ModelService model, File file,
+    Collection<String> fixityAlgorithms, Map<String, String> knownChecksums) throws RequestNotValidException,
+    GenericException, AuthorizationDeniedException, NotFoundException, AlreadyExistsException, XmlException {
+    if (file.isDirectory() || !knownChecksums.keySet().containsAll(fixityAlgorithms)) {
+      return false;
+    }
+
+    ContentPayload filePreservation = PremisV3Utils.createBaseFile(file, model, fixityAlgorithms, knownChecksums);
+    model.createPreservationMetadata(PreservationMetadataType.FILE, file.getAipId(), file.getRepresentationId(),
+      file.getPath(), file.getId(), filePreservation, false);
+    return true;
+  }
+
   public static void createPremisSkeletonOnFile(ModelService model, File file, Collection<String> fixityAlgorithms,
     gov.loc.premis.v3.Representation representation) throws RequestNotValidException, GenericException,
     AuthorizationDeniedException, NotFoundException, ValidationException, XmlException, IOException {
@@ -8,21 +8,34 @@
 package org.roda.core.plugins.plugins.characterization;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.xmlbeans.XmlException;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.PremisV3Utils;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.utils.JsonUtils;
 import org.roda.core.data.v2.IsRODAObject;
@@ -34,6 +47,7 @@ import org.roda.core.model.ModelService;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.plugins.PluginException;
 import org.roda.core.plugins.plugins.PluginHelper;
+import org.roda.core.storage.Binary;
 import org.roda.core.storage.ContentPayload;
 import org.roda.core.storage.DirectResourceAccess;
 import org.roda.core.storage.StringContentPayload;
@@ -45,10 +59,37 @@ import org.roda.core.util.HTTPUtility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.hash.Hashing;
 
 public class SiegfriedPluginUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(SiegfriedPluginUtils.class);
+  private static final String TOOL_NAME = "siegfried";
+  private static final String CACHE_DIRECTORY = "cache";
+  private static final String FILENAME_FIELD = "filename";
+  private static final String FILES_FIELD = "files";
+  private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+  private static final String VERSION_SEPARATOR = " w/ ";
+  private static final long VERSION_CACHE_DURATION_MILLIS = 60000L;
+  private static final String SIGNATURE_FILE_EXTENSION = ".sig";
+  private static final int DEFAULT_CACHE_MAX_UNUSED_DAYS = 90;
+  /**
+   * Files not found on the cache are identified each on its own up to this
+   * number, as each run has a cost
+   */
+  private static final int MAX_FILES_IDENTIFIED_ALONE = 100;
+  private static final int DEFAULT_SERVER_CONNECT_TIMEOUT_IN_SECONDS = 30;
+  private static final int DEFAULT_SERVER_READ_TIMEOUT_IN_SECONDS = 600;
+  private static final long CACHE_EVICTION_INTERVAL_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  private static CharacterizationResultCache resultCache = null;
+  private static String[] cachedVersion = null;
+  private static long cachedVersionTimestamp = 0L;
+  private static long lastCacheEviction = 0L;
 
   private SiegfriedPluginUtils() {
     // do nothing
@@ -62,51 +103,132 @@ public class SiegfriedPluginUtils {
     return command;
   }
 
-  private static String getSiegfriedServerEndpoint(Path sourceDirectory) {
-    String siegfriedServer = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "siegfried", "server");
+  private static String getSiegfriedServerEndpoint(String siegfriedServer, Path sourceDirectory) {
     return String.format("%s/identify/%s?base64=true&format=json", siegfriedServer,
       new String(Base64.encode(sourceDirectory.toString().getBytes())));
   }
 
-  public static String runSiegfriedOnPath(Path sourceDirectory) throws PluginException {
+  /**
+   * Handles the Siegfried result of one file.
+   */
+  @FunctionalInterface
+  public interface SiegfriedResultHandler {
+    void handle(JsonNode file) throws RODAException;
+  }
+
+  /**
+   * Runs Siegfried on a file or directory, handing each file result to the
+   * handler as soon as it is parsed from the output, which is never fully kept
+   * in memory.
+   */
+  public static void runSiegfriedOnPath(Path sourceDirectory, SiegfriedResultHandler handler)
+    throws PluginException {
     try {
       String siegfriedMode = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "siegfried", "mode");
-      if ("server".equalsIgnoreCase(siegfriedMode)) {
+      if ("pool".equalsIgnoreCase(siegfriedMode)) {
+        LOGGER.debug("Running Siegfried on server pool mode");
+        SiegfriedServerPool pool = SiegfriedServerPool.getInstance();
+        String siegfriedServer = pool.borrow();
+        try {
+          runSiegfriedOnServer(siegfriedServer, sourceDirectory, handler);
+        } finally {
+          pool.release(siegfriedServer);
+        }
+      } else if ("server".equalsIgnoreCase(siegfriedMode)) {
         LOGGER.debug("Running Siegfried on server mode");
-        String endpoint = getSiegfriedServerEndpoint(sourceDirectory);
-        return HTTPUtility.doGet(endpoint);
+        String siegfriedServer = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "siegfried", "server");
+        runSiegfriedOnServer(siegfriedServer, sourceDirectory, handler);
       } else {
         LOGGER.debug("Running Siegfried on standalone mode");
-        List<String> command = getBatchCommand(sourceDirectory);
-        return CommandUtility.execute(command, false);
+        runSiegfriedBinary(sourceDirectory, handler);
       }
-    } catch (CommandException | GenericException e) {
-      throw new PluginException("Error while executing Siegfried: " + e.getMessage());
+    } catch (RODAException | IOException e) {
+      throw new PluginException("Error while executing Siegfried: " + e.getMessage(), e);
     }
   }
 
-  public static String getVersion() {
+  private static void runSiegfriedOnServer(String siegfriedServer, Path sourceDirectory,
+    SiegfriedResultHandler handler) throws IOException, RODAException {
+    URL url = new URL(getSiegfriedServerEndpoint(siegfriedServer, sourceDirectory));
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setRequestMethod(HTTPUtility.METHOD_GET);
+    // a stalled server must not block the worker forever
+    int connectTimeout = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_SERVER_CONNECT_TIMEOUT_IN_SECONDS, "core",
+      "tools", "siegfried", "server", "connectTimeoutInSeconds");
+    int readTimeout = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_SERVER_READ_TIMEOUT_IN_SECONDS, "core",
+      "tools", "siegfried", "server", "readTimeoutInSeconds");
+    connection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(connectTimeout));
+    connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(readTimeout));
+    int responseCode = connection.getResponseCode();
+    if (responseCode != HttpURLConnection.HTTP_OK) {
+      throw new GenericException("Unable to connect to Siegfried server, response code: " + responseCode);
+    }
+
+    try (InputStream inputStream = connection.getInputStream()) {
+      parseSiegfriedOutput(inputStream, handler);
+    }
+  }
+
+  private static void runSiegfriedBinary(Path sourceDirectory, SiegfriedResultHandler handler)
+    throws IOException, RODAException {
+    List<String> command = getBatchCommand(sourceDirectory);
+    Path errorFile = Files.createTempFile(TOOL_NAME, ".err");
+    Process process = new ProcessBuilder(command).redirectError(errorFile.toFile()).start();
     try {
-      String siegfriedPath = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "siegfried", "binary");
-      List<String> command = new ArrayList<>(Arrays.asList(siegfriedPath, "--version"));
-      String siegfriedOutput = CommandUtility.execute(command);
-      StringBuilder result = new StringBuilder();
+      try (InputStream inputStream = process.getInputStream()) {
+        parseSiegfriedOutput(inputStream, handler);
+      }
 
-      if (siegfriedOutput.contains("\n")) {
-        result.append(siegfriedOutput.split("\\n")[0].split(" ")[1]);
+      int exitValue = process.waitFor();
+      if (exitValue != 0) {
+        throw new CommandException("Command " + command + " terminated with error code " + exitValue, exitValue,
+          new String(Files.readAllBytes(errorFile), StandardCharsets.UTF_8));
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while executing Siegfried", e);
+    } finally {
+      // if the handler failed, Siegfried could be left blocked writing its output
+      process.destroy();
+      Files.deleteIfExists(errorFile);
+    }
+  }
 
-      if (siegfriedOutput.contains("DROID_SignatureFile_")) {
-        result.append(" w/ ");
+  /**
+   * Parses the files of a Siegfried JSON output one by one.
+   */
+  private static void parseSiegfriedOutput(InputStream inputStream, SiegfriedResultHandler handler)
+    throws IOException, RODAException {
+    try (JsonParser parser = JSON_MAPPER.getFactory().createParser(inputStream)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new GenericException("Siegfried output is not a JSON object");
+      }
 
-        Pattern pattern = Pattern.compile("DROID_SignatureFile_V[0-9]+");
-        Matcher matcher = pattern.matcher(siegfriedOutput);
-        if (matcher.find()) {
-          result.append(matcher.group(0));
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if (FILES_FIELD.equals(fieldName) && value == JsonToken.START_ARRAY) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            JsonNode file = JSON_MAPPER.readTree(parser);
+            handler.handle(file);
+          }
+        } else {
+          parser.skipChildren();
         }
       }
+    }
+  }
+
+  public static String getVersion() {
+    String siegfriedOutput = getVersionOutput();
+    return siegfriedOutput == null ? null : getVersion(siegfriedOutput);
+  }
 
-      return result.toString();
+  private static String getVersionOutput() {
+    try {
+      String siegfriedPath = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "siegfried", "binary");
+      List<String> command = new ArrayList<>(Arrays.asList(siegfriedPath, "--version"));
+      return CommandUtility.execute(command);
     } catch (CommandException ce) {
       LOGGER.error("Error getting Siegfried version: " + ce.getMessage(), ce);
     }
@@ -114,6 +236,56 @@ public class SiegfriedPluginUtils {
     return null;
   }
 
+  private static String getVersion(String siegfriedOutput) {
+    StringBuilder result = new StringBuilder();
+
+    if (siegfriedOutput.contains("\n")) {
+      result.append(siegfriedOutput.split("\\n")[0].split(" ")[1]);
+    }
+
+    if (siegfriedOutput.contains("DROID_SignatureFile_")) {
+      result.append(" w/ ");
+
+      Pattern pattern = Pattern.compile("DROID_SignatureFile_V[0-9]+");
+      Matcher matcher = pattern.matcher(siegfriedOutput);
+      if (matcher.find()) {
+        result.append(matcher.group(0));
+      }
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * @return a digest of every signature Siegfried loads: the identifiers listed
+   *         on its version output, with the DROID, container and any other
+   *         signature files they were built from, and the content of the
+   *         signature file itself, whose path is also listed there.
+   */
+  private static String getSignaturesDigest(String siegfriedOutput) {
+    StringBuilder signatures = new StringBuilder();
+    String[] lines = siegfriedOutput.split("\\n");
+    // the first line only has the Siegfried version
+    for (int i = 1; i < lines.length; i++) {
+      String line = lines[i].trim();
+      signatures.append(line).append('\n');
+
+      String signatureFile = StringUtils.substringBefore(line, " (");
+      if (signatureFile.endsWith(SIGNATURE_FILE_EXTENSION)) {
+        try {
+          Path signaturePath = Paths.get(signatureFile);
+          if (FSUtils.isFile(signaturePath)) {
+            signatures.append(FSUtils.computeContentDigest(signaturePath, RodaConstants.SHA256)).append('\n');
+          }
+        } catch (InvalidPathException | GenericException e) {
+          LOGGER.debug("Could not compute digest of Siegfried signature file {}", signatureFile, e);
+        }
+      }
+    }
+
+    return Hashing.sha256().hashString(signatures.toString(), StandardCharsets.UTF_8).toString();
+  }
+
   public static <T extends IsRODAObject> List<LinkingIdentifier> runSiegfriedOnRepresentation(ModelService model,
     Representation representation) throws GenericException, RequestNotValidException, NotFoundException,
     AuthorizationDeniedException, PluginException {
@@ -145,6 +317,13 @@ public class SiegfriedPluginUtils {
     }
   }
 
+  /**
+   * Results of unchanged content are reused and only the remaining files are
+   * identified, each on its own if there are only a few of them, otherwise on a
+   * single run over the whole path. Files are streamed, and only a bounded
+   * number of them is kept, so that memory use does not grow with the size of
+   * the representation.
+   */
   private static <T extends IsRODAObject> List<LinkingIdentifier> runSiegfriedOnRepresentationOrFile(ModelService model,
     String aipId, String representationId, List<String> fileDirectoryPath, String fileId, Path path)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException,
@@ -152,55 +331,222 @@ public class SiegfriedPluginUtils {
     List<LinkingIdentifier> sources = new ArrayList<>();
 
     if (FSUtils.exists(path)) {
-      String siegfriedOutput = SiegfriedPluginUtils.runSiegfriedOnPath(path);
-      final JsonNode jsonObject = JsonUtils.parseJson(siegfriedOutput);
-      final JsonNode files = jsonObject.get("files");
+      CharacterizationResultCache cache = getResultCache();
+      String[] version = getCachedVersion();
+      boolean cached = cache != null && version != null;
 
-      for (JsonNode file : files) {
-        Path fullFsPath = Paths.get(file.get("filename").asText());
-        Path relativeFsPath = path.relativize(fullFsPath);
-        String jsonFileId = fullFsPath.getFileName().toString();
+      boolean reused = false;
+      List<Path> missingPaths = new ArrayList<>();
+      boolean tooManyMissing = false;
+      if (cached) {
+        try (Stream<Path> paths = Files.walk(path)) {
+          for (Path filePath : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+            List<String> jsonFilePath = getFilePath(path, fileDirectoryPath, fileId, filePath);
+            String jsonFileId = filePath.getFileName().toString();
+            String key = getResultKey(model, aipId, representationId, jsonFilePath, jsonFileId, filePath, version);
 
-        List<String> jsonFilePath = new ArrayList<>(fileDirectoryPath);
-        if (fileId != null) {
-          jsonFilePath.add(fileId);
+            Optional<String> result = cache.get(key);
+            if (result.isPresent()) {
+              ObjectNode file = (ObjectNode) JsonUtils.parseJson(result.get());
+              file.put(FILENAME_FIELD, filePath.toString());
+              sources.add(applyResult(model, aipId, representationId, jsonFilePath, jsonFileId, file, true));
+              reused = true;
+            } else if (!tooManyMissing && missingPaths.size() < MAX_FILES_IDENTIFIED_ALONE) {
+              missingPaths.add(filePath);
+            } else {
+              tooManyMissing = true;
+              missingPaths.clear();
+            }
+          }
+        } catch (IOException | UncheckedIOException e) {
+          throw new GenericException("Error listing files under " + path, e);
         }
 
-        for (int j = 0; j < relativeFsPath.getNameCount()
-          && StringUtils.isNotBlank(relativeFsPath.getName(j).toString()); j++) {
-          jsonFilePath.add(relativeFsPath.getName(j).toString());
+        if (!tooManyMissing && missingPaths.isEmpty()) {
+          return sources;
         }
+      }
 
-        jsonFilePath.remove(jsonFilePath.size() - 1);
+      boolean identifyAlone = reused && !tooManyMissing;
+      boolean skipCached = reused && tooManyMissing;
+      SiegfriedResultHandler handler = file -> {
+        Path fullFsPath = Paths.get(file.get(FILENAME_FIELD).asText());
+        List<String> jsonFilePath = getFilePath(path, fileDirectoryPath, fileId, fullFsPath);
+        String jsonFileId = fullFsPath.getFileName().toString();
+        if (cached) {
+          String key = getResultKey(model, aipId, representationId, jsonFilePath, jsonFileId, fullFsPath, version);
+          if (skipCached && cache.get(key).isPresent()) {
+            // already applied from the cache
+            return;
+          }
+          cache.put(key, file.toString());
+        }
 
-        ContentPayload payload = new StringContentPayload(file.toString());
-        model.createOrUpdateOtherMetadata(aipId, representationId, jsonFilePath, jsonFileId,
-          SiegfriedPlugin.FILE_SUFFIX, RodaConstants.OTHER_METADATA_TYPE_SIEGFRIED, payload, false);
+        // files whose format did not change (e.g. after a signature update) are
+        // left as they are
+        sources.add(applyResult(model, aipId, representationId, jsonFilePath, jsonFileId, file, true));
+      };
 
-        sources.add(PluginHelper.getLinkingIdentifier(aipId, representationId, jsonFilePath, jsonFileId,
-          RodaConstants.PRESERVATION_LINKING_OBJECT_SOURCE));
+      if (identifyAlone) {
+        for (Path missingPath : missingPaths) {
+          SiegfriedPluginUtils.runSiegfriedOnPath(missingPath, handler);
+        }
+      } else {
+        SiegfriedPluginUtils.runSiegfriedOnPath(path, handler);
+      }
+    }
+
+    return sources;
+  }
 
-        // Update PREMIS files
-        final JsonNode matches = file.get("matches");
-        for (JsonNode match : matches) {
-          String format = null;
-          String version = null;
-          String pronom = null;
-          String mime = null;
+  /**
+   * Stores the Siegfried result of a file as other metadata and updates its
+   * format on PREMIS.
+   *
+   * @param skipIfUnchanged
+   *          if nothing is updated when the stored result is already the same.
+   */
+  private static LinkingIdentifier applyResult(ModelService model, String aipId, String representationId,
+    List<String> jsonFilePath, String jsonFileId, JsonNode file, boolean skipIfUnchanged)
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    String result = file.toString();
+    if (!skipIfUnchanged || !result.equals(retrieveResult(model, aipId, representationId, jsonFilePath, jsonFileId))) {
+      ContentPayload payload = new StringContentPayload(result);
+      model.createOrUpdateOtherMetadata(aipId, representationId, jsonFilePath, jsonFileId, SiegfriedPlugin.FILE_SUFFIX,
+        RodaConstants.OTHER_METADATA_TYPE_SIEGFRIED, payload, false);
 
-          if ("pronom".equalsIgnoreCase(match.get("ns").textValue())) {
-            format = match.get("format").textValue();
-            version = match.get("version").textValue();
-            pronom = match.get("id").textValue();
-            mime = match.get("mime").textValue();
-          }
+      // Update PREMIS files
+      final JsonNode matches = file.get("matches");
+      for (JsonNode match : matches) {
+        String format = null;
+        String version = null;
+        String pronom = null;
+        String mime = null;
 
-          PremisV3Utils.updateFormatPreservationMetadata(model, aipId, representationId, jsonFilePath, jsonFileId,
-            format, version, pronom, mime, true);
+        if ("pronom".equalsIgnoreCase(match.get("ns").textValue())) {
+          format = match.get("format").textValue();
+          version = match.get("version").textValue();
+          pronom = match.get("id").textValue();
+          mime = match.get("mime").textValue();
         }
+
+        PremisV3Utils.updateFormatPreservationMetadata(model, aipId, representationId, jsonFilePath, jsonFileId,
+          format, version, pronom, mime, true);
       }
     }
 
-    return sources;
+    return PluginHelper.getLinkingIdentifier(aipId, representationId, jsonFilePath, jsonFileId,
+      RodaConstants.PRESERVATION_LINKING_OBJECT_SOURCE);
+  }
+
+  private static String retrieveResult(ModelService model, String aipId, String representationId,
+    List<String> jsonFilePath, String jsonFileId) {
+    try {
+      Binary binary = model.retrieveOtherMetadataBinary(aipId, representationId, jsonFilePath, jsonFileId,
+        SiegfriedPlugin.FILE_SUFFIX, RodaConstants.OTHER_METADATA_TYPE_SIEGFRIED);
+      try (InputStream inputStream = binary.getContent().createInputStream()) {
+        return IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+      }
+    } catch (RequestNotValidException | GenericException | NotFoundException | AuthorizationDeniedException
+      | IOException e) {
+      LOGGER.trace("Could not retrieve Siegfried result of file {}", jsonFileId, e);
+      return null;
+    }
+  }
+
+  /**
+   * @return the directory path, on the representation, of a file found under the
+   *         path Siegfried ran on.
+   */
+  private static List<String> getFilePath(Path path, List<String> fileDirectoryPath, String fileId,
+    Path fullFsPath) {
+    Path relativeFsPath = path.relativize(fullFsPath);
+    List<String> jsonFilePath = new ArrayList<>(fileDirectoryPath);
+    if (fileId != null) {
+      jsonFilePath.add(fileId);
+    }
+
+    for (int j = 0; j < relativeFsPath.getNameCount()
+      && StringUtils.isNotBlank(relativeFsPath.getName(j).toString()); j++) {
+      jsonFilePath.add(relativeFsPath.getName(j).toString());
+    }
+
+    jsonFilePath.remove(jsonFilePath.size() - 1);
+    return jsonFilePath;
+  }
+
+  private static String getResultKey(ModelService model, String aipId, String representationId,
+    List<String> jsonFilePath, String jsonFileId, Path filePath, String[] version) throws GenericException {
+    String digest = getContentDigest(model, aipId, representationId, jsonFilePath, jsonFileId, filePath);
+    return CharacterizationResultCache.getKey(digest, TOOL_NAME, version[0], version[1]);
+  }
+
+  /**
+   * @return the SHA-256 digest of a file, from its PREMIS fixity or, if missing,
+   *         calculated from its content.
+   */
+  private static String getContentDigest(ModelService model, String aipId, String representationId,
+    List<String> fileDirectoryPath, String fileId, Path filePath) throws GenericException {
+    try {
+      Binary premisFile = model.retrievePreservationFile(aipId, representationId, fileDirectoryPath, fileId);
+      String fixity = PremisV3Utils.extractFixity(premisFile, RodaConstants.SHA256);
+      if (StringUtils.isNotBlank(fixity)) {
+        return fixity;
+      }
+    } catch (RequestNotValidException | NotFoundException | AuthorizationDeniedException | IOException
+      | XmlException e) {
+      LOGGER.trace("Could not get fixity of file {} from PREMIS", fileId, e);
+    }
+
+    return FSUtils.computeContentDigest(filePath, RodaConstants.SHA256);
+  }
+
+  /**
+   * @return the cache of results, whose results left unused for a while are
+   *         removed at most once a day on a background thread.
+   */
+  private static synchronized CharacterizationResultCache getResultCache() {
+    if (resultCache == null && RodaCoreFactory.getRodaConfiguration().getBoolean("core.tools.siegfried.cache", true)) {
+      int maxUnusedDays = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_CACHE_MAX_UNUSED_DAYS, "core", "tools",
+        "siegfried", "cache", "maxUnusedDays");
+      resultCache = new CharacterizationResultCache(RodaCoreFactory.getDataPath().resolve(CACHE_DIRECTORY)
+        .resolve(TOOL_NAME), TimeUnit.DAYS.toMillis(maxUnusedDays));
+    }
+
+    long now = System.currentTimeMillis();
+    if (resultCache != null && now - lastCacheEviction > CACHE_EVICTION_INTERVAL_MILLIS) {
+      lastCacheEviction = now;
+      CharacterizationResultCache cache = resultCache;
+      Thread eviction = new Thread(() -> {
+        try {
+          LOGGER.debug("Removed {} unused Siegfried results from the cache", cache.evictUnused());
+        } catch (GenericException e) {
+          LOGGER.warn("Could not remove unused Siegfried results from the cache", e);
+        }
+      }, "siegfried-cache-eviction");
+      eviction.setDaemon(true);
+      eviction.start();
+    }
+    return resultCache;
+  }
+
+  /**
+   * @return the Siegfried version and the DROID signature version along with a
+   *         digest of all signatures, which are kept for a while not to run
+   *         Siegfried for each representation or file, or <code>null</code> if
+   *         they could not be found.
+   */
+  private static synchronized String[] getCachedVersion() {
+    long now = System.currentTimeMillis();
+    if (now - cachedVersionTimestamp > VERSION_CACHE_DURATION_MILLIS) {
+      String siegfriedOutput = getVersionOutput();
+      String version = siegfriedOutput == null ? null : getVersion(siegfriedOutput);
+      cachedVersion = StringUtils.isBlank(version) ? null
+        : new String[] {StringUtils.substringBefore(version, VERSION_SEPARATOR),
+          StringUtils.substringAfter(version, VERSION_SEPARATOR) + VERSION_SEPARATOR
+            + getSignaturesDigest(siegfriedOutput)};
+      cachedVersionTimestamp = now;
+    }
+    return cachedVersion;
   }
 }
@@ -0,0 +1,165 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.characterization;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.exceptions.GenericException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of long-lived <code>sf -serve</code> processes listening on consecutive
+ * local ports, so that each identification request reuses an already loaded
+ * signature file instead of starting Siegfried again.
+ *
+ * A server is borrowed for each request and is restarted if its process is
+ * found dead when borrowed.
+ */
+public class SiegfriedServerPool {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SiegfriedServerPool.class);
+
+  private static final String HOST = "localhost";
+  private static final int DEFAULT_POOL_SIZE = 2;
+  private static final int DEFAULT_FIRST_PORT = 5139;
+  private static final long STARTUP_TIMEOUT_MILLIS = 60000L;
+  private static final long STARTUP_POLL_MILLIS = 200L;
+
+  private static SiegfriedServerPool instance = null;
+
+  private final String binary;
+  private final BlockingQueue<Server> servers;
+  private final List<Server> allServers = new ArrayList<>();
+
+  private SiegfriedServerPool(String binary, int size, int firstPort) {
+    this.binary = binary;
+    this.servers = new ArrayBlockingQueue<>(size);
+    for (int i = 0; i < size; i++) {
+      Server server = new Server(firstPort + i);
+      allServers.add(server);
+      servers.add(server);
+    }
+
+    Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+  }
+
+  public static synchronized SiegfriedServerPool getInstance() {
+    if (instance == null) {
+      String binary = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "siegfried", "binary");
+      int size = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_POOL_SIZE, "core", "tools", "siegfried", "pool",
+        "size");
+      int firstPort = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_FIRST_PORT, "core", "tools", "siegfried",
+        "pool", "port");
+      instance = new SiegfriedServerPool(binary, size, firstPort);
+    }
+    return instance;
+  }
+
+  /**
+   * Waits for an available server, starting it if needed. It must be given back
+   * with {@link #release(String)}.
+   *
+   * @return the endpoint of the server, e.g. <code>http://localhost:5139</code>.
+   */
+  public String borrow() throws GenericException {
+    Server server;
+    try {
+      server = servers.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while waiting for a Siegfried server", e);
+    }
+
+    try {
+      server.ensureStarted(binary);
+    } catch (GenericException e) {
+      servers.add(server);
+      throw e;
+    }
+    return server.getEndpoint();
+  }
+
+  public void release(String endpoint) {
+    for (Server server : allServers) {
+      if (server.getEndpoint().equals(endpoint)) {
+        servers.add(server);
+        break;
+      }
+    }
+  }
+
+  public void shutdown() {
+    allServers.forEach(Server::stop);
+  }
+
+  private static class Server {
+    private final int port;
+    private Process process = null;
+
+    public Server(int port) {
+      this.port = port;
+    }
+
+    public String getEndpoint() {
+      return "http://" + HOST + ":" + port;
+    }
+
+    public synchronized void ensureStarted(String binary) throws GenericException {
+      if (process != null && process.isAlive()) {
+        return;
+      }
+
+      LOGGER.info("Starting Siegfried server on port {}", port);
+      try {
+        process = new ProcessBuilder(Arrays.asList(binary, "-serve", HOST + ":" + port)).inheritIO().start();
+      } catch (IOException e) {
+        throw new GenericException("Error starting Siegfried server on port " + port, e);
+      }
+
+      long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+      while (!isListening()) {
+        if (!process.isAlive() || System.currentTimeMillis() > deadline) {
+          stop();
+          throw new GenericException("Siegfried server did not start on port " + port);
+        }
+        try {
+          Thread.sleep(STARTUP_POLL_MILLIS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          stop();
+          throw new GenericException("Interrupted while starting Siegfried server", e);
+        }
+      }
+    }
+
+    private boolean isListening() {
+      try (Socket socket = new Socket()) {
+        socket.connect(new InetSocketAddress(HOST, port), (int) STARTUP_POLL_MILLIS);
+        return true;
+      } catch (IOException e) {
+        return false;
+      }
+    }
+
+    public synchronized void stop() {
+      if (process != null) {
+        process.destroy();
+        process = null;
+      }
+    }
+  }
+
+}
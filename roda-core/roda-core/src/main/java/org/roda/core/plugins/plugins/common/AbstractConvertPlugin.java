@@ -11,11 +11,20 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.IOUtils;
@@ -71,6 +80,8 @@ import org.roda.core.util.IdUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 public abstract class AbstractConvertPlugin<T extends IsRODAObject> extends AbstractAIPComponentsPlugin<T> {
   private static final Logger LOGGER = LoggerFactory.getLogger(AbstractConvertPlugin.class);
 
@@ -255,117 +266,90 @@ public abstract class AbstractConvertPlugin<T extends IsRODAObject> extends Abst
         }
 
         try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(),
-          representation.getId(), true)) {
+          representation.getId(), true);
+          ConversionPool conversionPool = new ConversionPool(index, storage, allFiles)) {
           LOGGER.debug("Processing representation {}", representation);
 
-          for (OptionalWithCause<File> oFile : allFiles) {
-            if (oFile.isPresent()) {
-              File file = oFile.get();
-              LOGGER.debug("Processing file {}", file);
-
-              if (!file.isDirectory()) {
-                IndexedFile ifile = index.retrieve(IndexedFile.class, IdUtils.getFileId(file),
-                  RodaConstants.FILE_FORMAT_FIELDS_TO_RETURN);
-                String fileMimetype = ifile.getFileFormat().getMimeType();
-                String filePronom = ifile.getFileFormat().getPronom();
-                String fileFormat = ifile.getId().substring(ifile.getId().lastIndexOf('.') + 1);
-                List<String> applicableTo = getApplicableTo();
-                List<String> convertableTo = getConvertableTo();
-                Map<String, List<String>> pronomToExtension = getPronomToExtension();
-                Map<String, List<String>> mimetypeToExtension = getMimetypeToExtension();
-
-                if (doPluginExecute(fileFormat, filePronom, fileMimetype, applicableTo, convertableTo,
-                  pronomToExtension, mimetypeToExtension)) {
-
-                  fileFormat = getNewFileFormat(fileFormat, filePronom, fileMimetype, applicableTo, pronomToExtension,
-                    mimetypeToExtension);
-
-                  StoragePath fileStoragePath = ModelUtils.getFileStoragePath(file);
-                  DirectResourceAccess directAccess = storage.getDirectAccess(fileStoragePath);
-
-                  LOGGER.debug("Running a ConvertPlugin ({} to {}) on {}", fileFormat, outputFormat, file.getId());
-                  try {
-                    Path pluginResult = Files.createTempFile(getWorkingDirectory(), "converted",
-                      "." + getOutputFormat());
-                    String result = executePlugin(directAccess.getPath(), pluginResult, fileFormat);
-
-                    String newFileId = file.getId().replaceFirst("[.][^.]+$", "." + outputFormat);
-                    ContentPayload payload = new FSPathContentPayload(pluginResult);
-
-                    if (createDIP) {
-                      FileLink fileLink = new FileLink(file.getAipId(), file.getRepresentationId(), file.getPath(),
-                        file.getId());
-                      List<FileLink> links = new ArrayList<>();
-                      links.add(fileLink);
-
-                      DIP dip = new DIP();
-                      dip.setId(IdUtils.createUUID());
-                      dip.setFileIds(links);
-                      dip.setPermissions(aip.getPermissions());
-                      dip.setTitle(dipTitle);
-                      dip.setDescription(dipDescription);
-                      dip.setType(RodaConstants.DIP_TYPE_CONVERSION);
-                      dip = model.createDIP(dip, true);
-                      newRepresentationID = dip.getId();
-
-                      DIPFile f = model.createDIPFile(newRepresentationID, file.getPath(), newFileId,
-                        directAccess.getPath().toFile().length(), payload, notify);
-                      newDIPFiles.add(f);
-                    } else {
-                      // create a new representation if it does not exist
-                      if (!newRepresentations.contains(newRepresentationID)) {
-                        LOGGER.debug("Creating a new representation {} on AIP {}", newRepresentationID, aip.getId());
-                        boolean original = false;
-                        newRepresentations.add(newRepresentationID);
-                        String newRepresentationType = representation.getType();
-
-                        if (StringUtils.isNotBlank(representationType)) {
-                          newRepresentationType = representationType;
-                        }
-
-                        model.createRepresentation(aip.getId(), newRepresentationID, original, newRepresentationType,
-                          notify, job.getUsername());
-                        reportItem.setSourceAndOutcomeObjectId(reportItem.getSourceObjectId(),
-                          IdUtils.getRepresentationId(representation.getAipId(), newRepresentationID));
-                      }
-
-                      File f = model.createFile(aip.getId(), newRepresentationID, file.getPath(), newFileId, payload,
-                        notify);
-                      newFiles.add(f);
+          FileConversion conversion;
+          while ((conversion = conversionPool.next()) != null) {
+            File file = conversion.getFile();
+            String fileFormat = conversion.getFileFormat();
+
+            if (conversion.isConvertible()) {
+              try {
+                String result = conversion.getResult();
+
+                String newFileId = file.getId().replaceFirst("[.][^.]+$", "." + outputFormat);
+                ContentPayload payload = new FSPathContentPayload(conversion.getPluginResult());
+
+                if (createDIP) {
+                  FileLink fileLink = new FileLink(file.getAipId(), file.getRepresentationId(), file.getPath(),
+                    file.getId());
+                  List<FileLink> links = new ArrayList<>();
+                  links.add(fileLink);
+
+                  DIP dip = new DIP();
+                  dip.setId(IdUtils.createUUID());
+                  dip.setFileIds(links);
+                  dip.setPermissions(aip.getPermissions());
+                  dip.setTitle(dipTitle);
+                  dip.setDescription(dipDescription);
+                  dip.setType(RodaConstants.DIP_TYPE_CONVERSION);
+                  dip = model.createDIP(dip, true);
+                  newRepresentationID = dip.getId();
+
+                  DIPFile f = model.createDIPFile(newRepresentationID, file.getPath(), newFileId,
+                    conversion.getDirectAccess().getPath().toFile().length(), payload, notify);
+                  newDIPFiles.add(f);
+                } else {
+                  // create a new representation if it does not exist
+                  if (!newRepresentations.contains(newRepresentationID)) {
+                    LOGGER.debug("Creating a new representation {} on AIP {}", newRepresentationID, aip.getId());
+                    boolean original = false;
+                    newRepresentations.add(newRepresentationID);
+                    String newRepresentationType = representation.getType();
+
+                    if (StringUtils.isNotBlank(representationType)) {
+                      newRepresentationType = representationType;
                     }
 
-                    alteredFiles.add(file);
-                    IOUtils.closeQuietly(directAccess);
+                    model.createRepresentation(aip.getId(), newRepresentationID, original, newRepresentationType,
+                      notify, job.getUsername());
+                    reportItem.setSourceAndOutcomeObjectId(reportItem.getSourceObjectId(),
+                      IdUtils.getRepresentationId(representation.getAipId(), newRepresentationID));
+                  }
 
-                    Report fileReportItem = PluginHelper.initPluginReportItem(this, file.getId(), File.class,
-                      AIPState.ACTIVE);
-                    fileReportItem.setPluginState(pluginResultState).setPluginDetails(result);
-                    reportItem.addReport(fileReportItem);
+                  File f = model.createFile(aip.getId(), newRepresentationID, file.getPath(), newFileId, payload,
+                    notify);
+                  newFiles.add(f);
+                }
 
-                  } catch (CommandException e) {
-                    pluginResultState = PluginState.PARTIAL_SUCCESS;
-                    reportState = pluginResultState;
-                    reportItem.setPluginState(pluginResultState)
-                      .addPluginDetails(e.getMessage() + "\n" + e.getOutput() + "\n");
+                alteredFiles.add(file);
 
-                    LOGGER.debug("Conversion ({} to {}) failed on file {} of representation {} from AIP {}", fileFormat,
-                      outputFormat, file.getId(), representation.getId(), aip.getId());
-                  }
+                Report fileReportItem = PluginHelper.initPluginReportItem(this, file.getId(), File.class,
+                  AIPState.ACTIVE);
+                fileReportItem.setPluginState(pluginResultState).setPluginDetails(result);
+                reportItem.addReport(fileReportItem);
 
-                } else {
-                  unchangedFiles.add(file);
-
-                  if (ignoreFiles) {
-                    validationReport.addIssue(new ValidationIssue(ModelUtils.getFileStoragePath(file).toString()));
-                  } else {
-                    pluginResultState = PluginState.FAILURE;
-                    reportState = pluginResultState;
-                    hasUnacceptedFormatFiles = true;
-                  }
-                }
+              } catch (CommandException e) {
+                pluginResultState = PluginState.PARTIAL_SUCCESS;
+                reportState = pluginResultState;
+                reportItem.setPluginState(pluginResultState)
+                  .addPluginDetails(e.getMessage() + "\n" + e.getOutput() + "\n");
+
+                LOGGER.debug("Conversion ({} to {}) failed on file {} of representation {} from AIP {}", fileFormat,
+                  outputFormat, file.getId(), representation.getId(), aip.getId());
               }
             } else {
-              LOGGER.error("Cannot process AIP representation file", oFile.getCause());
+              unchangedFiles.add(file);
+
+              if (ignoreFiles) {
+                validationReport.addIssue(new ValidationIssue(ModelUtils.getFileStoragePath(file).toString()));
+              } else {
+                pluginResultState = PluginState.FAILURE;
+                reportState = pluginResultState;
+                hasUnacceptedFormatFiles = true;
+              }
             }
           }
 
@@ -453,116 +437,90 @@ public abstract class AbstractConvertPlugin<T extends IsRODAObject> extends Abst
       boolean hasNonPdfFiles = false;
 
       try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(representation.getAipId(),
-        representation.getId(), true)) {
+        representation.getId(), true);
+        ConversionPool conversionPool = new ConversionPool(index, storage, allFiles)) {
         LOGGER.debug("Processing representation {}", representation);
 
-        for (OptionalWithCause<File> oFile : allFiles) {
-          if (oFile.isPresent()) {
-            File file = oFile.get();
-            LOGGER.debug("Processing file {}", file);
-
-            if (!file.isDirectory()) {
-              IndexedFile ifile = index.retrieve(IndexedFile.class, IdUtils.getFileId(file),
-                RodaConstants.FILE_FORMAT_FIELDS_TO_RETURN);
-              String fileMimetype = ifile.getFileFormat().getMimeType();
-              String filePronom = ifile.getFileFormat().getPronom();
-              String fileFormat = ifile.getId().substring(ifile.getId().lastIndexOf('.') + 1);
-              List<String> applicableTo = getApplicableTo();
-              List<String> convertableTo = getConvertableTo();
-              Map<String, List<String>> pronomToExtension = getPronomToExtension();
-              Map<String, List<String>> mimetypeToExtension = getMimetypeToExtension();
-
-              if (doPluginExecute(fileFormat, filePronom, fileMimetype, applicableTo, convertableTo, pronomToExtension,
-                mimetypeToExtension)) {
-
-                fileFormat = getNewFileFormat(fileFormat, filePronom, fileMimetype, applicableTo, pronomToExtension,
-                  mimetypeToExtension);
-
-                StoragePath fileStoragePath = ModelUtils.getFileStoragePath(file);
-                DirectResourceAccess directAccess = storage.getDirectAccess(fileStoragePath);
-
-                LOGGER.debug("Running a ConvertPlugin ({} to {}) on {}", fileFormat, outputFormat, file.getId());
-                try {
-                  Path pluginResult = Files.createTempFile(getWorkingDirectory(), "converted", "." + getOutputFormat());
-                  String result = executePlugin(directAccess.getPath(), pluginResult, fileFormat);
-                  ContentPayload payload = new FSPathContentPayload(pluginResult);
+        FileConversion conversion;
+        while ((conversion = conversionPool.next()) != null) {
+          File file = conversion.getFile();
+          String fileFormat = conversion.getFileFormat();
 
-                  if (!newRepresentations.contains(newRepresentationID)) {
-                    LOGGER.debug("Creating a new representation {} on AIP {}", newRepresentationID, aipId);
-                    boolean original = false;
-                    newRepresentations.add(newRepresentationID);
+          if (conversion.isConvertible()) {
+            try {
+              String result = conversion.getResult();
+              ContentPayload payload = new FSPathContentPayload(conversion.getPluginResult());
+
+              if (!newRepresentations.contains(newRepresentationID)) {
+                LOGGER.debug("Creating a new representation {} on AIP {}", newRepresentationID, aipId);
+                boolean original = false;
+                newRepresentations.add(newRepresentationID);
+
+                if (createDIP) {
+                  FileLink fileLink = new FileLink(file.getAipId(), file.getRepresentationId(), file.getPath(),
+                    file.getId());
+                  List<FileLink> links = new ArrayList<>();
+                  links.add(fileLink);
+
+                  AIP aip = model.retrieveAIP(aipId);
+
+                  DIP dip = new DIP();
+                  dip.setId(IdUtils.createUUID());
+                  dip.setFileIds(links);
+                  dip.setPermissions(aip.getPermissions());
+                  dip.setTitle(dipTitle);
+                  dip.setDescription(dipDescription);
+                  dip.setType(RodaConstants.DIP_TYPE_CONVERSION);
+                  dip = model.createDIP(dip, true);
+                  newRepresentationID = dip.getId();
+                } else {
+                  // INFO will be a parameter
+                  String newRepresentationType = RodaConstants.REPRESENTATION_TYPE_MIXED;
 
-                    if (createDIP) {
-                      FileLink fileLink = new FileLink(file.getAipId(), file.getRepresentationId(), file.getPath(),
-                        file.getId());
-                      List<FileLink> links = new ArrayList<>();
-                      links.add(fileLink);
-
-                      AIP aip = model.retrieveAIP(aipId);
-
-                      DIP dip = new DIP();
-                      dip.setId(IdUtils.createUUID());
-                      dip.setFileIds(links);
-                      dip.setPermissions(aip.getPermissions());
-                      dip.setTitle(dipTitle);
-                      dip.setDescription(dipDescription);
-                      dip.setType(RodaConstants.DIP_TYPE_CONVERSION);
-                      dip = model.createDIP(dip, true);
-                      newRepresentationID = dip.getId();
-                    } else {
-                      // INFO will be a parameter
-                      String newRepresentationType = RodaConstants.REPRESENTATION_TYPE_MIXED;
-
-                      if (StringUtils.isNotBlank(representationType)) {
-                        newRepresentationType = representationType;
-                      }
-
-                      model.createRepresentation(aipId, newRepresentationID, original, newRepresentationType, notify,
-                        job.getUsername());
-                      reportItem.setSourceAndOutcomeObjectId(reportItem.getSourceObjectId(),
-                        IdUtils.getRepresentationId(representation.getAipId(), newRepresentationID));
-                    }
+                  if (StringUtils.isNotBlank(representationType)) {
+                    newRepresentationType = representationType;
                   }
 
-                  String newFileId = file.getId().replaceFirst("[.][^.]+$", "." + outputFormat);
-                  if (createDIP) {
-                    DIPFile f = model.createDIPFile(newRepresentationID, file.getPath(), newFileId,
-                      directAccess.getPath().toFile().length(), payload, notify);
-                    newDIPFiles.add(f);
-                  } else {
-                    File newFile = model.createFile(aipId, newRepresentationID, file.getPath(), newFileId, payload,
-                      notify);
-                    newFiles.add(newFile);
-                  }
+                  model.createRepresentation(aipId, newRepresentationID, original, newRepresentationType, notify,
+                    job.getUsername());
+                  reportItem.setSourceAndOutcomeObjectId(reportItem.getSourceObjectId(),
+                    IdUtils.getRepresentationId(representation.getAipId(), newRepresentationID));
+                }
+              }
 
-                  alteredFiles.add(file);
-                  IOUtils.closeQuietly(directAccess);
+              String newFileId = file.getId().replaceFirst("[.][^.]+$", "." + outputFormat);
+              if (createDIP) {
+                DIPFile f = model.createDIPFile(newRepresentationID, file.getPath(), newFileId,
+                  conversion.getDirectAccess().getPath().toFile().length(), payload, notify);
+                newDIPFiles.add(f);
+              } else {
+                File newFile = model.createFile(aipId, newRepresentationID, file.getPath(), newFileId, payload, notify);
+                newFiles.add(newFile);
+              }
 
-                  Report fileReportItem = PluginHelper.initPluginReportItem(this, file.getId(), File.class,
-                    AIPState.ACTIVE);
-                  fileReportItem.setPluginState(PluginState.SUCCESS).setPluginDetails(result);
-                  reportItem.addReport(fileReportItem);
+              alteredFiles.add(file);
 
-                } catch (CommandException e) {
-                  reportState = PluginState.PARTIAL_SUCCESS;
-                  reportItem.setPluginState(reportState).addPluginDetails(e.getMessage() + "\n" + e.getOutput() + "\n");
+              Report fileReportItem = PluginHelper.initPluginReportItem(this, file.getId(), File.class,
+                AIPState.ACTIVE);
+              fileReportItem.setPluginState(PluginState.SUCCESS).setPluginDetails(result);
+              reportItem.addReport(fileReportItem);
 
-                  LOGGER.debug("Conversion ({} to {}) failed on file {} of representation {} from AIP {}", fileFormat,
-                    outputFormat, file.getId(), representation.getId(), representation.getAipId());
-                }
-              } else {
-                unchangedFiles.add(file);
+            } catch (CommandException e) {
+              reportState = PluginState.PARTIAL_SUCCESS;
+              reportItem.setPluginState(reportState).addPluginDetails(e.getMessage() + "\n" + e.getOutput() + "\n");
 
-                if (ignoreFiles) {
-                  validationReport.addIssue(new ValidationIssue(file.getId()));
-                } else {
-                  reportState = PluginState.FAILURE;
-                  hasNonPdfFiles = true;
-                }
-              }
+              LOGGER.debug("Conversion ({} to {}) failed on file {} of representation {} from AIP {}", fileFormat,
+                outputFormat, file.getId(), representation.getId(), representation.getAipId());
             }
           } else {
-            LOGGER.error("Cannot process AIP representation file", oFile.getCause());
+            unchangedFiles.add(file);
+
+            if (ignoreFiles) {
+              validationReport.addIssue(new ValidationIssue(file.getId()));
+            } else {
+              reportState = PluginState.FAILURE;
+              hasNonPdfFiles = true;
+            }
           }
         }
 
@@ -671,7 +629,7 @@ public abstract class AbstractConvertPlugin<T extends IsRODAObject> extends Abst
             LOGGER.debug("Running a ConvertPlugin ({} to {}) on {}", fileFormat, outputFormat, file.getId());
             try {
               Path pluginResult = Files.createTempFile(getWorkingDirectory(), "converted", "." + getOutputFormat());
-              String result = executePlugin(directAccess.getPath(), pluginResult, fileFormat);
+              String result = convert(directAccess.getPath(), pluginResult, fileFormat);
 
               ContentPayload payload = new FSPathContentPayload(pluginResult);
               StoragePath storagePath = ModelUtils.getRepresentationStoragePath(file.getAipId(),
@@ -792,6 +750,46 @@ public abstract class AbstractConvertPlugin<T extends IsRODAObject> extends Abst
   public abstract String executePlugin(Path inputPath, Path outputPath, String fileFormat)
     throws UnsupportedOperationException, IOException, CommandException;
 
+  /**
+   * Converts one file, possibly concurrently with the conversion of other files
+   * of the same representation, so {@link #executePlugin(Path, Path, String)}
+   * must be thread-safe.
+   */
+  protected String convert(Path inputPath, Path outputPath, String fileFormat)
+    throws UnsupportedOperationException, IOException, CommandException {
+    return executePlugin(inputPath, outputPath, fileFormat);
+  }
+
+  /**
+   * Maximum number of files converted by each invocation of
+   * {@link #executeBatchPlugin(Map, String)}. Plugins whose tool accepts many
+   * input and output pairs, or a list of them, can return more than 1 so that
+   * the tool is not started once per file.
+   */
+  public int getBatchSize() {
+    return 1;
+  }
+
+  /**
+   * Converts several files of the same format with a single invocation of the
+   * tool. Only used if {@link #getBatchSize()} is greater than 1.
+   *
+   * @param files
+   *          output path of each input path.
+   * @return the details of each converted file, by input path. Files missing
+   *         from the result are converted again one by one, which is also done
+   *         for all files if the invocation fails.
+   */
+  public Map<Path, String> executeBatchPlugin(Map<Path, Path> files, String fileFormat)
+    throws UnsupportedOperationException, IOException, CommandException {
+    throw new UnsupportedOperationException("Batch conversion is not supported by " + getName());
+  }
+
+  protected Map<Path, String> convertBatch(Map<Path, Path> files, String fileFormat)
+    throws UnsupportedOperationException, IOException, CommandException {
+    return executeBatchPlugin(files, fileFormat);
+  }
+
   private void createPremisSkeletonOnRepresentation(ModelService model, String aipId, Representation representation)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException,
     ValidationException, IOException, XmlException {
@@ -933,4 +931,264 @@ public abstract class AbstractConvertPlugin<T extends IsRODAObject> extends Abst
     return PluginHelper.getJobWorkingDirectory(this);
   }
 
+  /**
+   * Pool that converts the files of a representation concurrently, while the
+   * results are committed in the order the files are listed, so that reports
+   * and events are the same as when converting sequentially. If the plugin
+   * supports it, files of the same format are grouped in batches.
+   *
+   * Files are only listed and submitted as results are committed, so that at
+   * most twice as many files as can be converted at the same time hold their
+   * direct access and converted output.
+   */
+  private class ConversionPool implements AutoCloseable {
+    private final IndexService index;
+    private final StorageService storage;
+    private final Iterator<OptionalWithCause<File>> listedFiles;
+    private final ExecutorService executor;
+    private final int batchSize = Math.max(1, getBatchSize());
+    private final int maxPending;
+    private final Deque<FileConversion> conversions = new ArrayDeque<>();
+    private final Map<String, List<FileConversion>> pendingBatches = new HashMap<>();
+    private FileConversion current = null;
+
+    public ConversionPool(IndexService index, StorageService storage, Iterable<OptionalWithCause<File>> files) {
+      this.index = index;
+      this.storage = storage;
+      this.listedFiles = files.iterator();
+      int threads = Math.max(1, RodaCoreFactory.getRodaConfigurationAsInt(Runtime.getRuntime().availableProcessors(),
+        "core", "tools", "convert", "allplugins", "threads"));
+      maxPending = 2 * threads * batchSize;
+      executor = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("convert-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Releases the previous conversion, which must have been committed, and
+     * returns the next one in the order the files are listed.
+     *
+     * @return the next conversion, or <code>null</code> if there are no more
+     *         files.
+     */
+    public FileConversion next() throws NotFoundException, GenericException, RequestNotValidException, IOException {
+      if (current != null) {
+        current.close();
+        current = null;
+      }
+
+      while (conversions.size() < maxPending && listedFiles.hasNext()) {
+        OptionalWithCause<File> oFile = listedFiles.next();
+        if (oFile.isPresent()) {
+          File file = oFile.get();
+          LOGGER.debug("Processing file {}", file);
+
+          if (!file.isDirectory()) {
+            submit(file);
+          }
+        } else {
+          LOGGER.error("Cannot process AIP representation file", oFile.getCause());
+        }
+      }
+
+      current = conversions.poll();
+      if (!listedFiles.hasNext()) {
+        // no more files will be added to the pending batches
+        new ArrayList<>(pendingBatches.keySet()).forEach(this::submitBatch);
+      } else if (current != null
+        && pendingBatches.getOrDefault(current.getFileFormat(), Collections.emptyList()).contains(current)) {
+        // the batch would only be full after this conversion is committed
+        submitBatch(current.getFileFormat());
+      }
+      return current;
+    }
+
+    private void submit(File file) throws NotFoundException, GenericException, RequestNotValidException, IOException {
+      IndexedFile ifile = index.retrieve(IndexedFile.class, IdUtils.getFileId(file),
+        RodaConstants.FILE_FORMAT_FIELDS_TO_RETURN);
+      String fileMimetype = ifile.getFileFormat().getMimeType();
+      String filePronom = ifile.getFileFormat().getPronom();
+      String fileFormat = ifile.getId().substring(ifile.getId().lastIndexOf('.') + 1);
+      List<String> applicableTo = getApplicableTo();
+      List<String> convertableTo = getConvertableTo();
+      Map<String, List<String>> pronomToExtension = getPronomToExtension();
+      Map<String, List<String>> mimetypeToExtension = getMimetypeToExtension();
+
+      if (!doPluginExecute(fileFormat, filePronom, fileMimetype, applicableTo, convertableTo, pronomToExtension,
+        mimetypeToExtension)) {
+        conversions.add(new FileConversion(file, fileFormat));
+        return;
+      }
+
+      String newFileFormat = getNewFileFormat(fileFormat, filePronom, fileMimetype, applicableTo, pronomToExtension,
+        mimetypeToExtension);
+
+      StoragePath fileStoragePath = ModelUtils.getFileStoragePath(file);
+      DirectResourceAccess directAccess = storage.getDirectAccess(fileStoragePath);
+      Path pluginResult;
+      try {
+        pluginResult = Files.createTempFile(getWorkingDirectory(), "converted", "." + getOutputFormat());
+      } catch (IOException e) {
+        IOUtils.closeQuietly(directAccess);
+        throw e;
+      }
+
+      LOGGER.debug("Running a ConvertPlugin ({} to {}) on {}", newFileFormat, outputFormat, file.getId());
+      FileConversion conversion = new FileConversion(file, newFileFormat, directAccess, pluginResult);
+      conversions.add(conversion);
+
+      if (batchSize > 1) {
+        List<FileConversion> batch = pendingBatches.computeIfAbsent(newFileFormat, k -> new ArrayList<>());
+        batch.add(conversion);
+        if (batch.size() >= batchSize) {
+          submitBatch(newFileFormat);
+        }
+      } else {
+        executor.submit(() -> convertFile(conversion));
+      }
+    }
+
+    private void submitBatch(String fileFormat) {
+      List<FileConversion> batch = pendingBatches.remove(fileFormat);
+      if (batch != null) {
+        executor.submit(() -> runBatch(batch, fileFormat));
+      }
+    }
+
+    private void convertFile(FileConversion conversion) {
+      try {
+        conversion.complete(
+          convert(conversion.getDirectAccess().getPath(), conversion.getPluginResult(), conversion.getFileFormat()));
+      } catch (IOException | RODAException | RuntimeException e) {
+        conversion.fail(e);
+      }
+    }
+
+    private void runBatch(List<FileConversion> batch, String fileFormat) {
+      List<FileConversion> notConverted = new ArrayList<>();
+      try {
+        Map<Path, Path> files = new LinkedHashMap<>();
+        for (FileConversion conversion : batch) {
+          files.put(conversion.getDirectAccess().getPath(), conversion.getPluginResult());
+        }
+
+        Map<Path, String> results = convertBatch(files, fileFormat);
+        for (FileConversion conversion : batch) {
+          String result = results.get(conversion.getDirectAccess().getPath());
+          if (result == null) {
+            notConverted.add(conversion);
+          } else {
+            conversion.complete(result);
+          }
+        }
+      } catch (CommandException e) {
+        // a single bad file may fail the whole invocation
+        LOGGER.debug("Batch conversion failed, converting {} files one by one", batch.size(), e);
+        notConverted = batch;
+      } catch (IOException | RODAException | RuntimeException e) {
+        batch.forEach(conversion -> conversion.fail(e));
+      }
+
+      notConverted.forEach(this::convertFile);
+    }
+
+    @Override
+    public void close() {
+      executor.shutdownNow();
+      if (current != null) {
+        current.close();
+      }
+      conversions.forEach(FileConversion::close);
+    }
+  }
+
+  private static class FileConversion {
+    private final File file;
+    private final String fileFormat;
+    private final DirectResourceAccess directAccess;
+    private final Path pluginResult;
+    private final CompletableFuture<String> result;
+
+    public FileConversion(File file, String fileFormat) {
+      this.file = file;
+      this.fileFormat = fileFormat;
+      this.directAccess = null;
+      this.pluginResult = null;
+      this.result = null;
+    }
+
+    public FileConversion(File file, String fileFormat, DirectResourceAccess directAccess, Path pluginResult) {
+      this.file = file;
+      this.fileFormat = fileFormat;
+      this.directAccess = directAccess;
+      this.pluginResult = pluginResult;
+      this.result = new CompletableFuture<>();
+    }
+
+    public File getFile() {
+      return file;
+    }
+
+    public String getFileFormat() {
+      return fileFormat;
+    }
+
+    public DirectResourceAccess getDirectAccess() {
+      return directAccess;
+    }
+
+    public Path getPluginResult() {
+      return pluginResult;
+    }
+
+    public boolean isConvertible() {
+      return result != null;
+    }
+
+    public void complete(String details) {
+      result.complete(details);
+    }
+
+    public void fail(Throwable cause) {
+      result.completeExceptionally(cause);
+    }
+
+    /**
+     * Waits for the conversion, rethrowing the exceptions of the plugin.
+     */
+    public String getResult() throws CommandException, IOException, GenericException {
+      try {
+        return result.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new GenericException("Interrupted while converting file " + file.getId(), e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof CommandException) {
+          throw (CommandException) cause;
+        } else if (cause instanceof IOException) {
+          throw (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new GenericException("Error converting file " + file.getId(), cause);
+      }
+    }
+
+    public void close() {
+      if (result != null) {
+        result.cancel(true);
+      }
+      IOUtils.closeQuietly(directAccess);
+
+      if (pluginResult != null) {
+        try {
+          // already copied into the new representation or dissemination
+          Files.deleteIfExists(pluginResult);
+        } catch (IOException e) {
+          LOGGER.warn("Could not delete converted file {}", pluginResult, e);
+        }
+      }
+    }
+  }
+
 }
@@ -7,21 +7,41 @@
  */
 package org.roda.core.plugins.plugins.common;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
+import org.roda.core.RodaCoreFactory;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.InvalidParameterException;
 import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.jobs.PluginParameter;
 import org.roda.core.data.v2.jobs.PluginParameter.PluginParameterType;
+import org.roda.core.util.CommandException;
+import org.roda.core.util.CommandUtility;
 
 public abstract class CommandConvertPlugin<T extends IsRODAObject> extends AbstractConvertPlugin<T> {
 
+  private static final int DEFAULT_BATCH_SIZE = 20;
+
   private String commandArguments;
 
+  /**
+   * Caps the number of conversion commands running at the same time, across
+   * all jobs, as each conversion pool would otherwise run its own.
+   */
+  private static Semaphore commandPermits = null;
+
   private static Map<String, PluginParameter> pluginParameters = new HashMap<>();
   static {
     pluginParameters.put(RodaConstants.PLUGIN_PARAMS_COMMAND_ARGUMENTS,
@@ -58,6 +78,116 @@ public abstract class CommandConvertPlugin<T extends IsRODAObject> extends Abstr
     commandArguments = args;
   }
 
+  private static synchronized Semaphore getCommandPermits() {
+    if (commandPermits == null) {
+      int permits = RodaCoreFactory.getRodaConfigurationAsInt(Runtime.getRuntime().availableProcessors(), "core",
+        "tools", "convert", "command", "maxConcurrent");
+      commandPermits = new Semaphore(Math.max(1, permits), true);
+    }
+    return commandPermits;
+  }
+
+  private static Semaphore acquireCommandPermit(String description) throws InterruptedIOException {
+    Semaphore permits = getCommandPermits();
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to convert " + description);
+    }
+    return permits;
+  }
+
+  @Override
+  protected String convert(Path inputPath, Path outputPath, String fileFormat)
+    throws UnsupportedOperationException, IOException, CommandException {
+    Semaphore permits = acquireCommandPermit(inputPath.toString());
+    try {
+      return super.convert(inputPath, outputPath, fileFormat);
+    } finally {
+      permits.release();
+    }
+  }
+
+  @Override
+  protected Map<Path, String> convertBatch(Map<Path, Path> files, String fileFormat)
+    throws UnsupportedOperationException, IOException, CommandException {
+    // a batch runs a single command
+    Semaphore permits = acquireCommandPermit(files.size() + " files");
+    try {
+      return super.convertBatch(files, fileFormat);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Command line of the tool converting all the files of a list file, where
+   * {list_file} is replaced by the path of the list and {arguments} by the
+   * command arguments. Each line of the list holds the input and the output
+   * paths of a file separated by a tab. Tools that cannot read a list return
+   * <code>null</code>, the default, and convert one file per command.
+   */
+  protected String getBatchCommandLine() {
+    return null;
+  }
+
+  @Override
+  public int getBatchSize() {
+    if (getBatchCommandLine() == null) {
+      return 1;
+    }
+    return RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_BATCH_SIZE, "core", "tools", "convert", "command",
+      "batchSize");
+  }
+
+  /**
+   * Runs the batch command line over a list of the files. A file is converted
+   * if its output exists and is not empty, otherwise it is left out of the
+   * result to be converted again on its own.
+   */
+  @Override
+  public Map<Path, String> executeBatchPlugin(Map<Path, Path> files, String fileFormat)
+    throws UnsupportedOperationException, IOException, CommandException {
+    String commandLine = getBatchCommandLine();
+    if (commandLine == null) {
+      return super.executeBatchPlugin(files, fileFormat);
+    }
+
+    Path listFile = createBatchListFile(files);
+    try {
+      List<String> command = new ArrayList<>();
+      for (String arg : commandLine.trim().split("\\s+")) {
+        if ("{arguments}".equals(arg)) {
+          if (!getCommandArguments().isEmpty()) {
+            command.addAll(Arrays.asList(getCommandArguments().split("\\s+")));
+          }
+        } else {
+          command.add(arg.replace("{list_file}", listFile.toString()));
+        }
+      }
+      String output = CommandUtility.execute(command);
+
+      Map<Path, String> results = new HashMap<>();
+      for (Entry<Path, Path> file : files.entrySet()) {
+        if (Files.isRegularFile(file.getValue()) && Files.size(file.getValue()) > 0) {
+          results.put(file.getKey(), output);
+        }
+      }
+      return results;
+    } finally {
+      Files.deleteIfExists(listFile);
+    }
+  }
+
+  private Path createBatchListFile(Map<Path, Path> files) throws IOException {
+    Path listFile = Files.createTempFile(getWorkingDirectory(), "batch", ".txt");
+    List<String> lines = files.entrySet().stream().map(e -> e.getKey() + "\t" + e.getValue())
+      .collect(Collectors.toList());
+    Files.write(listFile, lines, StandardCharsets.UTF_8);
+    return listFile;
+  }
+
   @Override
   public List<PluginParameter> getParameters() {
     return this.orderParameters(this.getDefaultParameters());
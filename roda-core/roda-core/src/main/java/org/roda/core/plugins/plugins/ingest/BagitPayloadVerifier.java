@@ -0,0 +1,277 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.ingest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.validation.ValidationException;
+import org.roda.core.data.v2.validation.ValidationIssue;
+import org.roda.core.data.v2.validation.ValidationReport;
+import org.roda.core.util.FileUtility;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Verifies the payload of a bag against its manifests with a bounded pool of
+ * workers, after checking the tag files against the tag manifests, if any.
+ * Each payload file is read only once to compute all its manifest algorithms,
+ * plus any other algorithms asked for (e.g. the fixity algorithms, so that the
+ * PREMIS of the file does not need another read), and is handed to a consumer
+ * as soon as it is verified.
+ */
+public class BagitPayloadVerifier {
+  public static final String BAGIT_FILE = "bagit.txt";
+  public static final String PAYLOAD_FOLDER = "data";
+
+  private static final Pattern MANIFEST_NAME = Pattern.compile("manifest-([a-z0-9]+)\\.txt");
+  private static final Pattern TAG_MANIFEST_NAME = Pattern.compile("tagmanifest-([a-z0-9]+)\\.txt");
+  private static final Pattern MANIFEST_LINE = Pattern.compile("(\\S+)\\s+\\*?(.+)");
+
+  /**
+   * Receives each verified file, from one of the workers.
+   */
+  @FunctionalInterface
+  public interface VerifiedFileConsumer {
+    void accept(Path file, Map<String, String> checksums) throws RODAException;
+  }
+
+  private final Path bagPath;
+  private final int threads;
+
+  public BagitPayloadVerifier(Path bagPath, int threads) {
+    this.bagPath = bagPath;
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * @throws ValidationException
+   *           if the payload does not match the manifests. Files verified before
+   *           the mismatch was found could already have been consumed.
+   */
+  public void verify(Collection<String> otherAlgorithms, VerifiedFileConsumer consumer)
+    throws ValidationException, GenericException {
+    ValidationReport report = new ValidationReport();
+    checkTagFiles(readManifests(TAG_MANIFEST_NAME), report);
+    if (!report.getIssues().isEmpty()) {
+      throw invalid(report);
+    }
+
+    Map<String, Map<String, String>> manifests = readManifests(MANIFEST_NAME);
+    if (manifests.isEmpty()) {
+      throw new ValidationException("Bag " + bagPath + " has no payload manifest");
+    }
+    checkCompleteness(manifests.keySet(), report);
+    if (!report.getIssues().isEmpty()) {
+      throw invalid(report);
+    }
+
+    Queue<ValidationIssue> issues = new ConcurrentLinkedQueue<>();
+    Queue<RODAException> errors = new ConcurrentLinkedQueue<>();
+    AtomicBoolean failed = new AtomicBoolean(false);
+
+    // at most a few files per worker are waiting, however big the bag is
+    Semaphore pending = new Semaphore(threads * 4);
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder().setNameFormat("bagit-verify-%d").setDaemon(true).build());
+    try {
+      for (Entry<String, Map<String, String>> entry : manifests.entrySet()) {
+        if (failed.get()) {
+          break;
+        }
+        pending.acquire();
+        executor.execute(() -> {
+          try {
+            if (!failed.get()) {
+              verifyFile(entry.getKey(), entry.getValue(), otherAlgorithms, consumer, issues, errors, failed);
+            }
+          } finally {
+            pending.release();
+          }
+        });
+      }
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while verifying bag " + bagPath, e);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    if (!errors.isEmpty()) {
+      throw new GenericException("Could not process the payload of bag " + bagPath, errors.peek());
+    } else if (!issues.isEmpty()) {
+      issues.forEach(report::addIssue);
+      throw invalid(report);
+    }
+  }
+
+  private void verifyFile(String relativePath, Map<String, String> expected, Collection<String> otherAlgorithms,
+    VerifiedFileConsumer consumer, Queue<ValidationIssue> issues, Queue<RODAException> errors, AtomicBoolean failed) {
+    Path file = bagPath.resolve(relativePath);
+    Set<String> algorithms = new LinkedHashSet<>(expected.keySet());
+    algorithms.addAll(otherAlgorithms);
+
+    try {
+      Map<String, String> checksums;
+      try (InputStream content = Files.newInputStream(file)) {
+        checksums = FileUtility.checksums(content, algorithms);
+      }
+      for (Entry<String, String> checksum : expected.entrySet()) {
+        if (!checksum.getValue().equalsIgnoreCase(checksums.get(checksum.getKey()))) {
+          issues.add(new ValidationIssue("The " + checksum.getKey() + " checksum of " + relativePath + " is "
+            + checksums.get(checksum.getKey()) + ", not " + checksum.getValue()));
+          failed.set(true);
+          return;
+        }
+      }
+      consumer.accept(file, checksums);
+    } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+      errors.add(new GenericException("Could not process " + file, e));
+      failed.set(true);
+    } catch (RODAException e) {
+      errors.add(e);
+      failed.set(true);
+    }
+  }
+
+  /**
+   * Tag files are few and small, so they are checked one after the other before
+   * any payload file is read. Tag files not in any tag manifest are not checked,
+   * as the tag manifests do not need to list them all.
+   */
+  private void checkTagFiles(Map<String, Map<String, String>> tagManifests, ValidationReport report)
+    throws GenericException {
+    for (Entry<String, Map<String, String>> entry : tagManifests.entrySet()) {
+      String relativePath = entry.getKey();
+      Path file = bagPath.resolve(relativePath).normalize();
+      if (!file.startsWith(bagPath.normalize()) || file.startsWith(bagPath.resolve(PAYLOAD_FOLDER).normalize())) {
+        report.addIssue(new ValidationIssue("File in tag manifest is not a tag file: " + relativePath));
+        continue;
+      }
+      if (!Files.isRegularFile(file)) {
+        report.addIssue(new ValidationIssue("File in tag manifest is missing: " + relativePath));
+        continue;
+      }
+
+      Map<String, String> checksums;
+      try (InputStream content = Files.newInputStream(file)) {
+        checksums = FileUtility.checksums(content, entry.getValue().keySet());
+      } catch (IOException | NoSuchAlgorithmException e) {
+        throw new GenericException("Could not read tag file " + file, e);
+      }
+      for (Entry<String, String> checksum : entry.getValue().entrySet()) {
+        if (!checksum.getValue().equalsIgnoreCase(checksums.get(checksum.getKey()))) {
+          report.addIssue(new ValidationIssue("The " + checksum.getKey() + " checksum of " + relativePath + " is "
+            + checksums.get(checksum.getKey()) + ", not " + checksum.getValue()));
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the expected checksums of each file listed in the manifests whose
+   *         names match the pattern, by algorithm.
+   */
+  private Map<String, Map<String, String>> readManifests(Pattern manifestName) throws GenericException {
+    Map<String, Map<String, String>> manifests = new LinkedHashMap<>();
+    try (DirectoryStream<Path> children = Files.newDirectoryStream(bagPath)) {
+      for (Path child : children) {
+        Matcher matcher = manifestName.matcher(child.getFileName().toString());
+        if (matcher.matches()) {
+          String algorithm = getJavaAlgorithm(matcher.group(1));
+          try (BufferedReader reader = Files.newBufferedReader(child, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+              Matcher lineMatcher = MANIFEST_LINE.matcher(line.trim());
+              if (lineMatcher.matches()) {
+                manifests.computeIfAbsent(decodePath(lineMatcher.group(2)), k -> new LinkedHashMap<>())
+                  .put(algorithm, lineMatcher.group(1));
+              }
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new GenericException("Could not read the manifests of bag " + bagPath, e);
+    }
+    return manifests;
+  }
+
+  private void checkCompleteness(Set<String> inManifests, ValidationReport report) throws GenericException {
+    Set<String> inPayload;
+    try (Stream<Path> files = Files.walk(bagPath.resolve(PAYLOAD_FOLDER))) {
+      inPayload = files.filter(Files::isRegularFile)
+        .map(file -> bagPath.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/"))
+        .collect(Collectors.toCollection(HashSet::new));
+    } catch (IOException e) {
+      throw new GenericException("Could not list the payload of bag " + bagPath, e);
+    }
+
+    for (String path : inManifests) {
+      if (!inPayload.remove(path)) {
+        report.addIssue(new ValidationIssue("File in manifest is missing from the payload: " + path));
+      }
+    }
+    for (String path : inPayload) {
+      report.addIssue(new ValidationIssue("File in payload is not in any manifest: " + path));
+    }
+  }
+
+  private ValidationException invalid(ValidationReport report) {
+    report.setValid(false);
+    report.setMessage("Bag " + bagPath + " is not valid");
+    return new ValidationException(report);
+  }
+
+  /**
+   * e.g. sha256 in the name of a manifest is SHA-256 in Java.
+   */
+  private static String getJavaAlgorithm(String bagitAlgorithm) {
+    String algorithm = bagitAlgorithm.toUpperCase(Locale.ENGLISH);
+    if (algorithm.startsWith("SHA") && !algorithm.startsWith("SHA-")) {
+      algorithm = "SHA-" + algorithm.substring(3);
+    }
+    return algorithm;
+  }
+
+  /**
+   * Paths in manifests have line breaks and percent signs encoded.
+   */
+  private static String decodePath(String path) {
+    return path.replace("%0A", "\n").replace("%0D", "\r").replace("%25", "%");
+  }
+}
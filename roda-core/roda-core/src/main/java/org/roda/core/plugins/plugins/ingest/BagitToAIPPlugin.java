@@ -7,13 +7,16 @@
  */
 package org.roda.core.plugins.plugins.ingest;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.roda.core.RodaCoreFactory;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.InvalidParameterException;
 import org.roda.core.data.exceptions.RODAException;
@@ -23,6 +26,7 @@ import org.roda.core.data.v2.ip.TransferredResource;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.PluginState;
 import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.data.v2.validation.ValidationException;
 import org.roda.core.index.IndexService;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.Plugin;
@@ -31,9 +35,7 @@ import org.roda.core.plugins.RODAObjectProcessingLogic;
 import org.roda.core.plugins.orchestrate.JobPluginInfo;
 import org.roda.core.plugins.plugins.PluginHelper;
 import org.roda.core.storage.StorageService;
-import org.roda_project.commons_ip.model.ParseException;
-import org.roda_project.commons_ip.model.SIP;
-import org.roda_project.commons_ip.model.impl.bagit.BagitSIP;
+import org.roda.core.storage.fs.FSUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +45,7 @@ public class BagitToAIPPlugin extends SIPToAIPPlugin {
   private static final String METADATA_FILE = "metadata.xml";
 
   private boolean createSubmission = false;
+  private int verificationThreads = Runtime.getRuntime().availableProcessors();
 
   private Optional<String> computedSearchScope;
   private boolean forceSearchScope;
@@ -79,6 +82,9 @@ public class BagitToAIPPlugin extends SIPToAIPPlugin {
     if (getParameterValues().containsKey(RodaConstants.PLUGIN_PARAMS_CREATE_SUBMISSION)) {
       createSubmission = Boolean.parseBoolean(getParameterValues().get(RodaConstants.PLUGIN_PARAMS_CREATE_SUBMISSION));
     }
+
+    verificationThreads = RodaCoreFactory.getRodaConfigurationAsInt(Runtime.getRuntime().availableProcessors(), "core",
+      "ingest", "bagit", "verification", "threads");
   }
 
   @Override
@@ -107,17 +113,24 @@ public class BagitToAIPPlugin extends SIPToAIPPlugin {
     TransferredResource transferredResource) {
     Report reportItem = PluginHelper.initPluginReportItem(this, transferredResource);
     Path bagitPath = Paths.get(transferredResource.getFullPath());
+    StagedSIP stagedSIP = null;
 
     try {
       LOGGER.debug("Converting {} to AIP", bagitPath);
-      SIP bagit = BagitSIP.parse(bagitPath);
+      Path bagPath = bagitPath;
+      if (!FSUtils.isDirectory(bagitPath)) {
+        // extracted next to the storage, so payload files are moved
+        stagedSIP = StagedSIP.extract(bagitPath, Collections.emptyList(), BagitPayloadVerifier.BAGIT_FILE);
+        bagPath = stagedSIP.getPath();
+      }
+      Map<String, String> bagInfo = BagitToAIPPluginUtils.readBagInfo(bagPath);
 
-      Optional<String> computedParentId = PluginHelper.getComputedParent(model, index, bagit.getAncestors(),
-        computedSearchScope, forceSearchScope, job.getId());
+      Optional<String> computedParentId = PluginHelper.getComputedParent(model, index,
+        BagitToAIPPluginUtils.getAncestors(bagInfo), computedSearchScope, forceSearchScope, job.getId());
 
-      AIP aipCreated = BagitToAIPPluginUtils.bagitToAip(bagit, model, METADATA_FILE,
-        Arrays.asList(transferredResource.getName()), reportItem.getJobId(), computedParentId, job.getUsername(),
-        PermissionUtils.getIngestPermissions(job.getUsername()), transferredResource.getUUID());
+      AIP aipCreated = BagitToAIPPluginUtils.bagitToAip(bagPath, bagInfo, stagedSIP != null, verificationThreads,
+        model, METADATA_FILE, Arrays.asList(transferredResource.getName()), reportItem.getJobId(), computedParentId,
+        job.getUsername(), PermissionUtils.getIngestPermissions(job.getUsername()), transferredResource.getUUID());
 
       PluginHelper.createSubmission(model, createSubmission, bagitPath, aipCreated.getId());
 
@@ -131,9 +144,21 @@ public class BagitToAIPPlugin extends SIPToAIPPlugin {
 
       createWellformedEventSuccess(model, index, transferredResource, aipCreated);
       LOGGER.debug("Done with converting {} to AIP {}", bagitPath, aipCreated.getId());
-    } catch (RODAException | RuntimeException | ParseException e) {
+    } catch (ValidationException e) {
+      reportItem.setPluginState(PluginState.FAILURE);
+      if (e.getReport() != null) {
+        reportItem.setHtmlPluginDetails(true).setPluginDetails(e.getReport().toHtml(true, true, true, false, false));
+      } else {
+        reportItem.setPluginDetails(e.getMessage());
+      }
+      LOGGER.debug("The bag {} is not valid", bagitPath);
+    } catch (RODAException | RuntimeException | IOException e) {
       reportItem.setPluginState(PluginState.FAILURE).setPluginDetails(e.getMessage());
       LOGGER.error("Error converting " + bagitPath + " to AIP", e);
+    } finally {
+      if (stagedSIP != null) {
+        stagedSIP.delete();
+      }
     }
 
     report.addReport(reportItem);
@@ -7,27 +7,40 @@
  */
 package org.roda.core.plugins.plugins.ingest;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.xmlbeans.XmlException;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.common.MetadataFileUtils;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AlreadyExistsException;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.File;
 import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.Representation;
+import org.roda.core.data.v2.validation.ValidationException;
 import org.roda.core.model.ModelService;
+import org.roda.core.plugins.plugins.characterization.PremisSkeletonPluginUtils;
 import org.roda.core.storage.ContentPayload;
-import org.roda.core.storage.StringContentPayload;
 import org.roda.core.storage.fs.FSPathContentPayload;
-import org.roda_project.commons_ip.model.IPFile;
-import org.roda_project.commons_ip.model.IPRepresentation;
-import org.roda_project.commons_ip.model.SIP;
-import org.roda_project.commons_ip.model.impl.bagit.BagitUtils;
+import org.roda.core.util.IdUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,20 +48,35 @@ public class BagitToAIPPluginUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(BagitToAIPPluginUtils.class);
   private static final String METADATA_TYPE = "key-value";
   private static final String METADATA_VERSION = null;
+  private static final String BAG_INFO_FILE = "bag-info.txt";
+  private static final String BAG_INFO_PARENT = "parent";
+  private static final String BAG_INFO_ID = "id";
 
   private BagitToAIPPluginUtils() {
     // do nothing
   }
 
-  public static AIP bagitToAip(SIP bagit, ModelService model, String metadataFilename, List<String> ingestSIPIds,
-    String ingestJobId, Optional<String> computedParentId, String createdBy, Permissions permissions,
-    String ingestSIPUUID) throws RequestNotValidException, NotFoundException, GenericException, AlreadyExistsException,
-    AuthorizationDeniedException {
+  /**
+   * Creates an AIP from a bag folder, with all its payload in a single
+   * representation. The payload is verified against the manifests by several
+   * workers and each verified file is added to the representation right away,
+   * with its PREMIS created from the checksums computed while verifying it.
+   * The representation gets the id tag of bag-info.txt, or a new id if the bag
+   * has none.
+   * 
+   * @param moveFiles
+   *          if the payload files can be moved into the AIP instead of copied
+   *          (i.e. the bag was extracted into the staging folder).
+   */
+  public static AIP bagitToAip(Path bagPath, Map<String, String> bagInfo, boolean moveFiles, int threads,
+    ModelService model, String metadataFilename, List<String> ingestSIPIds, String ingestJobId,
+    Optional<String> computedParentId, String createdBy, Permissions permissions, String ingestSIPUUID)
+    throws RequestNotValidException, NotFoundException, GenericException, AlreadyExistsException,
+    AuthorizationDeniedException, ValidationException {
 
-    String metadataAsString = BagitUtils
-      .generateMetadataFile(bagit.getDescriptiveMetadata().get(0).getMetadata().getPath());
-
-    ContentPayload metadataAsPayload = new StringContentPayload(metadataAsString);
+    Map<String, String> metadata = new LinkedHashMap<>(bagInfo);
+    metadata.remove(BAG_INFO_PARENT);
+    ContentPayload metadataAsPayload = MetadataFileUtils.getMetadataPayload(metadata);
 
     AIPState state = AIPState.INGEST_PROCESSING;
     String aipType = RodaConstants.AIP_TYPE_MIXED;
@@ -57,25 +85,88 @@ public class BagitToAIPPluginUtils {
     AIP aip = model.createAIP(state, computedParentId.orElse(null), aipType, permissions, ingestSIPUUID, ingestSIPIds,
       ingestJobId, notify, createdBy);
 
-    model.createDescriptiveMetadata(aip.getId(), metadataFilename, metadataAsPayload, METADATA_TYPE, METADATA_VERSION,
-      notify);
+    try {
+      model.createDescriptiveMetadata(aip.getId(), metadataFilename, metadataAsPayload, METADATA_TYPE,
+        METADATA_VERSION, notify);
 
-    boolean original = true;
-    String representationType = RodaConstants.REPRESENTATION_TYPE_MIXED;
+      boolean original = true;
+      String representationType = RodaConstants.REPRESENTATION_TYPE_MIXED;
+      String representationId = bagInfo.get(BAG_INFO_ID);
+      if (StringUtils.isBlank(representationId)) {
+        representationId = IdUtils.createUUID();
+      }
+      Representation rep = model.createRepresentation(aip.getId(), representationId, original, representationType,
+        notify, createdBy);
 
-    for (IPRepresentation irep : bagit.getRepresentations()) {
-      Representation rep = model.createRepresentation(aip.getId(), irep.getRepresentationID(), original,
-        representationType, notify, createdBy);
+      Path payloadPath = bagPath.resolve(BagitPayloadVerifier.PAYLOAD_FOLDER);
+      List<String> fixityAlgorithms = RodaCoreFactory.getFixityAlgorithms();
+      new BagitPayloadVerifier(bagPath, threads).verify(fixityAlgorithms, (bagFile, checksums) -> {
+        Path relativePath = payloadPath.relativize(bagFile);
+        List<String> directoryPath = new ArrayList<>();
+        for (int i = 0; i < relativePath.getNameCount() - 1; i++) {
+          directoryPath.add(relativePath.getName(i).toString());
+        }
 
-      for (IPFile bagFile : irep.getData()) {
-        ContentPayload payload = new FSPathContentPayload(bagFile.getPath());
-        model.createFile(aip.getId(), rep.getId(), bagFile.getRelativeFolders(), bagFile.getFileName(), payload,
-          notify);
-      }
+        ContentPayload payload = new FSPathContentPayload(bagFile, moveFiles);
+        File file = model.createFile(aip.getId(), rep.getId(), directoryPath, relativePath.getFileName().toString(),
+          payload, notify);
+        createPremisWithVerifiedChecksums(model, file, fixityAlgorithms, checksums);
+      });
+    } catch (RequestNotValidException | NotFoundException | GenericException | AlreadyExistsException
+      | AuthorizationDeniedException | ValidationException | RuntimeException e) {
+      // nothing of a bag that could not be ingested is kept
+      model.deleteAIP(aip.getId());
+      throw e;
     }
 
     model.notifyAipCreated(aip.getId());
     return model.retrieveAIP(aip.getId());
   }
 
+  private static void createPremisWithVerifiedChecksums(ModelService model, File file,
+    List<String> fixityAlgorithms, Map<String, String> checksums) {
+    try {
+      PremisSkeletonPluginUtils.createPremisSkeletonOnFileWithKnownChecksums(model, file, fixityAlgorithms,
+        checksums);
+    } catch (RODAException | XmlException e) {
+      LOGGER.warn("Could not create PREMIS of file {} with the checksums computed on verification", file.getId(), e);
+    }
+  }
+
+  /**
+   * Reads the tags of the bag-info.txt of a bag, where a long value can go on
+   * in the following lines if they start with whitespace.
+   */
+  public static Map<String, String> readBagInfo(Path bagPath) throws GenericException {
+    Path bagInfoPath = bagPath.resolve(BAG_INFO_FILE);
+    if (!Files.exists(bagInfoPath)) {
+      return Collections.emptyMap();
+    }
+
+    Map<String, String> bagInfo = new LinkedHashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(bagInfoPath, StandardCharsets.UTF_8)) {
+      String key = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (key != null && !line.isEmpty() && Character.isWhitespace(line.charAt(0))) {
+          bagInfo.put(key, bagInfo.get(key) + " " + line.trim());
+        } else if (line.indexOf(':') > 0) {
+          key = line.substring(0, line.indexOf(':')).trim();
+          bagInfo.put(key, line.substring(line.indexOf(':') + 1).trim());
+        }
+      }
+    } catch (IOException e) {
+      throw new GenericException("Could not read " + bagInfoPath, e);
+    }
+    return bagInfo;
+  }
+
+  /**
+   * @return the ancestors of the AIP, given by the parent tag of bag-info.txt.
+   */
+  public static List<String> getAncestors(Map<String, String> bagInfo) {
+    String parent = bagInfo.get(BAG_INFO_PARENT);
+    return parent == null || parent.isEmpty() ? Collections.emptyList() : Collections.singletonList(parent);
+  }
+
 }
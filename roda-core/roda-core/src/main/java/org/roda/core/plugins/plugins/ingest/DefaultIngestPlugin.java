@@ -8,6 +8,7 @@
 package org.roda.core.plugins.plugins.ingest;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -21,6 +22,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.commons.lang3.StringUtils;
 import org.roda.core.RodaCoreFactory;
@@ -34,6 +40,7 @@ import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.InvalidParameterException;
 import org.roda.core.data.exceptions.JobException;
 import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.utils.JsonUtils;
 import org.roda.core.data.v2.LiteOptionalWithCause;
@@ -68,11 +75,13 @@ import org.roda.core.plugins.plugins.base.DescriptiveMetadataValidationPlugin;
 import org.roda.core.plugins.plugins.characterization.PremisSkeletonPlugin;
 import org.roda.core.plugins.plugins.characterization.SiegfriedPlugin;
 import org.roda.core.storage.StorageService;
+import org.roda.core.storage.fs.FSUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.jknack.handlebars.Handlebars;
 import com.google.common.base.CaseFormat;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /***
  * https://docs.google.com/spreadsheets/d/
@@ -93,6 +102,7 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
   public static final PreservationEventType END_TYPE = PreservationEventType.INGEST_END;
 
   protected static final int INITIAL_TOTAL_STEPS = 10;
+  private static final int DEFAULT_PIPELINE_QUEUE_SIZE = 10;
   protected int totalSteps = INITIAL_TOTAL_STEPS;
 
   public static final String PLUGIN_CLASS_DIGITAL_SIGNATURE = "org.roda.core.plugins.external.DigitalSignaturePlugin";
@@ -118,6 +128,14 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
     Boolean createSubmission = RodaCoreFactory.getRodaConfiguration()
       .getBoolean("core.ingest.sip2aip.create_submission", false);
     getParameterValues().put(RodaConstants.PLUGIN_PARAMS_CREATE_SUBMISSION, createSubmission.toString());
+    // AIPs left under appraisal might be rejected, i.e. deleted, so their files
+    // are only moved when they are accepted right away
+    Boolean moveTransferredResource = RodaCoreFactory.getRodaConfiguration()
+      .getBoolean(RodaConstants.CORE_INGEST_SIP2AIP_MOVE_TRANSFERRED_RESOURCE, false)
+      && PluginHelper.verifyIfStepShouldBePerformed(this,
+        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_AUTO_ACCEPT));
+    getParameterValues().put(RodaConstants.PLUGIN_PARAMS_MOVE_TRANSFERRED_RESOURCE,
+      moveTransferredResource.toString());
     getParameterValues().put(RodaConstants.PLUGIN_PARAMS_REPORTING_CLASS, getClass().getName());
   }
 
@@ -156,9 +174,6 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
   protected void processObjects(IndexService index, ModelService model, StorageService storage, Report report,
     JobPluginInfo outerJobPluginInfo, Job cachedJob, List<TransferredResource> resources) {
     try {
-      Date startDate = new Date();
-      Report pluginReport;
-
       final IngestJobPluginInfo jobPluginInfo = (IngestJobPluginInfo) outerJobPluginInfo;
       PluginHelper.updateJobInformationAsync(this, jobPluginInfo.setTotalSteps(getTotalSteps()));
 
@@ -171,118 +186,29 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
       getParameterValues().put(RodaConstants.PLUGIN_PARAMS_PARENT_ID, parentId);
       getParameterValues().put(RodaConstants.PLUGIN_PARAMS_FORCE_PARENT_ID, forceParentId ? "true" : "false");
 
-      // 1) unpacking & wellformedness check (transform TransferredResource into
-      // an AIP)
-      pluginReport = transformTransferredResourceIntoAnAIP(index, model, storage, resources);
-      mergeReports(jobPluginInfo, pluginReport);
-      final List<AIP> aips = getAIPsFromReports(model, index, jobPluginInfo);
-      PluginHelper.updateJobInformationAsync(this, jobPluginInfo.incrementStepsCompletedByOne());
-
-      // this event can only be created after AIPs exist and that's why it is
-      // performed here, after transformTransferredResourceIntoAnAIP
-      createIngestStartedEvent(model, index, jobPluginInfo, startDate, cachedJob);
-
-      // 2) virus check
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_VIRUS_CHECK))) {
-        pluginReport = doVirusCheck(index, model, storage, aips, jobPluginInfo);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, true);
-        PluginHelper.updateJobInformationAsync(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
-
-      // 3) descriptive metadata validation
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_DESCRIPTIVE_METADATA_VALIDATION))) {
-        pluginReport = doDescriptiveMetadataValidation(index, model, storage, aips, jobPluginInfo);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, true);
-        PluginHelper.updateJobInformationAsync(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
-
-      // 4) create file fixity information
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_CREATE_PREMIS_SKELETON))) {
-        pluginReport = createFileFixityInformation(index, model, storage, aips, jobPluginInfo);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, true);
-        PluginHelper.updateJobInformationAsync(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
-
-      // 5) format identification (using Siegfried)
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_FILE_FORMAT_IDENTIFICATION))) {
-        pluginReport = doFileFormatIdentification(index, model, storage, aips, jobPluginInfo);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, false);
-        PluginHelper.updateJobInformationAsync(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
-
-      // 6) Format validation - PDF/A format validator (using VeraPDF)
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(PLUGIN_PARAMS_DO_VERAPDF_CHECK), PLUGIN_CLASS_VERAPDF)) {
-        Map<String, String> params = new HashMap<>();
-        params.put("profile", "1b");
-        pluginReport = doVeraPDFCheck(index, model, storage, aips, params, jobPluginInfo);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, false);
-        PluginHelper.updateJobInformationAsync(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
-
-      // 7.1) feature extraction (using Apache Tika)
-      // 7.2) full-text extraction (using Apache Tika)
-      if (!aips.isEmpty() && (PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(PLUGIN_PARAMS_DO_FEATURE_EXTRACTION), PLUGIN_CLASS_TIKA_FULLTEXT)
-        || PluginHelper.verifyIfStepShouldBePerformed(this, getPluginParameter(PLUGIN_PARAMS_DO_FULL_TEXT_EXTRACTION),
-          PLUGIN_CLASS_TIKA_FULLTEXT))) {
-        Map<String, String> params = new HashMap<>();
-        params.put(PLUGIN_PARAMS_DO_FEATURE_EXTRACTION, PluginHelper.verifyIfStepShouldBePerformed(this,
-          getPluginParameter(PLUGIN_PARAMS_DO_FEATURE_EXTRACTION), PLUGIN_CLASS_TIKA_FULLTEXT) ? "true" : "false");
-        params.put(RodaConstants.PLUGIN_PARAMS_DO_FULLTEXT_EXTRACTION, PluginHelper.verifyIfStepShouldBePerformed(this,
-          getPluginParameter(PLUGIN_PARAMS_DO_FULL_TEXT_EXTRACTION), PLUGIN_CLASS_TIKA_FULLTEXT) ? "true" : "false");
-        pluginReport = doFeatureAndFullTextExtraction(index, model, storage, aips, params, jobPluginInfo);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, false);
-        PluginHelper.updateJobInformationAsync(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
-
-      // 8) validation of digital signature
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(PLUGIN_PARAMS_DO_DIGITAL_SIGNATURE_VALIDATION), PLUGIN_CLASS_DIGITAL_SIGNATURE)) {
-        pluginReport = doDigitalSignatureValidation(index, model, storage, aips, jobPluginInfo);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, false);
-        PluginHelper.updateJobInformationAsync(this, jobPluginInfo.incrementStepsCompletedByOne());
-      }
-
-      // 9) verify producer authorization
-      if (!aips.isEmpty() && PluginHelper.verifyIfStepShouldBePerformed(this,
-        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_PRODUCER_AUTHORIZATION_CHECK))) {
-        pluginReport = verifyProducerAuthorization(index, model, storage, aips, jobPluginInfo);
-        mergeReports(jobPluginInfo, pluginReport);
-        recalculateAIPsList(model, index, jobPluginInfo, aips, true);
-        PluginHelper.updateJobInformationAsync(this, jobPluginInfo.incrementStepsCompletedByOne());
+      // 1) to 10)
+      final List<AIP> aips;
+      if (RodaCoreFactory.getRodaConfiguration().getBoolean(RodaConstants.CORE_INGEST_PIPELINED, false)) {
+        aips = processObjectsPipelined(index, model, storage, jobPluginInfo, cachedJob, resources);
+      } else {
+        aips = processObjectsInSteps(index, model, storage, jobPluginInfo, cachedJob, resources);
       }
 
-      // 10) Auto accept
-      if (!aips.isEmpty()) {
-        if (PluginHelper.verifyIfStepShouldBePerformed(this,
-          getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_AUTO_ACCEPT))) {
-          pluginReport = doAutoAccept(index, model, storage, aips, jobPluginInfo);
-          mergeReports(jobPluginInfo, pluginReport);
-          recalculateAIPsList(model, index, jobPluginInfo, aips, true);
-          jobPluginInfo.incrementStepsCompletedByOne();
-        } else {
-          updateAIPsToBeAppraised(model, aips, jobPluginInfo, cachedJob);
-        }
+      // X) give back the files moved into AIPs that were not ingested
+      List<TransferredResource> movedResources = new ArrayList<>();
+      if (Boolean.parseBoolean(getParameterValues().get(RodaConstants.PLUGIN_PARAMS_MOVE_TRANSFERRED_RESOURCE))) {
+        movedResources = restoreTransferredResourcesOfFailedAIPs(model, jobPluginInfo, resources);
       }
 
-      // X) move SIPs to PROCESSED folder??? (default: false)
+      // X) move SIPs to PROCESSED folder??? (default: false, and not the ones
+      // that were moved into the AIPs)
       if (PluginHelper.verifyIfStepShouldBePerformed(this,
         getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_AUTO_ACCEPT))
         && RodaCoreFactory.getRodaConfiguration()
           .getBoolean(RodaConstants.CORE_TRANSFERRED_RESOURCES_INGEST_MOVE_WHEN_AUTOACCEPT, false)) {
-        PluginHelper.moveSIPs(this, model, index, resources, jobPluginInfo);
+        List<TransferredResource> resourcesToMove = new ArrayList<>(resources);
+        resourcesToMove.removeAll(movedResources);
+        PluginHelper.moveSIPs(this, model, index, resourcesToMove, jobPluginInfo);
       }
 
       createIngestEndedEvent(model, index, jobPluginInfo, cachedJob);
@@ -300,6 +226,289 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
     }
   }
 
+  /**
+   * Runs each step over all the SIPs of the block, i.e. a step only starts
+   * when the previous one has ended for all of them.
+   */
+  private List<AIP> processObjectsInSteps(IndexService index, ModelService model, StorageService storage,
+    IngestJobPluginInfo jobPluginInfo, Job cachedJob, List<TransferredResource> resources) throws JobException {
+    Date startDate = new Date();
+
+    // 1) unpacking & wellformedness check (transform TransferredResource into
+    // an AIP)
+    Report pluginReport = transformTransferredResourceIntoAnAIP(index, model, storage, resources);
+    mergeReports(jobPluginInfo, pluginReport);
+    final List<AIP> aips = getAIPsFromReports(model, index, jobPluginInfo);
+    PluginHelper.updateJobInformationAsync(this, jobPluginInfo.incrementStepsCompletedByOne());
+
+    // this event can only be created after AIPs exist and that's why it is
+    // performed here, after transformTransferredResourceIntoAnAIP
+    createIngestStartedEvent(model, index, jobPluginInfo, startDate, cachedJob);
+
+    // 2) to 9)
+    for (IngestStep step : getAIPSteps()) {
+      if (!aips.isEmpty()) {
+        executeStep(index, model, storage, step, aips, jobPluginInfo);
+        PluginHelper.updateJobInformationAsync(this, jobPluginInfo);
+      }
+    }
+
+    // 10) Auto accept
+    acceptAIPs(index, model, storage, aips, jobPluginInfo, cachedJob);
+    return aips;
+  }
+
+  /**
+   * Runs each SIP through the steps on its own, each step with its own worker
+   * and a bounded queue of SIPs waiting for it, so that a SIP that takes long
+   * in a step only delays the SIPs behind it in that step instead of every SIP
+   * of the block in every step. All the AIPs of a SIP go through the steps
+   * together, as they fail together.
+   */
+  private List<AIP> processObjectsPipelined(IndexService index, ModelService model, StorageService storage,
+    IngestJobPluginInfo jobPluginInfo, Job cachedJob, List<TransferredResource> resources) throws JobException {
+    List<AIP> aips = new ArrayList<>();
+    List<IngestStage> stages = new ArrayList<>();
+
+    // 1) unpacking & wellformedness check (transform TransferredResource into
+    // an AIP)
+    stages.add(unit -> {
+      Date startDate = new Date();
+      Report pluginReport = transformTransferredResourceIntoAnAIP(index, model, storage,
+        Collections.singletonList(unit.resource));
+      mergeReports(unit.jobPluginInfo, pluginReport);
+      unit.aips.addAll(getAIPsFromReports(model, index, unit.jobPluginInfo));
+      unit.jobPluginInfo.incrementStepsCompletedByOne();
+      createIngestStartedEvent(model, index, unit.jobPluginInfo, startDate, cachedJob);
+    });
+
+    // 2) to 9)
+    for (IngestStep step : getAIPSteps()) {
+      stages.add(unit -> {
+        if (!unit.aips.isEmpty()) {
+          executeStep(index, model, storage, step, unit.aips, unit.jobPluginInfo);
+        }
+      });
+    }
+
+    // 10) Auto accept
+    stages.add(unit -> acceptAIPs(index, model, storage, unit.aips, unit.jobPluginInfo, cachedJob));
+
+    int queueSize = RodaCoreFactory.getRodaConfiguration().getInt(RodaConstants.CORE_INGEST_PIPELINED_QUEUE_SIZE,
+      DEFAULT_PIPELINE_QUEUE_SIZE);
+    List<BlockingQueue<Optional<IngestUnit>>> queues = new ArrayList<>();
+    // all SIPs are waiting for the first step from the start, and the ones
+    // that went through all the steps are only taken by this thread
+    queues.add(new LinkedBlockingQueue<>());
+    for (int i = 1; i < stages.size(); i++) {
+      queues.add(new ArrayBlockingQueue<>(Math.max(1, queueSize)));
+    }
+    queues.add(new LinkedBlockingQueue<>());
+
+    for (TransferredResource resource : resources) {
+      queues.get(0).add(Optional.of(new IngestUnit(resource, getTotalSteps())));
+    }
+    // an empty unit tells a stage that there are no more SIPs
+    queues.get(0).add(Optional.empty());
+
+    ExecutorService executor = Executors.newFixedThreadPool(stages.size(),
+      new ThreadFactoryBuilder().setNameFormat("ingest-stage-%d").setDaemon(true).build());
+    try {
+      for (int i = 0; i < stages.size(); i++) {
+        IngestStage stage = stages.get(i);
+        BlockingQueue<Optional<IngestUnit>> in = queues.get(i);
+        BlockingQueue<Optional<IngestUnit>> out = queues.get(i + 1);
+        executor.execute(() -> runStage(stage, in, out));
+      }
+
+      BlockingQueue<Optional<IngestUnit>> done = queues.get(stages.size());
+      int completed = 0;
+      Optional<IngestUnit> unit = done.take();
+      while (unit.isPresent()) {
+        completed++;
+        completeUnit(jobPluginInfo, unit.get(), completed, resources.size());
+        aips.addAll(unit.get().aips);
+        PluginHelper.updateJobInformationAsync(this, jobPluginInfo);
+        unit = done.take();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.error("Interrupted while waiting for the SIPs to be ingested", e);
+    } finally {
+      executor.shutdownNow();
+    }
+    return aips;
+  }
+
+  private void runStage(IngestStage stage, BlockingQueue<Optional<IngestUnit>> in,
+    BlockingQueue<Optional<IngestUnit>> out) {
+    try {
+      Optional<IngestUnit> unit = in.take();
+      while (unit.isPresent()) {
+        try {
+          stage.process(unit.get());
+        } catch (Throwable e) {
+          // the SIP goes on as failed, so that the ingest does not wait for it
+          // forever
+          LOGGER.error("Error ingesting transferred resource '{}'", unit.get().resource.getId(), e);
+          unit.get().jobPluginInfo.incrementObjectsProcessedWithFailure();
+          unit.get().aips.clear();
+        }
+        out.put(unit);
+        unit = in.take();
+      }
+      out.put(unit);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Adds the outcome of an ingested SIP to the job information, which only this
+   * thread updates, including its reports and AIPs, which are needed to move
+   * the SIP and to create the ingest ended event.
+   */
+  private void completeUnit(IngestJobPluginInfo jobPluginInfo, IngestUnit unit, int completed, int total) {
+    jobPluginInfo.merge(unit.jobPluginInfo);
+    if (unit.jobPluginInfo.getSourceObjectsProcessedWithFailure() > 0) {
+      jobPluginInfo.incrementObjectsProcessedWithFailure();
+    } else {
+      // successes are only counted when the info is finalized
+      jobPluginInfo.setSourceObjectsBeingProcessed(jobPluginInfo.getSourceObjectsBeingProcessed() - 1);
+    }
+    jobPluginInfo.setOutcomeObjectsWithManualIntervention(jobPluginInfo.getOutcomeObjectsWithManualIntervention()
+      + unit.jobPluginInfo.getOutcomeObjectsWithManualIntervention());
+    jobPluginInfo.setStepsCompleted(getTotalSteps() * completed / total);
+  }
+
+  /**
+   * Moves the files of the transferred resources that were moved into AIPs
+   * that were not accepted back into the transfer area, deleting those AIPs.
+   * 
+   * @return the transferred resources that are still in their AIPs.
+   */
+  private List<TransferredResource> restoreTransferredResourcesOfFailedAIPs(ModelService model,
+    IngestJobPluginInfo jobPluginInfo, List<TransferredResource> resources) {
+    List<TransferredResource> movedResources = new ArrayList<>();
+    Map<String, List<String>> aipIdToTransferredResourceIds = jobPluginInfo.getAipIdToTransferredResourceIds();
+    for (TransferredResource resource : resources) {
+      // only the resources whose AIP was created have been moved, as the
+      // others are moved back when their AIP creation fails
+      if (FSUtils.exists(Paths.get(resource.getFullPath()))) {
+        continue;
+      }
+
+      for (Entry<String, List<String>> entry : aipIdToTransferredResourceIds.entrySet()) {
+        if (entry.getValue().contains(resource.getUUID())) {
+          try {
+            if (model.retrieveAIP(entry.getKey()).getState() == AIPState.ACTIVE) {
+              movedResources.add(resource);
+            } else {
+              TransferredResourceToAIPPlugin.restoreTransferredResource(model, resource, entry.getKey());
+            }
+          } catch (RODAException e) {
+            LOGGER.error("Error moving the files of AIP {} back into transferred resource {}", entry.getKey(),
+              resource.getUUID(), e);
+          }
+        }
+      }
+    }
+    return movedResources;
+  }
+
+  /**
+   * @return the steps between the transformation of the SIPs into AIPs and
+   *         their acceptance that should be performed.
+   */
+  private List<IngestStep> getAIPSteps() {
+    List<IngestStep> steps = new ArrayList<>();
+
+    // 2) virus check
+    if (PluginHelper.verifyIfStepShouldBePerformed(this,
+      getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_VIRUS_CHECK))) {
+      steps.add(new IngestStep(this::doVirusCheck, true));
+    }
+
+    // 3) descriptive metadata validation
+    if (PluginHelper.verifyIfStepShouldBePerformed(this,
+      getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_DESCRIPTIVE_METADATA_VALIDATION))) {
+      steps.add(new IngestStep(this::doDescriptiveMetadataValidation, true));
+    }
+
+    // 4) create file fixity information
+    if (PluginHelper.verifyIfStepShouldBePerformed(this,
+      getPluginParameter(RodaConstants.PLUGIN_PARAMS_CREATE_PREMIS_SKELETON))) {
+      steps.add(new IngestStep(this::createFileFixityInformation, true));
+    }
+
+    // 5) format identification (using Siegfried)
+    if (PluginHelper.verifyIfStepShouldBePerformed(this,
+      getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_FILE_FORMAT_IDENTIFICATION))) {
+      steps.add(new IngestStep(this::doFileFormatIdentification, false));
+    }
+
+    // 6) Format validation - PDF/A format validator (using VeraPDF)
+    if (PluginHelper.verifyIfStepShouldBePerformed(this, getPluginParameter(PLUGIN_PARAMS_DO_VERAPDF_CHECK),
+      PLUGIN_CLASS_VERAPDF)) {
+      Map<String, String> params = new HashMap<>();
+      params.put("profile", "1b");
+      steps.add(new IngestStep((index, model, storage, aips, jobPluginInfo) -> doVeraPDFCheck(index, model, storage,
+        aips, params, jobPluginInfo), false));
+    }
+
+    // 7.1) feature extraction (using Apache Tika)
+    // 7.2) full-text extraction (using Apache Tika)
+    if (PluginHelper.verifyIfStepShouldBePerformed(this, getPluginParameter(PLUGIN_PARAMS_DO_FEATURE_EXTRACTION),
+      PLUGIN_CLASS_TIKA_FULLTEXT)
+      || PluginHelper.verifyIfStepShouldBePerformed(this, getPluginParameter(PLUGIN_PARAMS_DO_FULL_TEXT_EXTRACTION),
+        PLUGIN_CLASS_TIKA_FULLTEXT)) {
+      Map<String, String> params = new HashMap<>();
+      params.put(PLUGIN_PARAMS_DO_FEATURE_EXTRACTION, PluginHelper.verifyIfStepShouldBePerformed(this,
+        getPluginParameter(PLUGIN_PARAMS_DO_FEATURE_EXTRACTION), PLUGIN_CLASS_TIKA_FULLTEXT) ? "true" : "false");
+      params.put(RodaConstants.PLUGIN_PARAMS_DO_FULLTEXT_EXTRACTION, PluginHelper.verifyIfStepShouldBePerformed(this,
+        getPluginParameter(PLUGIN_PARAMS_DO_FULL_TEXT_EXTRACTION), PLUGIN_CLASS_TIKA_FULLTEXT) ? "true" : "false");
+      steps.add(new IngestStep((index, model, storage, aips, jobPluginInfo) -> doFeatureAndFullTextExtraction(index,
+        model, storage, aips, params, jobPluginInfo), false));
+    }
+
+    // 8) validation of digital signature
+    if (PluginHelper.verifyIfStepShouldBePerformed(this,
+      getPluginParameter(PLUGIN_PARAMS_DO_DIGITAL_SIGNATURE_VALIDATION), PLUGIN_CLASS_DIGITAL_SIGNATURE)) {
+      steps.add(new IngestStep(this::doDigitalSignatureValidation, false));
+    }
+
+    // 9) verify producer authorization
+    if (PluginHelper.verifyIfStepShouldBePerformed(this,
+      getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_PRODUCER_AUTHORIZATION_CHECK))) {
+      steps.add(new IngestStep(this::verifyProducerAuthorization, true));
+    }
+
+    return steps;
+  }
+
+  private void executeStep(IndexService index, ModelService model, StorageService storage, IngestStep step,
+    List<AIP> aips, IngestJobPluginInfo jobPluginInfo) {
+    Report pluginReport = step.logic.execute(index, model, storage, aips, jobPluginInfo);
+    mergeReports(jobPluginInfo, pluginReport);
+    recalculateAIPsList(model, index, jobPluginInfo, aips, step.removeAIPProcessingFailed);
+    jobPluginInfo.incrementStepsCompletedByOne();
+  }
+
+  private void acceptAIPs(IndexService index, ModelService model, StorageService storage, List<AIP> aips,
+    IngestJobPluginInfo jobPluginInfo, Job cachedJob) {
+    if (!aips.isEmpty()) {
+      if (PluginHelper.verifyIfStepShouldBePerformed(this,
+        getPluginParameter(RodaConstants.PLUGIN_PARAMS_DO_AUTO_ACCEPT))) {
+        Report pluginReport = doAutoAccept(index, model, storage, aips, jobPluginInfo);
+        mergeReports(jobPluginInfo, pluginReport);
+        recalculateAIPsList(model, index, jobPluginInfo, aips, true);
+        jobPluginInfo.incrementStepsCompletedByOne();
+      } else {
+        updateAIPsToBeAppraised(model, aips, jobPluginInfo, cachedJob);
+      }
+    }
+  }
+
   @Override
   public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
     LOGGER.debug("Doing stuff in afterAllExecute");
@@ -341,7 +550,7 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
     Plugin<TransferredResource> plugin = RodaCoreFactory.getPluginManager().getPlugin(pluginClassName,
       TransferredResource.class);
     try {
-      plugin.setParameterValues(getParameterValues());
+      plugin.setParameterValues(copyParameterValues());
       List<LiteOptionalWithCause> lites = LiteRODAObjectFactory.transformIntoLiteWithCause(model, transferredResources);
       report = plugin.execute(index, model, storage, lites);
     } catch (PluginException | InvalidParameterException e) {
@@ -610,8 +819,8 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
     }
   }
 
-  private void createIngestStartedEvent(ModelService model, IndexService index, IngestJobPluginInfo jobPluginInfo,
-    Date startDate, Job cachedJob) {
+  private synchronized void createIngestStartedEvent(ModelService model, IndexService index,
+    IngestJobPluginInfo jobPluginInfo, Date startDate, Job cachedJob) {
     setPreservationEventType(START_TYPE);
     setPreservationSuccessMessage(START_MESSAGE);
     setPreservationFailureMessage(START_MESSAGE);
@@ -619,8 +828,8 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
     createIngestEvent(model, index, jobPluginInfo, startDate, cachedJob);
   }
 
-  private void createIngestEndedEvent(ModelService model, IndexService index, IngestJobPluginInfo jobPluginInfo,
-    Job cachedJob) {
+  private synchronized void createIngestEndedEvent(ModelService model, IndexService index,
+    IngestJobPluginInfo jobPluginInfo, Job cachedJob) {
     setPreservationEventType(END_TYPE);
     setPreservationSuccessMessage(END_SUCCESS);
     setPreservationFailureMessage(END_FAILURE);
@@ -682,7 +891,7 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
   private Report executePlugin(IndexService index, ModelService model, StorageService storage, List<AIP> aips,
     String pluginClassName, Map<String, String> params, IngestJobPluginInfo jobPluginInfo) {
     Plugin<AIP> plugin = RodaCoreFactory.getPluginManager().getPlugin(pluginClassName, AIP.class);
-    Map<String, String> mergedParams = new HashMap<>(getParameterValues());
+    Map<String, String> mergedParams = copyParameterValues();
     if (params != null) {
       mergedParams.putAll(params);
     }
@@ -702,6 +911,10 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
     return null;
   }
 
+  private synchronized Map<String, String> copyParameterValues() {
+    return new HashMap<>(getParameterValues());
+  }
+
   private void updateAIPsToBeAppraised(ModelService model, List<AIP> aips, IngestJobPluginInfo jobPluginInfo,
     Job cachedJob) {
     for (AIP aip : aips) {
@@ -709,12 +922,16 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
       try {
         aip = model.updateAIPState(aip, cachedJob.getUsername());
 
-        getParameterValues().put(RodaConstants.PLUGIN_PARAMS_OUTCOMEOBJECTID_TO_SOURCEOBJECTID_MAP,
-          JsonUtils.getJsonFromObject(jobPluginInfo.getAipIdToTransferredResourceIds()));
+        // the map is read from the parameters, which are shared by all the SIPs
+        // being ingested when they are pipelined
+        synchronized (this) {
+          getParameterValues().put(RodaConstants.PLUGIN_PARAMS_OUTCOMEOBJECTID_TO_SOURCEOBJECTID_MAP,
+            JsonUtils.getJsonFromObject(jobPluginInfo.getAipIdToTransferredResourceIds()));
 
-        // update main report outcomeObjectState
-        PluginHelper.updateJobReportState(this, model, aip.getIngestSIPUUID(), aip.getId(), AIPState.UNDER_APPRAISAL,
-          cachedJob);
+          // update main report outcomeObjectState
+          PluginHelper.updateJobReportState(this, model, aip.getIngestSIPUUID(), aip.getId(),
+            AIPState.UNDER_APPRAISAL, cachedJob);
+        }
 
         // update counters of manual intervention
         jobPluginInfo.incrementOutcomeObjectsWithManualIntervention();
@@ -797,4 +1014,42 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
   public interface AfterExecute {
     void execute(IngestJobPluginInfo jobPluginInfo, List<AIP> aips);
   }
+
+  @FunctionalInterface
+  private interface IngestStepLogic {
+    Report execute(IndexService index, ModelService model, StorageService storage, List<AIP> aips,
+      IngestJobPluginInfo jobPluginInfo);
+  }
+
+  private static final class IngestStep {
+    private final IngestStepLogic logic;
+    private final boolean removeAIPProcessingFailed;
+
+    private IngestStep(IngestStepLogic logic, boolean removeAIPProcessingFailed) {
+      this.logic = logic;
+      this.removeAIPProcessingFailed = removeAIPProcessingFailed;
+    }
+  }
+
+  @FunctionalInterface
+  private interface IngestStage {
+    void process(IngestUnit unit);
+  }
+
+  /**
+   * A SIP going through the steps of a pipelined ingest, with its own job
+   * information so that its AIPs can be followed apart from the other SIPs.
+   */
+  private static final class IngestUnit {
+    private final TransferredResource resource;
+    private final IngestJobPluginInfo jobPluginInfo = new IngestJobPluginInfo();
+    private final List<AIP> aips = new ArrayList<>();
+
+    private IngestUnit(TransferredResource resource, int totalSteps) {
+      this.resource = resource;
+      jobPluginInfo.setTotalSteps(totalSteps);
+      jobPluginInfo.setSourceObjectsCount(1);
+      jobPluginInfo.setSourceObjectsBeingProcessed(1);
+    }
+  }
 }
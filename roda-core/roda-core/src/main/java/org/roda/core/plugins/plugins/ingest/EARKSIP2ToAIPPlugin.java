@@ -144,10 +144,17 @@ public class EARKSIP2ToAIPPlugin extends SIPToAIPPlugin {
     TransferredResource transferredResource, Path earkSIPPath, boolean createSubmission, Report reportItem,
     Job cachedJob, Optional<String> computedSearchScope, boolean forceSearchScope, Path jobWorkingDirectory) {
     SIP sip = null;
+    StagedSIP stagedSIP = null;
     AIP aip = null;
 
     try {
-      sip = EARKSIP.parse(earkSIPPath, FSUtils.createRandomDirectory(jobWorkingDirectory));
+      if (FSUtils.isDirectory(earkSIPPath)) {
+        sip = EARKSIP.parse(earkSIPPath, FSUtils.createRandomDirectory(jobWorkingDirectory));
+      } else {
+        // extracted next to the storage, so representation files are moved
+        stagedSIP = StagedSIP.extract(earkSIPPath, RodaCoreFactory.getFixityAlgorithms());
+        sip = EARKSIP.parse(stagedSIP.getPath(), FSUtils.createRandomDirectory(jobWorkingDirectory));
+      }
       reportItem.setSourceObjectOriginalIds(sip.getIds());
 
       if (sip.getValidationReport().isValid()) {
@@ -156,9 +163,9 @@ public class EARKSIP2ToAIPPlugin extends SIPToAIPPlugin {
         if (IPEnums.IPStatus.NEW == sip.getStatus()) {
           parentId = PluginHelper.getComputedParent(model, index, sip.getAncestors(), computedSearchScope,
             forceSearchScope, cachedJob.getId());
-          aip = processNewSIP(index, model, reportItem, sip, parentId, transferredResource.getUUID());
+          aip = processNewSIP(index, model, reportItem, sip, stagedSIP, parentId, transferredResource.getUUID());
         } else if (IPEnums.IPStatus.UPDATE == sip.getStatus()) {
-          aip = processUpdateSIP(index, model, storage, sip, computedSearchScope, forceSearchScope);
+          aip = processUpdateSIP(index, model, storage, sip, stagedSIP, computedSearchScope, forceSearchScope);
         } else {
           throw new GenericException("Unknown IP Status: " + sip.getStatus());
         }
@@ -187,7 +194,9 @@ public class EARKSIP2ToAIPPlugin extends SIPToAIPPlugin {
       reportItem.setPluginState(PluginState.FAILURE).setPluginDetails(e.getMessage());
       LOGGER.error("Error converting {} to AIP", earkSIPPath, e);
     } finally {
-      if (sip != null) {
+      if (stagedSIP != null) {
+        stagedSIP.delete();
+      } else if (sip != null) {
         Path transferredResourcesAbsolutePath = RodaCoreFactory.getTransferredResourcesScanner().getBasePath()
           .toAbsolutePath();
         if (!sip.getBasePath().toAbsolutePath().toString().startsWith(transferredResourcesAbsolutePath.toString())) {
@@ -197,18 +206,20 @@ public class EARKSIP2ToAIPPlugin extends SIPToAIPPlugin {
     }
   }
 
-  private AIP processNewSIP(IndexService index, ModelService model, Report reportItem, SIP sip,
+  private AIP processNewSIP(IndexService index, ModelService model, Report reportItem, SIP sip, StagedSIP stagedSIP,
     Optional<String> computedParentId, String ingestSIPUUID)
     throws NotFoundException, GenericException, RequestNotValidException, AuthorizationDeniedException,
     AlreadyExistsException, ValidationException, IOException, LockingException {
     String jobUsername = PluginHelper.getJobUsername(this, index);
-    return EARKSIP2ToAIPPluginUtils.earkSIPToAIP(sip, jobUsername, PermissionUtils.getIngestPermissions(jobUsername),
-      model, sip.getIds(), reportItem.getJobId(), computedParentId, ingestSIPUUID, this);
+    return EARKSIP2ToAIPPluginUtils.earkSIPToAIP(sip, stagedSIP, jobUsername,
+      PermissionUtils.getIngestPermissions(jobUsername), model, sip.getIds(), reportItem.getJobId(), computedParentId,
+      ingestSIPUUID, this);
   }
 
   private AIP processUpdateSIP(IndexService index, ModelService model, StorageService storage, SIP sip,
-    Optional<String> searchScope, boolean forceSearchScope) throws GenericException, RequestNotValidException,
-    NotFoundException, AuthorizationDeniedException, AlreadyExistsException, ValidationException, LockingException {
+    StagedSIP stagedSIP, Optional<String> searchScope, boolean forceSearchScope)
+    throws GenericException, RequestNotValidException, NotFoundException, AuthorizationDeniedException,
+    AlreadyExistsException, ValidationException, LockingException {
     String searchScopeString = searchScope.orElse(null);
 
     List<FilterParameter> possibleStates = new ArrayList<>();
@@ -249,8 +260,8 @@ public class EARKSIP2ToAIPPlugin extends SIPToAIPPlugin {
     String jobId = PluginHelper.getJobId(this);
 
     // Update the AIP
-    return EARKSIP2ToAIPPluginUtils.earkSIPToAIPUpdate(sip, indexedAIP, model, jobUsername, searchScope, jobId, null,
-      this);
+    return EARKSIP2ToAIPPluginUtils.earkSIPToAIPUpdate(sip, stagedSIP, indexedAIP, model, jobUsername, searchScope,
+      jobId, null, this);
   }
 
   @Override
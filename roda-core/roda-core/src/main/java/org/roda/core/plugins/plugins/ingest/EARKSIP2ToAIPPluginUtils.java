@@ -13,12 +13,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.apache.xmlbeans.XmlException;
+import org.roda.core.RodaCoreFactory;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AlreadyExistsException;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.LockingException;
 import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
@@ -32,6 +35,7 @@ import org.roda.core.data.v2.validation.ValidationException;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.Plugin;
 import org.roda.core.plugins.plugins.PluginHelper;
+import org.roda.core.plugins.plugins.characterization.PremisSkeletonPluginUtils;
 import org.roda.core.storage.ContentPayload;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fs.FSPathContentPayload;
@@ -42,8 +46,11 @@ import org.roda_project.commons_ip2.model.IPMetadata;
 import org.roda_project.commons_ip2.model.IPRepresentation;
 import org.roda_project.commons_ip2.model.RepresentationStatus;
 import org.roda_project.commons_ip2.model.SIP;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class EARKSIP2ToAIPPluginUtils {
+  private static final Logger LOGGER = LoggerFactory.getLogger(EARKSIP2ToAIPPluginUtils.class);
 
   private EARKSIP2ToAIPPluginUtils() {
     // do nothing
@@ -53,6 +60,19 @@ public class EARKSIP2ToAIPPluginUtils {
     List<String> ingestSIPIds, String ingestJobId, Optional<String> parentId, String ingestSIPUUID, Plugin<?> plugin)
     throws RequestNotValidException, NotFoundException, GenericException, AlreadyExistsException,
     AuthorizationDeniedException, ValidationException, IOException, LockingException {
+    return earkSIPToAIP(sip, null, username, fullPermissions, model, ingestSIPIds, ingestJobId, parentId,
+      ingestSIPUUID, plugin);
+  }
+
+  /**
+   * @param stagedSIP
+   *          where the SIP was extracted, if in the staging folder, so that the
+   *          representation files are moved into the AIP (or null).
+   */
+  public static AIP earkSIPToAIP(SIP sip, StagedSIP stagedSIP, String username, Permissions fullPermissions,
+    ModelService model, List<String> ingestSIPIds, String ingestJobId, Optional<String> parentId,
+    String ingestSIPUUID, Plugin<?> plugin) throws RequestNotValidException, NotFoundException, GenericException,
+    AlreadyExistsException, AuthorizationDeniedException, ValidationException, IOException, LockingException {
 
     AIPState state = AIPState.INGEST_PROCESSING;
     Permissions permissions = new Permissions();
@@ -70,7 +90,8 @@ public class EARKSIP2ToAIPPluginUtils {
 
     // process IPRepresentation information
     for (IPRepresentation representation : sip.getRepresentations()) {
-      processIPRepresentationInformation(model, representation, aip.getId(), notify, false, username, null);
+      processIPRepresentationInformation(model, representation, stagedSIP, aip.getId(), notify, false, username,
+        null);
     }
 
     // INFO 20190509 hsilva: this is required as the previous instructions
@@ -97,6 +118,13 @@ public class EARKSIP2ToAIPPluginUtils {
     Optional<String> searchScope, String ingestJobId, Report reportItem, Plugin<?> plugin)
     throws RequestNotValidException, NotFoundException, GenericException, AlreadyExistsException,
     AuthorizationDeniedException, ValidationException, LockingException {
+    return earkSIPToAIPUpdate(sip, null, indexedAIP, model, username, searchScope, ingestJobId, reportItem, plugin);
+  }
+
+  public static AIP earkSIPToAIPUpdate(SIP sip, StagedSIP stagedSIP, IndexedAIP indexedAIP, ModelService model,
+    String username, Optional<String> searchScope, String ingestJobId, Report reportItem, Plugin<?> plugin)
+    throws RequestNotValidException, NotFoundException, GenericException, AlreadyExistsException,
+    AuthorizationDeniedException, ValidationException, LockingException {
     boolean notify = false;
     AIP aip;
 
@@ -107,7 +135,8 @@ public class EARKSIP2ToAIPPluginUtils {
 
     // process IPRepresentation information
     for (IPRepresentation representation : sip.getRepresentations()) {
-      processIPRepresentationInformation(model, representation, indexedAIP.getId(), notify, true, username, reportItem);
+      processIPRepresentationInformation(model, representation, stagedSIP, indexedAIP.getId(), notify, true, username,
+        reportItem);
     }
 
     aip = model.retrieveAIP(indexedAIP.getId());
@@ -235,8 +264,8 @@ public class EARKSIP2ToAIPPluginUtils {
     }
   }
 
-  private static void processIPRepresentationInformation(ModelService model, IPRepresentation sr, String aipId,
-    boolean notify, boolean update, String username, Report reportItem) throws RequestNotValidException,
+  private static void processIPRepresentationInformation(ModelService model, IPRepresentation sr, StagedSIP stagedSIP,
+    String aipId, boolean notify, boolean update, String username, Report reportItem) throws RequestNotValidException,
     GenericException, AlreadyExistsException, AuthorizationDeniedException, NotFoundException, ValidationException {
     String representationType = getType(sr);
     boolean isOriginal = RepresentationStatus.getORIGINAL().equals(sr.getStatus());
@@ -272,9 +301,12 @@ public class EARKSIP2ToAIPPluginUtils {
     for (IPFile file : sr.getData()) {
       List<String> directoryPath = file.getRelativeFolders();
       String fileId = file.getFileName();
-      ContentPayload payload = new FSPathContentPayload(file.getPath());
+      ContentPayload payload = new FSPathContentPayload(file.getPath(), stagedSIP != null);
       try {
         File createdFile = model.createFile(aipId, representation.getId(), directoryPath, fileId, payload, notify);
+        if (stagedSIP != null) {
+          createPremisWithStagedChecksums(model, createdFile, stagedSIP.getChecksums(file.getPath()));
+        }
         if (reportItem != null && update) {
           reportItem.getUpdateInformation().addFileData(aipId, IdUtils.getRepresentationId(representation),
             createdFile);
@@ -299,6 +331,15 @@ public class EARKSIP2ToAIPPluginUtils {
     processSchemas(model, sr.getSchemas(), aipId, representation.getId(), false);
   }
 
+  private static void createPremisWithStagedChecksums(ModelService model, File file, Map<String, String> checksums) {
+    try {
+      PremisSkeletonPluginUtils.createPremisSkeletonOnFileWithKnownChecksums(model, file,
+        RodaCoreFactory.getFixityAlgorithms(), checksums);
+    } catch (RODAException | XmlException e) {
+      LOGGER.warn("Could not create PREMIS of file {} with the checksums computed on extraction", file.getId(), e);
+    }
+  }
+
   private static String getType(SIP sip) {
     return sip.getContentType().asString();
   }
@@ -0,0 +1,124 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.ingest;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.util.FileUtility;
+
+/**
+ * A zipped SIP extracted into the ingest staging folder, which is in the same
+ * file system as the storage, so that its files can be moved into the AIP
+ * instead of being copied once more. The checksums of the files are computed
+ * while they are extracted, so they do not need to be read again to create
+ * their PREMIS.
+ */
+public class StagedSIP {
+  private static final String METS_FILE = "METS.xml";
+
+  private final Path basePath;
+  private final Path sipPath;
+  private final Map<Path, Map<String, String>> checksums;
+
+  private StagedSIP(Path basePath, Path sipPath, Map<Path, Map<String, String>> checksums) {
+    this.basePath = basePath;
+    this.sipPath = sipPath;
+    this.checksums = checksums;
+  }
+
+  public static StagedSIP extract(Path zipPath, Collection<String> algorithms) throws IOException {
+    return extract(zipPath, algorithms, METS_FILE);
+  }
+
+  /**
+   * @param rootFile
+   *          the file in the root of the package (e.g. its METS file), which can
+   *          be in the root of the zip or inside a single folder.
+   */
+  public static StagedSIP extract(Path zipPath, Collection<String> algorithms, String rootFile) throws IOException {
+    Path stagingPath = RodaCoreFactory.getDataPath().resolve(RodaConstants.CORE_INGEST_STAGING_FOLDER);
+    Files.createDirectories(stagingPath);
+    Path basePath = FSUtils.createRandomDirectory(stagingPath);
+    Map<Path, Map<String, String>> checksums = new HashMap<>();
+
+    try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(zipPath)))) {
+      ZipEntry entry = zip.getNextEntry();
+      while (entry != null) {
+        Path target = basePath.resolve(entry.getName()).normalize();
+        if (!target.startsWith(basePath)) {
+          throw new IOException("Zip entry is outside of the package: " + entry.getName());
+        }
+
+        if (entry.isDirectory()) {
+          Files.createDirectories(target);
+        } else {
+          Files.createDirectories(target.getParent());
+          try (OutputStream out = Files.newOutputStream(target)) {
+            checksums.put(target.toAbsolutePath(), FileUtility.copyAndChecksums(zip, out, algorithms));
+          }
+        }
+
+        zip.closeEntry();
+        entry = zip.getNextEntry();
+      }
+    } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+      FSUtils.deletePathQuietly(basePath);
+      throw new IOException("Could not extract " + zipPath + " into the staging folder", e);
+    }
+
+    return new StagedSIP(basePath, findSIPPath(basePath, rootFile), checksums);
+  }
+
+  private static Path findSIPPath(Path basePath, String rootFile) throws IOException {
+    if (!Files.exists(basePath.resolve(rootFile))) {
+      try (Stream<Path> children = Files.list(basePath)) {
+        List<Path> folders = children.filter(Files::isDirectory).collect(Collectors.toList());
+        if (folders.size() == 1) {
+          return folders.get(0);
+        }
+      }
+    }
+    return basePath;
+  }
+
+  /**
+   * @return the root folder of the package.
+   */
+  public Path getPath() {
+    return sipPath;
+  }
+
+  /**
+   * @return the checksums of an extracted file, or an empty map if the file
+   *         was not extracted from the package.
+   */
+  public Map<String, String> getChecksums(Path file) {
+    return checksums.getOrDefault(file.toAbsolutePath().normalize(), Collections.emptyMap());
+  }
+
+  public void delete() {
+    FSUtils.deletePathQuietly(basePath);
+  }
+}
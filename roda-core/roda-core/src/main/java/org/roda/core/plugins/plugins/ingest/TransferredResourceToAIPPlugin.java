@@ -18,31 +18,44 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.apache.xmlbeans.XmlException;
+import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.MetadataFileUtils;
+import org.roda.core.common.monitor.TransferredResourceUploads;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.InvalidParameterException;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.v2.LiteOptionalWithCause;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.File;
 import org.roda.core.data.v2.ip.TransferredResource;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.PluginState;
 import org.roda.core.data.v2.jobs.Report;
 import org.roda.core.index.IndexService;
 import org.roda.core.model.ModelService;
+import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.plugins.Plugin;
 import org.roda.core.plugins.PluginException;
 import org.roda.core.plugins.RODAObjectProcessingLogic;
 import org.roda.core.plugins.orchestrate.JobPluginInfo;
 import org.roda.core.plugins.plugins.PluginHelper;
+import org.roda.core.plugins.plugins.characterization.PremisSkeletonPluginUtils;
 import org.roda.core.storage.ContentPayload;
+import org.roda.core.storage.DefaultStoragePath;
+import org.roda.core.storage.StoragePath;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fs.FSPathContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
 import org.roda.core.util.IdUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +69,7 @@ public class TransferredResourceToAIPPlugin extends SIPToAIPPlugin {
   private static final String UNPACK_DESCRIPTION = "Extracted objects from package in file/folder format.";
 
   private boolean createSubmission = false;
+  private boolean moveTransferredResource = false;
   private Optional<String> computedSearchScope;
 
   @Override
@@ -90,6 +104,11 @@ public class TransferredResourceToAIPPlugin extends SIPToAIPPlugin {
     if (getParameterValues().containsKey(RodaConstants.PLUGIN_PARAMS_CREATE_SUBMISSION)) {
       createSubmission = Boolean.parseBoolean(getParameterValues().get(RodaConstants.PLUGIN_PARAMS_CREATE_SUBMISSION));
     }
+
+    if (getParameterValues().containsKey(RodaConstants.PLUGIN_PARAMS_MOVE_TRANSFERRED_RESOURCE)) {
+      moveTransferredResource = Boolean
+        .parseBoolean(getParameterValues().get(RodaConstants.PLUGIN_PARAMS_MOVE_TRANSFERRED_RESOURCE));
+    }
   }
 
   @Override
@@ -116,14 +135,15 @@ public class TransferredResourceToAIPPlugin extends SIPToAIPPlugin {
   private void processTransferredResource(IndexService index, ModelService model, Report report, Job job,
     TransferredResource transferredResource) {
     Report reportItem = PluginHelper.initPluginReportItem(this, transferredResource);
+    Path transferredResourcePath = Paths.get(transferredResource.getFullPath());
+    AIP aip = null;
 
     try {
-      Path transferredResourcePath = Paths.get(transferredResource.getFullPath());
       LOGGER.debug("Converting {} to AIP", transferredResourcePath);
       AIPState state = AIPState.INGEST_PROCESSING;
       String aipType = RodaConstants.AIP_TYPE_MIXED;
 
-      final AIP aip = model.createAIP(state, computedSearchScope.orElse(null), aipType,
+      aip = model.createAIP(state, computedSearchScope.orElse(null), aipType,
         PermissionUtils.getIngestPermissions(job.getUsername()), transferredResource.getUUID(),
         Arrays.asList(transferredResource.getName()), job.getId(), false, job.getUsername());
 
@@ -134,11 +154,14 @@ public class TransferredResourceToAIPPlugin extends SIPToAIPPlugin {
       model.createRepresentation(aip.getId(), representationId, true, representationType, false, job.getUsername());
 
       // create files
-      if (transferredResource.isFile()) {
+      if (moveTransferredResource) {
+        moveTransferredResource(model, transferredResource, transferredResourcePath, aip, representationId);
+      } else if (transferredResource.isFile()) {
         String fileId = transferredResource.getName();
         List<String> directoryPath = new ArrayList<>();
         ContentPayload payload = new FSPathContentPayload(transferredResourcePath);
-        model.createFile(aip.getId(), representationId, directoryPath, fileId, payload, false);
+        File file = model.createFile(aip.getId(), representationId, directoryPath, fileId, payload, false);
+        createPremisWithUploadChecksums(model, file, transferredResourcePath);
       } else {
         processTransferredResourceDirectory(model, transferredResourcePath, aip, representationId);
       }
@@ -159,6 +182,15 @@ public class TransferredResourceToAIPPlugin extends SIPToAIPPlugin {
     } catch (RODAException | IOException | RuntimeException e) {
       LOGGER.error("Error converting " + transferredResource.getId() + " to AIP", e);
       reportItem.setPluginState(PluginState.FAILURE).setPluginDetails(e.getMessage());
+
+      if (moveTransferredResource && aip != null && !FSUtils.exists(transferredResourcePath)) {
+        try {
+          restoreTransferredResource(model, transferredResource, aip.getId());
+        } catch (RODAException e1) {
+          LOGGER.error("Error moving the files of AIP {} back into transferred resource {}", aip.getId(),
+            transferredResource.getId(), e1);
+        }
+      }
     }
 
     report.addReport(reportItem);
@@ -186,7 +218,9 @@ public class TransferredResourceToAIPPlugin extends SIPToAIPPlugin {
         try {
           ContentPayload payload = new FSPathContentPayload(file);
           boolean notifyFileCreated = false;
-          model.createFile(aip.getId(), representationId, directoryPath, fileId, payload, notifyFileCreated);
+          File aipFile = model.createFile(aip.getId(), representationId, directoryPath, fileId, payload,
+            notifyFileCreated);
+          createPremisWithUploadChecksums(model, aipFile, file);
         } catch (RODAException e) {
           LOGGER.error("Could not create file on {}", file.toString(), e);
         }
@@ -206,6 +240,112 @@ public class TransferredResourceToAIPPlugin extends SIPToAIPPlugin {
     });
   }
 
+  /**
+   * Moves the file/folder into the representation with a single rename (or a
+   * copy, if the transfer area and the storage are in different file systems),
+   * instead of copying each file, and removes it from the transfer area index.
+   */
+  private void moveTransferredResource(ModelService model, TransferredResource transferredResource,
+    Path transferredResourcePath, AIP aip, String representationId) throws RODAException, IOException {
+    // upload checksums are only valid while the files are in the transfer area
+    Map<Path, Map<String, String>> uploadChecksums = retrieveUploadChecksums(transferredResource,
+      transferredResourcePath);
+
+    if (transferredResource.isFile()) {
+      String fileId = transferredResourcePath.getFileName().toString();
+      StorageService sourceStorage = new FileStorageService(transferredResourcePath.getParent(), false, null, false);
+      model.moveFiles(sourceStorage, DefaultStoragePath.parse(fileId), aip.getId(), representationId,
+        new ArrayList<>(), fileId);
+    } else {
+      StorageService sourceStorage = new FileStorageService(transferredResourcePath, false, null, false);
+      model.moveFiles(sourceStorage, DefaultStoragePath.empty(), aip.getId(), representationId, new ArrayList<>(),
+        null);
+    }
+
+    RodaCoreFactory.getTransferredResourcesScanner().removeTransferredResourceFromIndex(transferredResource);
+
+    for (Entry<Path, Map<String, String>> entry : uploadChecksums.entrySet()) {
+      List<String> directoryPath = new ArrayList<>();
+      for (int i = 0; i < entry.getKey().getNameCount() - 1; i++) {
+        directoryPath.add(entry.getKey().getName(i).toString());
+      }
+      String fileId = entry.getKey().getFileName().toString();
+      File file = model.retrieveFile(aip.getId(), representationId, directoryPath, fileId);
+      createPremisWithUploadChecksums(model, file, entry.getValue());
+    }
+  }
+
+  /**
+   * Moves the files of an AIP that were moved from a file/folder back into the
+   * transfer area and deletes the AIP, so that the file/folder can be ingested
+   * again when the AIP is not.
+   */
+  public static void restoreTransferredResource(ModelService model, TransferredResource transferredResource,
+    String aipId) throws RODAException {
+    AIP aip = model.retrieveAIP(aipId);
+    if (!aip.getRepresentations().isEmpty()) {
+      String representationId = aip.getRepresentations().get(0).getId();
+      Path transferredResourcePath = Paths.get(transferredResource.getFullPath());
+      String name = transferredResourcePath.getFileName().toString();
+      StoragePath dataPath;
+      if (transferredResource.isFile()) {
+        dataPath = ModelUtils.getFileStoragePath(aipId, representationId, new ArrayList<>(), name);
+      } else {
+        dataPath = ModelUtils.getRepresentationDataStoragePath(aipId, representationId);
+      }
+
+      StorageService targetStorage = new FileStorageService(transferredResourcePath.getParent(), false, null, false);
+      targetStorage.move(model.getStorage(), dataPath, DefaultStoragePath.parse(name));
+    }
+
+    model.deleteAIP(aipId);
+    RodaCoreFactory.getTransferredResourcesScanner()
+      .updateTransferredResources(Optional.of(transferredResource.getRelativePath()), true);
+  }
+
+  /**
+   * @return the checksums of the uploaded files, by their path in the
+   *         representation.
+   */
+  private static Map<Path, Map<String, String>> retrieveUploadChecksums(TransferredResource transferredResource,
+    Path transferredResourcePath) throws IOException {
+    Map<Path, Map<String, String>> checksums = new HashMap<>();
+    TransferredResourceUploads uploads = RodaCoreFactory.getTransferredResourceUploads();
+    if (uploads != null) {
+      Path representationPath = transferredResource.isFile() ? transferredResourcePath.getParent()
+        : transferredResourcePath;
+      try (Stream<Path> files = Files.walk(transferredResourcePath)) {
+        files.filter(Files::isRegularFile).forEach(file -> {
+          Map<String, String> fileChecksums = uploads.retrieveChecksums(file);
+          if (!fileChecksums.isEmpty()) {
+            checksums.put(representationPath.relativize(file), fileChecksums);
+          }
+        });
+      }
+    }
+    return checksums;
+  }
+
+  /**
+   * Creates the PREMIS of a file with the checksums computed while it was
+   * uploaded, if there are any, so they are not computed again.
+   */
+  private static void createPremisWithUploadChecksums(ModelService model, File file, Path source) {
+    TransferredResourceUploads uploads = RodaCoreFactory.getTransferredResourceUploads();
+    if (uploads != null) {
+      createPremisWithUploadChecksums(model, file, uploads.retrieveChecksums(source));
+    }
+  }
+
+  private static void createPremisWithUploadChecksums(ModelService model, File file, Map<String, String> checksums) {
+    try {
+      PremisSkeletonPluginUtils.createPremisSkeletonOnFileWithKnownChecksums(model, file,
+        RodaCoreFactory.getFixityAlgorithms(), checksums);
+    } catch (RODAException | XmlException e) {
+      LOGGER.warn("Could not create PREMIS of file {} with its upload checksums", file.getId(), e);
+    }
+  }
+
   private List<String> extractDirectoryPath(Path transferredResourcePath, Path file) {
     List<String> directoryPath = new ArrayList<>();
     Path relativePath = transferredResourcePath.relativize(file);
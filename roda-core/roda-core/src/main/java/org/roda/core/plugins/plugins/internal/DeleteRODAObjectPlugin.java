@@ -7,11 +7,16 @@
  */
 package org.roda.core.plugins.plugins.internal;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.roda.core.data.common.RodaConstants;
@@ -25,9 +30,9 @@ import org.roda.core.data.utils.URNUtils;
 import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.LiteOptionalWithCause;
 import org.roda.core.data.v2.index.IndexResult;
-import org.roda.core.data.v2.index.IndexRunnable;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.index.sort.Sorter;
 import org.roda.core.data.v2.index.sublist.Sublist;
@@ -39,6 +44,7 @@ import org.roda.core.data.v2.ip.File;
 import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.metadata.LinkingIdentifier;
+import org.roda.core.data.v2.ip.metadata.PreservationMetadata;
 import org.roda.core.data.v2.ip.metadata.PreservationMetadata.PreservationMetadataType;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.PluginParameter;
@@ -50,20 +56,25 @@ import org.roda.core.data.v2.ri.RepresentationInformation;
 import org.roda.core.data.v2.risks.Risk;
 import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.index.IndexService;
+import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.AbstractPlugin;
 import org.roda.core.plugins.Plugin;
 import org.roda.core.plugins.PluginException;
-import org.roda.core.plugins.RODAObjectProcessingLogic;
+import org.roda.core.plugins.RODAObjectsProcessingLogic;
 import org.roda.core.plugins.orchestrate.JobPluginInfo;
 import org.roda.core.plugins.plugins.PluginHelper;
 import org.roda.core.storage.StorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+
 public class DeleteRODAObjectPlugin<T extends IsRODAObject> extends AbstractPlugin<T> {
   private static final Logger LOGGER = LoggerFactory.getLogger(DeleteRODAObjectPlugin.class);
   private static final String EVENT_DESCRIPTION = "The process of deleting an object of the repository";
+  private static final int QUERY_BATCH_SIZE = 500;
+  private static final int EVENT_BATCH_SIZE = 1000;
   private String details = null;
   private boolean dontCheckRelatives;
 
@@ -127,115 +138,154 @@ public class DeleteRODAObjectPlugin<T extends IsRODAObject> extends AbstractPlug
   public Report execute(IndexService index, ModelService model, StorageService storage,
     List<LiteOptionalWithCause> liteList) throws PluginException {
 
-    return PluginHelper.processObjects(this, new RODAObjectProcessingLogic<T>() {
+    return PluginHelper.processObjects(this, new RODAObjectsProcessingLogic<T>() {
       @Override
       public void process(IndexService index, ModelService model, StorageService storage, Report report, Job cachedJob,
-        JobPluginInfo jobPluginInfo, Plugin<T> plugin, T object) {
-        if (object instanceof AIP) {
-          processAIP(index, model, report, jobPluginInfo, cachedJob, (AIP) object);
-        } else if (object instanceof File) {
-          processFile(index, model, report, jobPluginInfo, cachedJob, (File) object);
-        } else if (object instanceof Representation) {
-          processRepresentation(index, model, report, jobPluginInfo, cachedJob, (Representation) object);
-        } else if (object instanceof Risk) {
-          processRisk(index, model, report, jobPluginInfo, cachedJob, (Risk) object);
-        } else if (object instanceof RepresentationInformation) {
-          processRepresentationInformation(model, report, jobPluginInfo, cachedJob, (RepresentationInformation) object);
-        } else if (object instanceof RiskIncidence) {
-          processRiskIncidence(model, report, jobPluginInfo, cachedJob, (RiskIncidence) object);
-        } else if (object instanceof DIP) {
-          processDIP(model, report, jobPluginInfo, cachedJob, (DIP) object);
-        } else if (object instanceof DIPFile) {
-          processDIPFile(model, report, jobPluginInfo, cachedJob, (DIPFile) object);
+        JobPluginInfo jobPluginInfo, Plugin<T> plugin, List<T> objects) {
+        List<AIP> aips = new ArrayList<>();
+        for (T object : objects) {
+          if (object instanceof AIP) {
+            aips.add((AIP) object);
+          } else if (object instanceof File) {
+            processFile(index, model, report, jobPluginInfo, cachedJob, (File) object);
+          } else if (object instanceof Representation) {
+            processRepresentation(index, model, report, jobPluginInfo, cachedJob, (Representation) object);
+          } else if (object instanceof Risk) {
+            processRisk(index, model, report, jobPluginInfo, cachedJob, (Risk) object);
+          } else if (object instanceof RepresentationInformation) {
+            processRepresentationInformation(model, report, jobPluginInfo, cachedJob,
+              (RepresentationInformation) object);
+          } else if (object instanceof RiskIncidence) {
+            processRiskIncidence(model, report, jobPluginInfo, cachedJob, (RiskIncidence) object);
+          } else if (object instanceof DIP) {
+            processDIP(model, report, jobPluginInfo, cachedJob, (DIP) object);
+          } else if (object instanceof DIPFile) {
+            processDIPFile(model, report, jobPluginInfo, cachedJob, (DIPFile) object);
+          }
+        }
+
+        if (!aips.isEmpty()) {
+          processAIPs(index, model, report, jobPluginInfo, cachedJob, aips);
         }
       }
     }, index, model, storage, liteList);
   }
 
-  private void processAIP(IndexService index, ModelService model, Report report, JobPluginInfo jobPluginInfo, Job job,
-    AIP aip) {
-    Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
-    reportItem.setPluginState(PluginState.SUCCESS);
+  /**
+   * Deletes all the AIPs of a block, and their sublevels, at once: their folders
+   * are moved to the trash and their index documents are removed with a few
+   * queries for all of them. Each AIP still gets its own deletion event, which
+   * are indexed together for each group of {@link #EVENT_BATCH_SIZE} AIPs.
+   */
+  private void processAIPs(IndexService index, ModelService model, Report report, JobPluginInfo jobPluginInfo, Job job,
+    List<AIP> aips) {
+    Map<String, Report> reportItems = new LinkedHashMap<>();
+    for (AIP aip : aips) {
+      Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
+      reportItems.put(aip.getId(), reportItem.setPluginState(PluginState.SUCCESS));
+    }
 
+    Set<String> aipIds = new LinkedHashSet<>(reportItems.keySet());
+    Map<String, String> sublevelOf = new HashMap<>();
     if (!dontCheckRelatives) {
-      try {
-        Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, aip.getId()));
-        index.execute(
-          IndexedAIP.class, filter, Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_ID,
-            RodaConstants.AIP_LEVEL, RodaConstants.AIP_DATE_INITIAL, RodaConstants.AIP_DATE_FINAL),
-          new IndexRunnable<IndexedAIP>() {
-            @Override
-            public void run(IndexedAIP item)
-              throws GenericException, RequestNotValidException, AuthorizationDeniedException {
-              PluginState state = PluginState.SUCCESS;
-              try {
-                model.deleteAIP(item.getId());
-              } catch (NotFoundException e) {
-                state = PluginState.FAILURE;
-                reportItem.addPluginDetails("Could not delete AIP: " + e.getMessage());
-              }
-
-              String outcomeText;
-              if (state.equals(PluginState.SUCCESS)) {
-                outcomeText = PluginHelper.createOutcomeTextForAIP(item, "has been manually deleted");
-              } else {
-                outcomeText = PluginHelper.createOutcomeTextForAIP(item, "has not been manually deleted");
-              }
-
-              List<LinkingIdentifier> sources = new ArrayList<>();
-              sources
-                .add(PluginHelper.getLinkingIdentifier(item.getId(), RodaConstants.PRESERVATION_LINKING_OBJECT_SOURCE));
-
-              model.createEvent(item.getId(), null, null, null, PreservationEventType.DELETION, EVENT_DESCRIPTION,
-                sources, null, state, outcomeText, details, job.getUsername(), true);
+      for (List<String> ids : Lists.partition(new ArrayList<>(reportItems.keySet()), QUERY_BATCH_SIZE)) {
+        Filter filter = new Filter(new OneOfManyFilterParameter(RodaConstants.AIP_ANCESTORS, ids));
+        try (IterableIndexResult<IndexedAIP> sublevels = index.findAll(IndexedAIP.class, filter, false,
+          Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_ANCESTORS))) {
+          for (IndexedAIP sublevel : sublevels) {
+            if (aipIds.add(sublevel.getId())) {
+              sublevel.getAncestors().stream().filter(reportItems::containsKey).findFirst()
+                .ifPresent(ancestor -> sublevelOf.put(sublevel.getId(), ancestor));
             }
-          }, e -> {
-            reportItem.setPluginState(PluginState.FAILURE);
-            reportItem.addPluginDetails("Could not delete sublevel AIPs: " + e.getMessage());
-          });
-      } catch (GenericException | RequestNotValidException | AuthorizationDeniedException e) {
-        reportItem.setPluginState(PluginState.FAILURE);
-        reportItem.addPluginDetails("Could not delete sublevel AIPs: " + e.getMessage());
+          }
+        } catch (GenericException | RequestNotValidException | IOException e) {
+          for (String id : ids) {
+            reportItems.get(id).setPluginState(PluginState.FAILURE)
+              .addPluginDetails("Could not delete sublevel AIPs: " + e.getMessage());
+          }
+        }
       }
     }
 
-    report.addReport(reportItem);
-    PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
-    jobPluginInfo.incrementObjectsProcessed(reportItem.getPluginState());
-
-    IndexedAIP item = null;
-    String outcomeText;
+    // the descriptions used in the events must be read before the AIPs leave the index
+    Map<String, IndexedAIP> descriptions = retrieveDescriptions(index, new ArrayList<>(aipIds));
 
+    List<String> deleted;
     try {
-      item = index.retrieve(IndexedAIP.class, aip.getId(),
-        Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_TITLE));
-    } catch (NotFoundException | GenericException e) {
-      // do nothing
+      deleted = model.deleteAIPs(new ArrayList<>(aipIds));
+    } catch (GenericException | RequestNotValidException | AuthorizationDeniedException e) {
+      LOGGER.error("Could not delete AIPs", e);
+      deleted = Collections.emptyList();
+      for (Report reportItem : reportItems.values()) {
+        reportItem.setPluginState(PluginState.FAILURE).addPluginDetails("Could not delete AIP: " + e.getMessage());
+      }
     }
 
-    try {
-      model.deleteAIP(aip.getId());
-
-      if (item != null) {
-        outcomeText = PluginHelper.createOutcomeTextForAIP(item, "has been manually deleted");
-      } else {
-        outcomeText = "Archival Information Package [id: " + aip.getId() + "] has been manually deleted";
+    Set<String> notDeleted = new LinkedHashSet<>(aipIds);
+    notDeleted.removeAll(deleted);
+    for (String aipId : notDeleted) {
+      Report reportItem = reportItems.get(sublevelOf.getOrDefault(aipId, aipId));
+      if (reportItem != null) {
+        reportItem.setPluginState(PluginState.FAILURE);
+        reportItem.addPluginDetails(
+          reportItems.containsKey(aipId) ? "Could not delete AIP" : "Could not delete sublevel AIP " + aipId);
       }
-    } catch (NotFoundException | GenericException | RequestNotValidException | AuthorizationDeniedException e) {
-      reportItem.setPluginState(PluginState.FAILURE);
-      reportItem.addPluginDetails("Could not delete AIP: " + e.getMessage());
-      if (item != null) {
-        outcomeText = PluginHelper.createOutcomeTextForAIP(item, "has not been manually deleted");
-      } else {
-        outcomeText = "Archival Information Package [id: " + aip.getId() + "] has not been manually deleted";
+    }
+
+    for (Report reportItem : reportItems.values()) {
+      report.addReport(reportItem);
+      PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+      jobPluginInfo.incrementObjectsProcessed(reportItem.getPluginState());
+    }
+
+    createDeletionEvents(model, job, deleted, descriptions, PluginState.SUCCESS, "has been manually deleted");
+    createDeletionEvents(model, job, new ArrayList<>(notDeleted), descriptions, PluginState.FAILURE,
+      "has not been manually deleted");
+  }
+
+  private Map<String, IndexedAIP> retrieveDescriptions(IndexService index, List<String> aipIds) {
+    Map<String, IndexedAIP> descriptions = new HashMap<>();
+    List<String> fields = Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_TITLE, RodaConstants.AIP_LEVEL,
+      RodaConstants.AIP_DATE_INITIAL, RodaConstants.AIP_DATE_FINAL);
+    for (List<String> ids : Lists.partition(aipIds, QUERY_BATCH_SIZE)) {
+      Filter filter = new Filter(new OneOfManyFilterParameter(RodaConstants.INDEX_UUID, ids));
+      try (IterableIndexResult<IndexedAIP> aips = index.findAll(IndexedAIP.class, filter, false, fields)) {
+        for (IndexedAIP aip : aips) {
+          descriptions.put(aip.getId(), aip);
+        }
+      } catch (GenericException | RequestNotValidException | IOException e) {
+        LOGGER.warn("Could not retrieve the description of the AIPs to delete", e);
       }
     }
+    return descriptions;
+  }
 
-    List<LinkingIdentifier> sources = new ArrayList<>();
-    sources.add(PluginHelper.getLinkingIdentifier(aip.getId(), RodaConstants.PRESERVATION_LINKING_OBJECT_SOURCE));
+  private void createDeletionEvents(ModelService model, Job job, List<String> aipIds,
+    Map<String, IndexedAIP> descriptions, PluginState state, String actionMessage) {
+    for (List<String> ids : Lists.partition(aipIds, EVENT_BATCH_SIZE)) {
+      List<PreservationMetadata> events = new ArrayList<>();
+      for (String id : ids) {
+        IndexedAIP description = descriptions.get(id);
+        String outcomeText = description != null ? PluginHelper.createOutcomeTextForAIP(description, actionMessage)
+          : "Archival Information Package [id: " + id + "] " + actionMessage;
+        List<LinkingIdentifier> sources = Arrays
+          .asList(PluginHelper.getLinkingIdentifier(id, RodaConstants.PRESERVATION_LINKING_OBJECT_SOURCE));
+
+        PreservationMetadata event = model.createEvent(id, null, null, null, PreservationEventType.DELETION,
+          EVENT_DESCRIPTION, sources, null, state, outcomeText, details, job.getUsername(), false);
+        if (event != null) {
+          events.add(event);
+        }
+      }
 
-    model.createEvent(aip.getId(), null, null, null, PreservationEventType.DELETION, EVENT_DESCRIPTION, sources, null,
-      reportItem.getPluginState(), outcomeText, details, job.getUsername(), true);
+      if (!events.isEmpty()) {
+        try {
+          model.notifyPreservationEventsCreated(events).failOnError();
+        } catch (GenericException e) {
+          LOGGER.error("Could not index the deletion events", e);
+        }
+      }
+    }
   }
 
   private void processFile(IndexService index, ModelService model, Report report, JobPluginInfo jobPluginInfo, Job job,
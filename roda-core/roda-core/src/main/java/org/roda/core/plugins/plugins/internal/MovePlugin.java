@@ -7,12 +7,18 @@
  */
 package org.roda.core.plugins.plugins.internal;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.roda.core.RodaCoreFactory;
@@ -27,12 +33,9 @@ import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.LiteOptionalWithCause;
-import org.roda.core.data.v2.index.IndexResult;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.data.v2.index.filter.Filter;
-import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
-import org.roda.core.data.v2.index.sort.Sorter;
-import org.roda.core.data.v2.index.sublist.Sublist;
+import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
 import org.roda.core.data.v2.ip.File;
@@ -46,6 +49,7 @@ import org.roda.core.data.v2.jobs.PluginState;
 import org.roda.core.data.v2.jobs.PluginType;
 import org.roda.core.data.v2.jobs.Report;
 import org.roda.core.index.IndexService;
+import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.core.model.ModelService;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.plugins.AbstractPlugin;
@@ -58,9 +62,12 @@ import org.roda.core.storage.StorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+
 public class MovePlugin<T extends IsRODAObject> extends AbstractPlugin<T> {
   private static final Logger LOGGER = LoggerFactory.getLogger(MovePlugin.class);
   private static final String EVENT_DESCRIPTION = "The process of updating an object of the repository";
+  private static final int QUERY_BATCH_SIZE = 500;
 
   private String destinationId = null;
   private String details = null;
@@ -129,9 +136,7 @@ public class MovePlugin<T extends IsRODAObject> extends AbstractPlugin<T> {
         JobPluginInfo jobPluginInfo, Plugin<T> plugin, List<T> objects) {
         if (!objects.isEmpty()) {
           if (objects.get(0) instanceof AIP) {
-            for (T object : objects) {
-              processAIP(model, index, report, jobPluginInfo, cachedJob, (AIP) object);
-            }
+            processAIPs(model, index, report, jobPluginInfo, cachedJob, (List<AIP>) objects);
           } else if (objects.get(0) instanceof File) {
             for (T object : objects) {
               processFile(index, model, report, jobPluginInfo, cachedJob, (File) object);
@@ -144,64 +149,118 @@ public class MovePlugin<T extends IsRODAObject> extends AbstractPlugin<T> {
     }, index, model, storage, liteList);
   }
 
-  private void processAIP(ModelService model, IndexService index, Report report, JobPluginInfo jobPluginInfo, Job job,
-    AIP aip) {
-    PluginState state = PluginState.SUCCESS;
-
-    if (!aip.getId().equals(destinationId)) {
-      LOGGER.debug("Moving AIP {} under {}", aip.getId(), destinationId);
+  /**
+   * Moves all the AIPs of a block at once: only their own metadata files are
+   * rewritten and their subtrees are relocated in the index in a single pass.
+   * The report item of each AIP tells how many sublevels were moved with it.
+   */
+  private void processAIPs(ModelService model, IndexService index, Report report, JobPluginInfo jobPluginInfo,
+    Job job, List<AIP> aips) {
+    Map<String, Report> reportItems = new LinkedHashMap<>();
+    for (AIP aip : aips) {
+      Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
+      reportItems.put(aip.getId(), reportItem.setPluginState(PluginState.SUCCESS));
+    }
 
+    List<String> destinationAncestors = Collections.emptyList();
+    if (destinationId != null) {
       try {
-        IndexResult<IndexedAIP> result = new IndexResult<>();
-
-        if (destinationId != null) {
-          Filter filter = new Filter();
-          filter.add(new SimpleFilterParameter(RodaConstants.INDEX_UUID, destinationId));
-          filter.add(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, aip.getId()));
-          result = index.find(IndexedAIP.class, filter, Sorter.NONE, new Sublist(0, 1),
-            Arrays.asList(RodaConstants.INDEX_UUID));
+        IndexedAIP destination = index.retrieve(IndexedAIP.class, destinationId,
+          Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_ANCESTORS));
+        if (destination.getAncestors() != null) {
+          destinationAncestors = destination.getAncestors();
+        }
+      } catch (NotFoundException e) {
+        LOGGER.debug("Moving AIPs under {}, which is not indexed", destinationId);
+      } catch (GenericException e) {
+        for (Report reportItem : reportItems.values()) {
+          reportItem.setPluginState(PluginState.FAILURE).addPluginDetails("Could not move AIP: " + e.getMessage());
         }
+      }
+    }
 
-        if (destinationId == null || result.getResults().isEmpty()) {
-          model.moveAIP(aip.getId(), destinationId, job.getUsername());
+    List<String> toMove = new ArrayList<>();
+    for (Entry<String, Report> entry : reportItems.entrySet()) {
+      String aipId = entry.getKey();
+      Report reportItem = entry.getValue();
+      if (reportItem.getPluginState() == PluginState.SUCCESS && !aipId.equals(destinationId)) {
+        if (destinationAncestors.contains(aipId)) {
+          reportItem.setPluginState(PluginState.FAILURE)
+            .addPluginDetails("Could not move AIP because the destination is a sublevel");
         } else {
-          state = PluginState.FAILURE;
-          Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
-          reportItem.addPluginDetails("Could not move AIP because the destination is a sublevel").setPluginState(state);
-          report.addReport(reportItem);
-          PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+          toMove.add(aipId);
         }
-      } catch (GenericException | NotFoundException | RequestNotValidException | AuthorizationDeniedException e) {
-        state = PluginState.FAILURE;
-        Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class, AIPState.ACTIVE);
-        reportItem.addPluginDetails("Could not move AIP: " + e.getMessage()).setPluginState(state);
-        report.addReport(reportItem);
-        PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
       }
     }
 
-    String outcomeText = "";
-
-    try {
-      IndexedAIP item = index.retrieve(IndexedAIP.class, aip.getId(),
-        Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_TITLE));
+    Map<String, IndexedAIP> indexedAIPs = retrieveIndexedAIPs(index, toMove);
+    Set<String> moved = new HashSet<>();
+    if (!toMove.isEmpty()) {
+      LOGGER.debug("Moving {} AIPs under {}", toMove.size(), destinationId);
+      try {
+        model.moveAIPs(toMove, destinationId, job.getUsername()).forEach(aip -> moved.add(aip.getId()));
+      } catch (GenericException | RequestNotValidException | AuthorizationDeniedException e) {
+        LOGGER.error("Could not move AIPs under {}", destinationId, e);
+        for (String aipId : toMove) {
+          reportItems.get(aipId).setPluginState(PluginState.FAILURE)
+            .addPluginDetails("Could not move AIP: " + e.getMessage());
+        }
+      }
+    }
 
-      if (state.equals(PluginState.SUCCESS)) {
-        outcomeText = PluginHelper.createOutcomeTextForAIP(item, "has been manually moved");
-      } else {
-        outcomeText = PluginHelper.createOutcomeTextForAIP(item, "has not been manually moved");
+    long movedSublevels = 0;
+    for (String aipId : toMove) {
+      Report reportItem = reportItems.get(aipId);
+      if (moved.contains(aipId)) {
+        IndexedAIP indexedAIP = indexedAIPs.get(aipId);
+        long sublevels = indexedAIP != null && indexedAIP.getSubtreeNumberOfAIPs() != null
+          ? indexedAIP.getSubtreeNumberOfAIPs()
+          : 0;
+        movedSublevels += sublevels;
+        reportItem.addPluginDetails("AIP moved along with " + sublevels + " sublevels");
+      } else if (reportItem.getPluginState() == PluginState.SUCCESS) {
+        reportItem.setPluginState(PluginState.FAILURE).addPluginDetails("Could not move AIP");
       }
-    } catch (NotFoundException | GenericException e1) {
-      if (state.equals(PluginState.SUCCESS)) {
-        outcomeText = "Archival Information Package [id: " + aip.getId() + "] has been manually moved";
-      } else {
-        outcomeText = "Archival Information Package [id: " + aip.getId() + "] has not been manually moved";
+    }
+    LOGGER.info("Moved {} AIPs and {} sublevels under {}", moved.size(), movedSublevels, destinationId);
+
+    for (Entry<String, Report> entry : reportItems.entrySet()) {
+      String aipId = entry.getKey();
+      Report reportItem = entry.getValue();
+      report.addReport(reportItem);
+      PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+
+      PluginState state = reportItem.getPluginState();
+      jobPluginInfo.incrementObjectsProcessed(state);
+      model.createUpdateAIPEvent(aipId, null, null, null, PreservationEventType.UPDATE, EVENT_DESCRIPTION, state,
+        getOutcomeText(aipId, indexedAIPs.get(aipId), state), details, job.getUsername(), true);
+    }
+  }
+
+  private Map<String, IndexedAIP> retrieveIndexedAIPs(IndexService index, List<String> aipIds) {
+    Map<String, IndexedAIP> indexedAIPs = new HashMap<>();
+    List<String> fields = Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_TITLE,
+      RodaConstants.AIP_SUBTREE_NUMBER_OF_AIPS);
+    for (List<String> ids : Lists.partition(aipIds, QUERY_BATCH_SIZE)) {
+      Filter filter = new Filter(new OneOfManyFilterParameter(RodaConstants.INDEX_UUID, ids));
+      try (IterableIndexResult<IndexedAIP> result = index.findAll(IndexedAIP.class, filter, false, fields)) {
+        result.forEach(aip -> indexedAIPs.put(aip.getId(), aip));
+      } catch (GenericException | RequestNotValidException | IOException e) {
+        LOGGER.warn("Could not retrieve the AIPs being moved from the index", e);
       }
     }
+    return indexedAIPs;
+  }
 
-    jobPluginInfo.incrementObjectsProcessed(state);
-    model.createUpdateAIPEvent(aip.getId(), null, null, null, PreservationEventType.UPDATE, EVENT_DESCRIPTION, state,
-      outcomeText, details, job.getUsername(), true);
+  private static String getOutcomeText(String aipId, IndexedAIP item, PluginState state) {
+    if (item != null) {
+      return PluginHelper.createOutcomeTextForAIP(item,
+        state.equals(PluginState.SUCCESS) ? "has been manually moved" : "has not been manually moved");
+    } else if (state.equals(PluginState.SUCCESS)) {
+      return "Archival Information Package [id: " + aipId + "] has been manually moved";
+    } else {
+      return "Archival Information Package [id: " + aipId + "] has not been manually moved";
+    }
   }
 
   private void processFile(IndexService index, ModelService model, Report report, JobPluginInfo jobPluginInfo, Job job,
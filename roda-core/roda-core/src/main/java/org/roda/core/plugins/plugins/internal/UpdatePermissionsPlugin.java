@@ -7,6 +7,7 @@
  */
 package org.roda.core.plugins.plugins.internal;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -49,6 +50,8 @@ import org.roda.core.plugins.plugins.PluginHelper;
 import org.roda.core.storage.StorageService;
 
 public class UpdatePermissionsPlugin<T extends IsRODAObject> extends AbstractPlugin<T> {
+  private static final int SUBLEVELS_BATCH_SIZE = 1000;
+
   private Permissions permissions;
   private String details = null;
   private String eventDescription = null;
@@ -158,17 +161,12 @@ public class UpdatePermissionsPlugin<T extends IsRODAObject> extends AbstractPlu
       model.updateAIPPermissions(aip, job.getUsername());
 
       if (recursive) {
-        Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, aip.getId()));
-        IterableIndexResult<IndexedAIP> childs = index.findAll(IndexedAIP.class, filter,
-          Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_ID));
-
-        for (IndexedAIP child : childs) {
-          model.updateAIPPermissions(child.getId(), permissions, job.getUsername());
-        }
+        updateSublevelsPermissions(model, index, job, aip);
       }
 
       outcome = "AIP " + aip.getId() + " permissions were updated and all sublevels too";
-    } catch (GenericException | NotFoundException | RequestNotValidException | AuthorizationDeniedException e) {
+    } catch (GenericException | NotFoundException | RequestNotValidException | AuthorizationDeniedException
+      | IOException e) {
       state = PluginState.FAILURE;
       reportItem.addPluginDetails("Could not update AIP permissions: " + e.getMessage());
       outcome = "AIP " + aip.getId() + " or some of its child permissions were not successfully updated: "
@@ -186,6 +184,36 @@ public class UpdatePermissionsPlugin<T extends IsRODAObject> extends AbstractPlu
     }
   }
 
+  /**
+   * Updates the permissions of all the sublevels of an AIP, a batch of
+   * {@link #SUBLEVELS_BATCH_SIZE} AIPs at a time.
+   */
+  private void updateSublevelsPermissions(ModelService model, IndexService index, Job job, AIP aip)
+    throws GenericException, RequestNotValidException, AuthorizationDeniedException, IOException {
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, aip.getId()));
+    List<String> sublevels = new ArrayList<>();
+    int failed = 0;
+
+    try (IterableIndexResult<IndexedAIP> childs = index.findAll(IndexedAIP.class, filter, false,
+      Arrays.asList(RodaConstants.INDEX_UUID))) {
+      for (IndexedAIP child : childs) {
+        sublevels.add(child.getId());
+        if (sublevels.size() >= SUBLEVELS_BATCH_SIZE) {
+          failed += sublevels.size() - model.updateAIPsPermissions(sublevels, permissions, job.getUsername()).size();
+          sublevels.clear();
+        }
+      }
+    }
+
+    if (!sublevels.isEmpty()) {
+      failed += sublevels.size() - model.updateAIPsPermissions(sublevels, permissions, job.getUsername()).size();
+    }
+
+    if (failed > 0) {
+      throw new GenericException("Could not update the permissions of " + failed + " sublevel AIPs");
+    }
+  }
+
   private void processDIP(ModelService model, Report report, JobPluginInfo jobPluginInfo, Job job, DIP dip) {
     PluginState state = PluginState.SUCCESS;
     Report reportItem = PluginHelper.initPluginReportItem(this, dip.getId(), DIP.class);
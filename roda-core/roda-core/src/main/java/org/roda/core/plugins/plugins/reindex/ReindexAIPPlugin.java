@@ -8,22 +8,41 @@
 package org.roda.core.plugins.plugins.reindex;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.InvalidParameterException;
+import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.index.filter.Filter;
 import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
+import org.roda.core.data.v2.index.select.SelectedItemsAll;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.IndexedRepresentation;
 import org.roda.core.data.v2.ip.metadata.IndexedPreservationEvent;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.PluginParameter;
+import org.roda.core.data.v2.jobs.PluginParameter.PluginParameterType;
+import org.roda.core.data.v2.jobs.Report;
 import org.roda.core.index.IndexService;
+import org.roda.core.model.ModelService;
 import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.PluginException;
+import org.roda.core.plugins.plugins.PluginHelper;
+import org.roda.core.storage.StorageService;
 
 public class ReindexAIPPlugin extends ReindexRodaEntityPlugin<AIP> {
+  private static final PluginParameter ONLY_INCONSISTENT_PARAMETER = new PluginParameter(
+    RodaConstants.PLUGIN_PARAMS_ONLY_INCONSISTENT, "Only inconsistent AIPs", PluginParameterType.BOOLEAN, "false",
+    false, false, "Only reindex the AIPs whose index differs from storage (compared using the AIP metadata and its "
+      + "representations).");
+
+  private boolean onlyInconsistent = false;
 
   @Override
   public String getName() {
@@ -45,6 +64,51 @@ public class ReindexAIPPlugin extends ReindexRodaEntityPlugin<AIP> {
     return Arrays.asList(AIP.class);
   }
 
+  @Override
+  public List<PluginParameter> getParameters() {
+    List<PluginParameter> parameters = super.getParameters();
+    parameters.add(ONLY_INCONSISTENT_PARAMETER);
+    return parameters;
+  }
+
+  @Override
+  public void setParameterValues(Map<String, String> parameters) throws InvalidParameterException {
+    super.setParameterValues(parameters);
+    if (parameters != null && parameters.containsKey(RodaConstants.PLUGIN_PARAMS_ONLY_INCONSISTENT)) {
+      onlyInconsistent = Boolean.parseBoolean(parameters.get(RodaConstants.PLUGIN_PARAMS_ONLY_INCONSISTENT));
+    }
+  }
+
+  @Override
+  protected boolean isReindexNeeded(IndexService index, AIP aip)
+    throws GenericException, RequestNotValidException, AuthorizationDeniedException, NotFoundException {
+    if (!onlyInconsistent) {
+      return true;
+    }
+
+    boolean reindexNeeded = !index.isAIPIndexConsistent(aip, false);
+    if (reindexNeeded) {
+      // reindexing does not remove documents of files that no longer exist
+      clearSpecificIndexes(index, Collections.singletonList(aip.getId()));
+    }
+    return reindexNeeded;
+  }
+
+  @Override
+  public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
+    try {
+      // AIPs may have been indexed before their ancestors
+      Job job = PluginHelper.getJob(this, index);
+      if (job.getSourceObjects() instanceof SelectedItemsAll) {
+        index.refreshAIPSubtreeStatistics();
+      }
+    } catch (GenericException | NotFoundException | RequestNotValidException | AuthorizationDeniedException e) {
+      throw new PluginException("Error refreshing AIP subtree statistics", e);
+    }
+
+    return super.afterAllExecute(index, model, storage);
+  }
+
   @Override
   public void clearSpecificIndexes(IndexService index, List<String> ids)
     throws GenericException, RequestNotValidException, AuthorizationDeniedException {
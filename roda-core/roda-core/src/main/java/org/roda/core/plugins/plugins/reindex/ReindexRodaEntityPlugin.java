@@ -145,6 +145,14 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
 
       Report reportItem = PluginHelper.initPluginReportItem(this, object.getId(), object.getClass());
       try {
+        if (!isReindexNeeded(index, object)) {
+          jobPluginInfo.incrementObjectsProcessedWithSuccess();
+          reportItem.addPluginDetails("Index is consistent with storage, reindex skipped");
+          pluginReport.addReport(reportItem.setPluginState(PluginState.SUCCESS));
+          PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+          continue;
+        }
+
         ReturnWithExceptions<Void, ModelObserver> exceptions = index.reindex(object);
         List<Exception> exceptionList = exceptions.getExceptions();
         if (exceptionList.isEmpty()) {
@@ -214,6 +222,15 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
     return new Report();
   }
 
+  /**
+   * @return if the object must be reindexed, which is always the case unless
+   *         overridden by plugins that can compare the index with storage.
+   */
+  protected boolean isReindexNeeded(IndexService index, T object)
+    throws GenericException, RequestNotValidException, AuthorizationDeniedException, NotFoundException {
+    return true;
+  }
+
   public abstract void clearSpecificIndexes(IndexService index, List<String> ids)
     throws GenericException, RequestNotValidException, AuthorizationDeniedException;
 
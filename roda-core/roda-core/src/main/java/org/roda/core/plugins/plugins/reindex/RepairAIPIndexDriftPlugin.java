@@ -0,0 +1,197 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.reindex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.PreservationEventType;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.InvalidParameterException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.LiteOptionalWithCause;
+import org.roda.core.data.v2.Void;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.PluginParameter;
+import org.roda.core.data.v2.jobs.PluginParameter.PluginParameterType;
+import org.roda.core.data.v2.jobs.PluginState;
+import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.index.IndexService;
+import org.roda.core.model.ModelService;
+import org.roda.core.plugins.AbstractPlugin;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.PluginException;
+import org.roda.core.plugins.RODAProcessingLogic;
+import org.roda.core.plugins.orchestrate.JobPluginInfo;
+import org.roda.core.plugins.plugins.PluginHelper;
+import org.roda.core.storage.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reindexes only the AIPs whose index differs from storage and removes from the
+ * index the AIPs that no longer exist on storage (see
+ * {@link IndexService#repairAIPIndexDrift(boolean)}), so that it can be run
+ * often instead of rebuilding the whole AIP index.
+ */
+public class RepairAIPIndexDriftPlugin extends AbstractPlugin<Void> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RepairAIPIndexDriftPlugin.class);
+
+  private static final PluginParameter DEEP_COMPARISON_PARAMETER = new PluginParameter(
+    RodaConstants.PLUGIN_PARAMS_DEEP_COMPARISON, "Deep comparison", PluginParameterType.BOOLEAN, "false", false, false,
+    "Also compare the data files of every AIP on storage (count, size and listing) with the index, instead of only "
+      + "the AIP metadata and its representations.");
+
+  private boolean deep = false;
+
+  @Override
+  public void init() throws PluginException {
+    // do nothing
+  }
+
+  @Override
+  public void shutdown() {
+    // do nothing
+  }
+
+  @Override
+  public String getName() {
+    return "Repair AIP index";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Compares the AIPs on storage with the index and only reindexes the AIPs that differ, removing from the "
+      + "index the AIPs that no longer exist on storage. This task aims to fix inconsistencies between what is shown "
+      + "in the graphical user interface of the repository and what is actually kept at the storage layer without "
+      + "rebuilding the whole AIP index.";
+  }
+
+  @Override
+  public String getVersionImpl() {
+    return "1.0";
+  }
+
+  @Override
+  public List<PluginParameter> getParameters() {
+    List<PluginParameter> parameters = new ArrayList<>();
+    parameters.add(DEEP_COMPARISON_PARAMETER);
+    return parameters;
+  }
+
+  @Override
+  public void setParameterValues(Map<String, String> parameters) throws InvalidParameterException {
+    super.setParameterValues(parameters);
+    if (getParameterValues().containsKey(RodaConstants.PLUGIN_PARAMS_DEEP_COMPARISON)) {
+      deep = Boolean.parseBoolean(getParameterValues().get(RodaConstants.PLUGIN_PARAMS_DEEP_COMPARISON));
+    }
+  }
+
+  @Override
+  public Report execute(IndexService index, ModelService model, StorageService storage,
+    List<LiteOptionalWithCause> list) throws PluginException {
+    return PluginHelper.processVoids(this, new RODAProcessingLogic<Void>() {
+      @Override
+      public void process(IndexService index, ModelService model, StorageService storage, Report report, Job cachedJob,
+        JobPluginInfo jobPluginInfo, Plugin<Void> plugin) {
+        repairAIPIndexDrift(index, model, report, jobPluginInfo, cachedJob);
+      }
+    }, index, model, storage, 1);
+  }
+
+  private void repairAIPIndexDrift(IndexService index, ModelService model, Report pluginReport,
+    JobPluginInfo jobPluginInfo, Job job) {
+    try {
+      List<String> repairedAIPIds = index.repairAIPIndexDrift(deep);
+      for (String aipId : repairedAIPIds) {
+        Report reportItem = PluginHelper.initPluginReportItem(this, aipId, AIP.class);
+        reportItem.setPluginState(PluginState.SUCCESS).setPluginDetails("The index of the AIP was repaired");
+        pluginReport.addReport(reportItem);
+        PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+      }
+      jobPluginInfo.incrementObjectsProcessedWithSuccess();
+      pluginReport.setPluginState(PluginState.SUCCESS)
+        .setPluginDetails("Repaired the index of " + repairedAIPIds.size() + " AIP(s)");
+    } catch (GenericException | RequestNotValidException | AuthorizationDeniedException e) {
+      LOGGER.error("Error repairing the AIP index", e);
+      jobPluginInfo.incrementObjectsProcessedWithFailure();
+      pluginReport.setPluginState(PluginState.FAILURE)
+        .setPluginDetails("Could not repair the AIP index: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public Report beforeAllExecute(IndexService index, ModelService model, StorageService storage)
+    throws PluginException {
+    return new Report();
+  }
+
+  @Override
+  public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
+    try {
+      // reindexed AIPs may be ancestors of other AIPs
+      index.refreshAIPSubtreeStatistics();
+    } catch (GenericException | NotFoundException | RequestNotValidException | AuthorizationDeniedException e) {
+      throw new PluginException("Error refreshing AIP subtree statistics", e);
+    }
+    return new Report();
+  }
+
+  @Override
+  public Plugin<Void> cloneMe() {
+    return new RepairAIPIndexDriftPlugin();
+  }
+
+  @Override
+  public PluginType getType() {
+    return PluginType.MISC;
+  }
+
+  @Override
+  public boolean areParameterValuesValid() {
+    return true;
+  }
+
+  @Override
+  public PreservationEventType getPreservationEventType() {
+    return PreservationEventType.NONE;
+  }
+
+  @Override
+  public String getPreservationEventDescription() {
+    return "Repair AIP index";
+  }
+
+  @Override
+  public String getPreservationEventSuccessMessage() {
+    return "The AIP index was repaired with success";
+  }
+
+  @Override
+  public String getPreservationEventFailureMessage() {
+    return "An error occured while repairing the AIP index";
+  }
+
+  @Override
+  public List<String> getCategories() {
+    return Arrays.asList(RodaConstants.PLUGIN_CATEGORY_REINDEX);
+  }
+
+  @Override
+  public List<Class<Void>> getObjectClasses() {
+    return Arrays.asList(Void.class);
+  }
+
+}
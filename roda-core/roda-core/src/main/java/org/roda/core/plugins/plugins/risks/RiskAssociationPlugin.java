@@ -9,10 +9,13 @@ package org.roda.core.plugins.plugins.risks;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.PreservationEventType;
@@ -191,25 +194,23 @@ public class RiskAssociationPlugin<T extends IsRODAObject> extends AbstractPlugi
   private Pair<JobPluginInfo, Report> addIncidenceToAIPList(ModelService model, IndexService index, List<AIP> list,
     List<String> risks, JobPluginInfo jobPluginInfo, Report pluginReport, Job job) throws JobException {
 
+    List<List<RiskIncidence>> incidences = new ArrayList<>();
     for (AIP aip : list) {
-      PluginState state = PluginState.SUCCESS;
-
+      List<RiskIncidence> aipIncidences = new ArrayList<>();
       for (String riskId : risks) {
-        try {
-          RiskIncidence incidence = new RiskIncidence();
-          incidence.setDetectedOn(new Date());
-          incidence.setDetectedBy(job.getUsername());
-          incidence.setRiskId(riskId);
-          incidence.setAipId(aip.getId());
-          incidence.setObjectClass(AIP.class.getSimpleName());
-          incidence.setStatus(IncidenceStatus.UNMITIGATED);
-          incidence.setSeverity(SeverityLevel.valueOf(severity));
-          incidence.setDescription(incidenceDescription);
-          model.createRiskIncidence(incidence, false);
-        } catch (GenericException | AlreadyExistsException | NotFoundException | AuthorizationDeniedException e) {
-          state = PluginState.FAILURE;
-        }
+        RiskIncidence incidence = newIncidence(riskId, job);
+        incidence.setAipId(aip.getId());
+        incidence.setObjectClass(AIP.class.getSimpleName());
+        incidence.setDescription(incidenceDescription);
+        aipIncidences.add(incidence);
       }
+      incidences.add(aipIncidences);
+    }
+
+    Set<RiskIncidence> created = createIncidences(model, incidences);
+    for (int i = 0; i < list.size(); i++) {
+      AIP aip = list.get(i);
+      PluginState state = created.containsAll(incidences.get(i)) ? PluginState.SUCCESS : PluginState.FAILURE;
 
       jobPluginInfo.incrementObjectsProcessed(state);
       Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class);
@@ -232,25 +233,23 @@ public class RiskAssociationPlugin<T extends IsRODAObject> extends AbstractPlugi
     List<Representation> list, List<String> risks, JobPluginInfo jobPluginInfo, Report pluginReport, Job job)
     throws JobException {
 
+    List<List<RiskIncidence>> incidences = new ArrayList<>();
     for (Representation representation : list) {
-      PluginState state = PluginState.SUCCESS;
-
+      List<RiskIncidence> representationIncidences = new ArrayList<>();
       for (String riskId : risks) {
-        try {
-          RiskIncidence incidence = new RiskIncidence();
-          incidence.setDetectedOn(new Date());
-          incidence.setDetectedBy(job.getUsername());
-          incidence.setRiskId(riskId);
-          incidence.setAipId(representation.getAipId());
-          incidence.setRepresentationId(representation.getId());
-          incidence.setObjectClass(Representation.class.getSimpleName());
-          incidence.setStatus(IncidenceStatus.UNMITIGATED);
-          incidence.setSeverity(SeverityLevel.valueOf(severity));
-          model.createRiskIncidence(incidence, false);
-        } catch (GenericException | AlreadyExistsException | NotFoundException | AuthorizationDeniedException e) {
-          state = PluginState.FAILURE;
-        }
+        RiskIncidence incidence = newIncidence(riskId, job);
+        incidence.setAipId(representation.getAipId());
+        incidence.setRepresentationId(representation.getId());
+        incidence.setObjectClass(Representation.class.getSimpleName());
+        representationIncidences.add(incidence);
       }
+      incidences.add(representationIncidences);
+    }
+
+    Set<RiskIncidence> created = createIncidences(model, incidences);
+    for (int i = 0; i < list.size(); i++) {
+      Representation representation = list.get(i);
+      PluginState state = created.containsAll(incidences.get(i)) ? PluginState.SUCCESS : PluginState.FAILURE;
 
       jobPluginInfo.incrementObjectsProcessed(state);
       Report reportItem = PluginHelper.initPluginReportItem(this, IdUtils.getRepresentationId(representation),
@@ -274,27 +273,25 @@ public class RiskAssociationPlugin<T extends IsRODAObject> extends AbstractPlugi
   private Pair<JobPluginInfo, Report> addIncidenceToFileList(ModelService model, IndexService index, List<File> list,
     List<String> risks, JobPluginInfo jobPluginInfo, Report pluginReport, Job job) throws JobException {
 
+    List<List<RiskIncidence>> incidences = new ArrayList<>();
     for (File file : list) {
-      PluginState state = PluginState.SUCCESS;
-
+      List<RiskIncidence> fileIncidences = new ArrayList<>();
       for (String riskId : risks) {
-        try {
-          RiskIncidence incidence = new RiskIncidence();
-          incidence.setDetectedOn(new Date());
-          incidence.setDetectedBy(job.getUsername());
-          incidence.setRiskId(riskId);
-          incidence.setAipId(file.getAipId());
-          incidence.setRepresentationId(file.getRepresentationId());
-          incidence.setFilePath(file.getPath());
-          incidence.setFileId(file.getId());
-          incidence.setObjectClass(File.class.getSimpleName());
-          incidence.setStatus(IncidenceStatus.UNMITIGATED);
-          incidence.setSeverity(SeverityLevel.valueOf(severity));
-          model.createRiskIncidence(incidence, false);
-        } catch (GenericException | AlreadyExistsException | NotFoundException | AuthorizationDeniedException e) {
-          state = PluginState.FAILURE;
-        }
+        RiskIncidence incidence = newIncidence(riskId, job);
+        incidence.setAipId(file.getAipId());
+        incidence.setRepresentationId(file.getRepresentationId());
+        incidence.setFilePath(file.getPath());
+        incidence.setFileId(file.getId());
+        incidence.setObjectClass(File.class.getSimpleName());
+        fileIncidences.add(incidence);
       }
+      incidences.add(fileIncidences);
+    }
+
+    Set<RiskIncidence> created = createIncidences(model, incidences);
+    for (int i = 0; i < list.size(); i++) {
+      File file = list.get(i);
+      PluginState state = created.containsAll(incidences.get(i)) ? PluginState.SUCCESS : PluginState.FAILURE;
 
       jobPluginInfo.incrementObjectsProcessed(state);
       Report reportItem = PluginHelper.initPluginReportItem(this, IdUtils.getFileId(file), File.class);
@@ -315,6 +312,36 @@ public class RiskAssociationPlugin<T extends IsRODAObject> extends AbstractPlugi
     return Pair.of(jobPluginInfo, pluginReport);
   }
 
+  private RiskIncidence newIncidence(String riskId, Job job) {
+    RiskIncidence incidence = new RiskIncidence();
+    incidence.setDetectedOn(new Date());
+    incidence.setDetectedBy(job.getUsername());
+    incidence.setRiskId(riskId);
+    incidence.setStatus(IncidenceStatus.UNMITIGATED);
+    incidence.setSeverity(SeverityLevel.valueOf(severity));
+    return incidence;
+  }
+
+  /**
+   * Creates the incidences of all the objects at once, so they are indexed in
+   * batches instead of one request per incidence.
+   * 
+   * @return the incidences that were created.
+   */
+  private Set<RiskIncidence> createIncidences(ModelService model, List<List<RiskIncidence>> incidences) {
+    List<RiskIncidence> allIncidences = new ArrayList<>();
+    incidences.forEach(allIncidences::addAll);
+
+    // incidences have no equals, so they are compared by identity
+    Set<RiskIncidence> created = Collections.newSetFromMap(new IdentityHashMap<>());
+    try {
+      created.addAll(model.createRiskIncidences(allIncidences, false));
+    } catch (GenericException | AuthorizationDeniedException e) {
+      LOGGER.error("Could not create risk incidences", e);
+    }
+    return created;
+  }
+
   @Override
   public PluginType getType() {
     return PluginType.MISC;
@@ -24,9 +24,21 @@ import org.roda.core.storage.ContentPayload;
 public class FSPathContentPayload implements ContentPayload {
 
   private final Path path;
+  private final boolean move;
 
   public FSPathContentPayload(Path path) {
+    this(path, false);
+  }
+
+  /**
+   * @param move
+   *          if the file should be moved, instead of copied, when written to a
+   *          path, which is a rename when both are in the same file system (the
+   *          payload cannot be read after that).
+   */
+  public FSPathContentPayload(Path path, boolean move) {
     this.path = path;
+    this.move = move;
   }
 
   @Override
@@ -36,7 +48,11 @@ public class FSPathContentPayload implements ContentPayload {
 
   @Override
   public void writeToPath(Path outPath) throws IOException {
-    Files.copy(path, outPath, StandardCopyOption.REPLACE_EXISTING);
+    if (move) {
+      Files.move(path, outPath, StandardCopyOption.REPLACE_EXISTING);
+    } else {
+      Files.copy(path, outPath, StandardCopyOption.REPLACE_EXISTING);
+    }
   }
 
   @Override
@@ -15,6 +15,7 @@ import java.nio.file.CopyOption;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -30,6 +31,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.stream.Stream;
@@ -263,6 +265,81 @@ public class FSUtils {
     }
   }
 
+  /**
+   * Recreates a directory in another path, hard linking its files instead of
+   * copying them whenever the target file system allows it (i.e. both paths are
+   * in the same file system and it supports hard links). Otherwise files are
+   * copied.
+   * 
+   * Linked files share their content with the source, so they must not be
+   * changed in place.
+   * 
+   * @param sourcePath
+   *          source directory
+   * @param targetPath
+   *          target directory, which must not exist
+   * @throws AlreadyExistsException
+   * @throws GenericException
+   */
+  public static void linkOrCopy(final Path sourcePath, final Path targetPath)
+    throws AlreadyExistsException, GenericException {
+    if (FSUtils.exists(targetPath)) {
+      throw new AlreadyExistsException("Cannot link because target path already exists: " + targetPath);
+    }
+
+    try {
+      Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
+        private boolean linksSupported = true;
+
+        @Override
+        public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+          Files.createDirectories(targetPath.resolve(sourcePath.relativize(dir)));
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+          Path target = targetPath.resolve(sourcePath.relativize(file));
+          if (linksSupported) {
+            try {
+              Files.createLink(target, file);
+              return FileVisitResult.CONTINUE;
+            } catch (UnsupportedOperationException e) {
+              LOGGER.debug("Cannot link {} to {}, copying files instead", target, file, e);
+              linksSupported = false;
+            } catch (FileSystemException e) {
+              if (!isLinkUnsupported(e)) {
+                throw e;
+              }
+              // target in another device, so no other file can be linked
+              LOGGER.debug("Cannot link {} to {}, copying files instead", target, file, e);
+              linksSupported = false;
+            }
+          }
+          Files.copy(file, target);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      throw new GenericException("Error while linking one directory into another", e);
+    }
+  }
+
+  /**
+   * Hard links cannot be created across devices nor in file systems without
+   * them (e.g. FAT), which is only told apart from other errors (e.g. access
+   * denied, target already exists, no space left) by the reason of the
+   * exception.
+   */
+  private static boolean isLinkUnsupported(FileSystemException e) {
+    if (e.getReason() == null) {
+      return false;
+    }
+    String reason = e.getReason().toLowerCase(Locale.ENGLISH);
+    return reason.contains("cross-device") || reason.contains("different disk drive")
+      || reason.contains("not supported") || reason.contains("not permitted");
+  }
+
   public static void deletePathQuietly(Path path) {
     try {
       deletePath(path);
@@ -42,6 +42,7 @@ import org.roda.core.data.v2.common.ObjectPermissionResult;
 import org.roda.core.data.v2.common.Pair;
 import org.roda.core.data.v2.index.IndexResult;
 import org.roda.core.data.v2.index.IsIndexed;
+import org.roda.core.data.v2.index.facet.FacetFieldResult;
 import org.roda.core.data.v2.index.facet.Facets;
 import org.roda.core.data.v2.index.filter.Filter;
 import org.roda.core.data.v2.index.select.SelectedItems;
@@ -59,6 +60,7 @@ import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.Permissions.PermissionType;
 import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.TransferredResource;
+import org.roda.core.data.v2.ip.TransferredResourceUpload;
 import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
 import org.roda.core.data.v2.ip.metadata.PreservationMetadata.PreservationMetadataType;
 import org.roda.core.data.v2.jobs.Job;
@@ -347,6 +349,56 @@ public class Browser extends RodaWuiController {
     }
   }
 
+  public static <T extends IsIndexed> IndexResult<T> findWithCursor(final Class<T> classToReturn, final Filter filter,
+    final Sorter sorter, final int pageSize, final String cursor, final Facets facets, final User user,
+    final boolean justActive, final List<String> fieldsToReturn)
+    throws GenericException, AuthorizationDeniedException, RequestNotValidException {
+    final ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    // check user permissions
+    controllerAssistant.checkRoles(user, classToReturn);
+
+    LogEntryState state = LogEntryState.SUCCESS;
+
+    try {
+      // delegate
+      return BrowserHelper.findWithCursor(classToReturn, filter, sorter, pageSize, cursor, facets, user, justActive,
+        fieldsToReturn);
+    } catch (RODAException e) {
+      state = LogEntryState.FAILURE;
+      throw e;
+    } finally {
+      // register action
+      controllerAssistant.registerAction(user, state, RodaConstants.CONTROLLER_CLASS_PARAM,
+        classToReturn.getSimpleName(), RodaConstants.CONTROLLER_FILTER_PARAM, filter,
+        RodaConstants.CONTROLLER_SORTER_PARAM, sorter, RodaConstants.CONTROLLER_LIMIT_PARAM, pageSize,
+        RodaConstants.CONTROLLER_CURSOR_PARAM, cursor);
+    }
+  }
+
+  public static FacetFieldResult findDuplicateFileDigests(final Filter filter, final int start, final int limit,
+    final User user, final boolean justActive)
+    throws GenericException, AuthorizationDeniedException, RequestNotValidException {
+    final ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    // check user permissions
+    controllerAssistant.checkRoles(user);
+
+    LogEntryState state = LogEntryState.SUCCESS;
+
+    try {
+      // delegate
+      return BrowserHelper.findDuplicateFileDigests(filter, start, limit, user, justActive);
+    } catch (RODAException e) {
+      state = LogEntryState.FAILURE;
+      throw e;
+    } finally {
+      // register action
+      controllerAssistant.registerAction(user, state, RodaConstants.CONTROLLER_FILTER_PARAM, filter,
+        RodaConstants.CONTROLLER_START_PARAM, start, RodaConstants.CONTROLLER_LIMIT_PARAM, limit);
+    }
+  }
+
   public static <T extends IsIndexed> IterableIndexResult<T> findAll(final Class<T> classToReturn, final Filter filter,
     final User user, final boolean justActive, final List<String> fieldsToReturn)
     throws GenericException, AuthorizationDeniedException, RequestNotValidException {
@@ -1857,6 +1909,118 @@ public class Browser extends RodaWuiController {
 
   }
 
+  public static TransferredResourceUpload createTransferredResourceUpload(User user, String parentUUID,
+    String fileName) throws AuthorizationDeniedException, GenericException, AlreadyExistsException,
+    RequestNotValidException, NotFoundException {
+    final ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    // check user permissions
+    controllerAssistant.checkRoles(user);
+
+    UserUtility.checkTransferredResourceAccess(user, Arrays.asList(parentUUID));
+
+    LogEntryState state = LogEntryState.SUCCESS;
+
+    try {
+      // delegate
+      return BrowserHelper.createTransferredResourceUpload(user, parentUUID, fileName);
+    } catch (RODAException e) {
+      state = LogEntryState.FAILURE;
+      throw e;
+    } finally {
+      // register action
+      controllerAssistant.registerAction(user, state, RodaConstants.CONTROLLER_PARENT_PARAM, parentUUID,
+        RodaConstants.CONTROLLER_FILENAME_PARAM, fileName);
+    }
+  }
+
+  public static TransferredResourceUpload retrieveTransferredResourceUpload(User user, String uploadId)
+    throws AuthorizationDeniedException, GenericException, NotFoundException {
+    final ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    // check user permissions
+    controllerAssistant.checkRoles(user);
+
+    LogEntryState state = LogEntryState.SUCCESS;
+
+    try {
+      // delegate
+      return BrowserHelper.retrieveTransferredResourceUpload(user, uploadId);
+    } catch (RODAException e) {
+      state = LogEntryState.FAILURE;
+      throw e;
+    } finally {
+      // register action
+      controllerAssistant.registerAction(user, state, RodaConstants.CONTROLLER_UPLOAD_ID_PARAM, uploadId);
+    }
+  }
+
+  public static TransferredResourceUpload appendToTransferredResourceUpload(User user, String uploadId, long offset,
+    InputStream inputStream)
+    throws AuthorizationDeniedException, GenericException, RequestNotValidException, NotFoundException {
+    final ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    // check user permissions
+    controllerAssistant.checkRoles(user);
+
+    LogEntryState state = LogEntryState.SUCCESS;
+
+    try {
+      // delegate
+      return BrowserHelper.appendToTransferredResourceUpload(user, uploadId, offset, inputStream);
+    } catch (RODAException e) {
+      state = LogEntryState.FAILURE;
+      throw e;
+    } finally {
+      // register action
+      controllerAssistant.registerAction(user, state, RodaConstants.CONTROLLER_UPLOAD_ID_PARAM, uploadId,
+        RodaConstants.CONTROLLER_OFFSET_PARAM, offset);
+    }
+  }
+
+  public static TransferredResourceUpload completeTransferredResourceUpload(User user, String uploadId,
+    Map<String, String> expectedChecksums, boolean forceCommit) throws AuthorizationDeniedException,
+    GenericException, AlreadyExistsException, RequestNotValidException, NotFoundException {
+    final ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    // check user permissions
+    controllerAssistant.checkRoles(user);
+
+    LogEntryState state = LogEntryState.SUCCESS;
+
+    try {
+      // delegate
+      return BrowserHelper.completeTransferredResourceUpload(user, uploadId, expectedChecksums, forceCommit);
+    } catch (RODAException e) {
+      state = LogEntryState.FAILURE;
+      throw e;
+    } finally {
+      // register action
+      controllerAssistant.registerAction(user, state, RodaConstants.CONTROLLER_UPLOAD_ID_PARAM, uploadId);
+    }
+  }
+
+  public static void deleteTransferredResourceUpload(User user, String uploadId)
+    throws AuthorizationDeniedException, GenericException, NotFoundException {
+    final ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    // check user permissions
+    controllerAssistant.checkRoles(user);
+
+    LogEntryState state = LogEntryState.SUCCESS;
+
+    try {
+      // delegate
+      BrowserHelper.deleteTransferredResourceUpload(user, uploadId);
+    } catch (RODAException e) {
+      state = LogEntryState.FAILURE;
+      throw e;
+    } finally {
+      // register action
+      controllerAssistant.registerAction(user, state, RodaConstants.CONTROLLER_UPLOAD_ID_PARAM, uploadId);
+    }
+  }
+
   public static ConsumesOutputStream retrieveClassificationPlan(User user, String filename)
     throws GenericException, RequestNotValidException, NotFoundException, AuthorizationDeniedException {
     final ControllerAssistant controllerAssistant = new ControllerAssistant() {};
@@ -102,6 +102,7 @@ import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.StoragePath;
 import org.roda.core.data.v2.ip.TransferredResource;
+import org.roda.core.data.v2.ip.TransferredResourceUpload;
 import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
 import org.roda.core.data.v2.ip.metadata.DescriptiveMetadataList;
 import org.roda.core.data.v2.ip.metadata.IndexedPreservationAgent;
@@ -730,6 +731,18 @@ public class BrowserHelper {
       fieldsToReturn);
   }
 
+  protected static FacetFieldResult findDuplicateFileDigests(Filter filter, int start, int limit, User user,
+    boolean justActive) throws GenericException, RequestNotValidException {
+    return RodaCoreFactory.getIndexService().findDuplicateFileDigests(filter, start, limit, user, justActive);
+  }
+
+  protected static <T extends IsIndexed> IndexResult<T> findWithCursor(Class<T> returnClass, Filter filter,
+    Sorter sorter, int pageSize, String cursor, Facets facets, User user, boolean justActive,
+    List<String> fieldsToReturn) throws GenericException, RequestNotValidException {
+    return RodaCoreFactory.getIndexService().findWithCursor(returnClass, filter, sorter, pageSize, cursor, facets,
+      user, justActive, fieldsToReturn);
+  }
+
   protected static <T extends IsIndexed> IterableIndexResult<T> findAll(final Class<T> returnClass, final Filter filter,
     final User user, final boolean justActive, List<String> fieldsToReturn)
     throws GenericException, RequestNotValidException {
@@ -1878,6 +1891,43 @@ public class BrowserHelper {
     return transferredResource;
   }
 
+  public static TransferredResourceUpload createTransferredResourceUpload(User user, String parentUUID,
+    String fileName) throws GenericException, AlreadyExistsException, RequestNotValidException, NotFoundException,
+    AuthorizationDeniedException {
+    LOGGER.debug("createTransferredResourceUpload(path={}, name={})", parentUUID, fileName);
+    return RodaCoreFactory.getTransferredResourceUploads().createUpload(user.getName(), parentUUID, fileName);
+  }
+
+  public static TransferredResourceUpload retrieveTransferredResourceUpload(User user, String uploadId)
+    throws GenericException, NotFoundException, AuthorizationDeniedException {
+    return RodaCoreFactory.getTransferredResourceUploads().retrieveUpload(user.getName(), uploadId);
+  }
+
+  public static TransferredResourceUpload appendToTransferredResourceUpload(User user, String uploadId, long offset,
+    InputStream inputStream)
+    throws GenericException, RequestNotValidException, NotFoundException, AuthorizationDeniedException {
+    return RodaCoreFactory.getTransferredResourceUploads().appendToUpload(user.getName(), uploadId, offset,
+      inputStream);
+  }
+
+  public static TransferredResourceUpload completeTransferredResourceUpload(User user, String uploadId,
+    Map<String, String> expectedChecksums, boolean forceCommit) throws GenericException, AlreadyExistsException,
+    RequestNotValidException, NotFoundException, AuthorizationDeniedException {
+    TransferredResourceUpload upload = RodaCoreFactory.getTransferredResourceUploads().completeUpload(user.getName(),
+      uploadId, expectedChecksums);
+
+    if (forceCommit) {
+      RodaCoreFactory.getTransferredResourcesScanner().commit();
+    }
+
+    return upload;
+  }
+
+  public static void deleteTransferredResourceUpload(User user, String uploadId)
+    throws GenericException, NotFoundException, AuthorizationDeniedException {
+    RodaCoreFactory.getTransferredResourceUploads().deleteUpload(user.getName(), uploadId);
+  }
+
   protected static <T extends IsIndexed> void delete(User user, Class<T> returnClass, SelectedItems<T> ids)
     throws GenericException, RequestNotValidException, AuthorizationDeniedException {
     List<String> idList = consolidate(user, returnClass, ids);
@@ -33,13 +33,16 @@ import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
 import org.glassfish.jersey.server.JSONP;
 import org.roda.core.common.EntityResponse;
+import org.roda.core.common.PremisV3Utils;
 import org.roda.core.common.StreamResponse;
 import org.roda.core.common.UserUtility;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.common.Pair;
 import org.roda.core.data.v2.index.IndexResult;
+import org.roda.core.data.v2.index.facet.FacetFieldResult;
 import org.roda.core.data.v2.index.filter.Filter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.index.sort.Sorter;
@@ -85,6 +88,7 @@ public class FilesResource {
     @ApiParam(value = "The ID of the Representation to retrieve files from (must be used together with AIP id)", defaultValue = "") @QueryParam(RodaConstants.API_PATH_PARAM_REPRESENTATION_ID) String representationId,
     @ApiParam(value = "Index of the first element to return", defaultValue = "0") @QueryParam(RodaConstants.API_QUERY_KEY_START) String start,
     @ApiParam(value = "Maximum number of elements to return", defaultValue = RodaConstants.DEFAULT_PAGINATION_STRING_VALUE) @QueryParam(RodaConstants.API_QUERY_KEY_LIMIT) String limit,
+    @ApiParam(value = "Cursor to continue from (use * for the first page); when present, start is ignored and the next cursor is returned in the X-Next-Cursor header") @QueryParam(RodaConstants.API_QUERY_KEY_CURSOR) String cursor,
     @ApiParam(value = "Choose format in which to get the file", allowableValues = RodaConstants.API_LIST_MEDIA_TYPES, defaultValue = RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_JSON) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat,
     @ApiParam(value = "JSONP callback name", required = false, allowMultiple = false, defaultValue = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK) @QueryParam(RodaConstants.API_QUERY_KEY_JSONP_CALLBACK) String jsonpCallbackName)
     throws RODAException {
@@ -103,6 +107,56 @@ public class FilesResource {
         new SimpleFilterParameter(RodaConstants.FILE_REPRESENTATION_ID, representationId));
     }
 
+    if (StringUtils.isNotBlank(cursor)) {
+      IndexResult<IndexedFile> result = Browser.findWithCursor(IndexedFile.class, filter, Sorter.NONE,
+        pagingParams.getSecond(), cursor, null, user, justActive, new ArrayList<>());
+      return ApiUtils.okResponseWithNextCursor(ApiUtils.indexedResultToRODAObjectList(IndexedFile.class, result),
+        mediaType, result.getNextCursor());
+    }
+
+    IndexResult<IndexedFile> result = Browser.find(IndexedFile.class, filter, Sorter.NONE,
+      new Sublist(pagingParams.getFirst(), pagingParams.getSecond()), null, user, justActive, new ArrayList<>());
+    return Response.ok(ApiUtils.indexedResultToRODAObjectList(IndexedFile.class, result), mediaType).build();
+  }
+
+  @GET
+  @Path("/" + RodaConstants.API_DUPLICATES)
+  @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, ExtraMediaType.APPLICATION_JAVASCRIPT})
+  @JSONP(callback = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK, queryParam = RodaConstants.API_QUERY_KEY_JSONP_CALLBACK)
+  @ApiOperation(value = "List duplicate files", notes = "Without a digest, gets the fixity digests shared by more than one file with their number of files, most shared first. With a digest, gets the files that have it.", response = FacetFieldResult.class)
+  @ApiResponses(value = {@ApiResponse(code = 200, message = "OK", response = FacetFieldResult.class),
+    @ApiResponse(code = 404, message = "Not found", response = ApiResponseMessage.class)})
+
+  public Response listDuplicateFiles(
+    @ApiParam(value = "The digest, as <algorithm>:<digest>, of the files to list", defaultValue = "") @QueryParam(RodaConstants.API_QUERY_PARAM_DIGEST) String digest,
+    @ApiParam(value = "Index of the first digest or file to return", defaultValue = "0") @QueryParam(RodaConstants.API_QUERY_KEY_START) String start,
+    @ApiParam(value = "Maximum number of digests or files to return", defaultValue = RodaConstants.DEFAULT_PAGINATION_STRING_VALUE) @QueryParam(RodaConstants.API_QUERY_KEY_LIMIT) String limit,
+    @ApiParam(value = "Choose format in which to get the result", allowableValues = RodaConstants.API_LIST_MEDIA_TYPES, defaultValue = RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_JSON) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat,
+    @ApiParam(value = "JSONP callback name", required = false, allowMultiple = false, defaultValue = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK) @QueryParam(RodaConstants.API_QUERY_KEY_JSONP_CALLBACK) String jsonpCallbackName)
+    throws RODAException {
+    String mediaType = ApiUtils.getMediaType(acceptFormat, request);
+
+    // get user
+    User user = UserUtility.getApiUser(request);
+
+    // delegate action to controller
+    boolean justActive = false;
+    Pair<Integer, Integer> pagingParams = ApiUtils.processPagingParams(start, limit);
+
+    if (StringUtils.isBlank(digest)) {
+      FacetFieldResult digests = Browser.findDuplicateFileDigests(Filter.ALL, pagingParams.getFirst(),
+        pagingParams.getSecond(), user, justActive);
+      return Response.ok(digests, mediaType).build();
+    }
+
+    // digests are indexed with the algorithm in upper case and the digest in
+    // lower case
+    String[] algorithmAndDigest = digest.split(":", 2);
+    if (algorithmAndDigest.length != 2) {
+      throw new RequestNotValidException("Digest must be given as <algorithm>:<digest>, not " + digest);
+    }
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_DIGEST,
+      PremisV3Utils.getDigestIndexValue(algorithmAndDigest[0].trim(), algorithmAndDigest[1].trim())));
     IndexResult<IndexedFile> result = Browser.find(IndexedFile.class, filter, Sorter.NONE,
       new Sublist(pagingParams.getFirst(), pagingParams.getSecond()), null, user, justActive, new ArrayList<>());
     return Response.ok(ApiUtils.indexedResultToRODAObjectList(IndexedFile.class, result), mediaType).build();
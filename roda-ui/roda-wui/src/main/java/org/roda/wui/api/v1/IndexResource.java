@@ -155,6 +155,7 @@ public class IndexResource {
     @ApiParam(value = "Sort parameters", example = "\"formatPronom\", \"uuid desc\"") @QueryParam(RodaConstants.API_QUERY_KEY_SORT) final List<String> sortParameters,
     @ApiParam(value = "Index of the first element to return (0-based index)", defaultValue = "0") @QueryParam(RodaConstants.API_QUERY_KEY_START) final Integer start,
     @ApiParam(value = "Maximum number of elements to return", defaultValue = "100") @QueryParam(RodaConstants.API_QUERY_KEY_LIMIT) final Integer limit,
+    @ApiParam(value = "Cursor to continue from (use * for the first page); when present, start is ignored", example = "*") @QueryParam(RodaConstants.API_QUERY_KEY_CURSOR) final String cursor,
     @ApiParam(value = "Facets to return", example = "formatPronom") @QueryParam(RodaConstants.API_QUERY_KEY_FACET) final List<String> facetAttributes,
     @ApiParam(value = "Facet limit", example = "100", defaultValue = "100") @QueryParam(RodaConstants.API_QUERY_KEY_FACET_LIMIT) final Integer facetLimit,
     @ApiParam(value = "Language", example = "en", defaultValue = "en") @QueryParam(RodaConstants.API_QUERY_KEY_LANG) final String localeString,
@@ -200,6 +201,7 @@ public class IndexResource {
     }
 
     findRequest.sublist = new Sublist(start == null ? DEFAULT_START : start, limit == null ? DEFAULT_LIMIT : limit);
+    findRequest.cursor = cursor;
 
     final int paramFacetLimit = facetLimit == null ? DEFAULT_FACET_LIMIT : facetLimit;
 
@@ -217,8 +219,7 @@ public class IndexResource {
     } else {
       final Class<T> classToReturn = getClass(findRequest.classToReturn);
 
-      IndexResult<T> indexResult = Browser.find(classToReturn, findRequest.filter, findRequest.sorter,
-        findRequest.sublist, findRequest.facets, user, findRequest.onlyActive, new ArrayList<>());
+      IndexResult<T> indexResult = find(classToReturn, findRequest, user, new ArrayList<>());
       indexResult = I18nUtility.translate(indexResult, classToReturn, localeString);
 
       response = Response.ok(indexResult, mediaType).build();
@@ -227,6 +228,22 @@ public class IndexResource {
     return response;
   }
 
+  /**
+   * Find indexed resources, using a cursor instead of an offset if one was
+   * provided.
+   */
+  private <T extends IsIndexed> IndexResult<T> find(final Class<T> classToReturn, final FindRequest findRequest,
+    final User user, final List<String> fieldsToReturn) throws RODAException {
+    if (StringUtils.isNotBlank(findRequest.cursor)) {
+      return Browser.findWithCursor(classToReturn, findRequest.filter, findRequest.sorter,
+        findRequest.sublist.getMaximumElementCount(), findRequest.cursor, findRequest.facets, user,
+        findRequest.onlyActive, fieldsToReturn);
+    } else {
+      return Browser.find(classToReturn, findRequest.filter, findRequest.sorter, findRequest.sublist,
+        findRequest.facets, user, findRequest.onlyActive, fieldsToReturn);
+    }
+  }
+
   /**
    * Find indexed resources.
    *
@@ -252,8 +269,7 @@ public class IndexResource {
     if (ExtraMediaType.TEXT_CSV.equals(mediaType)) {
       return csvResponse(findRequest, user, null);
     } else {
-      final IndexResult<T> result = Browser.find(getClass(findRequest.classToReturn), findRequest.filter,
-        findRequest.sorter, findRequest.sublist, findRequest.facets, user, findRequest.onlyActive,
+      final IndexResult<T> result = find(getClass(findRequest.classToReturn), findRequest, user,
         findRequest.fieldsToReturn);
       return Response.ok(result, mediaType).build();
     }
@@ -11,10 +11,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -45,6 +48,7 @@ import org.roda.core.data.v2.index.filter.Filter;
 import org.roda.core.data.v2.index.select.SelectedItemsList;
 import org.roda.core.data.v2.index.sort.Sorter;
 import org.roda.core.data.v2.index.sublist.Sublist;
+import org.roda.core.data.v2.ip.TransferredResourceUpload;
 import org.roda.core.data.v2.ip.TransferredResources;
 import org.roda.core.data.v2.user.User;
 import org.roda.wui.api.controllers.Browser;
@@ -177,6 +181,152 @@ public class TransferredResource {
     }
   }
 
+  @POST
+  @Path("/uploads")
+  @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, ExtraMediaType.APPLICATION_JAVASCRIPT})
+  @JSONP(callback = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK, queryParam = RodaConstants.API_QUERY_KEY_JSONP_CALLBACK)
+  @ApiOperation(value = "Create upload", notes = "Start a resumable upload of a file, to be sent in chunks.", response = TransferredResourceUpload.class)
+  @ApiResponses(value = {@ApiResponse(code = 200, message = "OK", response = TransferredResourceUpload.class),
+    @ApiResponse(code = 409, message = "Already exists", response = ApiResponseMessage.class)})
+  public Response createUpload(
+    @ApiParam(value = "The id of the parent") @QueryParam(RodaConstants.TRANSFERRED_RESOURCE_PARENT_UUID) String parentUUID,
+    @ApiParam(value = "The name of the file to create", required = true) @QueryParam(RodaConstants.TRANSFERRED_RESOURCE_NAME) String name,
+    @ApiParam(value = "Locale") @QueryParam(RodaConstants.LOCALE) String localeString,
+    @ApiParam(value = "Choose format in which to get the upload", allowableValues = RodaConstants.API_POST_PUT_MEDIA_TYPES) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat,
+    @ApiParam(value = "JSONP callback name", required = false, allowMultiple = false, defaultValue = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK) @QueryParam(RodaConstants.API_QUERY_KEY_JSONP_CALLBACK) String jsonpCallbackName)
+    throws RODAException {
+    String mediaType = ApiUtils.getMediaType(acceptFormat, request);
+
+    // get user
+    User user = UserUtility.getApiUser(request);
+
+    // delegate action to controller
+    try {
+      TransferredResourceUpload upload = Browser.createTransferredResourceUpload(user, parentUUID, name);
+      return Response.ok(upload, mediaType).build();
+    } catch (AlreadyExistsException e) {
+      return Response.status(Status.CONFLICT).entity(new ApiResponseMessage(ApiResponseMessage.ERROR,
+        I18nUtility.getMessage("ui.upload.error.alreadyexists", e.getMessage(), localeString))).build();
+    }
+  }
+
+  @GET
+  @Path("/uploads/{" + RodaConstants.API_PATH_PARAM_TRANSFERRED_RESOURCE_UPLOAD_ID + "}")
+  @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, ExtraMediaType.APPLICATION_JAVASCRIPT})
+  @JSONP(callback = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK, queryParam = RodaConstants.API_QUERY_KEY_JSONP_CALLBACK)
+  @ApiOperation(value = "Get upload", notes = "Get an upload, with the offset where the next chunk must start.", response = TransferredResourceUpload.class)
+  @ApiResponses(value = {@ApiResponse(code = 200, message = "OK", response = TransferredResourceUpload.class),
+    @ApiResponse(code = 404, message = "Not found", response = ApiResponseMessage.class)})
+  public Response getUpload(
+    @ApiParam(value = "The id of the upload", required = true) @PathParam(RodaConstants.API_PATH_PARAM_TRANSFERRED_RESOURCE_UPLOAD_ID) String uploadId,
+    @ApiParam(value = "Choose format in which to get the upload", allowableValues = RodaConstants.API_POST_PUT_MEDIA_TYPES) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat,
+    @ApiParam(value = "JSONP callback name", required = false, allowMultiple = false, defaultValue = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK) @QueryParam(RodaConstants.API_QUERY_KEY_JSONP_CALLBACK) String jsonpCallbackName)
+    throws RODAException {
+    String mediaType = ApiUtils.getMediaType(acceptFormat, request);
+
+    // get user
+    User user = UserUtility.getApiUser(request);
+
+    // delegate action to controller
+    TransferredResourceUpload upload = Browser.retrieveTransferredResourceUpload(user, uploadId);
+    return Response.ok(upload, mediaType).build();
+  }
+
+  @PUT
+  @Path("/uploads/{" + RodaConstants.API_PATH_PARAM_TRANSFERRED_RESOURCE_UPLOAD_ID + "}")
+  @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+  @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, ExtraMediaType.APPLICATION_JAVASCRIPT})
+  @JSONP(callback = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK, queryParam = RodaConstants.API_QUERY_KEY_JSONP_CALLBACK)
+  @ApiOperation(value = "Append to upload", notes = "Append a chunk to an upload. If the connection drops, get the upload to know the offset where to resume.", response = TransferredResourceUpload.class)
+  @ApiResponses(value = {@ApiResponse(code = 200, message = "OK", response = TransferredResourceUpload.class),
+    @ApiResponse(code = 404, message = "Not found", response = ApiResponseMessage.class),
+    @ApiResponse(code = 409, message = "Wrong offset", response = TransferredResourceUpload.class)})
+  public Response appendToUpload(
+    @ApiParam(value = "The id of the upload", required = true) @PathParam(RodaConstants.API_PATH_PARAM_TRANSFERRED_RESOURCE_UPLOAD_ID) String uploadId,
+    @ApiParam(value = "Where the chunk starts in the file", required = true) @QueryParam(RodaConstants.API_QUERY_KEY_OFFSET) long offset,
+    InputStream inputStream,
+    @ApiParam(value = "Choose format in which to get the upload", allowableValues = RodaConstants.API_POST_PUT_MEDIA_TYPES) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat,
+    @ApiParam(value = "JSONP callback name", required = false, allowMultiple = false, defaultValue = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK) @QueryParam(RodaConstants.API_QUERY_KEY_JSONP_CALLBACK) String jsonpCallbackName)
+    throws RODAException {
+    String mediaType = ApiUtils.getMediaType(acceptFormat, request);
+
+    // get user
+    User user = UserUtility.getApiUser(request);
+
+    // delegate action to controller
+    TransferredResourceUpload upload = Browser.retrieveTransferredResourceUpload(user, uploadId);
+    if (upload.getOffset() != offset) {
+      return Response.status(Status.CONFLICT).entity(upload).type(mediaType).build();
+    }
+
+    upload = Browser.appendToTransferredResourceUpload(user, uploadId, offset, inputStream);
+    return Response.ok(upload, mediaType).build();
+  }
+
+  @POST
+  @Path("/uploads/{" + RodaConstants.API_PATH_PARAM_TRANSFERRED_RESOURCE_UPLOAD_ID + "}/complete")
+  @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, ExtraMediaType.APPLICATION_JAVASCRIPT})
+  @JSONP(callback = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK, queryParam = RodaConstants.API_QUERY_KEY_JSONP_CALLBACK)
+  @ApiOperation(value = "Complete upload", notes = "Create the resource with the uploaded file, optionally verifying its checksums. The checksums are kept for ingest.", response = TransferredResourceUpload.class)
+  @ApiResponses(value = {@ApiResponse(code = 200, message = "OK", response = TransferredResourceUpload.class),
+    @ApiResponse(code = 400, message = "Checksum does not match", response = ApiResponseMessage.class),
+    @ApiResponse(code = 404, message = "Not found", response = ApiResponseMessage.class),
+    @ApiResponse(code = 409, message = "Already exists", response = ApiResponseMessage.class)})
+  public Response completeUpload(
+    @ApiParam(value = "The id of the upload", required = true) @PathParam(RodaConstants.API_PATH_PARAM_TRANSFERRED_RESOURCE_UPLOAD_ID) String uploadId,
+    @ApiParam(value = "The expected SHA-256 checksum of the file") @QueryParam(RodaConstants.API_QUERY_KEY_SHA256) String sha256,
+    @ApiParam(value = "The expected MD5 checksum of the file") @QueryParam(RodaConstants.API_QUERY_KEY_MD5) String md5,
+    @ApiParam(value = "Locale") @QueryParam(RodaConstants.LOCALE) String localeString,
+    @ApiParam(value = "Commit after creation", defaultValue = "false") @QueryParam(RodaConstants.API_QUERY_PARAM_COMMIT) String commitString,
+    @ApiParam(value = "Choose format in which to get the upload", allowableValues = RodaConstants.API_POST_PUT_MEDIA_TYPES) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat,
+    @ApiParam(value = "JSONP callback name", required = false, allowMultiple = false, defaultValue = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK) @QueryParam(RodaConstants.API_QUERY_KEY_JSONP_CALLBACK) String jsonpCallbackName)
+    throws RODAException {
+    String mediaType = ApiUtils.getMediaType(acceptFormat, request);
+
+    // get user
+    User user = UserUtility.getApiUser(request);
+
+    Map<String, String> expectedChecksums = new HashMap<>();
+    if (StringUtils.isNotBlank(sha256)) {
+      expectedChecksums.put(RodaConstants.SHA256, sha256);
+    }
+    if (StringUtils.isNotBlank(md5)) {
+      expectedChecksums.put(RodaConstants.MD5, md5);
+    }
+
+    // delegate action to controller
+    try {
+      TransferredResourceUpload upload = Browser.completeTransferredResourceUpload(user, uploadId, expectedChecksums,
+        Boolean.parseBoolean(commitString));
+      return Response.ok(upload, mediaType).build();
+    } catch (AlreadyExistsException e) {
+      return Response.status(Status.CONFLICT).entity(new ApiResponseMessage(ApiResponseMessage.ERROR,
+        I18nUtility.getMessage("ui.upload.error.alreadyexists", e.getMessage(), localeString))).build();
+    }
+  }
+
+  @DELETE
+  @Path("/uploads/{" + RodaConstants.API_PATH_PARAM_TRANSFERRED_RESOURCE_UPLOAD_ID + "}")
+  @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, ExtraMediaType.APPLICATION_JAVASCRIPT})
+  @JSONP(callback = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK, queryParam = RodaConstants.API_QUERY_KEY_JSONP_CALLBACK)
+  @ApiOperation(value = "Delete upload", notes = "Cancel an upload, deleting what was uploaded.", response = Void.class)
+  @ApiResponses(value = {@ApiResponse(code = 204, message = "OK", response = Void.class),
+    @ApiResponse(code = 404, message = "Not found", response = ApiResponseMessage.class)})
+  public Response deleteUpload(
+    @ApiParam(value = "The id of the upload", required = true) @PathParam(RodaConstants.API_PATH_PARAM_TRANSFERRED_RESOURCE_UPLOAD_ID) String uploadId,
+    @ApiParam(value = "Choose format in which to get the response", allowableValues = RodaConstants.API_DELETE_MEDIA_TYPES) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat,
+    @ApiParam(value = "JSONP callback name", required = false, allowMultiple = false, defaultValue = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK) @QueryParam(RodaConstants.API_QUERY_KEY_JSONP_CALLBACK) String jsonpCallbackName)
+    throws RODAException {
+    String mediaType = ApiUtils.getMediaType(acceptFormat, request);
+
+    // get user
+    User user = UserUtility.getApiUser(request);
+
+    // delegate action to controller
+    Browser.deleteTransferredResourceUpload(user, uploadId);
+    return Response.ok(new ApiResponseMessage(ApiResponseMessage.OK, "Upload deleted"), mediaType).build();
+  }
+
   @PUT
   @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, ExtraMediaType.APPLICATION_JAVASCRIPT})
   @JSONP(callback = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK, queryParam = RodaConstants.API_QUERY_KEY_JSONP_CALLBACK)
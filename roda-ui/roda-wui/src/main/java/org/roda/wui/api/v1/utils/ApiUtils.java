@@ -172,6 +172,19 @@ public class ApiUtils {
     return Pair.of(startInteger, limitInteger);
   }
 
+  /**
+   * Builds an OK response for a page obtained using a cursor, exposing the
+   * cursor of the next page in the {@value RodaConstants#API_HTTP_HEADER_NEXT_CURSOR}
+   * header.
+   */
+  public static Response okResponseWithNextCursor(Object entity, String mediaType, String nextCursor) {
+    Response.ResponseBuilder response = Response.ok(entity, mediaType);
+    if (nextCursor != null) {
+      response.header(RodaConstants.API_HTTP_HEADER_NEXT_CURSOR, nextCursor);
+    }
+    return response.build();
+  }
+
   public static Response okResponse(StreamResponse streamResponse, CacheControl cacheControl, Date lastModifiedDate) {
     return okResponse(streamResponse, cacheControl, lastModifiedDate, false);
   }